@@ -8,6 +8,7 @@ import java.util.Map.Entry;
 
 import edu.uta.futureye.algebra.intf.AlgebraMatrix;
 import edu.uta.futureye.algebra.intf.AlgebraVector;
+import edu.uta.futureye.algebra.intf.Matrix;
 import edu.uta.futureye.algebra.intf.MatrixEntry;
 import edu.uta.futureye.algebra.intf.SparseMatrix;
 
@@ -54,7 +55,36 @@ public class CompressedColMatrix implements AlgebraMatrix {
 	public CompressedColMatrix(SparseMatrix sMat, boolean clearSparseMatrix) {
 		this.rowDim = sMat.getRowDim();
 		this.colDim = sMat.getColDim();
-		
+		if(sMat instanceof SparseMatrixCSR) {
+			//fast path: transpose primitive arrays by counting, row indices come out sorted
+			SparseMatrixCSR csr = (SparseMatrixCSR)sMat;
+			int[] ptr = csr.getRowPointer();
+			int[] ci = csr.getColIndex();
+			double[] v = csr.getData();
+			int[] cnt = new int[this.colDim];
+			for(int k=ptr[this.rowDim]; --k>=0;)
+				if(Math.abs(v[k]) >= Matrix.zeroEps) cnt[ci[k]]++;
+			this.rowIndex = new int[this.colDim][];
+			this.data = new double[this.colDim][];
+			for(int c=0; c<this.colDim; c++) {
+				this.rowIndex[c] = new int[cnt[c]];
+				this.data[c] = new double[cnt[c]];
+				cnt[c] = 0;
+			}
+			for(int r=0; r<this.rowDim; r++) {
+				for(int k=ptr[r]; k<ptr[r+1]; k++) {
+					if(Math.abs(v[k]) >= Matrix.zeroEps) {
+						int c = ci[k];
+						this.rowIndex[c][cnt[c]] = r;
+						this.data[c][cnt[c]] = v[k];
+						cnt[c]++;
+					}
+				}
+			}
+			if(clearSparseMatrix) sMat.clearAll();
+			return;
+		}
+				
 		class IVPair {
 			int index;
 			double value;
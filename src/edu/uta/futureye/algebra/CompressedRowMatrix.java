@@ -1,6 +1,7 @@
 package edu.uta.futureye.algebra;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -9,9 +10,11 @@ import java.util.Map.Entry;
 
 import edu.uta.futureye.algebra.intf.AlgebraMatrix;
 import edu.uta.futureye.algebra.intf.AlgebraVector;
+import edu.uta.futureye.algebra.intf.Matrix;
 import edu.uta.futureye.algebra.intf.MatrixEntry;
 import edu.uta.futureye.algebra.intf.SparseMatrix;
 import edu.uta.futureye.util.Constant;
+import edu.uta.futureye.util.FutureyeException;
 
 /**
  * Compressed row matrix
@@ -56,7 +59,33 @@ public class CompressedRowMatrix implements AlgebraMatrix {
 	public CompressedRowMatrix(SparseMatrix sMat, boolean clearSparseMatrix) {
 		this.rowDim = sMat.getRowDim();
 		this.colDim = sMat.getColDim();
-		
+		if(sMat instanceof SparseMatrixCSR) {
+			//fast path: copy non-zero values from primitive arrays directly
+			SparseMatrixCSR csr = (SparseMatrixCSR)sMat;
+			int[] ptr = csr.getRowPointer();
+			int[] ci = csr.getColIndex();
+			double[] v = csr.getData();
+			this.colIndex = new int[this.rowDim][];
+			this.data = new double[this.rowDim][];
+			for(int r=0; r<this.rowDim; r++) {
+				int n = 0;
+				for(int k=ptr[r]; k<ptr[r+1]; k++)
+					if(Math.abs(v[k]) >= Matrix.zeroEps) n++;
+				this.colIndex[r] = new int[n];
+				this.data[r] = new double[n];
+				n = 0;
+				for(int k=ptr[r]; k<ptr[r+1]; k++) {
+					if(Math.abs(v[k]) >= Matrix.zeroEps) {
+						this.colIndex[r][n] = ci[k];
+						this.data[r][n] = v[k];
+						n++;
+					}
+				}
+			}
+			if(clearSparseMatrix) sMat.clearAll();
+			return;
+		}
+				
 //		Map<Integer, Map<Integer, Double>> m = sMat.getAll();
 //		this.colIndex = new int[this.rowDim][];
 //		this.data = new double[this.rowDim][];
@@ -102,8 +131,8 @@ public class CompressedRowMatrix implements AlgebraMatrix {
 		
 		if(clearSparseMatrix) sMat.clearAll();
 		
-		this.colIndex = new int[this.colDim][];
-		this.data = new double[this.colDim][];
+		this.colIndex = new int[this.rowDim][];
+		this.data = new double[this.rowDim][];
 		for(int r=this.rowDim; --r>=0;) {
 			int cDim = rows[r].size();
 			this.colIndex[r] = new int[cDim];
@@ -162,18 +191,122 @@ public class CompressedRowMatrix implements AlgebraMatrix {
 		return this.rowDim;
 	}
 
+	/**
+	 * y = A*x，行数较多时按行划分后多线程计算，参见ParallelKernel
+	 */
 	@Override
 	public void mult(AlgebraVector x, AlgebraVector y) {
-		double[] xData = x.getData();
-		double[] yData = y.getData();
-		for(int row=0; row<this.rowDim; row++) {
-			int nCol = colIndex[row].length;
-			double v = 0.0;
-			for(int c=0; c<nCol; c++) {
-				v += data[row][c] * xData[colIndex[row][c]];
+		final double[] xData = x.getData();
+		final double[] yData = y.getData();
+		final int[][] colIndex = this.colIndex;
+		final double[][] data = this.data;
+		ParallelKernel.forEach(this.rowDim, new ParallelKernel.Range() {
+			@Override
+			public void run(int begin, int end) {
+				for(int row=begin; row<end; row++) {
+					int[] idx = colIndex[row];
+					double[] dat = data[row];
+					double v = 0.0;
+					for(int c=0; c<idx.length; c++) {
+						v += dat[c] * xData[idx[c]];
+					}
+					yData[row] = v;
+				}
 			}
-			yData[row] = v;
+		});
+	}
+
+	/**
+	 * y[j] = A*x[j], j=0,...,x.length-1
+	 * <p>
+	 * 多个向量同时乘以A（稀疏矩阵乘稠密矩阵，SpMM）：每一行的非零元素只读取一次，
+	 * 依次与所有向量相乘，用于多个右端项同时迭代求解（参见Solver.solveBlockCG()）
+	 * 
+	 * @param x
+	 * @param y
+	 */
+	public void mult(AlgebraVector[] x, AlgebraVector[] y) {
+		final int k = x.length;
+		final double[][] xData = new double[k][];
+		final double[][] yData = new double[k][];
+		for(int j=0; j<k; j++) {
+			xData[j] = x[j].getData();
+			yData[j] = y[j].getData();
 		}
+		final int[][] colIndex = this.colIndex;
+		final double[][] data = this.data;
+		ParallelKernel.forEach(this.rowDim, new ParallelKernel.Range() {
+			@Override
+			public void run(int begin, int end) {
+				for(int row=begin; row<end; row++) {
+					int[] idx = colIndex[row];
+					double[] dat = data[row];
+					int j = 0;
+					//每次计算4个向量，非零元素的列号和数值只读取一次
+					for(; j+4<=k; j+=4) {
+						double[] x0 = xData[j], x1 = xData[j+1], x2 = xData[j+2], x3 = xData[j+3];
+						double v0 = 0.0, v1 = 0.0, v2 = 0.0, v3 = 0.0;
+						for(int c=0; c<idx.length; c++) {
+							double a = dat[c];
+							int col = idx[c];
+							v0 += a * x0[col];
+							v1 += a * x1[col];
+							v2 += a * x2[col];
+							v3 += a * x3[col];
+						}
+						yData[j][row] = v0;
+						yData[j+1][row] = v1;
+						yData[j+2][row] = v2;
+						yData[j+3][row] = v3;
+					}
+					for(; j<k; j++) {
+						double[] xj = xData[j];
+						double v = 0.0;
+						for(int c=0; c<idx.length; c++) {
+							v += dat[c] * xj[idx[c]];
+						}
+						yData[j][row] = v;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * y = A*x，同时返回x.y（A为方阵）
+	 * <p>
+	 * 与mult(x,y)后再调用x.dot(y)的结果相同，但只遍历一次向量，
+	 * 例如CG中的q=A*p和p.q
+	 * 
+	 * @param x
+	 * @param y
+	 * @return x.y
+	 */
+	public double multDot(AlgebraVector x, AlgebraVector y) {
+		if(this.rowDim != this.colDim)
+			throw new FutureyeException("multDot: matrix is not square "+
+					this.rowDim+"x"+this.colDim);
+		final double[] xData = x.getData();
+		final double[] yData = y.getData();
+		final int[][] colIndex = this.colIndex;
+		final double[][] data = this.data;
+		return ParallelKernel.sum(this.rowDim, new ParallelKernel.RangeSum() {
+			@Override
+			public double sum(int begin, int end) {
+				double rlt = 0.0;
+				for(int row=begin; row<end; row++) {
+					int[] idx = colIndex[row];
+					double[] dat = data[row];
+					double v = 0.0;
+					for(int c=0; c<idx.length; c++) {
+						v += dat[c] * xData[idx[c]];
+					}
+					yData[row] = v;
+					rlt += xData[row]*v;
+				}
+				return rlt;
+			}
+		});
 	}
 
 	@Override
@@ -237,6 +370,60 @@ public class CompressedRowMatrix implements AlgebraMatrix {
 				System.arraycopy(cColIndex, 0, CC.colIndex[row], 0, total);
 				System.arraycopy(cColData, 0, CC.data[row], 0, total);
 			}
+		} else if(B instanceof CompressedRowMatrix && C instanceof CompressedRowMatrix) {
+			//按行计算（Gustavson）：C的第row行 = sum_k A(row,k)*B的第k行，
+			//计算量与乘法次数成正比，适用于多重网格中的Galerkin乘积R*A*P
+			CompressedRowMatrix BB = (CompressedRowMatrix)B;
+			CompressedRowMatrix CC = (CompressedRowMatrix)C;
+			int nRow = this.rowDim;
+			int[][] cColIndex = new int[nRow][];
+			double[][] cData = new double[nRow][];
+			
+			double[] tmpData = new double[BB.colDim]; //保存一整行数据的临时数组
+			int[] tmpFlag = new int[BB.colDim]; //保存一整行标记的临时数组
+			for(int j=0;j<BB.colDim;j++) tmpFlag[j] = -1;
+			int[] tmpIndex = new int[BB.colDim]; //非零列的列号
+			
+			for(int row=0; row<nRow; row++) {
+				int total = 0;
+				int nCol = this.colIndex[row].length;
+				for(int c=0; c<nCol; c++) {
+					int k = this.colIndex[row][c];
+					double a = this.data[row][c];
+					int[] bRowIdx = BB.colIndex[k];
+					double[] bRow = BB.data[k];
+					for(int cb=0; cb<bRowIdx.length; cb++) {
+						int j = bRowIdx[cb];
+						if(tmpFlag[j] != row) {
+							tmpFlag[j] = row;
+							tmpData[j] = a*bRow[cb];
+							tmpIndex[total++] = j;
+						} else {
+							tmpData[j] += a*bRow[cb];
+						}
+					}
+				}
+				Arrays.sort(tmpIndex, 0, total);
+				int nz = 0;
+				for(int t=0; t<total; t++)
+					if(Math.abs(tmpData[tmpIndex[t]]) > Constant.eps) nz++;
+				cColIndex[row] = new int[nz];
+				cData[row] = new double[nz];
+				nz = 0;
+				for(int t=0; t<total; t++) {
+					int j = tmpIndex[t];
+					if(Math.abs(tmpData[j]) > Constant.eps) {
+						cColIndex[row][nz] = j;
+						cData[row][nz] = tmpData[j];
+						nz++;
+					}
+				}
+			}
+			//C可以是this或B
+			CC.rowDim = nRow;
+			CC.colDim = BB.colDim;
+			CC.colIndex = cColIndex;
+			CC.data = cData;
 		} else if(B instanceof FullMatrix && C instanceof CompressedRowMatrix) {
 			FullMatrix BB = (FullMatrix)B;
 			CompressedRowMatrix CC = (CompressedRowMatrix)C;
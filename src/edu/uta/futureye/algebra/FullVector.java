@@ -5,6 +5,8 @@ import edu.uta.futureye.algebra.intf.Vector;
 
 /**
  * Full(dense) vector. Data is stored in a double array.
+ * <p>
+ * 长向量的运算（set、add、axpy、dot、norm2等）使用多线程，参见ParallelKernel
  * 
  * @author liuyueming
  *
@@ -74,97 +76,173 @@ public class FullVector implements AlgebraVector {
 	
 	@Override
 	public AlgebraVector set(AlgebraVector v) {
-		double[] yData = v.getData();
-		for(int i=dim; --i>=0;) {
-			this.data[i] = yData[i];
-		}
+		final double[] yData = v.getData();
+		final double[] data = this.data;
+		ParallelKernel.forEach(dim, new ParallelKernel.Range() {
+			@Override
+			public void run(int begin, int end) {
+				for(int i=begin; i<end; i++)
+					data[i] = yData[i];
+			}
+		});
 		return this;
 	}
 
 	@Override
-	public AlgebraVector set(double a, AlgebraVector v) {
-		double[] yData = v.getData();
-		for(int i=dim; --i>=0;) {
-			this.data[i] = a*yData[i];
-		}
+	public AlgebraVector set(final double a, AlgebraVector v) {
+		final double[] yData = v.getData();
+		final double[] data = this.data;
+		ParallelKernel.forEach(dim, new ParallelKernel.Range() {
+			@Override
+			public void run(int begin, int end) {
+				for(int i=begin; i<end; i++)
+					data[i] = a*yData[i];
+			}
+		});
 		return this;
 	}
 
 	@Override
-	public AlgebraVector scale(double a) {
-		for(int i=dim; --i>=0;)
-			this.data[i] *= a;
+	public AlgebraVector scale(final double a) {
+		final double[] data = this.data;
+		ParallelKernel.forEach(dim, new ParallelKernel.Range() {
+			@Override
+			public void run(int begin, int end) {
+				for(int i=begin; i<end; i++)
+					data[i] *= a;
+			}
+		});
 		return this;
 	}
 	
 	@Override
 	public AlgebraVector add(AlgebraVector v) {
-		double[] yData = v.getData();
-		for(int i=dim; --i>=0;) {
-			this.data[i] += yData[i];
-		}
+		final double[] yData = v.getData();
+		final double[] data = this.data;
+		ParallelKernel.forEach(dim, new ParallelKernel.Range() {
+			@Override
+			public void run(int begin, int end) {
+				for(int i=begin; i<end; i++)
+					data[i] += yData[i];
+			}
+		});
 		return this;
 	}
 	
 	@Override
 	public AlgebraVector subtract(AlgebraVector v) {
-		double[] yData = v.getData();
-		for(int i=dim; --i>=0;) {
-			this.data[i] -= yData[i];
-		}
+		final double[] yData = v.getData();
+		final double[] data = this.data;
+		ParallelKernel.forEach(dim, new ParallelKernel.Range() {
+			@Override
+			public void run(int begin, int end) {
+				for(int i=begin; i<end; i++)
+					data[i] -= yData[i];
+			}
+		});
 		return this;
 	}
 	
 	@Override
-	public AlgebraVector add(double a, AlgebraVector v) {
-		double[] yData = v.getData();
-		for(int i=dim; --i>=0;) {
-			this.data[i] = this.data[i] + a*yData[i];
-		}
+	public AlgebraVector add(final double a, AlgebraVector v) {
+		final double[] yData = v.getData();
+		final double[] data = this.data;
+		ParallelKernel.forEach(dim, new ParallelKernel.Range() {
+			@Override
+			public void run(int begin, int end) {
+				for(int i=begin; i<end; i++)
+					data[i] = data[i] + a*yData[i];
+			}
+		});
 		return this;
 	}
 
 	@Override
 	public double dot(AlgebraVector y) {
-		double[] yData = y.getData();
-		double rlt = 0.0;
-		for(int i=dim; --i>=0;) {
-			rlt += this.data[i]*yData[i];
-		}
-		return rlt;
+		final double[] yData = y.getData();
+		final double[] data = this.data;
+		return ParallelKernel.sum(dim, new ParallelKernel.RangeSum() {
+			@Override
+			public double sum(int begin, int end) {
+				double rlt = 0.0;
+				for(int i=begin; i<end; i++)
+					rlt += data[i]*yData[i];
+				return rlt;
+			}
+		});
 	}
 
 	@Override
-	public AlgebraVector ax(double a) {
-		for(int i=dim; --i>=0;)
-			this.data[i] *= a;
+	public double addNorm2(final double a, AlgebraVector y) {
+		final double[] yData = y.getData();
+		final double[] data = this.data;
+		return Math.sqrt(ParallelKernel.sum(dim, new ParallelKernel.RangeSum() {
+			@Override
+			public double sum(int begin, int end) {
+				double rlt = 0.0;
+				for(int i=begin; i<end; i++) {
+					double v = data[i] + a*yData[i];
+					data[i] = v;
+					rlt += v*v;
+				}
+				return rlt;
+			}
+		}));
+	}
+
+	@Override
+	public AlgebraVector ax(final double a) {
+		final double[] data = this.data;
+		ParallelKernel.forEach(dim, new ParallelKernel.Range() {
+			@Override
+			public void run(int begin, int end) {
+				for(int i=begin; i<end; i++)
+					data[i] *= a;
+			}
+		});
 		return this;
 	}
 
 	@Override
-	public AlgebraVector axpy(double a, AlgebraVector y) {
-		double[] yData = y.getData();
-		for(int i=dim; --i>=0;) {
-			this.data[i] = a*this.data[i] + yData[i];
-		}
+	public AlgebraVector axpy(final double a, AlgebraVector y) {
+		final double[] yData = y.getData();
+		final double[] data = this.data;
+		ParallelKernel.forEach(dim, new ParallelKernel.Range() {
+			@Override
+			public void run(int begin, int end) {
+				for(int i=begin; i<end; i++)
+					data[i] = a*data[i] + yData[i];
+			}
+		});
 		return this;
 	}
 	
 	@Override
-	public AlgebraVector axmy(double a, AlgebraVector y) {
-		double[] yData = y.getData();
-		for(int i=dim; --i>=0;) {
-			this.data[i] = a*this.data[i] * yData[i];
-		}
+	public AlgebraVector axmy(final double a, AlgebraVector y) {
+		final double[] yData = y.getData();
+		final double[] data = this.data;
+		ParallelKernel.forEach(dim, new ParallelKernel.Range() {
+			@Override
+			public void run(int begin, int end) {
+				for(int i=begin; i<end; i++)
+					data[i] = a*data[i] * yData[i];
+			}
+		});
 		return this;
 	}
 
 	@Override
 	public double norm1() {
-		double rlt = 0.0;
-		for(int i=dim; --i>=0;)
-			rlt += Math.abs(this.data[i]);
-		return rlt;
+		final double[] data = this.data;
+		return ParallelKernel.sum(dim, new ParallelKernel.RangeSum() {
+			@Override
+			public double sum(int begin, int end) {
+				double rlt = 0.0;
+				for(int i=begin; i<end; i++)
+					rlt += Math.abs(data[i]);
+				return rlt;
+			}
+		});
 	}	
 	
 	@Override
@@ -0,0 +1,175 @@
+package edu.uta.futureye.algebra;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Multithreaded loops and reductions for vector and matrix kernels
+ *
+ * 迭代法中的稀疏矩阵向量乘法（CompressedRowMatrix.mult）和向量运算（FullVector的axpy、dot、norm2等）
+ * 按下标区间划分后在共享的ForkJoinPool上并行计算。长度小于threshold时仍然串行计算，避免线程调度的开销。
+ *
+ * 求和（dot、norm2等）：
+ *   deterministic=false：每个线程计算一个区间的部分和，再按区间顺序相加，
+ *     结果与线程数有关；
+ *   deterministic=true：按固定长度blockSize的块计算部分和，再按块的顺序相加，
+ *     串行和并行、任意线程数的结果都完全相同（bitwise），便于重复实验结果。
+ *
+ * Usage:
+ *   ParallelKernel.setPool(new ForkJoinPool(8)); //可选，默认使用所有处理器
+ *   ParallelKernel.deterministic = true;
+ *   Vector x = new Solver().solveCG(stiff, load);
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class ParallelKernel {
+	//是否使用多线程
+	public static boolean enabled = true;
+	//长度不小于threshold时才使用多线程
+	public static int threshold = 50000;
+	//确定性求和
+	public static boolean deterministic = false;
+	//确定性求和的块长度
+	public static int blockSize = 4096;
+
+	private static ForkJoinPool pool = null;
+
+	/**
+	 * 区间[begin,end)上的循环体
+	 */
+	public static abstract class Range {
+		public abstract void run(int begin, int end);
+	}
+
+	/**
+	 * 区间[begin,end)上的部分和
+	 */
+	public static abstract class RangeSum {
+		public abstract double sum(int begin, int end);
+	}
+
+	/**
+	 * 共享的线程池，第一次使用时创建，线程数等于处理器个数
+	 */
+	public static synchronized ForkJoinPool getPool() {
+		if(pool == null)
+			pool = new ForkJoinPool();
+		return pool;
+	}
+
+	/**
+	 * 替换共享的线程池，原线程池不关闭
+	 *
+	 * @param p
+	 */
+	public static synchronized void setPool(ForkJoinPool p) {
+		pool = p;
+	}
+
+	/**
+	 * 长度为<tt>n</tt>的循环是否使用多线程
+	 */
+	public static boolean isParallel(int n) {
+		return enabled && n >= threshold && getPool().getParallelism() > 1;
+	}
+
+	/**
+	 * 对区间[0,n)执行<tt>body</tt>，并行时区间按线程数等分
+	 *
+	 * @param n
+	 * @param body
+	 */
+	public static void forEach(int n, Range body) {
+		if(!isParallel(n)) {
+			body.run(0, n);
+			return;
+		}
+		invoke(getPool().getParallelism(), n, body);
+	}
+
+	/**
+	 * 区间[0,n)上的求和，参见deterministic
+	 *
+	 * @param n
+	 * @param body
+	 * @return
+	 */
+	public static double sum(final int n, final RangeSum body) {
+		final boolean parallel = isParallel(n);
+		if(deterministic) {
+			final int bs = blockSize;
+			final int nBlock = (int)(((long)n+bs-1)/bs);
+			final double[] partial = new double[nBlock];
+			Range blocks = new Range() {
+				@Override
+				public void run(int begin, int end) {
+					for(int b=begin; b<end; b++)
+						partial[b] = body.sum(b*bs, (int)Math.min((long)(b+1)*bs, n));
+				}
+			};
+			if(parallel)
+				invoke(getPool().getParallelism(), nBlock, blocks);
+			else
+				blocks.run(0, nBlock);
+			double s = 0.0;
+			for(int b=0; b<nBlock; b++)
+				s += partial[b];
+			return s;
+		}
+		if(!parallel)
+			return body.sum(0, n);
+		final int nTask = getPool().getParallelism();
+		final double[] partial = new double[nTask];
+		invoke(nTask, nTask, new Range() {
+			@Override
+			public void run(int begin, int end) {
+				for(int t=begin; t<end; t++)
+					partial[t] = body.sum((int)((long)n*t/nTask), (int)((long)n*(t+1)/nTask));
+			}
+		});
+		double s = 0.0;
+		for(int t=0; t<nTask; t++)
+			s += partial[t];
+		return s;
+	}
+
+	/**
+	 * 把区间[0,n)等分为nTask个子区间，在线程池上执行
+	 */
+	protected static void invoke(int nTask, int n, final Range body) {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(nTask);
+		for(int t=0; t<nTask; t++) {
+			final int from = (int)((long)n*t/nTask);
+			final int to = (int)((long)n*(t+1)/nTask);
+			if(from == to) continue;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					body.run(from, to);
+					return null;
+				}
+			});
+		}
+		try {
+			for(Future<Void> f : getPool().invokeAll(tasks))
+				f.get();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new FutureyeException("Parallel kernel interrupted");
+		} catch(ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			throw new FutureyeException(cause.toString());
+		}
+	}
+}
@@ -249,9 +249,42 @@ public class SparseBlockMatrix implements BlockMatrix<SparseMatrix>,SparseMatrix
 		}		
 	}	
 
+	/**
+	 * Locate the block which contains (row,col) and add <tt>value</tt> to it directly,
+	 * so that the block implementation (e.g. <tt>SparseMatrixCSR</tt>) can avoid
+	 * a get+set round trip
+	 */
 	@Override
 	public void add(int row, int col, double value) {
-		set(row,col,get(row,col)+value);
+		int rBase = 0;
+		Map<Integer, SparseMatrix> rMats = null;
+		boolean find = false;
+		for(int r=1;r<=this.rowBlockDim;r++) {
+			rMats = m.get(r);
+			int rUpper = rMats.get(1).getRowDim();
+			if(rBase < row && row <= rBase+rUpper) {
+				find = true;
+				break;
+			} else {
+				rBase += rUpper;
+			}
+		}
+		if(!find) {
+			throw new FutureyeException("row="+row+"; rMax="+rBase);
+		}
+		int cBase = 0;
+		find = false;
+		for(int c=1;c<=this.colBlockDim;c++) {
+			SparseMatrix cMat = rMats.get(c);
+			int cUpper = cMat.getColDim();
+			if(cBase < col && col <= cBase+cUpper) {
+				cMat.add(row - rBase, col - cBase, value);
+				return;
+			} else {
+				cBase += cUpper;
+			}
+		}
+		throw new FutureyeException("col="+col+"; cMax="+cBase);
 	}
 
 	@Override
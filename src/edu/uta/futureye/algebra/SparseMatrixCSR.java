@@ -0,0 +1,665 @@
+package edu.uta.futureye.algebra;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import edu.uta.futureye.algebra.intf.Matrix;
+import edu.uta.futureye.algebra.intf.MatrixEntry;
+import edu.uta.futureye.algebra.intf.SparseMatrix;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.io.MatlabMatFileWriter;
+import edu.uta.futureye.util.FutureyeException;
+import edu.uta.futureye.util.Sequence;
+
+/**
+ * <blockquote><pre>
+ * Primitive array based sparse matrix for global assembly
+ *
+ * 数据分两部分保存：
+ * 1. CSR(Compressed Sparse Row)结构：rowPtr, colIdx, vals，每行内列号升序
+ * 2. COO三元组缓冲区：合成过程中新出现的非零元素先追加到缓冲区，
+ *    在读取（get,mult,iterator等）或调用compress()时一次性合并到CSR结构中
+ *
+ * 对已在CSR结构中的元素，add()和set()直接在数组中二分查找并修改，不产生任何对象，
+ * 因此同一网格上的第二次合成（结构不变）不再需要缓冲区。
+ *
+ * 与SparseMatrixRowMajor不同，set(row,col,0.0)不会从结构中删除该元素，
+ * 而是保留一个“结构零元”，需要时调用compact()删除。
+ * 迭代子和getAll()都会跳过零元素。
+ *
+ * 行列号从1开始，与SparseMatrix接口一致；内部数组下标从0开始。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class SparseMatrixCSR implements SparseMatrix {
+	protected int rowDim;
+	protected int colDim;
+
+	/**
+	 * CSR structure: entries of row r are stored in [rowPtr[r], rowPtr[r+1]),
+	 * column indices (0-based) are kept sorted within each row
+	 */
+	protected int[] rowPtr = null;
+	protected int[] colIdx = null;
+	protected double[] vals = null;
+
+	/**
+	 * COO triplet buffer (0-based). A negative column <tt>~c</tt> marks
+	 * a <tt>set</tt> operation, otherwise the value is added.
+	 */
+	protected int[] cooRow = null;
+	protected int[] cooCol = null;
+	protected double[] cooVal = null;
+	protected int cooSize = 0;
+
+	protected String name = this.getClass().getSimpleName()+Sequence.getInstance().nextSeq();
+
+	public SparseMatrixCSR() {
+	}
+
+	public SparseMatrixCSR(String name) {
+		this.name = name;
+	}
+
+	public SparseMatrixCSR(int rowDim, int colDim) {
+		this.rowDim = rowDim;
+		this.colDim = colDim;
+	}
+
+	public SparseMatrixCSR(String name, int rowDim, int colDim) {
+		this.name = name;
+		this.rowDim = rowDim;
+		this.colDim = colDim;
+	}
+
+	/**
+	 * Construct a matrix and preallocate the triplet buffer
+	 *
+	 * @param rowDim
+	 * @param colDim
+	 * @param nnzEstimate estimated number of <tt>add()</tt> calls during assembly
+	 */
+	public SparseMatrixCSR(int rowDim, int colDim, int nnzEstimate) {
+		this.rowDim = rowDim;
+		this.colDim = colDim;
+		ensureCOOCapacity(nnzEstimate);
+	}
+
+	/**
+	 * Construct a matrix with a fixed CSR structure (0-based column indices sorted within each row).
+	 * The arrays are NOT copied. All values are initialized to zero.
+	 *
+	 * @param rowDim
+	 * @param colDim
+	 * @param rowPtr
+	 * @param colIdx
+	 */
+	public SparseMatrixCSR(int rowDim, int colDim, int[] rowPtr, int[] colIdx) {
+		this.rowDim = rowDim;
+		this.colDim = colDim;
+		this.rowPtr = rowPtr;
+		this.colIdx = colIdx;
+		this.vals = new double[colIdx.length];
+	}
+
+	@Override
+	public void setRowDim(int nRowDim) {
+		if(this.rowPtr != null && nRowDim != this.rowDim) {
+			compress();
+			int[] newPtr = new int[nRowDim+1];
+			int n = Math.min(nRowDim, this.rowDim);
+			System.arraycopy(this.rowPtr, 0, newPtr, 0, n+1);
+			for(int r=n+1; r<=nRowDim; r++)
+				newPtr[r] = newPtr[n];
+			this.rowPtr = newPtr;
+		}
+		this.rowDim = nRowDim;
+	}
+
+	@Override
+	public int getRowDim() {
+		return this.rowDim;
+	}
+
+	@Override
+	public void setColDim(int nColDim) {
+		this.colDim = nColDim;
+	}
+
+	@Override
+	public int getColDim() {
+		return this.colDim;
+	}
+
+	/**
+	 * Return the position of (r,c) in the CSR arrays, -1 if not found (0-based)
+	 */
+	protected int find(int r, int c) {
+		if(this.rowPtr == null) return -1;
+		int lo = this.rowPtr[r];
+		int hi = this.rowPtr[r+1]-1;
+		int[] ci = this.colIdx;
+		while(lo <= hi) {
+			int mid = (lo+hi) >>> 1;
+			int v = ci[mid];
+			if(v < c) lo = mid+1;
+			else if(v > c) hi = mid-1;
+			else return mid;
+		}
+		return -1;
+	}
+
+	protected void ensureCOOCapacity(int size) {
+		if(this.cooRow == null) {
+			int cap = Math.max(size, 16);
+			this.cooRow = new int[cap];
+			this.cooCol = new int[cap];
+			this.cooVal = new double[cap];
+		} else if(size > this.cooRow.length) {
+			int cap = Math.max(size, this.cooRow.length + (this.cooRow.length>>1));
+			this.cooRow = Arrays.copyOf(this.cooRow, cap);
+			this.cooCol = Arrays.copyOf(this.cooCol, cap);
+			this.cooVal = Arrays.copyOf(this.cooVal, cap);
+		}
+	}
+
+	protected void pushCOO(int r, int c, double value) {
+		if(this.cooRow == null || this.cooSize == this.cooRow.length)
+			ensureCOOCapacity(this.cooSize+1);
+		this.cooRow[this.cooSize] = r;
+		this.cooCol[this.cooSize] = c;
+		this.cooVal[this.cooSize] = value;
+		this.cooSize++;
+	}
+
+	@Override
+	public void set(int row, int col, double value) {
+		int r = row-1, c = col-1;
+		int k = find(r, c);
+		if(k >= 0) {
+			this.vals[k] = value;
+		} else if(this.cooSize > 0 || Math.abs(value) >= Matrix.zeroEps) {
+			//there may be a pending add() for (r,c) in the buffer,
+			//so record the set operation even if value is zero
+			pushCOO(r, ~c, value);
+		}
+	}
+
+	@Override
+	public double get(int row, int col) {
+		if(this.cooSize > 0) compress();
+		int k = find(row-1, col-1);
+		if(k >= 0)
+			return this.vals[k];
+		return 0.0;
+	}
+
+	@Override
+	public void add(int row, int col, double value) {
+		int r = row-1, c = col-1;
+		int k = find(r, c);
+		if(k >= 0) {
+			this.vals[k] += value;
+		} else if(value != 0.0) {
+			pushCOO(r, c, value);
+		}
+	}
+
+	/**
+	 * Merge the triplet buffer into the CSR structure. Triplets are applied
+	 * in the order they were added, duplicates are summed up.
+	 * <p>
+	 * 将三元组缓冲区合并到CSR结构中，重复元素相加
+	 */
+	public SparseMatrixCSR compress() {
+		if(this.cooSize == 0) {
+			if(this.rowPtr == null) {
+				this.rowPtr = new int[this.rowDim+1];
+				this.colIdx = new int[0];
+				this.vals = new double[0];
+			}
+			return this;
+		}
+		int nRow = this.rowDim;
+		int n = this.cooSize;
+		for(int i=0; i<n; i++) {
+			int c = this.cooCol[i];
+			if(c < 0) c = ~c;
+			if(this.cooRow[i] >= nRow || c >= this.colDim || this.cooRow[i] < 0)
+				throw new FutureyeException("SparseMatrixCSR: index out of bound ("+
+						(this.cooRow[i]+1)+","+(c+1)+"), dim=("+this.rowDim+","+this.colDim+")");
+		}
+
+		//stable bucket sort of triplets by row
+		int[] cnt = new int[nRow+1];
+		for(int i=0; i<n; i++)
+			cnt[this.cooRow[i]+1]++;
+		for(int r=0; r<nRow; r++)
+			cnt[r+1] += cnt[r];
+		int[] order = new int[n];
+		int[] fill = new int[nRow];
+		for(int i=0; i<n; i++) {
+			int r = this.cooRow[i];
+			order[cnt[r] + fill[r]++] = i;
+		}
+		fill = null;
+
+		int oldNNZ = this.rowPtr == null ? 0 : this.rowPtr[nRow];
+		int[] newPtr = new int[nRow+1];
+		int[] newCol = new int[oldNNZ+n];
+		double[] newVal = new double[oldNNZ+n];
+
+		//pos[c]: slot of column c in the current row, -1 if none
+		int[] pos = new int[this.colDim];
+		Arrays.fill(pos, -1);
+		int[] rowCols = new int[16];
+		double[] rowVals = new double[16];
+		int nnz = 0;
+		for(int r=0; r<nRow; r++) {
+			int size = 0;
+			if(this.rowPtr != null) {
+				for(int k=this.rowPtr[r]; k<this.rowPtr[r+1]; k++) {
+					if(size == rowCols.length) {
+						rowCols = Arrays.copyOf(rowCols, size*2);
+						rowVals = Arrays.copyOf(rowVals, size*2);
+					}
+					pos[this.colIdx[k]] = size;
+					rowCols[size] = this.colIdx[k];
+					rowVals[size] = this.vals[k];
+					size++;
+				}
+			}
+			for(int t=cnt[r]; t<cnt[r+1]; t++) {
+				int i = order[t];
+				int c = this.cooCol[i];
+				boolean isSet = c < 0;
+				if(isSet) c = ~c;
+				int p = pos[c];
+				if(p < 0) {
+					if(size == rowCols.length) {
+						rowCols = Arrays.copyOf(rowCols, size*2);
+						rowVals = Arrays.copyOf(rowVals, size*2);
+					}
+					p = size++;
+					pos[c] = p;
+					rowCols[p] = c;
+					rowVals[p] = 0.0;
+				}
+				if(isSet)
+					rowVals[p] = this.cooVal[i];
+				else
+					rowVals[p] += this.cooVal[i];
+			}
+			//write the row with sorted column indices
+			newPtr[r] = nnz;
+			Arrays.sort(rowCols, 0, size);
+			for(int j=0; j<size; j++) {
+				int c = rowCols[j];
+				newCol[nnz] = c;
+				newVal[nnz] = rowVals[pos[c]];
+				nnz++;
+			}
+			for(int j=0; j<size; j++)
+				pos[rowCols[j]] = -1;
+		}
+		newPtr[nRow] = nnz;
+
+		this.rowPtr = newPtr;
+		this.colIdx = nnz == newCol.length ? newCol : Arrays.copyOf(newCol, nnz);
+		this.vals = nnz == newVal.length ? newVal : Arrays.copyOf(newVal, nnz);
+		this.cooSize = 0;
+		return this;
+	}
+
+	/**
+	 * Compress and release the triplet buffer. Call this after assembly is done
+	 * to free the memory used by the buffer.
+	 */
+	public SparseMatrixCSR finish() {
+		compress();
+		this.cooRow = null;
+		this.cooCol = null;
+		this.cooVal = null;
+		return this;
+	}
+
+	/**
+	 * Remove entries with absolute value less than <tt>Matrix.zeroEps</tt> from the structure
+	 * <p>
+	 * 删除结构中的零元素
+	 */
+	public SparseMatrixCSR compact() {
+		compress();
+		//new arrays are allocated, the structure may be shared with a SparsityPattern
+		int[] newPtr = new int[this.rowDim+1];
+		int[] newCol = new int[this.rowPtr[this.rowDim]];
+		double[] newVal = new double[newCol.length];
+		int nnz = 0;
+		for(int r=0; r<this.rowDim; r++) {
+			for(int k=this.rowPtr[r]; k<this.rowPtr[r+1]; k++) {
+				if(Math.abs(this.vals[k]) >= Matrix.zeroEps) {
+					newCol[nnz] = this.colIdx[k];
+					newVal[nnz] = this.vals[k];
+					nnz++;
+				}
+			}
+			newPtr[r+1] = nnz;
+		}
+		this.rowPtr = newPtr;
+		this.colIdx = Arrays.copyOf(newCol, nnz);
+		this.vals = Arrays.copyOf(newVal, nnz);
+		return this;
+	}
+
+	/**
+	 * Set all values to zero, the sparsity structure is kept, so that the
+	 * next assembly on the same mesh writes directly into the CSR arrays.
+	 * <p>
+	 * 所有元素置零，保留稀疏结构，同一网格上的下一次合成不再需要三元组缓冲区
+	 */
+	public void zeroData() {
+		compress();
+		Arrays.fill(this.vals, 0.0);
+	}
+
+	/**
+	 * Return a map of the data in this matrix.
+	 * <p>
+	 * This is a slow compatibility view: the data are copied from the
+	 * primitive arrays, changes in the returned map are NOT reflected in this matrix.
+	 */
+	@Override
+	public Map<Integer, Map<Integer, Double>> getAll() {
+		compress();
+		Map<Integer, Map<Integer, Double>> m = new HashMap<Integer, Map<Integer, Double>>();
+		for(int r=0; r<this.rowDim; r++) {
+			Map<Integer, Double> aRow = null;
+			for(int k=this.rowPtr[r]; k<this.rowPtr[r+1]; k++) {
+				if(Math.abs(this.vals[k]) >= Matrix.zeroEps) {
+					if(aRow == null) {
+						aRow = new HashMap<Integer, Double>();
+						m.put(r+1, aRow);
+					}
+					aRow.put(this.colIdx[k]+1, this.vals[k]);
+				}
+			}
+		}
+		return m;
+	}
+
+	@Override
+	public void setAll(int nRowBase, int nColBase,
+			Map<Integer, Map<Integer, Double>> dataMap) {
+		for(Entry<Integer, Map<Integer, Double>> rowEentry : dataMap.entrySet()) {
+			int nRow = rowEentry.getKey();
+			Map<Integer, Double> row = rowEentry.getValue();
+			for(Entry<Integer, Double> entry : row.entrySet()) {
+				int nCol = entry.getKey();
+				set(nRowBase+nRow,nColBase+nCol,entry.getValue());
+			}
+		}
+	}
+
+	@Override
+	public void clearAll() {
+		this.rowDim = 0;
+		this.colDim = 0;
+		clearData();
+	}
+
+	@Override
+	public void clearData() {
+		this.rowPtr = null;
+		this.colIdx = null;
+		this.vals = null;
+		this.cooSize = 0;
+	}
+
+	/**
+	 * y = M*x with primitive arrays (0-based)
+	 *
+	 * @param x
+	 * @param y
+	 */
+	public void mult(double[] x, double[] y) {
+		compress();
+		int[] ptr = this.rowPtr;
+		int[] ci = this.colIdx;
+		double[] v = this.vals;
+		for(int r=0; r<this.rowDim; r++) {
+			double sum = 0.0;
+			for(int k=ptr[r], end=ptr[r+1]; k<end; k++)
+				sum += v[k]*x[ci[k]];
+			y[r] = sum;
+		}
+	}
+
+	@Override
+	public void mult(Vector x, Vector y) {
+		compress();
+		for(int r=0; r<this.rowDim; r++) {
+			double sum = 0.0;
+			for(int k=this.rowPtr[r]; k<this.rowPtr[r+1]; k++)
+				sum += this.vals[k]*x.get(this.colIdx[k]+1);
+			y.set(r+1, sum);
+		}
+	}
+
+	/**
+	 * A=A'
+	 */
+	@Override
+	public SparseMatrixCSR trans() {
+		compress();
+		int nRow = this.colDim;
+		int nnz = this.rowPtr[this.rowDim];
+		int[] ptr = new int[nRow+1];
+		for(int k=0; k<nnz; k++)
+			ptr[this.colIdx[k]+1]++;
+		for(int r=0; r<nRow; r++)
+			ptr[r+1] += ptr[r];
+		int[] next = Arrays.copyOf(ptr, nRow);
+		int[] ci = new int[nnz];
+		double[] v = new double[nnz];
+		//column indices of the transpose come out sorted since rows are visited in order
+		for(int r=0; r<this.rowDim; r++) {
+			for(int k=this.rowPtr[r]; k<this.rowPtr[r+1]; k++) {
+				int p = next[this.colIdx[k]]++;
+				ci[p] = r;
+				v[p] = this.vals[k];
+			}
+		}
+		this.colDim = this.rowDim;
+		this.rowDim = nRow;
+		this.rowPtr = ptr;
+		this.colIdx = ci;
+		this.vals = v;
+		return this;
+	}
+
+	@Override
+	public SparseMatrixCSR copy() {
+		compress();
+		SparseMatrixCSR newM = new SparseMatrixCSR(this.rowDim, this.colDim);
+		newM.rowPtr = this.rowPtr.clone();
+		newM.colIdx = this.colIdx.clone();
+		newM.vals = this.vals.clone();
+		return newM;
+	}
+
+	/**
+	 * Number of non-zero values. Structural zeros are not counted.
+	 */
+	@Override
+	public int getNonZeroNumber() {
+		compress();
+		int rlt = 0;
+		int nnz = this.rowPtr[this.rowDim];
+		for(int k=0; k<nnz; k++)
+			if(Math.abs(this.vals[k]) >= Matrix.zeroEps) rlt++;
+		return rlt;
+	}
+
+	/**
+	 * Row pointers of the CSR structure (0-based), length <tt>rowDim+1</tt>
+	 */
+	public int[] getRowPointer() {
+		compress();
+		return this.rowPtr;
+	}
+
+	/**
+	 * Column indices of the CSR structure (0-based), sorted within each row
+	 */
+	public int[] getColIndex() {
+		compress();
+		return this.colIdx;
+	}
+
+	/**
+	 * Values of the CSR structure
+	 */
+	public double[] getData() {
+		compress();
+		return this.vals;
+	}
+
+	@Override
+	public void print() {
+		for(int i=1;i<=rowDim;i++) {
+			for(int j=1;j<=colDim;j++) {
+				System.out.print(String.format("%8.6f   ", get(i,j)));
+			}
+			System.out.println();
+		}
+		System.out.println();
+	}
+
+	public String toString() {
+		return "SparseMatrixCSR:"+name+"("+
+			this.rowDim+","+this.colDim+
+			"):NNZ="+(this.rowPtr==null?0:this.rowPtr[this.rowDim])+
+			",COO="+this.cooSize;
+	}
+
+	@Override
+	public SparseMatrixCSR setName(String name) {
+		this.name = name;
+		return this;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public void writeMatFile(String fileName) {
+		MatlabMatFileWriter w = new MatlabMatFileWriter();
+		w.addSparseMatrix(this);
+		w.writeFile(fileName);
+	}
+
+	@Override
+	public void writeSimpleFile(String fileName) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public double apply(int row, int col) {
+		return this.get(row, col);
+	}
+
+	@Override
+	public void update(int row, int col, double value) {
+		this.set(row, col, value);
+	}
+
+	/**
+	 * Return a row-major iterator over non-zero values
+	 */
+	@Override
+	public Iterator<MatrixEntry> iterator() {
+		compress();
+		return new CSRIterator();
+	}
+
+	/**
+	 * Iterator over this sparse matrix, entries with zero value are skipped.
+	 */
+	class CSRIterator implements Iterator<MatrixEntry> {
+		int row = 0;
+		int next = -1;
+		final CSREntry entry = new CSREntry();
+
+		CSRIterator() {
+			advance(0);
+		}
+
+		void advance(int k) {
+			int nnz = rowPtr[rowDim];
+			while(k < nnz && Math.abs(vals[k]) < Matrix.zeroEps)
+				k++;
+			if(k < nnz) {
+				while(rowPtr[row+1] <= k) row++;
+				next = k;
+			} else {
+				next = -1;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next >= 0;
+		}
+
+		@Override
+		public MatrixEntry next() {
+			if(next < 0)
+				throw new NoSuchElementException();
+			entry.row = row;
+			entry.k = next;
+			advance(next+1);
+			return entry;
+		}
+
+		@Override
+		public void remove() {
+			vals[entry.k] = 0.0;
+		}
+	}
+
+	/**
+	 * Matrix entry backed by the matrix.
+	 */
+	class CSREntry implements MatrixEntry {
+		int row;
+		int k;
+
+		@Override
+		public int getRow() {
+			return row+1;
+		}
+
+		@Override
+		public int getCol() {
+			return colIdx[k]+1;
+		}
+
+		@Override
+		public double getValue() {
+			return vals[k];
+		}
+
+		@Override
+		public void setValue(double value) {
+			vals[k] = value;
+		}
+	}
+}
@@ -103,6 +103,17 @@ public interface AlgebraVector {
 	 */
 	public AlgebraVector axmy(double a, AlgebraVector y);
 	
+	/**
+	 * <code>x = x + a*y</code>，返回更新后的2范数
+	 * <p>
+	 * 与add(a,y).norm2()的结果相同，但只遍历一次向量（迭代法中更新残量的同时计算残量范数）
+	 * 
+	 * @param a
+	 * @param y
+	 * @return
+	 */
+	public double addNorm2(double a, AlgebraVector y);
+	
 	/**
 	 * <code>x.y</code>
 	 * 
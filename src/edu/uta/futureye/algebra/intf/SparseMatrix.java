@@ -14,6 +14,9 @@ public interface SparseMatrix extends Matrix,Iterable<MatrixEntry> {
 	 * get all non-zero element, instead of iterator
 	 * <p>
 	 * 获取所有非零元素，不使用迭代子
+	 * <p>
+	 * For primitive array based implementations (e.g. <tt>SparseMatrixCSR</tt>) 
+	 * this is a slow view with copied data, use iterator instead.
 	 * @return
 	 */
 	Map<Integer,Map<Integer,Double>> getAll();
@@ -0,0 +1,98 @@
+package edu.uta.futureye.algebra.solver;
+
+import edu.uta.futureye.algebra.FullMatrix;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Matrix factorization computed once and reused for many right hand sides
+ *
+ * 例如多光源问题中，不同光源对应的方程只有右端项不同：
+ *   Factorization f = new SparseDirectSolver().factorize(stiff);
+ *   for(int s=0;s<nSource;s++)
+ *       u[s] = f.solve(load[s]);
+ * 或者把所有右端项作为矩阵的列，一次求解：
+ *   FullMatrix U = f.solve(F);
+ * 后者每次遍历分解因子时同时处理所有右端项，减少对分解因子的访存。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public abstract class Factorization {
+
+	/**
+	 * 矩阵的阶数
+	 */
+	public abstract int getDim();
+
+	/**
+	 * 分解因子中非零元素的数目
+	 */
+	public abstract int getNonZeroNumber();
+
+	/**
+	 * 求解A*x=b，x和b可以是同一个数组
+	 *
+	 * @param b 下标从0开始
+	 * @param x 下标从0开始
+	 */
+	public abstract void solve(double[] b, double[] x);
+
+	/**
+	 * 求解A*X=B，B和X的第i行B[i]、X[i]分别为所有右端项和解的第i个分量（下标从0开始），
+	 * X和B可以是同一个数组。子类可以覆盖此方法同时处理所有右端项。
+	 *
+	 * @param B n*m
+	 * @param X n*m
+	 */
+	public void solve(double[][] B, double[][] X) {
+		int n = getDim();
+		int m = n == 0 ? 0 : B[0].length;
+		double[] x = new double[n];
+		for(int c=0;c<m;c++) {
+			for(int i=0;i<n;i++)
+				x[i] = B[i][c];
+			solve(x, x);
+			for(int i=0;i<n;i++)
+				X[i][c] = x[i];
+		}
+	}
+
+	/**
+	 * 求解A*x=b
+	 *
+	 * @param b
+	 * @return 方程的解向量，与<tt>b</tt>类型相同，下标从1开始
+	 */
+	public <Vec extends Vector> Vec solve(Vec b) {
+		int n = getDim();
+		if(b.getDim() != n)
+			throw new FutureyeException("Factorization: matrix.dim="+n+" vector.dim="+b.getDim());
+		double[] x = new double[n];
+		for(int i=0;i<n;i++)
+			x[i] = b.get(i+1);
+		solve(x, x);
+		@SuppressWarnings("unchecked")
+		Vec rv = (Vec) b.copy();
+		for(int i=0;i<n;i++)
+			rv.set(i+1, x[i]);
+		return rv;
+	}
+
+	/**
+	 * 求解A*X=B，B的每一列为一个右端项
+	 *
+	 * @param B
+	 * @return X
+	 */
+	public FullMatrix solve(FullMatrix B) {
+		int n = getDim();
+		if(B.getRowDim() != n)
+			throw new FutureyeException("Factorization: matrix.dim="+n+" B.rowDim="+B.getRowDim());
+		FullMatrix X = new FullMatrix(n, B.getColDim());
+		solve(B.getData(), X.getData());
+		return X;
+	}
+}
@@ -0,0 +1,972 @@
+package edu.uta.futureye.algebra.solver;
+
+import edu.uta.futureye.algebra.intf.MatrixEntry;
+import edu.uta.futureye.algebra.intf.SparseMatrix;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Fill-reducing orderings for sparse direct solvers
+ *
+ * 矩阵以压缩列存储（CSC）的数组给出，下标从0开始：
+ *   Ap[j]...Ap[j+1]-1: 第j列非零元素在Ai中的位置
+ *   Ai[p]: 行号
+ * 只使用非零元素结构，A+A'的结构作为消去图（对角元素忽略）。
+ *
+ * 返回的排列perm[k]=第k个消去的未知量（原编号），即新编号k对应原编号perm[k]。
+ *
+ * 提供的排序方法：
+ *   MINIMUM_DEGREE: 最小度（显式消去图）
+ *   AMD: 近似最小度（商图，Approximate Minimum Degree）
+ *   RCM: 逆Cuthill-McKee，减小带宽，适用于迭代法中的矩阵向量乘法
+ *   NESTED_DISSECTION: 嵌套剖分，用于大规模二维/三维网格上的直接法
+ * 除了矩阵的CSC数组，也可以直接使用图的邻接结构{adjPtr, adj}（例如Mesh.getNodeGraph()）。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class Ordering {
+	public static final int NATURAL = 0;
+	public static final int MINIMUM_DEGREE = 1;
+	public static final int AMD = 2;
+	public static final int RCM = 3;
+	public static final int NESTED_DISSECTION = 4;
+
+	//嵌套剖分中不再剖分的子图大小，子图用AMD排序
+	public static int ndLeafSize = 128;
+
+	/**
+	 * Compute ordering of type <tt>type</tt> for matrix A (CSC)
+	 *
+	 * @param type NATURAL, MINIMUM_DEGREE, AMD, RCM or NESTED_DISSECTION
+	 * @param n
+	 * @param Ap
+	 * @param Ai
+	 * @return perm
+	 */
+	public static int[] compute(int type, int n, int[] Ap, int[] Ai) {
+		if(type == NATURAL)
+			return natural(n);
+		return compute(type, symmetricGraph(n, Ap, Ai));
+	}
+
+	/**
+	 * Compute ordering of type <tt>type</tt> for graph {adjPtr, adj}
+	 *
+	 * @param type
+	 * @param graph
+	 * @return perm
+	 */
+	public static int[] compute(int type, int[][] graph) {
+		switch(type) {
+		case NATURAL:
+			return natural(graph[0].length-1);
+		case MINIMUM_DEGREE:
+			return minimumDegree(graph);
+		case AMD:
+			return approximateMinimumDegree(graph);
+		case RCM:
+			return reverseCuthillMcKee(graph);
+		case NESTED_DISSECTION:
+			return nestedDissection(graph);
+		default:
+			throw new FutureyeException("Ordering: unknown type "+type);
+		}
+	}
+
+	/**
+	 * Identity permutation
+	 */
+	public static int[] natural(int n) {
+		int[] perm = new int[n];
+		for(int i=0;i<n;i++)
+			perm[i] = i;
+		return perm;
+	}
+
+	/**
+	 * Check that perm is a permutation of 0...n-1 (n=perm.length)
+	 *
+	 * @throws FutureyeException if an index is out of range or repeated
+	 */
+	public static void checkPermutation(int[] perm) {
+		int n = perm.length;
+		boolean[] used = new boolean[n];
+		for(int k=0;k<n;k++) {
+			if(perm[k] < 0 || perm[k] >= n || used[perm[k]])
+				throw new FutureyeException("Ordering: invalid permutation at "+k);
+			used[perm[k]] = true;
+		}
+	}
+
+	/**
+	 * pinv[perm[k]] = k
+	 */
+	public static int[] inverse(int[] perm) {
+		int n = perm.length;
+		int[] pinv = new int[n];
+		for(int i=0;i<n;i++)
+			pinv[i] = -1;
+		for(int k=0;k<n;k++) {
+			if(perm[k] < 0 || perm[k] >= n || pinv[perm[k]] >= 0)
+				throw new FutureyeException("Ordering: invalid permutation at "+k);
+			pinv[perm[k]] = k;
+		}
+		return pinv;
+	}
+
+	/**
+	 * Adjacency structure of the graph of A+A' without diagonal,
+	 * neighbors of node i: adj[adjPtr[i]...adjPtr[i+1]-1]
+	 *
+	 * @param n
+	 * @param Ap
+	 * @param Ai
+	 * @return {adjPtr, adj}
+	 */
+	public static int[][] symmetricGraph(int n, int[] Ap, int[] Ai) {
+		int[] cnt = new int[n+1];
+		int[] mark = new int[n];
+		for(int i=0;i<n;i++)
+			mark[i] = -1;
+		//A+A'中(i,j)和(j,i)各计数一次，重复的元素后面去掉
+		for(int j=0;j<n;j++) {
+			for(int p=Ap[j];p<Ap[j+1];p++) {
+				int i = Ai[p];
+				if(i == j) continue;
+				cnt[i+1]++;
+				cnt[j+1]++;
+			}
+		}
+		for(int i=0;i<n;i++)
+			cnt[i+1] += cnt[i];
+		int[] tmp = new int[cnt[n]];
+		int[] pos = new int[n];
+		System.arraycopy(cnt, 0, pos, 0, n);
+		for(int j=0;j<n;j++) {
+			for(int p=Ap[j];p<Ap[j+1];p++) {
+				int i = Ai[p];
+				if(i == j) continue;
+				tmp[pos[i]++] = j;
+				tmp[pos[j]++] = i;
+			}
+		}
+		//去掉重复的邻居
+		int[] adjPtr = new int[n+1];
+		int nz = 0;
+		for(int i=0;i<n;i++) {
+			adjPtr[i] = nz;
+			for(int p=cnt[i];p<cnt[i+1];p++) {
+				int j = tmp[p];
+				if(mark[j] != i) {
+					mark[j] = i;
+					tmp[nz++] = j;
+				}
+			}
+		}
+		adjPtr[n] = nz;
+		int[] adj = new int[nz];
+		System.arraycopy(tmp, 0, adj, 0, nz);
+		return new int[][]{adjPtr, adj};
+	}
+
+	/**
+	 * Minimum degree ordering on the graph of A+A'
+	 *
+	 * 每一步消去度数最小的结点v，v的邻居之间两两相连（形成团），与Cholesky分解中的
+	 * 填充一致。消去图显式保存（每个结点的邻居用可增长的数组保存），
+	 * 适用于有限元网格上的中小规模问题。
+	 *
+	 * @param n
+	 * @param Ap
+	 * @param Ai
+	 * @return perm
+	 */
+	public static int[] minimumDegree(int n, int[] Ap, int[] Ai) {
+		return minimumDegree(symmetricGraph(n, Ap, Ai));
+	}
+
+	/**
+	 * Minimum degree ordering on graph {adjPtr, adj}
+	 */
+	public static int[] minimumDegree(int[][] g) {
+		int[] adjPtr = g[0];
+		int n = adjPtr.length-1;
+		int[][] adj = new int[n][];
+		int[] deg = new int[n];
+		for(int i=0;i<n;i++) {
+			deg[i] = adjPtr[i+1]-adjPtr[i];
+			adj[i] = new int[Math.max(4, deg[i])];
+			System.arraycopy(g[1], adjPtr[i], adj[i], 0, deg[i]);
+		}
+
+		//按度数分桶的双向链表
+		int[] head = new int[n+1];
+		int[] next = new int[n];
+		int[] prev = new int[n];
+		for(int d=0;d<=n;d++)
+			head[d] = -1;
+		for(int i=n-1;i>=0;i--)
+			bucketInsert(i, deg[i], head, next, prev);
+
+		//标记数组，每次使用新的标记值，不需要重置
+		int[] mark = new int[n];
+		int stamp = 0;
+		int[] perm = new int[n];
+		int minDeg = 0;
+		for(int k=0;k<n;k++) {
+			while(head[minDeg] < 0)
+				minDeg++;
+			int v = head[minDeg];
+			bucketRemove(v, deg[v], head, next, prev);
+			perm[k] = v;
+
+			int[] nv = adj[v];
+			int dv = deg[v];
+			//邻居中删除v，再与v的其他邻居相连
+			for(int a=0;a<dv;a++) {
+				int u = nv[a];
+				bucketRemove(u, deg[u], head, next, prev);
+				int[] nu = adj[u];
+				int du = 0;
+				stamp++;
+				//标记u现有的邻居，同时删除v
+				for(int b=0;b<deg[u];b++) {
+					int w = nu[b];
+					if(w == v) continue;
+					nu[du++] = w;
+					mark[w] = stamp;
+				}
+				mark[u] = stamp;
+				for(int b=0;b<dv;b++) {
+					int w = nv[b];
+					if(mark[w] != stamp) {
+						mark[w] = stamp;
+						if(du == nu.length) {
+							int[] t = new int[2*nu.length];
+							System.arraycopy(nu, 0, t, 0, du);
+							nu = t;
+							adj[u] = nu;
+						}
+						nu[du++] = w;
+					}
+				}
+				deg[u] = du;
+				bucketInsert(u, du, head, next, prev);
+				if(du < minDeg)
+					minDeg = du;
+			}
+			adj[v] = null;
+		}
+		return perm;
+	}
+
+	/**
+	 * Approximate minimum degree ordering on the graph of A+A'
+	 *
+	 * 在商图（quotient graph）上进行消去：被消去的结点成为"单元"，不显式形成团，
+	 * 存储量不超过原图；结点的度数用外部度数的上界近似；不可区分的结点合并为超结点。
+	 * 度数大于10*sqrt(n)的稠密结点最后消去。
+	 * 算法参见：Amestoy, Davis, Duff, An approximate minimum degree ordering algorithm, 1996
+	 *
+	 * @param n
+	 * @param Ap
+	 * @param Ai
+	 * @return perm
+	 */
+	public static int[] approximateMinimumDegree(int n, int[] Ap, int[] Ai) {
+		return approximateMinimumDegree(symmetricGraph(n, Ap, Ai));
+	}
+
+	/**
+	 * Approximate minimum degree ordering on graph {adjPtr, adj}
+	 */
+	public static int[] approximateMinimumDegree(int[][] g) {
+		int n = g[0].length-1;
+		if(n == 0) return new int[0];
+		int cnz = g[0][n];
+		//留出额外的空间存放新单元，空间不足时进行压缩
+		int nzmax = cnz + cnz/5 + 2*n;
+		int[] Cp = new int[n+1];
+		int[] Ci = new int[nzmax];
+		System.arraycopy(g[0], 0, Cp, 0, n+1);
+		System.arraycopy(g[1], 0, Ci, 0, cnz);
+
+		int dense = (int)Math.max(16, 10*Math.sqrt(n));
+		dense = Math.min(n-2, dense);
+
+		int[] P = new int[n+1];
+		int[] len = new int[n+1];
+		int[] nv = new int[n+1];
+		int[] next = new int[n+1];
+		int[] head = new int[n+1];
+		int[] elen = new int[n+1];
+		int[] degree = new int[n+1];
+		int[] w = new int[n+1];
+		int[] hhead = new int[n+1];
+		int[] last = P;
+		int lemax = 0, mindeg = 0, nel = 0;
+
+		for(int k=0;k<n;k++)
+			len[k] = Cp[k+1]-Cp[k];
+		len[n] = 0;
+		for(int i=0;i<=n;i++) {
+			head[i] = -1;
+			last[i] = -1;
+			next[i] = -1;
+			hhead[i] = -1;
+			nv[i] = 1;
+			w[i] = 1;
+			elen[i] = 0;
+			degree[i] = len[i];
+		}
+		int mark = wclear(0, 0, w, n);
+		elen[n] = -2;
+		Cp[n] = -1;
+		w[n] = 0;
+
+		for(int i=0;i<n;i++) {
+			int d = degree[i];
+			if(d == 0) {
+				//孤立结点
+				elen[i] = -2;
+				nel++;
+				Cp[i] = -1;
+				w[i] = 0;
+			} else if(d > dense) {
+				//稠密结点合并到虚拟单元n
+				nv[i] = 0;
+				elen[i] = -1;
+				nel++;
+				Cp[i] = flip(n);
+				nv[n]++;
+			} else {
+				if(head[d] != -1) last[head[d]] = i;
+				next[i] = head[d];
+				head[d] = i;
+			}
+		}
+
+		while(nel < n) {
+			//选择近似度数最小的结点k
+			int k = -1;
+			for(;mindeg<n && (k=head[mindeg])==-1;mindeg++);
+			if(next[k] != -1) last[next[k]] = -1;
+			head[mindeg] = next[k];
+			int elenk = elen[k];
+			int nvk = nv[k];
+			nel += nvk;
+
+			//压缩存储空间
+			if(elenk > 0 && cnz + mindeg >= nzmax) {
+				for(int j=0;j<n;j++) {
+					int p = Cp[j];
+					if(p >= 0) {
+						Cp[j] = Ci[p];
+						Ci[p] = flip(j);
+					}
+				}
+				int q = 0;
+				for(int p=0;p<cnz;) {
+					int j = flip(Ci[p++]);
+					if(j >= 0) {
+						Ci[q] = Cp[j];
+						Cp[j] = q++;
+						for(int k3=0;k3<len[j]-1;k3++)
+							Ci[q++] = Ci[p++];
+					}
+				}
+				cnz = q;
+			}
+
+			//构造新单元Lk
+			int dk = 0;
+			nv[k] = -nvk;
+			int p = Cp[k];
+			int pk1 = (elenk == 0) ? p : cnz;
+			int pk2 = pk1;
+			for(int k1=1;k1<=elenk+1;k1++) {
+				int e, pj, ln;
+				if(k1 > elenk) {
+					e = k;
+					pj = p;
+					ln = len[k]-elenk;
+				} else {
+					e = Ci[p++];
+					pj = Cp[e];
+					ln = len[e];
+				}
+				for(int k2=1;k2<=ln;k2++) {
+					int i = Ci[pj++];
+					int nvi = nv[i];
+					if(nvi <= 0) continue;
+					dk += nvi;
+					nv[i] = -nvi;
+					Ci[pk2++] = i;
+					if(next[i] != -1) last[next[i]] = last[i];
+					if(last[i] != -1)
+						next[last[i]] = next[i];
+					else
+						head[degree[i]] = next[i];
+				}
+				if(e != k) {
+					Cp[e] = flip(k);
+					w[e] = 0;
+				}
+			}
+			if(elenk != 0) cnz = pk2;
+			degree[k] = dk;
+			Cp[k] = pk1;
+			len[k] = pk2-pk1;
+			elen[k] = -2;
+
+			//计算集合差|Le\Lk|
+			mark = wclear(mark, lemax, w, n);
+			for(int pk=pk1;pk<pk2;pk++) {
+				int i = Ci[pk];
+				int eln = elen[i];
+				if(eln <= 0) continue;
+				int nvi = -nv[i];
+				int wnvi = mark-nvi;
+				for(p=Cp[i];p<=Cp[i]+eln-1;p++) {
+					int e = Ci[p];
+					if(w[e] >= mark)
+						w[e] -= nvi;
+					else if(w[e] != 0)
+						w[e] = degree[e] + wnvi;
+				}
+			}
+
+			//更新度数
+			for(int pk=pk1;pk<pk2;pk++) {
+				int i = Ci[pk];
+				int p1 = Cp[i];
+				int p2 = p1+elen[i]-1;
+				int pn = p1;
+				long h = 0;
+				int d = 0;
+				for(p=p1;p<=p2;p++) {
+					int e = Ci[p];
+					if(w[e] != 0) {
+						int dext = w[e]-mark;
+						if(dext > 0) {
+							d += dext;
+							Ci[pn++] = e;
+							h += e;
+						} else {
+							//单元e被Lk吸收
+							Cp[e] = flip(k);
+							w[e] = 0;
+						}
+					}
+				}
+				elen[i] = pn-p1+1;
+				int p3 = pn;
+				int p4 = p1+len[i];
+				for(p=p2+1;p<p4;p++) {
+					int j = Ci[p];
+					int nvj = nv[j];
+					if(nvj <= 0) continue;
+					d += nvj;
+					Ci[pn++] = j;
+					h += j;
+				}
+				if(d == 0) {
+					//结点i与k一起消去
+					Cp[i] = flip(k);
+					int nvi = -nv[i];
+					dk -= nvi;
+					nvk += nvi;
+					nel += nvi;
+					nv[i] = 0;
+					elen[i] = -1;
+				} else {
+					degree[i] = Math.min(degree[i], d);
+					Ci[pn] = Ci[p3];
+					Ci[p3] = Ci[p1];
+					Ci[p1] = k;
+					len[i] = pn-p1+1;
+					int hi = (int)(h % n);
+					next[i] = hhead[hi];
+					hhead[hi] = i;
+					last[i] = hi;
+				}
+			}
+			degree[k] = dk;
+			lemax = Math.max(lemax, dk);
+			mark = wclear(mark+lemax, lemax, w, n);
+
+			//检测不可区分的结点（超结点）
+			for(int pk=pk1;pk<pk2;pk++) {
+				int i = Ci[pk];
+				if(nv[i] >= 0) continue;
+				int hi = last[i];
+				i = hhead[hi];
+				hhead[hi] = -1;
+				for(;i!=-1 && next[i]!=-1;i=next[i],mark++) {
+					int ln = len[i];
+					int eln = elen[i];
+					for(p=Cp[i]+1;p<=Cp[i]+ln-1;p++)
+						w[Ci[p]] = mark;
+					int jlast = i;
+					for(int j=next[i];j!=-1;) {
+						boolean ok = (len[j] == ln) && (elen[j] == eln);
+						for(p=Cp[j]+1;ok && p<=Cp[j]+ln-1;p++) {
+							if(w[Ci[p]] != mark)
+								ok = false;
+						}
+						if(ok) {
+							Cp[j] = flip(i);
+							nv[i] += nv[j];
+							nv[j] = 0;
+							elen[j] = -1;
+							j = next[j];
+							next[jlast] = j;
+						} else {
+							jlast = j;
+							j = next[j];
+						}
+					}
+				}
+			}
+
+			//Lk中的结点放回度数链表
+			p = pk1;
+			for(int pk=pk1;pk<pk2;pk++) {
+				int i = Ci[pk];
+				int nvi = -nv[i];
+				if(nvi <= 0) continue;
+				nv[i] = nvi;
+				int d = degree[i]+dk-nvi;
+				d = Math.min(d, n-nel-nvi);
+				if(head[d] != -1) last[head[d]] = i;
+				next[i] = head[d];
+				last[i] = -1;
+				head[d] = i;
+				mindeg = Math.min(mindeg, d);
+				degree[i] = d;
+				Ci[p++] = i;
+			}
+			nv[k] = nvk;
+			if((len[k] = p-pk1) == 0) {
+				Cp[k] = -1;
+				w[k] = 0;
+			}
+			if(elenk != 0) cnz = p;
+		}
+
+		//组装树的后序遍历给出排列
+		for(int i=0;i<n;i++)
+			Cp[i] = flip(Cp[i]);
+		for(int j=0;j<=n;j++)
+			head[j] = -1;
+		for(int j=n;j>=0;j--) {
+			if(nv[j] > 0) continue;
+			next[j] = head[Cp[j]];
+			head[Cp[j]] = j;
+		}
+		for(int e=n;e>=0;e--) {
+			if(nv[e] <= 0) continue;
+			if(Cp[e] != -1) {
+				next[e] = head[Cp[e]];
+				head[Cp[e]] = e;
+			}
+		}
+		int k = 0;
+		for(int i=0;i<=n;i++) {
+			if(Cp[i] == -1)
+				k = treePostorder(i, k, head, next, P, w);
+		}
+		//P[n]为虚拟单元n
+		int[] perm = new int[n];
+		System.arraycopy(P, 0, perm, 0, n);
+		return perm;
+	}
+
+	protected static int flip(int i) {
+		return -i-2;
+	}
+
+	protected static int wclear(int mark, int lemax, int[] w, int n) {
+		if(mark < 2 || (mark + lemax < 0)) {
+			for(int k=0;k<n;k++)
+				if(w[k] != 0) w[k] = 1;
+			mark = 2;
+		}
+		return mark;
+	}
+
+	protected static int treePostorder(int j, int k, int[] head, int[] next, int[] post, int[] stack) {
+		int top = 0;
+		stack[0] = j;
+		while(top >= 0) {
+			int p = stack[top];
+			int i = head[p];
+			if(i == -1) {
+				top--;
+				post[k++] = p;
+			} else {
+				head[p] = next[i];
+				stack[++top] = i;
+			}
+		}
+		return k;
+	}
+
+	/**
+	 * Reverse Cuthill-McKee ordering on the graph of A+A'
+	 *
+	 * 从伪外围结点开始按层次（广度优先）遍历，每层的结点按度数从小到大排列，最后将顺序反转。
+	 * 重排后矩阵的带宽和轮廓（profile）较小，矩阵向量乘法中访问向量的位置更集中。
+	 *
+	 * @param n
+	 * @param Ap
+	 * @param Ai
+	 * @return perm
+	 */
+	public static int[] reverseCuthillMcKee(int n, int[] Ap, int[] Ai) {
+		return reverseCuthillMcKee(symmetricGraph(n, Ap, Ai));
+	}
+
+	/**
+	 * Reverse Cuthill-McKee ordering on graph {adjPtr, adj}
+	 */
+	public static int[] reverseCuthillMcKee(int[][] g) {
+		int[] adjPtr = g[0];
+		int[] adj = g[1];
+		int n = adjPtr.length-1;
+		int[] perm = new int[n];
+		int[] part = new int[n];
+		int[] level = new int[n];
+		int[] levelPtr = new int[n+1];
+		int[] queue = new int[n];
+		for(int i=0;i<n;i++)
+			level[i] = -1;
+		boolean[] visited = new boolean[n];
+		int k = 0;
+		for(int i=0;i<n;i++) {
+			if(visited[i]) continue;
+			//每个连通分支分别排序
+			int root = pseudoPeripheralNode(i, adjPtr, adj, part, 0, level, levelPtr, queue);
+			int head = k, tail = k;
+			perm[tail++] = root;
+			visited[root] = true;
+			while(head < tail) {
+				int v = perm[head++];
+				int begin = tail;
+				for(int p=adjPtr[v];p<adjPtr[v+1];p++) {
+					int u = adj[p];
+					if(visited[u]) continue;
+					visited[u] = true;
+					//按度数插入排序
+					int t = tail++;
+					int du = adjPtr[u+1]-adjPtr[u];
+					while(t > begin && adjPtr[perm[t-1]+1]-adjPtr[perm[t-1]] > du) {
+						perm[t] = perm[t-1];
+						t--;
+					}
+					perm[t] = u;
+				}
+			}
+			k = tail;
+		}
+		for(int i=0,j=n-1;i<j;i++,j--) {
+			int t = perm[i];
+			perm[i] = perm[j];
+			perm[j] = t;
+		}
+		return perm;
+	}
+
+	/**
+	 * 从结点root开始，在part[v]==pid的结点构成的子图上进行广度优先搜索，
+	 * 第l层的结点为queue[levelPtr[l]...levelPtr[l+1]-1]。
+	 * 调用前level[v]必须为-1，返回前恢复为-1。
+	 *
+	 * @return 层数
+	 */
+	protected static int levelStructure(int root, int[] adjPtr, int[] adj,
+			int[] part, int pid, int[] level, int[] levelPtr, int[] queue) {
+		int tail = 0;
+		queue[tail++] = root;
+		level[root] = 0;
+		int nLevel = 0;
+		levelPtr[0] = 0;
+		for(int head=0;head<tail;head++) {
+			int v = queue[head];
+			//队列中的结点按层排列，层号增加时记录上一层的结束位置
+			if(level[v] > nLevel)
+				levelPtr[++nLevel] = head;
+			for(int p=adjPtr[v];p<adjPtr[v+1];p++) {
+				int u = adj[p];
+				if(part[u] != pid || level[u] >= 0) continue;
+				level[u] = level[v]+1;
+				queue[tail++] = u;
+			}
+		}
+		levelPtr[++nLevel] = tail;
+		for(int i=0;i<tail;i++)
+			level[queue[i]] = -1;
+		return nLevel;
+	}
+
+	/**
+	 * 伪外围结点：反复从最后一层中度数最小的结点开始搜索，直到层数不再增加
+	 * (George and Liu)
+	 */
+	protected static int pseudoPeripheralNode(int root, int[] adjPtr, int[] adj,
+			int[] part, int pid, int[] level, int[] levelPtr, int[] queue) {
+		int nLevel = levelStructure(root, adjPtr, adj, part, pid, level, levelPtr, queue);
+		while(true) {
+			int x = -1;
+			int minDeg = Integer.MAX_VALUE;
+			for(int i=levelPtr[nLevel-1];i<levelPtr[nLevel];i++) {
+				int v = queue[i];
+				int d = adjPtr[v+1]-adjPtr[v];
+				if(d < minDeg) {
+					minDeg = d;
+					x = v;
+				}
+			}
+			int nLevelX = levelStructure(x, adjPtr, adj, part, pid, level, levelPtr, queue);
+			if(nLevelX <= nLevel) {
+				//恢复root的层次结构
+				levelStructure(root, adjPtr, adj, part, pid, level, levelPtr, queue);
+				return root;
+			}
+			root = x;
+			nLevel = nLevelX;
+		}
+	}
+
+	/**
+	 * Nested dissection ordering on the graph of A+A'
+	 *
+	 * 用伪外围结点的层次结构中间的一层作为分割集，把图分为两部分，两部分分别递归排序，
+	 * 分割集最后排序。子图的结点数不超过ndLeafSize时使用AMD排序。
+	 *
+	 * @param n
+	 * @param Ap
+	 * @param Ai
+	 * @return perm
+	 */
+	public static int[] nestedDissection(int n, int[] Ap, int[] Ai) {
+		return nestedDissection(symmetricGraph(n, Ap, Ai));
+	}
+
+	/**
+	 * Nested dissection ordering on graph {adjPtr, adj}
+	 */
+	public static int[] nestedDissection(int[][] g) {
+		int n = g[0].length-1;
+		int[] perm = natural(n);
+		int[] part = new int[n];
+		int[] level = new int[n];
+		for(int i=0;i<n;i++)
+			level[i] = -1;
+		int[] work = new int[n];
+		int[] pid = {0};
+		dissect(g[0], g[1], perm, 0, n, part, pid, level, work);
+		return perm;
+	}
+
+	/**
+	 * 对perm[start...start+count-1]中的结点排序
+	 */
+	protected static void dissect(int[] adjPtr, int[] adj, int[] perm, int start, int count,
+			int[] part, int[] pid, int[] level, int[] work) {
+		if(count <= 1) return;
+		int id = ++pid[0];
+		for(int i=start;i<start+count;i++)
+			part[perm[i]] = id;
+		if(count <= ndLeafSize) {
+			orderSubgraph(adjPtr, adj, perm, start, count, part, id, level);
+			return;
+		}
+		int[] queue = new int[count];
+		int[] levelPtr = new int[count+1];
+		int root = pseudoPeripheralNode(perm[start], adjPtr, adj, part, id,
+				level, levelPtr, queue);
+		int nLevel = levelStructure(root, adjPtr, adj, part, id, level, levelPtr, queue);
+		int nVisited = levelPtr[nLevel];
+
+		if(nVisited < count) {
+			//不连通：root所在的连通分支和其余结点分别排序
+			int[] rest = work;
+			int nRest = 0;
+			for(int i=0;i<nVisited;i++)
+				part[queue[i]] = -id;
+			for(int i=start;i<start+count;i++)
+				if(part[perm[i]] == id)
+					rest[nRest++] = perm[i];
+			System.arraycopy(queue, 0, perm, start, nVisited);
+			System.arraycopy(rest, 0, perm, start+nVisited, nRest);
+			dissect(adjPtr, adj, perm, start, nVisited, part, pid, level, work);
+			dissect(adjPtr, adj, perm, start+nVisited, nRest, part, pid, level, work);
+			return;
+		}
+		if(nLevel < 3) {
+			orderSubgraph(adjPtr, adj, perm, start, count, part, id, level);
+			return;
+		}
+
+		//分割层m：第0...m-1层的结点数接近一半
+		int m = 1;
+		while(m < nLevel-2 && levelPtr[m+1] < count/2)
+			m++;
+		for(int i=0;i<count;i++)
+			level[queue[i]] = i < levelPtr[m] ? 0 : (i < levelPtr[m+1] ? 1 : 2);
+		//分割层中与第m+1层不相邻的结点放入第一部分
+		for(int i=levelPtr[m];i<levelPtr[m+1];i++) {
+			int v = queue[i];
+			boolean sep = false;
+			for(int p=adjPtr[v];p<adjPtr[v+1];p++) {
+				int u = adj[p];
+				if(part[u] == id && level[u] == 2) {
+					sep = true;
+					break;
+				}
+			}
+			if(!sep)
+				level[v] = 0;
+		}
+		int[] cnt = new int[3];
+		for(int i=0;i<count;i++)
+			cnt[level[queue[i]]]++;
+		int[] pos = {start, start+cnt[0], start+cnt[0]+cnt[2]};
+		for(int i=0;i<count;i++) {
+			int v = queue[i];
+			int l = level[v];
+			//顺序：第一部分，第二部分，分割集
+			if(l == 0)
+				perm[pos[0]++] = v;
+			else if(l == 2)
+				perm[pos[1]++] = v;
+			else
+				perm[pos[2]++] = v;
+			level[v] = -1;
+		}
+		dissect(adjPtr, adj, perm, start, cnt[0], part, pid, level, work);
+		dissect(adjPtr, adj, perm, start+cnt[0], cnt[2], part, pid, level, work);
+	}
+
+	/**
+	 * 用AMD对perm[start...start+count-1]中的结点构成的子图排序
+	 */
+	protected static void orderSubgraph(int[] adjPtr, int[] adj, int[] perm, int start, int count,
+			int[] part, int id, int[] local) {
+		for(int i=0;i<count;i++)
+			local[perm[start+i]] = i;
+		int[] sPtr = new int[count+1];
+		for(int i=0;i<count;i++) {
+			int v = perm[start+i];
+			for(int p=adjPtr[v];p<adjPtr[v+1];p++)
+				if(part[adj[p]] == id)
+					sPtr[i+1]++;
+		}
+		for(int i=0;i<count;i++)
+			sPtr[i+1] += sPtr[i];
+		int[] sAdj = new int[sPtr[count]];
+		for(int i=0,q=0;i<count;i++) {
+			int v = perm[start+i];
+			for(int p=adjPtr[v];p<adjPtr[v+1];p++)
+				if(part[adj[p]] == id)
+					sAdj[q++] = local[adj[p]];
+		}
+		int[] sPerm = approximateMinimumDegree(new int[][]{sPtr, sAdj});
+		int[] nodes = new int[count];
+		for(int i=0;i<count;i++)
+			nodes[i] = perm[start+sPerm[i]];
+		System.arraycopy(nodes, 0, perm, start, count);
+		for(int i=0;i<count;i++)
+			local[nodes[i]] = -1;
+	}
+
+	/**
+	 * 带宽：max|pinv[i]-pinv[j]|，(i,j)为图的边
+	 *
+	 * @param g
+	 * @param perm null表示不重排
+	 */
+	public static int bandwidth(int[][] g, int[] perm) {
+		int n = g[0].length-1;
+		int[] pinv = perm == null ? natural(n) : inverse(perm);
+		int bw = 0;
+		for(int i=0;i<n;i++)
+			for(int p=g[0][i];p<g[0][i+1];p++)
+				bw = Math.max(bw, Math.abs(pinv[i]-pinv[g[1][p]]));
+		return bw;
+	}
+
+	/**
+	 * 轮廓：sum_i (i - min{pinv[j]: j与i相邻或j=i})
+	 *
+	 * @param g
+	 * @param perm null表示不重排
+	 */
+	public static long profile(int[][] g, int[] perm) {
+		int n = g[0].length-1;
+		int[] pinv = perm == null ? natural(n) : inverse(perm);
+		long prof = 0;
+		for(int i=0;i<n;i++) {
+			int m = pinv[i];
+			for(int p=g[0][i];p<g[0][i+1];p++)
+				m = Math.min(m, pinv[g[1][p]]);
+			prof += pinv[i]-m;
+		}
+		return prof;
+	}
+
+	/**
+	 * B = P*A*P'，即B(k,l)=A(perm[k-1]+1,perm[l-1]+1)，下标从1开始
+	 *
+	 * @param A
+	 * @param perm
+	 * @param B 与A同样大小的空矩阵
+	 * @return B
+	 */
+	public static SparseMatrix permute(SparseMatrix A, int[] perm, SparseMatrix B) {
+		int[] pinv = inverse(perm);
+		for(MatrixEntry e : A) {
+			B.set(pinv[e.getRow()-1]+1, pinv[e.getCol()-1]+1, e.getValue());
+		}
+		return B;
+	}
+
+	/**
+	 * y(k) = x(perm[k-1]+1)，下标从1开始
+	 */
+	public static Vector permute(Vector x, int[] perm, Vector y) {
+		for(int k=0;k<perm.length;k++)
+			y.set(k+1, x.get(perm[k]+1));
+		return y;
+	}
+
+	/**
+	 * x(perm[k-1]+1) = y(k)，permute()的逆运算
+	 */
+	public static Vector permuteBack(Vector y, int[] perm, Vector x) {
+		for(int k=0;k<perm.length;k++)
+			x.set(perm[k]+1, y.get(k+1));
+		return x;
+	}
+
+	protected static void bucketInsert(int i, int d, int[] head, int[] next, int[] prev) {
+		next[i] = head[d];
+		prev[i] = -1;
+		if(head[d] >= 0)
+			prev[head[d]] = i;
+		head[d] = i;
+	}
+
+	protected static void bucketRemove(int i, int d, int[] head, int[] next, int[] prev) {
+		if(prev[i] >= 0)
+			next[prev[i]] = next[i];
+		else
+			head[d] = next[i];
+		if(next[i] >= 0)
+			prev[next[i]] = prev[i];
+	}
+}
@@ -0,0 +1,38 @@
+package edu.uta.futureye.algebra.solver;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.intf.AlgebraVector;
+
+/**
+ * <blockquote><pre>
+ * Preconditioner for Krylov subspace methods in Solver
+ *
+ * 预条件矩阵M近似系数矩阵A，M^{-1}容易计算。迭代中每一步求解M*z=r：
+ *   Solver solver = new Solver();
+ *   solver.preconditioner = new PreconditionerILU0();
+ *   Vector x = solver.solveCGS(stiff, load);
+ * Solver中以SparseMatrix为参数的方法把矩阵转换为CompressedRowMatrix后调用setup()；
+ * 直接使用AlgebraMatrix的方法时，需要事先调用setup()（或者使用带矩阵参数的构造函数）。
+ * CG要求M对称正定（PreconditionerJacobi、PreconditionerSSOR、PreconditionerIC0），
+ * CGS、BiCGStab和GMRES可以使用任意预条件。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public interface Preconditioner {
+	/**
+	 * 由系数矩阵构造预条件矩阵，不改变<tt>A</tt>
+	 *
+	 * @param A
+	 */
+	void setup(CompressedRowMatrix A);
+
+	/**
+	 * z = M^{-1}*r，<tt>r</tt>不改变
+	 *
+	 * @param r
+	 * @param z
+	 */
+	void apply(AlgebraVector r, AlgebraVector z);
+}
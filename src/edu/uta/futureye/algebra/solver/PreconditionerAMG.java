@@ -0,0 +1,208 @@
+package edu.uta.futureye.algebra.solver;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+
+/**
+ * <blockquote><pre>
+ * Smoothed aggregation algebraic multigrid (AMG) preconditioner
+ *
+ * 适用于标量椭圆型问题（Laplace方程、热传导方程、DOT中的扩散方程等），
+ * 作为CG的预条件时迭代次数基本与网格尺寸无关：
+ *   Solver solver = new Solver();
+ *   solver.preconditioner = new PreconditionerAMG();
+ *   Vector x = solver.solveCG(stiff, load);
+ *
+ * 每一层的插值矩阵：
+ *   1.强连接：|a_ij| >= theta*sqrt(|a_ii*a_jj|)；
+ *   2.聚集（aggregation）：按强连接把未知量分组，每组对应一个粗网格未知量，
+ *     没有强连接的未知量（例如Dirichlet边界条件对应的行）不参与粗网格校正；
+ *   3.试探插值T：T(i,agg(i))=1/sqrt(|agg(i)|)，即分片常数；
+ *   4.光滑插值P=(I-omega/rho*D^{-1}*A)*T，rho为D^{-1}*A谱半径的上界。
+ * 未知量个数不超过coarseSize时停止粗化。
+ * Galerkin粗网格矩阵和多重网格循环参见PreconditionerMultigrid。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class PreconditionerAMG extends PreconditionerMultigrid {
+	//强连接阈值
+	public double strengthTheta = 0.08;
+	//插值光滑的松弛因子
+	public double smoothOmega = 4.0/3.0;
+	//最粗一层的最大未知量个数
+	public int coarseSize = 100;
+	//最大层数
+	public int maxLevels = 20;
+
+	public PreconditionerAMG() {
+	}
+
+	public PreconditionerAMG(CompressedRowMatrix A) {
+		setup(A);
+	}
+
+	@Override
+	protected CompressedRowMatrix prolongation(int level, CompressedRowMatrix Al) {
+		int n = Al.getRowDim();
+		if(n <= coarseSize || level+1 >= maxLevels)
+			return null;
+		int[] agg = new int[n];
+		int nc = aggregate(Al, agg);
+		if(nc == 0 || nc >= n)
+			return null;
+		return smoothProlongation(Al, tentativeProlongation(agg, nc));
+	}
+
+	/**
+	 * 按强连接聚集，agg[i]=未知量i所在的组（从0开始），-1表示不参与粗网格校正
+	 *
+	 * @return 组的个数
+	 */
+	protected int aggregate(CompressedRowMatrix A, int[] agg) {
+		int n = A.getRowDim();
+		int[][] colIndex = A.getColIndex();
+		double[][] data = A.getData();
+		double[] diag = getDiagonal(A);
+
+		//强连接邻居
+		int[][] strong = new int[n][];
+		int[] buf = new int[n];
+		for(int i=0;i<n;i++) {
+			int nz = 0;
+			for(int k=0;k<colIndex[i].length;k++) {
+				int j = colIndex[i][k];
+				if(j == i) continue;
+				double a = data[i][k];
+				if(a*a >= strengthTheta*strengthTheta*Math.abs(diag[i]*diag[j]))
+					buf[nz++] = j;
+			}
+			strong[i] = new int[nz];
+			System.arraycopy(buf, 0, strong[i], 0, nz);
+		}
+
+		final int FREE = -1, ISOLATED = -2;
+		for(int i=0;i<n;i++)
+			agg[i] = strong[i].length == 0 ? ISOLATED : FREE;
+		int nc = 0;
+		//1.所有强连接邻居都未聚集时，以i为中心建立新组
+		for(int i=0;i<n;i++) {
+			if(agg[i] != FREE) continue;
+			boolean free = true;
+			for(int j : strong[i]) {
+				if(agg[j] >= 0) {
+					free = false;
+					break;
+				}
+			}
+			if(!free) continue;
+			agg[i] = nc;
+			for(int j : strong[i])
+				if(agg[j] == FREE) agg[j] = nc;
+			nc++;
+		}
+		//2.剩余未知量加入第1步建立的相邻组（连接最强的组）
+		int[] agg1 = agg.clone();
+		for(int i=0;i<n;i++) {
+			if(agg1[i] != FREE) continue;
+			double max = -1.0;
+			for(int k=0;k<colIndex[i].length;k++) {
+				int j = colIndex[i][k];
+				if(j == i || agg1[j] < 0) continue;
+				double a = Math.abs(data[i][k]);
+				if(a > max && isStrong(strong[i], j)) {
+					max = a;
+					agg[i] = agg1[j];
+				}
+			}
+		}
+		//3.仍未聚集的未知量与其未聚集的强连接邻居组成新组
+		for(int i=0;i<n;i++) {
+			if(agg[i] != FREE) continue;
+			agg[i] = nc;
+			for(int j : strong[i])
+				if(agg[j] == FREE) agg[j] = nc;
+			nc++;
+		}
+		for(int i=0;i<n;i++)
+			if(agg[i] == ISOLATED) agg[i] = -1;
+		return nc;
+	}
+
+	private static boolean isStrong(int[] strong, int j) {
+		for(int s : strong)
+			if(s == j) return true;
+		return false;
+	}
+
+	/**
+	 * 分片常数的试探插值，列向量正规化
+	 */
+	protected CompressedRowMatrix tentativeProlongation(int[] agg, int nc) {
+		int n = agg.length;
+		int[] size = new int[nc];
+		for(int i=0;i<n;i++)
+			if(agg[i] >= 0) size[agg[i]]++;
+		CompressedRowMatrix T = new CompressedRowMatrix(n, nc);
+		for(int i=0;i<n;i++) {
+			if(agg[i] < 0) continue;
+			T.setRow(i+1, new int[]{agg[i]}, new double[]{1.0/Math.sqrt(size[agg[i]])});
+		}
+		return T;
+	}
+
+	/**
+	 * P = (I - omega/rho*D^{-1}*A)*T，rho取为||D^{-1}*A||_inf（谱半径的上界）
+	 */
+	protected CompressedRowMatrix smoothProlongation(CompressedRowMatrix A, CompressedRowMatrix T) {
+		int n = A.getRowDim();
+		int[][] colIndex = A.getColIndex();
+		double[][] data = A.getData();
+		double[] diag = getDiagonal(A);
+		double rho = 0.0;
+		for(int i=0;i<n;i++) {
+			if(diag[i] == 0.0) continue;
+			double s = 0.0;
+			for(int k=0;k<colIndex[i].length;k++)
+				s += Math.abs(data[i][k]);
+			rho = Math.max(rho, s/Math.abs(diag[i]));
+		}
+		if(rho == 0.0)
+			return T;
+		double w = smoothOmega/rho;
+
+		CompressedRowMatrix AT = new CompressedRowMatrix();
+		A.mult(T, AT);
+		int[][] atIndex = AT.getColIndex();
+		double[][] atData = AT.getData();
+		int[][] tIndex = T.getColIndex();
+		double[][] tData = T.getData();
+		CompressedRowMatrix Pl = new CompressedRowMatrix(n, T.getColDim());
+		for(int i=0;i<n;i++) {
+			double s = diag[i] == 0.0 ? 0.0 : w/diag[i];
+			//合并T和-s*A*T的第i行（列号都已排序）
+			int[] ti = tIndex[i], ai = atIndex[i];
+			int[] idx = new int[ti.length+ai.length];
+			double[] val = new double[ti.length+ai.length];
+			int p = 0, q = 0, nz = 0;
+			while(p < ti.length || q < ai.length) {
+				if(q == ai.length || (p < ti.length && ti[p] < ai[q])) {
+					idx[nz] = ti[p];
+					val[nz++] = tData[i][p++];
+				} else if(p == ti.length || ai[q] < ti[p]) {
+					idx[nz] = ai[q];
+					val[nz++] = -s*atData[i][q++];
+				} else {
+					idx[nz] = ti[p];
+					val[nz++] = tData[i][p++] - s*atData[i][q++];
+				}
+			}
+			int[] idx2 = new int[nz];
+			double[] val2 = new double[nz];
+			System.arraycopy(idx, 0, idx2, 0, nz);
+			System.arraycopy(val, 0, val2, 0, nz);
+			Pl.setRow(i+1, idx2, val2);
+		}
+		return Pl;
+	}
+}
@@ -0,0 +1,118 @@
+package edu.uta.futureye.algebra.solver;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.intf.AlgebraVector;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Block Jacobi preconditioner
+ *
+ * M = diag(A_11, A_22, ..., A_mm)，A_kk为A中未知量blockPtr[k]...blockPtr[k+1]-1对应的对角块，
+ * 每个对角块用稀疏LU分解（SparseLU）精确求逆。
+ * 块的划分可以由用户给出（例如按子区域、按向量值问题的分量），默认按固定大小划分。
+ * 未知量按带宽较小的顺序编号时（参见Ordering.reverseCuthillMcKee()和Mesh.renumberNodes()），
+ * 连续编号的未知量在网格上相邻，固定大小的块效果较好。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class PreconditionerBlockJacobi implements Preconditioner {
+	protected int blockSize = 64;
+	protected int[] blockPtr = null;
+
+	protected int n;
+	protected int[] ptr;
+	protected Factorization[] blocks;
+	protected double[] work; //最大对角块的长度
+
+	public PreconditionerBlockJacobi() {
+	}
+
+	/**
+	 * @param blockSize 每块未知量的数目
+	 */
+	public PreconditionerBlockJacobi(int blockSize) {
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * @param blockPtr 第k块（k从0开始）为未知量blockPtr[k]...blockPtr[k+1]-1（下标从0开始），
+	 * blockPtr[0]=0，最后一个元素等于矩阵的阶数
+	 */
+	public PreconditionerBlockJacobi(int[] blockPtr) {
+		this.blockPtr = blockPtr;
+	}
+
+	public PreconditionerBlockJacobi(CompressedRowMatrix A, int blockSize) {
+		this.blockSize = blockSize;
+		setup(A);
+	}
+
+	@Override
+	public void setup(CompressedRowMatrix A) {
+		n = A.getRowDim();
+		if(blockPtr != null) {
+			if(blockPtr[0] != 0 || blockPtr[blockPtr.length-1] != n)
+				throw new FutureyeException("PreconditionerBlockJacobi: blockPtr does not match n="+n);
+			ptr = blockPtr;
+		} else {
+			int nb = (n+blockSize-1)/blockSize;
+			ptr = new int[nb+1];
+			for(int k=0;k<nb;k++)
+				ptr[k] = k*blockSize;
+			ptr[nb] = n;
+		}
+		int[][] colIndex = A.getColIndex();
+		double[][] data = A.getData();
+		int nb = ptr.length-1;
+		blocks = new Factorization[nb];
+		int maxSize = 0;
+		for(int b=0;b<nb;b++) {
+			int begin = ptr[b], end = ptr[b+1];
+			int m = end-begin;
+			maxSize = Math.max(maxSize, m);
+			//对角块按列压缩存储：先按行计数，再转置
+			int[] Ap = new int[m+1];
+			for(int i=begin;i<end;i++) {
+				for(int k=0;k<colIndex[i].length;k++) {
+					int j = colIndex[i][k];
+					if(j >= begin && j < end)
+						Ap[j-begin+1]++;
+				}
+			}
+			for(int j=0;j<m;j++)
+				Ap[j+1] += Ap[j];
+			int[] pos = new int[m];
+			System.arraycopy(Ap, 0, pos, 0, m);
+			int[] Ai = new int[Ap[m]];
+			double[] Ax = new double[Ap[m]];
+			for(int i=begin;i<end;i++) {
+				for(int k=0;k<colIndex[i].length;k++) {
+					int j = colIndex[i][k];
+					if(j >= begin && j < end) {
+						int q = pos[j-begin]++;
+						Ai[q] = i-begin;
+						Ax[q] = data[i][k];
+					}
+				}
+			}
+			blocks[b] = new SparseLU(m, Ap, Ai, Ax);
+		}
+		work = new double[maxSize];
+	}
+
+	@Override
+	public void apply(AlgebraVector r, AlgebraVector z) {
+		double[] rd = r.getData();
+		double[] zd = z.getData();
+		for(int b=0;b<blocks.length;b++) {
+			int begin = ptr[b];
+			int m = ptr[b+1]-begin;
+			System.arraycopy(rd, begin, work, 0, m);
+			blocks[b].solve(work, work);
+			System.arraycopy(work, 0, zd, begin, m);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package edu.uta.futureye.algebra.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Geometric multigrid preconditioner
+ *
+ * 插值矩阵由网格加密的层次结构给出：每次加密前后结点的插值矩阵（参见Refiner.computeProlongation()），
+ * 粗网格矩阵为Galerkin乘积，不需要在粗网格上重新合成。
+ * 自适应加密的网格（例如DOT重构中的refineMesh()）已经具有层次结构：
+ *   List<CompressedRowMatrix> hierarchy = new ArrayList<CompressedRowMatrix>();
+ *   int nCoarseNode = mesh.getNodeList().size();
+ *   Refiner.refineOnce(mesh, eToRefine);
+ *   hierarchy.add(Refiner.computeProlongation(mesh, nCoarseNode));
+ *   ...
+ *   Solver solver = new Solver();
+ *   solver.preconditioner = new PreconditionerGMG(hierarchy);
+ *   Vector u = solver.solveCGS(stiff, load);
+ * 最粗一层（初始网格）用稀疏直接法求解，没有加密时等价于直接法。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class PreconditionerGMG extends PreconditionerMultigrid {
+	//插值矩阵，按加密的顺序（从最粗到最细）排列
+	protected List<CompressedRowMatrix> prolongations;
+
+	/**
+	 * @param prolongations 每次加密的插值矩阵，第k个矩阵的列数等于第k-1个矩阵的行数
+	 */
+	public PreconditionerGMG(List<CompressedRowMatrix> prolongations) {
+		this.prolongations = new ArrayList<CompressedRowMatrix>(prolongations);
+		for(int k=1;k<this.prolongations.size();k++) {
+			if(this.prolongations.get(k).getColDim() != this.prolongations.get(k-1).getRowDim())
+				throw new FutureyeException("PreconditionerGMG: prolongation "+(k+1)+
+						" does not match the previous level");
+		}
+	}
+
+	public PreconditionerGMG(List<CompressedRowMatrix> prolongations, CompressedRowMatrix A) {
+		this(prolongations);
+		setup(A);
+	}
+
+	@Override
+	protected CompressedRowMatrix prolongation(int level, CompressedRowMatrix Al) {
+		int k = prolongations.size()-1-level;
+		if(k < 0)
+			return null;
+		CompressedRowMatrix Pk = prolongations.get(k);
+		if(Pk.getRowDim() != Al.getRowDim())
+			throw new FutureyeException("PreconditionerGMG: level "+level+" has "+Al.getRowDim()+
+					" unknowns, but the prolongation has "+Pk.getRowDim()+" rows");
+		return Pk;
+	}
+}
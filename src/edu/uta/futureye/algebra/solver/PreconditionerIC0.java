@@ -0,0 +1,147 @@
+package edu.uta.futureye.algebra.solver;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.intf.AlgebraVector;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Incomplete Cholesky factorization with zero fill-in, IC(0)
+ *
+ * M = L*L'，L的非零元素结构与A的下三角部分相同，适用于对称正定矩阵（CG方法）：
+ *   l(i,k) = (a(i,k) - sum_{j<k} l(i,j)*l(k,j)) / l(k,k)
+ *   l(i,i) = sqrt(a(i,i) - sum_{j<i} l(i,j)^2)
+ * 对称正定矩阵的不完全分解也可能出现非正的主元，此时对角元素乘以(1+shift)后重新分解，
+ * shift逐次加倍。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class PreconditionerIC0 implements Preconditioner {
+	//最大对角元素放大系数
+	public static double maxShift = 1.0;
+
+	protected int n;
+	//L的第i行，最后一个元素为对角元素
+	protected int[][] lIndex;
+	protected double[][] lData;
+	protected double shift = 0.0;
+
+	public PreconditionerIC0() {
+	}
+
+	public PreconditionerIC0(CompressedRowMatrix A) {
+		setup(A);
+	}
+
+	@Override
+	public void setup(CompressedRowMatrix A) {
+		n = A.getRowDim();
+		int[][] colIndex = A.getColIndex();
+		double[][] data = A.getData();
+		lIndex = new int[n][];
+		lData = new double[n][];
+		for(int i=0;i<n;i++) {
+			int[] ci = colIndex[i];
+			int nl = 0;
+			boolean hasDiag = false;
+			for(int k=0;k<ci.length;k++) {
+				if(ci[k] < i) nl++;
+				else if(ci[k] == i) hasDiag = true;
+			}
+			if(!hasDiag)
+				throw new FutureyeException("PreconditionerIC0: zero diagonal in row "+(i+1));
+			lIndex[i] = new int[nl+1];
+			lData[i] = new double[nl+1];
+			for(int k=0;k<nl;k++)
+				lIndex[i][k] = ci[k];
+			lIndex[i][nl] = i;
+		}
+		shift = 0.0;
+		while(!factorize(colIndex, data)) {
+			shift = shift == 0.0 ? 1e-3 : 2*shift;
+			if(shift > maxShift)
+				throw new FutureyeException("PreconditionerIC0: matrix is not positive definite");
+		}
+	}
+
+	/**
+	 * 对角元素为A的对角元素乘以(1+shift)，失败时返回false
+	 */
+	protected boolean factorize(int[][] colIndex, double[][] data) {
+		for(int i=0;i<n;i++) {
+			int[] li = lIndex[i];
+			double[] ld = lData[i];
+			int nl = li.length-1;
+			int[] ci = colIndex[i];
+			double[] ai = data[i];
+			double aii = 0.0;
+			for(int k=0;k<ci.length;k++) {
+				if(ci[k] < i)
+					ld[k] = ai[k];
+				else if(ci[k] == i)
+					aii = ai[k];
+			}
+			for(int p=0;p<nl;p++) {
+				int k = li[p];
+				int[] lk = lIndex[k];
+				double[] lkd = lData[k];
+				//第i行和第k行在第k列之前的公共元素
+				double s = ld[p];
+				int a = 0, b = 0;
+				while(a < p && b < lk.length-1) {
+					if(li[a] == lk[b]) {
+						s -= ld[a]*lkd[b];
+						a++; b++;
+					} else if(li[a] < lk[b]) {
+						a++;
+					} else {
+						b++;
+					}
+				}
+				ld[p] = s/lkd[lk.length-1];
+			}
+			double d = aii*(1.0+shift);
+			for(int p=0;p<nl;p++)
+				d -= ld[p]*ld[p];
+			if(d <= 0.0)
+				return false;
+			ld[nl] = Math.sqrt(d);
+		}
+		return true;
+	}
+
+	/**
+	 * 分解成功时使用的对角元素放大系数
+	 */
+	public double getShift() {
+		return shift;
+	}
+
+	@Override
+	public void apply(AlgebraVector r, AlgebraVector z) {
+		double[] rd = r.getData();
+		double[] zd = z.getData();
+		//L*y = r
+		for(int i=0;i<n;i++) {
+			int[] li = lIndex[i];
+			double[] ld = lData[i];
+			int nl = li.length-1;
+			double s = rd[i];
+			for(int k=0;k<nl;k++)
+				s -= ld[k]*zd[li[k]];
+			zd[i] = s/ld[nl];
+		}
+		//L'*z = y
+		for(int i=n-1;i>=0;i--) {
+			int[] li = lIndex[i];
+			double[] ld = lData[i];
+			int nl = li.length-1;
+			double zi = zd[i]/ld[nl];
+			zd[i] = zi;
+			for(int k=0;k<nl;k++)
+				zd[li[k]] -= ld[k]*zi;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package edu.uta.futureye.algebra.solver;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.intf.AlgebraVector;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Incomplete LU factorization with zero fill-in, ILU(0)
+ *
+ * L和U的非零元素结构与A相同（L的对角元素为1，不存储），按行（IKJ顺序）计算：
+ *   for i=1...n
+ *     for k<i, (i,k)非零
+ *       a(i,k) = a(i,k)/a(k,k)
+ *       for j>k, (i,j)和(k,j)非零
+ *         a(i,j) = a(i,j) - a(i,k)*a(k,j)
+ * 适用于一般（非对称）矩阵。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class PreconditionerILU0 implements Preconditioner {
+	protected int n;
+	protected int[][] colIndex;
+	//L和U，共用A的非零元素结构
+	protected double[][] lu;
+	protected int[] diagPos;
+
+	public PreconditionerILU0() {
+	}
+
+	public PreconditionerILU0(CompressedRowMatrix A) {
+		setup(A);
+	}
+
+	@Override
+	public void setup(CompressedRowMatrix A) {
+		n = A.getRowDim();
+		colIndex = A.getColIndex();
+		double[][] data = A.getData();
+		lu = new double[n][];
+		diagPos = new int[n];
+		for(int i=0;i<n;i++) {
+			lu[i] = data[i].clone();
+			diagPos[i] = -1;
+			for(int k=0;k<colIndex[i].length;k++) {
+				if(colIndex[i][k] == i) {
+					diagPos[i] = k;
+					break;
+				}
+			}
+			if(diagPos[i] < 0)
+				throw new FutureyeException("PreconditionerILU0: zero diagonal in row "+(i+1));
+		}
+		//pos[j]=第i行中第j列元素的位置
+		int[] pos = new int[n];
+		for(int j=0;j<n;j++)
+			pos[j] = -1;
+		for(int i=0;i<n;i++) {
+			int[] ci = colIndex[i];
+			double[] ai = lu[i];
+			for(int k=0;k<ci.length;k++)
+				pos[ci[k]] = k;
+			for(int p=0;p<diagPos[i];p++) {
+				int k = ci[p];
+				double[] ak = lu[k];
+				int[] ck = colIndex[k];
+				double akk = ak[diagPos[k]];
+				if(akk == 0.0)
+					throw new FutureyeException("PreconditionerILU0: zero pivot in row "+(k+1));
+				double lik = ai[p]/akk;
+				ai[p] = lik;
+				for(int q=diagPos[k]+1;q<ck.length;q++) {
+					int j = pos[ck[q]];
+					if(j >= 0)
+						ai[j] -= lik*ak[q];
+				}
+			}
+			for(int k=0;k<ci.length;k++)
+				pos[ci[k]] = -1;
+			if(ai[diagPos[i]] == 0.0)
+				throw new FutureyeException("PreconditionerILU0: zero pivot in row "+(i+1));
+		}
+	}
+
+	@Override
+	public void apply(AlgebraVector r, AlgebraVector z) {
+		double[] rd = r.getData();
+		double[] zd = z.getData();
+		//L*y = r
+		for(int i=0;i<n;i++) {
+			double s = rd[i];
+			int[] ci = colIndex[i];
+			double[] ai = lu[i];
+			for(int k=0;k<diagPos[i];k++)
+				s -= ai[k]*zd[ci[k]];
+			zd[i] = s;
+		}
+		//U*z = y
+		for(int i=n-1;i>=0;i--) {
+			double s = zd[i];
+			int[] ci = colIndex[i];
+			double[] ai = lu[i];
+			for(int k=diagPos[i]+1;k<ci.length;k++)
+				s -= ai[k]*zd[ci[k]];
+			zd[i] = s/ai[diagPos[i]];
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package edu.uta.futureye.algebra.solver;
+
+import java.util.Arrays;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.intf.AlgebraVector;
+
+/**
+ * <blockquote><pre>
+ * Incomplete LU factorization with threshold dropping, ILUT(tau, p)
+ *
+ * 按行计算（Saad, Iterative Methods for Sparse Linear Systems, 10.4），第i行：
+ *   1.绝对值小于tau*|a_i|（|a_i|为A第i行非零元素的均方根）的元素舍去；
+ *   2.L和U的第i行最多保留p个绝对值最大的元素（U的对角元素总是保留）。
+ * 与ILU(0)相比允许填充元素，分解更精确，适用于ILU(0)收敛较慢的非对称问题。
+ * 舍去元素后即使A对称M一般也不对称，不能用于Solver.solveCG()。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class PreconditionerILUT implements Preconditioner {
+	protected double dropTol = 1e-4;
+	protected int maxFill = 10;
+
+	protected int n;
+	protected int[][] lIndex;
+	protected double[][] lData;
+	//U的每行第一个元素为对角元素
+	protected int[][] uIndex;
+	protected double[][] uData;
+
+	public PreconditionerILUT() {
+	}
+
+	/**
+	 * @param dropTol 相对舍去阈值tau
+	 * @param maxFill L和U每行最多保留的非零元素数目p
+	 */
+	public PreconditionerILUT(double dropTol, int maxFill) {
+		this.dropTol = dropTol;
+		this.maxFill = maxFill;
+	}
+
+	public PreconditionerILUT(CompressedRowMatrix A, double dropTol, int maxFill) {
+		this(dropTol, maxFill);
+		setup(A);
+	}
+
+	@Override
+	public void setup(CompressedRowMatrix A) {
+		n = A.getRowDim();
+		int[][] colIndex = A.getColIndex();
+		double[][] data = A.getData();
+		lIndex = new int[n][];
+		lData = new double[n][];
+		uIndex = new int[n][];
+		uData = new double[n][];
+
+		double[] w = new double[n];
+		boolean[] nz = new boolean[n];
+		int[] list = new int[n];
+		//第i行中列号小于i的非零元素，最小堆
+		int[] heap = new int[n];
+		for(int i=0;i<n;i++) {
+			int[] ci = colIndex[i];
+			double[] ai = data[i];
+			int nList = 0, nHeap = 0;
+			double norm = 0.0;
+			for(int k=0;k<ci.length;k++) {
+				int j = ci[k];
+				w[j] = ai[k];
+				nz[j] = true;
+				list[nList++] = j;
+				if(j < i)
+					nHeap = heapPush(heap, nHeap, j);
+				norm += ai[k]*ai[k];
+			}
+			if(!nz[i]) {
+				nz[i] = true;
+				w[i] = 0.0;
+				list[nList++] = i;
+			}
+			norm = Math.sqrt(norm/Math.max(1, ci.length));
+			double tol = dropTol*norm;
+
+			while(nHeap > 0) {
+				int k = heap[0];
+				nHeap = heapPop(heap, nHeap);
+				double wk = w[k]/uData[k][0];
+				if(Math.abs(wk) < tol) {
+					w[k] = 0.0;
+					continue;
+				}
+				w[k] = wk;
+				int[] uk = uIndex[k];
+				double[] ukd = uData[k];
+				for(int q=1;q<uk.length;q++) {
+					int j = uk[q];
+					if(!nz[j]) {
+						nz[j] = true;
+						w[j] = 0.0;
+						list[nList++] = j;
+						if(j < i)
+							nHeap = heapPush(heap, nHeap, j);
+					}
+					w[j] -= wk*ukd[q];
+				}
+			}
+
+			//分别收集L和U的元素
+			int nL = 0, nU = 0;
+			int[] li = new int[nList];
+			int[] ui = new int[nList];
+			for(int k=0;k<nList;k++) {
+				int j = list[k];
+				if(j < i) {
+					if(Math.abs(w[j]) >= tol && w[j] != 0.0)
+						li[nL++] = j;
+				} else if(j > i) {
+					if(Math.abs(w[j]) >= tol)
+						ui[nU++] = j;
+				}
+			}
+			nL = keepLargest(li, nL, w, maxFill);
+			nU = keepLargest(ui, nU, w, maxFill);
+			Arrays.sort(li, 0, nL);
+			Arrays.sort(ui, 0, nU);
+			lIndex[i] = new int[nL];
+			lData[i] = new double[nL];
+			for(int k=0;k<nL;k++) {
+				lIndex[i][k] = li[k];
+				lData[i][k] = w[li[k]];
+			}
+			uIndex[i] = new int[nU+1];
+			uData[i] = new double[nU+1];
+			double d = w[i];
+			//主元为0时用舍去阈值代替
+			if(d == 0.0)
+				d = tol > 0.0 ? tol : 1.0;
+			uIndex[i][0] = i;
+			uData[i][0] = d;
+			for(int k=0;k<nU;k++) {
+				uIndex[i][k+1] = ui[k];
+				uData[i][k+1] = w[ui[k]];
+			}
+			for(int k=0;k<nList;k++) {
+				w[list[k]] = 0.0;
+				nz[list[k]] = false;
+			}
+		}
+	}
+
+	/**
+	 * 保留idx[0...cnt-1]中绝对值最大的p个元素
+	 */
+	protected static int keepLargest(int[] idx, int cnt, double[] w, int p) {
+		if(cnt <= p)
+			return cnt;
+		//部分选择排序（quickselect）
+		int lo = 0, hi = cnt-1;
+		while(lo < hi) {
+			double pivot = Math.abs(w[idx[(lo+hi)>>>1]]);
+			int a = lo, b = hi;
+			while(a <= b) {
+				while(Math.abs(w[idx[a]]) > pivot) a++;
+				while(Math.abs(w[idx[b]]) < pivot) b--;
+				if(a <= b) {
+					int t = idx[a]; idx[a] = idx[b]; idx[b] = t;
+					a++; b--;
+				}
+			}
+			if(p-1 <= b) hi = b;
+			else if(p-1 >= a) lo = a;
+			else break;
+		}
+		return p;
+	}
+
+	protected static int heapPush(int[] heap, int size, int v) {
+		int i = size++;
+		while(i > 0) {
+			int parent = (i-1)>>1;
+			if(heap[parent] <= v) break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = v;
+		return size;
+	}
+
+	protected static int heapPop(int[] heap, int size) {
+		int v = heap[--size];
+		int i = 0;
+		while(true) {
+			int c = 2*i+1;
+			if(c >= size) break;
+			if(c+1 < size && heap[c+1] < heap[c]) c++;
+			if(v <= heap[c]) break;
+			heap[i] = heap[c];
+			i = c;
+		}
+		if(size > 0)
+			heap[i] = v;
+		return size;
+	}
+
+	@Override
+	public void apply(AlgebraVector r, AlgebraVector z) {
+		double[] rd = r.getData();
+		double[] zd = z.getData();
+		for(int i=0;i<n;i++) {
+			double s = rd[i];
+			int[] li = lIndex[i];
+			double[] ld = lData[i];
+			for(int k=0;k<li.length;k++)
+				s -= ld[k]*zd[li[k]];
+			zd[i] = s;
+		}
+		for(int i=n-1;i>=0;i--) {
+			double s = zd[i];
+			int[] ui = uIndex[i];
+			double[] ud = uData[i];
+			for(int k=1;k<ui.length;k++)
+				s -= ud[k]*zd[ui[k]];
+			zd[i] = s/ud[0];
+		}
+	}
+}
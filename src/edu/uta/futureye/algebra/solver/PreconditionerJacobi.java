@@ -0,0 +1,50 @@
+package edu.uta.futureye.algebra.solver;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.intf.AlgebraVector;
+
+/**
+ * <blockquote><pre>
+ * Jacobi (diagonal) preconditioner
+ *
+ * M = diag(A)，对角元素为0的行取M(i,i)=1
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class PreconditionerJacobi implements Preconditioner {
+	protected double[] invDiag;
+
+	public PreconditionerJacobi() {
+	}
+
+	public PreconditionerJacobi(CompressedRowMatrix A) {
+		setup(A);
+	}
+
+	@Override
+	public void setup(CompressedRowMatrix A) {
+		int n = A.getRowDim();
+		int[][] colIndex = A.getColIndex();
+		double[][] data = A.getData();
+		invDiag = new double[n];
+		for(int i=0;i<n;i++) {
+			invDiag[i] = 1.0;
+			for(int k=0;k<colIndex[i].length;k++) {
+				if(colIndex[i][k] == i && data[i][k] != 0.0) {
+					invDiag[i] = 1.0/data[i][k];
+					break;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void apply(AlgebraVector r, AlgebraVector z) {
+		double[] rd = r.getData();
+		double[] zd = z.getData();
+		for(int i=0;i<invDiag.length;i++)
+			zd[i] = rd[i]*invDiag[i];
+	}
+}
@@ -0,0 +1,314 @@
+package edu.uta.futureye.algebra.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.intf.AlgebraVector;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Multigrid preconditioner
+ *
+ * 多重网格的公共部分，子类给出每一层到下一层（更粗一层）的插值矩阵P，参见prolongation()：
+ *   代数多重网格：由矩阵构造插值，参见PreconditionerAMG；
+ *   几何多重网格：由网格加密的层次结构构造插值，参见PreconditionerGMG。
+ *
+ * 构造阶段（setup），从A_0=A开始逐层计算Galerkin粗网格矩阵A_{l+1}=R*A_l*P，R=P'，
+ * 矩阵乘积使用CompressedRowMatrix.mult(AlgebraMatrix, AlgebraMatrix)，
+ * 最粗一层用稀疏直接法（SparseDirectSolver）求解。
+ *
+ * 求解阶段（apply）：V循环（cycle=V_CYCLE）或W循环（cycle=W_CYCLE），
+ * 前光滑为向前Gauss-Seidel，后光滑为向后Gauss-Seidel，A对称时预条件矩阵也对称，可以用于CG。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public abstract class PreconditionerMultigrid implements Preconditioner {
+	public static final int V_CYCLE = 1;
+	public static final int W_CYCLE = 2;
+
+	//循环类型：每层递归调用下一层的次数
+	public int cycle = V_CYCLE;
+	//前光滑和后光滑的次数
+	public int preSweeps = 1;
+	public int postSweeps = 1;
+
+	public boolean debug = false;
+
+	//第l层的系数矩阵A[l]，插值P[l]和限制R[l]连接第l层和第l+1层
+	protected CompressedRowMatrix[] A;
+	protected CompressedRowMatrix[] P;
+	protected CompressedRowMatrix[] R;
+	protected Factorization coarseSolver;
+
+	//每层的工作数组
+	protected double[][] x;
+	protected double[][] b;
+	protected double[][] res;
+
+	/**
+	 * 第l层（从0开始，0为最细层）到第l+1层的插值矩阵
+	 *
+	 * @param level
+	 * @param Al 第l层的系数矩阵
+	 * @return Al.getRowDim()行的插值矩阵，null表示第l层为最粗一层
+	 */
+	protected abstract CompressedRowMatrix prolongation(int level, CompressedRowMatrix Al);
+
+	@Override
+	public void setup(CompressedRowMatrix A0) {
+		if(A0.getRowDim() != A0.getColDim())
+			throw new FutureyeException(getClass().getSimpleName()+": matrix is not square "+
+					A0.getRowDim()+"x"+A0.getColDim());
+		List<CompressedRowMatrix> listA = new ArrayList<CompressedRowMatrix>();
+		List<CompressedRowMatrix> listP = new ArrayList<CompressedRowMatrix>();
+		List<CompressedRowMatrix> listR = new ArrayList<CompressedRowMatrix>();
+		long begin = System.currentTimeMillis();
+		CompressedRowMatrix Al = A0;
+		listA.add(Al);
+		CompressedRowMatrix Pl = null;
+		while((Pl = prolongation(listA.size()-1, Al)) != null) {
+			CompressedRowMatrix Rl = transpose(Pl);
+			CompressedRowMatrix AP = new CompressedRowMatrix();
+			Al.mult(Pl, AP);
+			CompressedRowMatrix Ac = new CompressedRowMatrix();
+			Rl.mult(AP, Ac);
+			listP.add(Pl);
+			listR.add(Rl);
+			listA.add(Ac);
+			Al = Ac;
+		}
+		int nLevel = listA.size();
+		this.A = listA.toArray(new CompressedRowMatrix[nLevel]);
+		this.P = listP.toArray(new CompressedRowMatrix[nLevel-1]);
+		this.R = listR.toArray(new CompressedRowMatrix[nLevel-1]);
+		SparseDirectSolver direct = new SparseDirectSolver();
+		direct.reuseFactorization = false;
+		this.coarseSolver = direct.factorize(regularize(A[nLevel-1]));
+
+		x = new double[nLevel][];
+		b = new double[nLevel][];
+		res = new double[nLevel][];
+		for(int l=0;l<nLevel;l++) {
+			int n = A[l].getRowDim();
+			x[l] = new double[n];
+			b[l] = new double[n];
+			res[l] = new double[n];
+		}
+		if(debug) {
+			String name = getClass().getSimpleName();
+			for(int l=0;l<nLevel;l++)
+				System.out.println(name+" level "+l+": n="+A[l].getRowDim()+" nnz="+getNonZeroNumber(A[l]));
+			System.out.println(name+" setup: levels="+nLevel+" operator complexity="+
+					String.format("%.3f", getOperatorComplexity())+
+					" time="+(System.currentTimeMillis()-begin)+"ms");
+		}
+	}
+
+	@Override
+	public void apply(AlgebraVector r, AlgebraVector z) {
+		double[] zd = z.getData();
+		System.arraycopy(r.getData(), 0, b[0], 0, b[0].length);
+		for(int i=0;i<zd.length;i++)
+			x[0][i] = 0.0;
+		cycle(0);
+		System.arraycopy(x[0], 0, zd, 0, zd.length);
+	}
+
+	/**
+	 * 第l层的多重网格循环，求解A[l]*x[l]=b[l]，以x[l]为初值
+	 */
+	protected void cycle(int l) {
+		int last = A.length-1;
+		if(l == last) {
+			coarseSolver.solve(b[l], x[l]);
+			return;
+		}
+		for(int s=0;s<preSweeps;s++)
+			gaussSeidel(A[l], b[l], x[l], true);
+
+		//粗网格校正
+		residual(A[l], b[l], x[l], res[l]);
+		mult(R[l], res[l], b[l+1]);
+		double[] xc = x[l+1];
+		for(int i=0;i<xc.length;i++)
+			xc[i] = 0.0;
+		int gamma = l+1 == last ? 1 : cycle;
+		for(int g=0;g<gamma;g++)
+			cycle(l+1);
+		multAdd(P[l], xc, x[l]);
+
+		for(int s=0;s<postSweeps;s++)
+			gaussSeidel(A[l], b[l], x[l], false);
+	}
+
+	/**
+	 * 空行（例如hanging node对应的行）的对角元素置为1，保证最粗一层的直接法可以分解，
+	 * 不改变<tt>A</tt>
+	 */
+	protected static CompressedRowMatrix regularize(CompressedRowMatrix A) {
+		int n = A.getRowDim();
+		int[][] colIndex = A.getColIndex();
+		CompressedRowMatrix B = null;
+		for(int i=0;i<n;i++) {
+			if(colIndex[i].length > 0) continue;
+			if(B == null) {
+				B = new CompressedRowMatrix(n, A.getColDim());
+				for(int k=0;k<n;k++)
+					B.setRow(k+1, colIndex[k], A.getData()[k]);
+			}
+			B.setRow(i+1, new int[]{i}, new double[]{1.0});
+		}
+		return B == null ? A : B;
+	}
+
+	/**
+	 * 转置，结果的列号按升序排列
+	 */
+	protected static CompressedRowMatrix transpose(CompressedRowMatrix M) {
+		int nRow = M.getRowDim();
+		int nCol = M.getColDim();
+		int[][] colIndex = M.getColIndex();
+		double[][] data = M.getData();
+		int[] cnt = new int[nCol];
+		for(int i=0;i<nRow;i++)
+			for(int j : colIndex[i])
+				cnt[j]++;
+		int[][] tIndex = new int[nCol][];
+		double[][] tData = new double[nCol][];
+		for(int j=0;j<nCol;j++) {
+			tIndex[j] = new int[cnt[j]];
+			tData[j] = new double[cnt[j]];
+			cnt[j] = 0;
+		}
+		for(int i=0;i<nRow;i++) {
+			for(int k=0;k<colIndex[i].length;k++) {
+				int j = colIndex[i][k];
+				tIndex[j][cnt[j]] = i;
+				tData[j][cnt[j]++] = data[i][k];
+			}
+		}
+		CompressedRowMatrix T = new CompressedRowMatrix(nCol, nRow);
+		for(int j=0;j<nCol;j++)
+			T.setRow(j+1, tIndex[j], tData[j]);
+		return T;
+	}
+
+	/**
+	 * Gauss-Seidel迭代一次，forward=false时按相反的顺序
+	 */
+	protected static void gaussSeidel(CompressedRowMatrix A, double[] b, double[] x, boolean forward) {
+		int n = A.getRowDim();
+		int[][] colIndex = A.getColIndex();
+		double[][] data = A.getData();
+		for(int t=0;t<n;t++) {
+			int i = forward ? t : n-1-t;
+			int[] ci = colIndex[i];
+			double[] ai = data[i];
+			double s = b[i], d = 0.0;
+			for(int k=0;k<ci.length;k++) {
+				if(ci[k] == i)
+					d = ai[k];
+				else
+					s -= ai[k]*x[ci[k]];
+			}
+			if(d != 0.0)
+				x[i] = s/d;
+		}
+	}
+
+	/**
+	 * r = b - A*x
+	 */
+	protected static void residual(CompressedRowMatrix A, double[] b, double[] x, double[] r) {
+		int n = A.getRowDim();
+		int[][] colIndex = A.getColIndex();
+		double[][] data = A.getData();
+		for(int i=0;i<n;i++) {
+			double s = b[i];
+			for(int k=0;k<colIndex[i].length;k++)
+				s -= data[i][k]*x[colIndex[i][k]];
+			r[i] = s;
+		}
+	}
+
+	/**
+	 * y = M*x
+	 */
+	protected static void mult(CompressedRowMatrix M, double[] x, double[] y) {
+		int n = M.getRowDim();
+		int[][] colIndex = M.getColIndex();
+		double[][] data = M.getData();
+		for(int i=0;i<n;i++) {
+			double s = 0.0;
+			for(int k=0;k<colIndex[i].length;k++)
+				s += data[i][k]*x[colIndex[i][k]];
+			y[i] = s;
+		}
+	}
+
+	/**
+	 * y = y + M*x
+	 */
+	protected static void multAdd(CompressedRowMatrix M, double[] x, double[] y) {
+		int n = M.getRowDim();
+		int[][] colIndex = M.getColIndex();
+		double[][] data = M.getData();
+		for(int i=0;i<n;i++) {
+			double s = 0.0;
+			for(int k=0;k<colIndex[i].length;k++)
+				s += data[i][k]*x[colIndex[i][k]];
+			y[i] += s;
+		}
+	}
+
+	protected static double[] getDiagonal(CompressedRowMatrix A) {
+		int n = A.getRowDim();
+		int[][] colIndex = A.getColIndex();
+		double[][] data = A.getData();
+		double[] diag = new double[n];
+		for(int i=0;i<n;i++) {
+			for(int k=0;k<colIndex[i].length;k++) {
+				if(colIndex[i][k] == i) {
+					diag[i] = data[i][k];
+					break;
+				}
+			}
+		}
+		return diag;
+	}
+
+	protected static int getNonZeroNumber(CompressedRowMatrix A) {
+		int nnz = 0;
+		for(int[] ci : A.getColIndex())
+			nnz += ci.length;
+		return nnz;
+	}
+
+	/**
+	 * 层数（包括最细层）
+	 */
+	public int getLevelNumber() {
+		return A == null ? 0 : A.length;
+	}
+
+	/**
+	 * 第l层（从0开始，0为最细层）的系数矩阵
+	 */
+	public CompressedRowMatrix getMatrix(int l) {
+		return A[l];
+	}
+
+	/**
+	 * 算子复杂度：所有层矩阵的非零元素总数与最细层非零元素数之比
+	 */
+	public double getOperatorComplexity() {
+		double total = 0.0;
+		for(int l=0;l<A.length;l++)
+			total += getNonZeroNumber(A[l]);
+		return total/getNonZeroNumber(A[0]);
+	}
+}
@@ -0,0 +1,84 @@
+package edu.uta.futureye.algebra.solver;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.intf.AlgebraVector;
+
+/**
+ * <blockquote><pre>
+ * Symmetric successive over-relaxation (SSOR) preconditioner
+ *
+ * A = L + D + U，
+ * M = omega/(2-omega) * (D/omega+L) * (D/omega)^{-1} * (D/omega+U)
+ * 不需要额外的存储，omega=1时为对称Gauss-Seidel预条件。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class PreconditionerSSOR implements Preconditioner {
+	protected double omega = 1.0;
+	protected int n;
+	protected int[][] colIndex;
+	protected double[][] data;
+	protected double[] diag;
+
+	public PreconditionerSSOR() {
+	}
+
+	/**
+	 * @param omega 松弛因子 0<omega<2
+	 */
+	public PreconditionerSSOR(double omega) {
+		this.omega = omega;
+	}
+
+	public PreconditionerSSOR(CompressedRowMatrix A, double omega) {
+		this.omega = omega;
+		setup(A);
+	}
+
+	@Override
+	public void setup(CompressedRowMatrix A) {
+		n = A.getRowDim();
+		colIndex = A.getColIndex();
+		data = A.getData();
+		diag = new double[n];
+		for(int i=0;i<n;i++) {
+			diag[i] = 1.0;
+			for(int k=0;k<colIndex[i].length;k++) {
+				if(colIndex[i][k] == i) {
+					if(data[i][k] != 0.0)
+						diag[i] = data[i][k];
+					break;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void apply(AlgebraVector r, AlgebraVector z) {
+		double[] rd = r.getData();
+		double[] zd = z.getData();
+		//(D/omega+L)*y = r
+		for(int i=0;i<n;i++) {
+			double s = rd[i];
+			int[] ci = colIndex[i];
+			double[] ai = data[i];
+			for(int k=0;k<ci.length && ci[k]<i;k++)
+				s -= ai[k]*zd[ci[k]];
+			zd[i] = s*omega/diag[i];
+		}
+		//(D/omega+U)*z = (D/omega)*y
+		for(int i=n-1;i>=0;i--) {
+			double s = zd[i]*diag[i]/omega;
+			int[] ci = colIndex[i];
+			double[] ai = data[i];
+			for(int k=ci.length-1;k>=0 && ci[k]>i;k--)
+				s -= ai[k]*zd[ci[k]];
+			zd[i] = s*omega/diag[i];
+		}
+		double c = (2.0-omega)/omega;
+		for(int i=0;i<n;i++)
+			zd[i] *= c;
+	}
+}
@@ -1,7 +1,11 @@
 package edu.uta.futureye.algebra.solver;
 
+import java.util.Arrays;
+
 import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.FullMatrix;
 import edu.uta.futureye.algebra.FullVector;
+import edu.uta.futureye.algebra.ParallelKernel;
 import edu.uta.futureye.algebra.SparseVectorHashMap;
 import edu.uta.futureye.algebra.intf.AlgebraMatrix;
 import edu.uta.futureye.algebra.intf.AlgebraVector;
@@ -15,6 +19,10 @@ import edu.uta.futureye.util.FutureyeException;
 /**
  * Iterative solver
  * 
+ * 预条件：设置preconditioner后，CG、CGS、BiCGStab和GMRES每一步求解M*z=r，参见Preconditioner
+ * 
+ * 多个右端项：solveBlockCG和solveBlockGMRES同时求解A*X=B的所有右端项
+ * 
  * @author liuyueming
  *
  */
@@ -30,11 +38,31 @@ public class Solver {
 	
 	public boolean debug = false;
 	
+	//预条件矩阵，null表示不使用预条件
+	public Preconditioner preconditioner = null;
+	
+	//GMRES重启动前的迭代次数（Krylov子空间的维数）
+	public int gmresRestart = 30;
+	
+	//块方法中正交化后的范数不大于原范数的blockDropTol倍的向量视为线性相关，去掉
+	public double blockDropTol = 1e-10;
+	
+	//块方法每步的块内积和正交化的运算量约为k^2*n，只有A每行的非零元素较多时SpMM节省的运算才能抵消，
+	//A每行平均非零元素个数不小于blockNnzPerRhs*k时使用块方法，否则逐个求解；不大于0时总是使用块方法
+	public double blockNnzPerRhs = 8.0;
+	
+	//最近一次求解的迭代次数
+	public int iterations = 0;
+	
 	/**
 	 * Conjugate Gradients iterative method, solves 
 	 * symmetric positive definite linear system:
 	 * <tt>Ax = b</tt>
 	 * 
+	 * A为CompressedRowMatrix时，q=A*p与p.q在一次遍历中计算（multDot），
+	 * 残量的更新与范数在一次遍历中计算（addNorm2），没有预条件时rho=||r||^2，
+	 * 每步只需遍历向量4次（分开计算时为7次）
+	 * 
 	 * @param A
 	 * @param b
 	 * @param x
@@ -50,6 +78,8 @@ public class Solver {
 		AlgebraVector z = new FullVector(dim);
 		AlgebraVector p = new FullVector(dim);
 		AlgebraVector q = new FullVector(dim);
+		CompressedRowMatrix csr = A instanceof CompressedRowMatrix ? 
+				(CompressedRowMatrix)A : null;
 		
 		// r = b - Ax
 		//A.multAdd(-1, x, r.set(b));
@@ -57,25 +87,28 @@ public class Solver {
 		r.axpy(-1.0, b);
 		
 		double firstNorm2 = r.norm2();
-		double norm2 = 0;
+		double norm2 = firstNorm2;
 		//for (iter.setFirst(); !iter.converged(r, x); iter.next()) {
 		for(int i=0;i<maxIter;i++) {
-			norm2 = r.norm2();
 			if((norm2<=this.epsRelIter*firstNorm2 && norm2<=this.epsAbsIterMax) || 
 					norm2<=this.epsAbsIterMin) {
 				if(debug)
 					System.out.println(
 						String.format("Iter----->i=%05d, RError=%8.3e, AError=%8.3e", 
 								i,norm2/firstNorm2,norm2));
+				iterations = i;
 				return x;
 			}
 			
-		    //M.apply(r, z);
 			//Mz=r
-			//M：预条件矩阵，取为I,z==r
-			z=r;
-			
-		    rho = r.dot(z);
+			//M：预条件矩阵，没有预条件时取为I,z==r
+			if(preconditioner == null) {
+				z=r;
+				rho = norm2*norm2;
+			} else {
+				preconditioner.apply(r, z);
+				rho = r.dot(z);
+			}
 		
 		    if (i==0)
 		        p.set(z);
@@ -85,14 +118,21 @@ public class Solver {
 		    }
 		
 		    //q = A*p
-		    A.mult(p, q);
-		    alpha = rho / p.dot(q);
+		    double pq;
+		    if(csr != null)
+		    	pq = csr.multDot(p, q);
+		    else {
+		    	A.mult(p, q);
+		    	pq = p.dot(q);
+		    }
+		    alpha = rho / pq;
 		
 		    x.add(alpha, p); //x=x+alpha*p
-		    r.add(-alpha, q); //r=r-alpha*q
+		    norm2 = r.addNorm2(-alpha, q); //r=r-alpha*q
 		
 		    rho_1 = rho;
 		}
+		iterations = (int)maxIter;
 		System.out.println("Iter Max----->maxIter="+maxIter+"  norm2="+norm2);
 		return x;
     }
@@ -131,11 +171,10 @@ public class Solver {
 	    rtilde.set(r);
 		
 		double firstNorm2 = r.norm2();
-		double norm2 = 0;
+		double norm2 = firstNorm2;
 		long begin = System.currentTimeMillis(),end=0;
 		//for (iter.setFirst(); !iter.converged(r, x); iter.next()) {
 		for(int i=0;i<maxIter;i++) {
-			norm2 = r.norm2();
 			if((norm2<=this.epsRelIter*firstNorm2 && norm2<=this.epsAbsIterMax) || 
 					norm2<=this.epsAbsIterMin) {
 				if(debug) {
@@ -144,6 +183,7 @@ public class Solver {
 						String.format("Iter----->i=%05d, RError=%8.3e, AError=%8.3e, Time=%dms", 
 								i,norm2/firstNorm2,norm2,(end-begin)));
 				}
+				iterations = i;
 				return x;
 			}
 			
@@ -164,26 +204,799 @@ public class Solver {
                 p.set(u).add(beta, sum);
             }
 
-            //M.apply(p, phat);
-            phat.set(p);
+            if(preconditioner == null)
+            	phat.set(p);
+            else
+            	preconditioner.apply(p, phat);
             
             A.mult(phat, vhat);
             alpha = rho_1 / rtilde.dot(vhat);
             q.set(-alpha, vhat).add(u);
             
-            //M.apply(sum.set(u).add(q), uhat);
-            uhat.set(sum.set(u).add(q));
+            if(preconditioner == null)
+            	uhat.set(sum.set(u).add(q));
+            else
+            	preconditioner.apply(sum.set(u).add(q), uhat);
             x.add(alpha, uhat);
             A.mult(uhat, qhat);
-            r.add(-alpha, qhat);
+            norm2 = r.addNorm2(-alpha, qhat);
 
             rho_2 = rho_1;
         }
 		end = System.currentTimeMillis();
+		iterations = (int)maxIter;
 		System.out.println("Iter Max----->maxIter="+maxIter+", Norm2="+norm2+", Time="+(end-begin));
 		return x;
     }	
 	
+	/**
+	 * BiConjugate Gradients stabilized iterative method (van der Vorst),
+	 * solves the unsymmetric linear system
+	 * <tt>Ax = b</tt>
+	 * 
+	 * 与CGS相比收敛过程更平稳，每步两次矩阵向量乘法，使用右预条件
+	 * 
+	 * @param A
+	 * @param b
+	 * @param x
+	 * @return
+	 */
+	public AlgebraVector solveBiCGStab(AlgebraMatrix A, AlgebraVector b, 
+			AlgebraVector x) {
+		
+		double rho_1 = 0, rho_2 = 0, alpha = 0, beta = 0, omega = 0;
+		
+		int dim = b.getDim();
+		AlgebraVector r = new FullVector(dim);
+		AlgebraVector rtilde = new FullVector(dim);
+		AlgebraVector p = new FullVector(dim);
+		AlgebraVector phat = new FullVector(dim);
+		AlgebraVector v = new FullVector(dim);
+		AlgebraVector s = new FullVector(dim);
+		AlgebraVector shat = new FullVector(dim);
+		AlgebraVector t = new FullVector(dim);
+		
+		// r = b - Ax
+		A.mult(x, r);
+		r.axpy(-1.0, b);
+		rtilde.set(r);
+		
+		double firstNorm2 = r.norm2();
+		double norm2 = firstNorm2;
+		long begin = System.currentTimeMillis(),end=0;
+		for(int i=0;i<maxIter;i++) {
+			if(isConverged(norm2, firstNorm2)) {
+				if(debug) {
+					end = System.currentTimeMillis();
+					System.out.println(
+						String.format("Iter----->i=%05d, RError=%8.3e, AError=%8.3e, Time=%dms", 
+								i,norm2/firstNorm2,norm2,(end-begin)));
+				}
+				iterations = i;
+				return x;
+			}
+			
+			rho_1 = rtilde.dot(r);
+			if (rho_1 == 0)
+				throw new FutureyeException("NotConverge, rho_1==0, iter="+i);
+			
+			if (i==0)
+				p.set(r);
+			else {
+				beta = (rho_1 / rho_2) * (alpha / omega);
+				//p = r + beta*(p - omega*v)
+				p.add(-omega, v).axpy(beta, r);
+			}
+			
+			if(preconditioner == null)
+				phat.set(p);
+			else
+				preconditioner.apply(p, phat);
+			A.mult(phat, v);
+			alpha = rho_1 / rtilde.dot(v);
+			
+			//s足够小时不再进行后半步
+			norm2 = s.set(r).addNorm2(-alpha, v);
+			if(isConverged(norm2, firstNorm2)) {
+				x.add(alpha, phat);
+				r.set(s);
+				continue;
+			}
+			
+			if(preconditioner == null)
+				shat.set(s);
+			else
+				preconditioner.apply(s, shat);
+			A.mult(shat, t);
+			double tt = t.dot(t);
+			omega = tt == 0 ? 0 : t.dot(s) / tt;
+			if (omega == 0)
+				throw new FutureyeException("NotConverge, omega==0, iter="+i);
+			
+			x.add(alpha, phat).add(omega, shat);
+			norm2 = r.set(s).addNorm2(-omega, t);
+			
+			rho_2 = rho_1;
+		}
+		end = System.currentTimeMillis();
+		iterations = (int)maxIter;
+		System.out.println("Iter Max----->maxIter="+maxIter+", Norm2="+norm2+", Time="+(end-begin));
+		return x;
+	}
+	
+	/**
+	 * Restarted Generalized Minimal Residual method GMRES(m),
+	 * solves the unsymmetric linear system
+	 * <tt>Ax = b</tt>
+	 * 
+	 * m=gmresRestart，使用右预条件，残量范数单调下降。
+	 * 基向量用修正的Gram-Schmidt方法正交化，Hessenberg矩阵用Givens旋转化为上三角矩阵，
+	 * 每一步的残量范数不需要计算r=b-Ax即可得到。
+	 * 
+	 * @param A
+	 * @param b
+	 * @param x
+	 * @return
+	 */
+	public AlgebraVector solveGMRES(AlgebraMatrix A, AlgebraVector b, 
+			AlgebraVector x) {
+		
+		int m = gmresRestart;
+		int dim = b.getDim();
+		AlgebraVector r = new FullVector(dim);
+		AlgebraVector w = new FullVector(dim);
+		AlgebraVector zhat = new FullVector(dim);
+		AlgebraVector[] V = new AlgebraVector[m+1];
+		for(int k=0;k<=m;k++)
+			V[k] = new FullVector(dim);
+		//H(0:m,0:m-1)经过Givens旋转后的上三角部分
+		double[][] H = new double[m+1][m];
+		double[] cs = new double[m];
+		double[] sn = new double[m];
+		double[] g = new double[m+1];
+		double[] y = new double[m];
+		
+		// r = b - Ax
+		A.mult(x, r);
+		r.axpy(-1.0, b);
+		
+		double firstNorm2 = r.norm2();
+		double norm2 = firstNorm2;
+		long begin = System.currentTimeMillis(),end=0;
+		int i = 0;
+		while(i<maxIter) {
+			if(isConverged(norm2, firstNorm2))
+				break;
+			
+			V[0].set(1.0/norm2, r);
+			for(int k=1;k<=m;k++)
+				g[k] = 0.0;
+			g[0] = norm2;
+			
+			int k = 0;
+			for(;k<m && i<maxIter;k++,i++) {
+				//w = A*M^{-1}*v_k
+				if(preconditioner == null)
+					A.mult(V[k], w);
+				else {
+					preconditioner.apply(V[k], zhat);
+					A.mult(zhat, w);
+				}
+				//修正的Gram-Schmidt正交化
+				for(int j=0;j<=k;j++) {
+					H[j][k] = w.dot(V[j]);
+					w.add(-H[j][k], V[j]);
+				}
+				H[k+1][k] = w.norm2();
+				if(H[k+1][k] != 0)
+					V[k+1].set(1.0/H[k+1][k], w);
+				
+				//用前面的Givens旋转作用于第k列
+				for(int j=0;j<k;j++) {
+					double h = cs[j]*H[j][k] + sn[j]*H[j+1][k];
+					H[j+1][k] = -sn[j]*H[j][k] + cs[j]*H[j+1][k];
+					H[j][k] = h;
+				}
+				//消去H[k+1][k]的Givens旋转
+				double d = Math.sqrt(H[k][k]*H[k][k] + H[k+1][k]*H[k+1][k]);
+				if(d == 0)
+					throw new FutureyeException("NotConverge, H==0, iter="+i);
+				cs[k] = H[k][k]/d;
+				sn[k] = H[k+1][k]/d;
+				H[k][k] = d;
+				H[k+1][k] = 0.0;
+				g[k+1] = -sn[k]*g[k];
+				g[k] = cs[k]*g[k];
+				
+				norm2 = Math.abs(g[k+1]);
+				if(isConverged(norm2, firstNorm2)) {
+					k++;
+					i++;
+					break;
+				}
+			}
+			
+			//求解上三角方程H(0:k-1,0:k-1)*y=g(0:k-1)，x = x + M^{-1}*V*y
+			for(int j=k-1;j>=0;j--) {
+				double sum = g[j];
+				for(int l=j+1;l<k;l++)
+					sum -= H[j][l]*y[l];
+				y[j] = sum/H[j][j];
+			}
+			w.scale(0.0);
+			for(int j=0;j<k;j++)
+				w.add(y[j], V[j]);
+			if(preconditioner == null)
+				x.add(w);
+			else {
+				preconditioner.apply(w, zhat);
+				x.add(zhat);
+			}
+			
+			//重启动时重新计算残量，避免递推残量与真实残量的偏差
+			A.mult(x, r);
+			r.axpy(-1.0, b);
+			norm2 = r.norm2();
+		}
+		iterations = i;
+		end = System.currentTimeMillis();
+		if(isConverged(norm2, firstNorm2)) {
+			if(debug)
+				System.out.println(
+					String.format("Iter----->i=%05d, RError=%8.3e, AError=%8.3e, Time=%dms", 
+							i,norm2/firstNorm2,norm2,(end-begin)));
+		} else
+			System.out.println("Iter Max----->maxIter="+maxIter+", Norm2="+norm2+", Time="+(end-begin));
+		return x;
+	}
+	
+	/**
+	 * 收敛判断：相对误差和绝对误差都满足要求，或者绝对误差足够小
+	 */
+	protected boolean isConverged(double norm2, double firstNorm2) {
+		return (norm2<=this.epsRelIter*firstNorm2 && norm2<=this.epsAbsIterMax) || 
+			norm2<=this.epsAbsIterMin;
+	}
+	
+	/**
+	 * Block Conjugate Gradients iterative method, solves 
+	 * symmetric positive definite linear system with multiple right hand sides:
+	 * <tt>AX = B</tt>
+	 * 
+	 * B[j]为第j个右端项（例如多个光源、多个时间步），所有右端项共用搜索方向，
+	 * 每步的矩阵向量乘法变为多个向量同时乘以矩阵（CompressedRowMatrix.mult(AlgebraVector[],AlgebraVector[])），
+	 * 读取一次矩阵同时计算所有向量，迭代次数通常也比逐个求解少。
+	 * 搜索方向每步正交化，去掉线性相关和已收敛的向量（breakdown-free block CG），
+	 * 右端项线性相关时也不会中断。每个右端项分别按epsRelIter等判断收敛。
+	 * 预条件矩阵必须对称正定，参见Preconditioner。
+	 * 块内积和正交化的运算量与k^2成正比，A每行的非零元素较少时改为逐个求解，参见blockNnzPerRhs
+	 * 
+	 * @param A
+	 * @param B
+	 * @param X 初值，返回时为解
+	 * @return X
+	 */
+	public AlgebraVector[] solveBlockCG(AlgebraMatrix A, AlgebraVector[] B, 
+			AlgebraVector[] X) {
+		
+		int k = B.length;
+		if(!useBlock(A, k))
+			return solveEach(A, B, X, false);
+		int dim = k == 0 ? 0 : B[0].getDim();
+		AlgebraVector[] R = newBlock(k, dim);
+		AlgebraVector[] P = null, Q = null;
+		double[][] PQ = null;
+		//P由上一步的Z正交化得到，两组Z交替使用
+		AlgebraVector[][] Zs = {newBlock(k, dim), newBlock(k, dim)};
+		
+		// R = B - AX
+		multBlock(A, X, R);
+		for(int j=0;j<k;j++)
+			R[j].axpy(-1.0, B[j]);
+		
+		double[] firstNorm2 = new double[k];
+		for(int j=0;j<k;j++)
+			firstNorm2[j] = R[j].norm2();
+		double[] norm2 = firstNorm2.clone();
+		long begin = System.currentTimeMillis(),end=0;
+		for(int i=0;i<maxIter;i++) {
+			if(isConverged(norm2, firstNorm2)) {
+				if(debug) {
+					end = System.currentTimeMillis();
+					System.out.println(
+						String.format("Iter----->i=%05d, k=%d, RError=%8.3e, AError=%8.3e, Time=%dms", 
+								i,k,maxRatio(norm2,firstNorm2),max(norm2),(end-begin)));
+				}
+				iterations = i;
+				return X;
+			}
+			
+			//Z = M^{-1}R，已收敛的右端项取为0
+			AlgebraVector[] Z = Zs[i%2];
+			for(int j=0;j<k;j++) {
+				if(isConverged(norm2[j], firstNorm2[j]))
+					Z[j].scale(0.0);
+				else if(preconditioner == null)
+					Z[j].set(R[j]);
+				else
+					preconditioner.apply(R[j], Z[j]);
+			}
+			if(i > 0) {
+				//Z = Z - P*(P'AP)^{-1}(Q'Z)
+				double[][] beta = solveSPD(PQ, transMult(Q, Z));
+				multAdd(-1.0, P, beta, Z);
+			}
+			//新的搜索方向：正交化后去掉线性相关的向量
+			P = orthonormalize(Z, null);
+			if(P.length == 0)
+				throw new FutureyeException("NotConverge, search directions vanished, iter="+i);
+			if(Q == null || Q.length != P.length)
+				Q = newBlock(P.length, dim);
+			
+			//Q = A*P, alpha = (P'AP)^{-1}(P'R)，P'Q和P'R一次计算
+			multBlock(A, P, Q);
+			int p = P.length;
+			AlgebraVector[] QR = new AlgebraVector[p+k];
+			System.arraycopy(Q, 0, QR, 0, p);
+			System.arraycopy(R, 0, QR, p, k);
+			double[][] PQR = transMult(P, QR);
+			PQ = new double[p][];
+			double[][] PR = new double[p][];
+			for(int s=0;s<p;s++) {
+				PQ[s] = Arrays.copyOf(PQR[s], p);
+				PR[s] = Arrays.copyOfRange(PQR[s], p, p+k);
+			}
+			double[][] alpha = solveSPD(PQ, PR);
+			
+			multAdd(1.0, P, alpha, X); //X=X+P*alpha
+			multAdd(-1.0, Q, alpha, R); //R=R-Q*alpha
+			for(int j=0;j<k;j++)
+				norm2[j] = R[j].norm2();
+		}
+		end = System.currentTimeMillis();
+		iterations = (int)maxIter;
+		System.out.println("Iter Max----->maxIter="+maxIter+", k="+k+", Norm2="+max(norm2)+", Time="+(end-begin));
+		return X;
+	}
+	
+	/**
+	 * Restarted block GMRES(m) method,
+	 * solves the unsymmetric linear system with multiple right hand sides
+	 * <tt>AX = B</tt>
+	 * 
+	 * m=gmresRestart（块Krylov子空间的块数），使用右预条件。
+	 * 每次重启动时，未收敛的右端项的残量正交化后作为第一个块，块Arnoldi过程中的矩阵向量乘法为SpMM；
+	 * 块Hessenberg矩阵（每列有p个次对角元素）用Givens旋转化为上三角矩阵，
+	 * 每个右端项的残量范数不需要计算R=B-AX即可得到。
+	 * 块的正交化中出现线性相关的向量时提前重启动。
+	 * 与solveBlockCG()相同，A每行的非零元素较少时改为逐个求解，参见blockNnzPerRhs
+	 * 
+	 * @param A
+	 * @param B
+	 * @param X 初值，返回时为解
+	 * @return X
+	 */
+	public AlgebraVector[] solveBlockGMRES(AlgebraMatrix A, AlgebraVector[] B, 
+			AlgebraVector[] X) {
+		
+		int m = gmresRestart;
+		int k = B.length;
+		if(!useBlock(A, k))
+			return solveEach(A, B, X, true);
+		int dim = k == 0 ? 0 : B[0].getDim();
+		AlgebraVector[] R = newBlock(k, dim);
+		
+		// R = B - AX
+		multBlock(A, X, R);
+		for(int j=0;j<k;j++)
+			R[j].axpy(-1.0, B[j]);
+		
+		double[] firstNorm2 = new double[k];
+		for(int j=0;j<k;j++)
+			firstNorm2[j] = R[j].norm2();
+		double[] norm2 = firstNorm2.clone();
+		long begin = System.currentTimeMillis(),end=0;
+		int i = 0;
+		while(i<maxIter) {
+			if(isConverged(norm2, firstNorm2))
+				break;
+			//未收敛的右端项
+			int a = 0;
+			int[] active = new int[k];
+			for(int j=0;j<k;j++)
+				if(!isConverged(norm2[j], firstNorm2[j]))
+					active[a++] = j;
+			AlgebraVector[] Ra = new AlgebraVector[a];
+			for(int j=0;j<a;j++)
+				Ra[j] = R[active[j]];
+			
+			//V_0*S = R
+			AlgebraVector[][] V = new AlgebraVector[m+1][];
+			double[][] S = new double[a][a];
+			V[0] = orthonormalize(Ra, S);
+			int p = V[0].length;
+			//H((m+1)p, mp)经过Givens旋转后的上三角部分，G为右端项S经过Givens旋转的结果
+			double[][] H = new double[(m+1)*p][m*p];
+			double[][] G = new double[(m+1)*p][];
+			for(int s=0;s<(m+1)*p;s++)
+				G[s] = s < p ? S[s] : new double[a];
+			//第c列的第s个Givens旋转作用于第c行和第c+s行
+			double[] cs = new double[m*p*p];
+			double[] sn = new double[m*p*p];
+			AlgebraVector[] Z = preconditioner == null ? null : newBlock(p, dim);
+			double[][] Hn = new double[p][p];
+			
+			int nBlock = 0;
+			boolean deflated = false;
+			while(nBlock<m && i<maxIter && !deflated) {
+				int J = nBlock;
+				//W = A*M^{-1}*V_J
+				AlgebraVector[] W = newBlock(p, dim);
+				if(preconditioner == null)
+					multBlock(A, V[J], W);
+				else {
+					for(int j=0;j<p;j++)
+						preconditioner.apply(V[J][j], Z[j]);
+					multBlock(A, Z, W);
+				}
+				//块的修正Gram-Schmidt正交化
+				for(int l=0;l<=J;l++) {
+					double[][] Hl = transMult(V[l], W);
+					multAdd(-1.0, V[l], Hl, W);
+					for(int s=0;s<p;s++)
+						for(int t=0;t<p;t++)
+							H[l*p+s][J*p+t] = Hl[s][t];
+				}
+				V[J+1] = orthonormalize(W, Hn);
+				for(int s=0;s<V[J+1].length;s++)
+					for(int t=0;t<p;t++)
+						H[(J+1)*p+s][J*p+t] = Hn[s][t];
+				if(V[J+1].length < p)
+					deflated = true;
+				
+				for(int t=0;t<p;t++) {
+					int c = J*p+t;
+					//用前面的Givens旋转作用于第c列
+					for(int c2=0;c2<c;c2++) {
+						for(int s=1;s<=p;s++) {
+							int ir = c2*p+s-1;
+							double h = cs[ir]*H[c2][c] + sn[ir]*H[c2+s][c];
+							H[c2+s][c] = -sn[ir]*H[c2][c] + cs[ir]*H[c2+s][c];
+							H[c2][c] = h;
+						}
+					}
+					//消去H[c+1..c+p][c]的Givens旋转
+					for(int s=1;s<=p;s++) {
+						int ir = c*p+s-1;
+						double d = Math.sqrt(H[c][c]*H[c][c] + H[c+s][c]*H[c+s][c]);
+						if(d == 0)
+							throw new FutureyeException("NotConverge, H==0, iter="+i);
+						cs[ir] = H[c][c]/d;
+						sn[ir] = H[c+s][c]/d;
+						H[c][c] = d;
+						H[c+s][c] = 0.0;
+						for(int j=0;j<a;j++) {
+							double g0 = G[c][j], g1 = G[c+s][j];
+							G[c][j] = cs[ir]*g0 + sn[ir]*g1;
+							G[c+s][j] = -sn[ir]*g0 + cs[ir]*g1;
+						}
+					}
+				}
+				nBlock++;
+				i++;
+				
+				//G的第nBlock*p行到第(nBlock+1)*p-1行为残量
+				boolean all = true;
+				for(int j=0;j<a;j++) {
+					double sum = 0.0;
+					for(int s=nBlock*p;s<(nBlock+1)*p;s++)
+						sum += G[s][j]*G[s][j];
+					norm2[active[j]] = Math.sqrt(sum);
+					if(!isConverged(norm2[active[j]], firstNorm2[active[j]]))
+						all = false;
+				}
+				if(all)
+					break;
+			}
+			
+			//求解上三角方程H*Y=G，X = X + M^{-1}*V*Y
+			int nc = nBlock*p;
+			double[][] Y = new double[nc][a];
+			for(int c=nc-1;c>=0;c--) {
+				for(int j=0;j<a;j++) {
+					double sum = G[c][j];
+					for(int l=c+1;l<nc;l++)
+						sum -= H[c][l]*Y[l][j];
+					Y[c][j] = sum/H[c][c];
+				}
+			}
+			AlgebraVector[] U = newBlock(a, dim);
+			for(int J=0;J<nBlock;J++) {
+				double[][] YJ = new double[p][];
+				for(int s=0;s<p;s++)
+					YJ[s] = Y[J*p+s];
+				multAdd(1.0, V[J], YJ, U);
+			}
+			AlgebraVector zhat = preconditioner == null ? null : new FullVector(dim);
+			for(int j=0;j<a;j++) {
+				if(preconditioner == null)
+					X[active[j]].add(U[j]);
+				else {
+					preconditioner.apply(U[j], zhat);
+					X[active[j]].add(zhat);
+				}
+			}
+			
+			//重启动时重新计算残量，避免递推残量与真实残量的偏差
+			multBlock(A, X, R);
+			for(int j=0;j<k;j++) {
+				R[j].axpy(-1.0, B[j]);
+				norm2[j] = R[j].norm2();
+			}
+		}
+		iterations = i;
+		end = System.currentTimeMillis();
+		if(isConverged(norm2, firstNorm2)) {
+			if(debug)
+				System.out.println(
+					String.format("Iter----->i=%05d, k=%d, RError=%8.3e, AError=%8.3e, Time=%dms", 
+							i,k,maxRatio(norm2,firstNorm2),max(norm2),(end-begin)));
+		} else
+			System.out.println("Iter Max----->maxIter="+maxIter+", k="+k+", Norm2="+max(norm2)+", Time="+(end-begin));
+		return X;
+	}
+	
+	/**
+	 * 所有右端项都收敛
+	 */
+	protected boolean isConverged(double[] norm2, double[] firstNorm2) {
+		for(int j=0;j<norm2.length;j++)
+			if(!isConverged(norm2[j], firstNorm2[j]))
+				return false;
+		return true;
+	}
+	
+	/**
+	 * 按blockNnzPerRhs判断是否使用块方法，A不是CompressedRowMatrix时没有SpMM，逐个求解
+	 */
+	protected boolean useBlock(AlgebraMatrix A, int k) {
+		if(blockNnzPerRhs <= 0)
+			return true;
+		if(k <= 1 || !(A instanceof CompressedRowMatrix))
+			return false;
+		int[][] colIndex = ((CompressedRowMatrix)A).getColIndex();
+		long nnz = 0;
+		for(int[] idx : colIndex)
+			nnz += idx.length;
+		return nnz >= blockNnzPerRhs*k*colIndex.length;
+	}
+	
+	/**
+	 * 用CG或GMRES逐个求解每个右端项，iterations为各右端项迭代次数的最大值
+	 */
+	protected AlgebraVector[] solveEach(AlgebraMatrix A, AlgebraVector[] B, 
+			AlgebraVector[] X, boolean gmres) {
+		int maxIterations = 0;
+		for(int j=0;j<B.length;j++) {
+			if(gmres)
+				solveGMRES(A, B[j], X[j]);
+			else
+				solveCG(A, B[j], X[j]);
+			maxIterations = Math.max(maxIterations, iterations);
+		}
+		iterations = maxIterations;
+		return X;
+	}
+	
+	protected static AlgebraVector[] newBlock(int k, int dim) {
+		AlgebraVector[] rlt = new AlgebraVector[k];
+		for(int j=0;j<k;j++)
+			rlt[j] = new FullVector(dim);
+		return rlt;
+	}
+	
+	/**
+	 * Y[j] = A*X[j]，A为CompressedRowMatrix时所有向量同时相乘
+	 */
+	protected static void multBlock(AlgebraMatrix A, AlgebraVector[] X, AlgebraVector[] Y) {
+		if(A instanceof CompressedRowMatrix)
+			((CompressedRowMatrix)A).mult(X, Y);
+		else
+			for(int j=0;j<X.length;j++)
+				A.mult(X[j], Y[j]);
+	}
+	
+	/**
+	 * X'*Y，按ParallelKernel.blockSize分块计算，每块中X和Y的数据只读取一次
+	 */
+	protected static double[][] transMult(AlgebraVector[] X, AlgebraVector[] Y) {
+		final int p = X.length, q = Y.length;
+		final int n = p == 0 ? 0 : X[0].getDim();
+		final double[][] x = new double[p][], y = new double[q][];
+		for(int s=0;s<p;s++) x[s] = X[s].getData();
+		for(int t=0;t<q;t++) y[t] = Y[t].getData();
+		final int bs = ParallelKernel.blockSize;
+		final int nBlock = (n+bs-1)/bs;
+		final double[][] partial = new double[nBlock][p*q];
+		ParallelKernel.forEach(nBlock, new ParallelKernel.Range() {
+			@Override
+			public void run(int bBegin, int bEnd) {
+				for(int b=bBegin;b<bEnd;b++) {
+					int from = b*bs, to = Math.min(from+bs, n);
+					double[] part = partial[b];
+					for(int s=0;s<p;s++) {
+						double[] xs = x[s];
+						int t = 0;
+						//每次计算4个内积，xs[i]只读取一次
+						for(;t+4<=q;t+=4) {
+							double[] y0 = y[t], y1 = y[t+1], y2 = y[t+2], y3 = y[t+3];
+							double v0 = 0.0, v1 = 0.0, v2 = 0.0, v3 = 0.0;
+							for(int i=from;i<to;i++) {
+								double xi = xs[i];
+								v0 += xi*y0[i];
+								v1 += xi*y1[i];
+								v2 += xi*y2[i];
+								v3 += xi*y3[i];
+							}
+							part[s*q+t] = v0;
+							part[s*q+t+1] = v1;
+							part[s*q+t+2] = v2;
+							part[s*q+t+3] = v3;
+						}
+						for(;t<q;t++) {
+							double[] yt = y[t];
+							double v = 0.0;
+							for(int i=from;i<to;i++)
+								v += xs[i]*yt[i];
+							part[s*q+t] = v;
+						}
+					}
+				}
+			}
+		});
+		double[][] rlt = new double[p][q];
+		for(int b=0;b<nBlock;b++)
+			for(int s=0;s<p;s++)
+				for(int t=0;t<q;t++)
+					rlt[s][t] += partial[b][s*q+t];
+		return rlt;
+	}
+	
+	/**
+	 * Y[t] = Y[t] + a*sum_s X[s]*C[s][t]
+	 */
+	protected static void multAdd(final double a, AlgebraVector[] X, final double[][] C, 
+			AlgebraVector[] Y) {
+		final int p = X.length, q = Y.length;
+		if(p == 0 || q == 0) return;
+		final double[][] x = new double[p][], y = new double[q][];
+		for(int s=0;s<p;s++) x[s] = X[s].getData();
+		for(int t=0;t<q;t++) y[t] = Y[t].getData();
+		final int bs = ParallelKernel.blockSize;
+		final int n = x[0].length;
+		ParallelKernel.forEach((n+bs-1)/bs, new ParallelKernel.Range() {
+			@Override
+			public void run(int bBegin, int bEnd) {
+				for(int b=bBegin;b<bEnd;b++) {
+					int from = b*bs, to = Math.min(from+bs, n);
+					for(int t=0;t<q;t++) {
+						double[] yt = y[t];
+						int s = 0;
+						//每次累加4个向量，yt[i]只读写一次
+						for(;s+4<=p;s+=4) {
+							double v0 = a*C[s][t], v1 = a*C[s+1][t], v2 = a*C[s+2][t], v3 = a*C[s+3][t];
+							double[] x0 = x[s], x1 = x[s+1], x2 = x[s+2], x3 = x[s+3];
+							for(int i=from;i<to;i++)
+								yt[i] += v0*x0[i] + v1*x1[i] + v2*x2[i] + v3*x3[i];
+						}
+						for(;s<p;s++) {
+							double v = a*C[s][t];
+							if(v == 0.0) continue;
+							double[] xs = x[s];
+							for(int i=from;i<to;i++)
+								yt[i] += v*xs[i];
+						}
+					}
+				}
+			}
+		});
+	}
+	
+	/**
+	 * 就地正交化（修正的Gram-Schmidt，范数明显减小时重复一次），
+	 * 正交化后的范数不大于原范数的blockDropTol倍的向量视为与前面的向量线性相关，去掉
+	 * 
+	 * @param W
+	 * @param Rf 不为null时返回系数：W[j] = sum_l Q[l]*Rf[l][j]（忽略去掉的部分）
+	 * @return 标准正交的向量Q（W中保留的向量），个数不大于W的个数
+	 */
+	protected AlgebraVector[] orthonormalize(AlgebraVector[] W, double[][] Rf) {
+		int k = W.length;
+		AlgebraVector[] Q = new AlgebraVector[k];
+		if(Rf != null)
+			for(int l=0;l<Rf.length;l++)
+				for(int j=0;j<k;j++)
+					Rf[l][j] = 0.0;
+		int p = 0;
+		for(int j=0;j<k;j++) {
+			AlgebraVector v = W[j];
+			double norm0 = v.norm2();
+			if(norm0 == 0.0) continue;
+			double norm = norm0;
+			for(int pass=0;pass<2;pass++) {
+				if(p == 0) break;
+				double normBefore = norm;
+				for(int l=0;l<p;l++) {
+					double d = Q[l].dot(v);
+					v.add(-d, Q[l]);
+					if(Rf != null) Rf[l][j] += d;
+				}
+				norm = v.norm2();
+				//没有明显的相消时不需要再次正交化
+				if(norm > 0.7*normBefore) break;
+			}
+			if(norm <= blockDropTol*norm0) continue;
+			v.scale(1.0/norm);
+			if(Rf != null) Rf[p][j] = norm;
+			Q[p++] = v;
+		}
+		AlgebraVector[] rlt = new AlgebraVector[p];
+		System.arraycopy(Q, 0, rlt, 0, p);
+		return rlt;
+	}
+	
+	/**
+	 * 用Cholesky分解求解小的对称正定方程组M*Y=C
+	 */
+	protected static double[][] solveSPD(double[][] M, double[][] C) {
+		int p = M.length, q = p == 0 ? 0 : C[0].length;
+		double[][] L = new double[p][p];
+		for(int i=0;i<p;i++) {
+			for(int j=0;j<=i;j++) {
+				double sum = M[i][j];
+				for(int l=0;l<j;l++)
+					sum -= L[i][l]*L[j][l];
+				if(i == j) {
+					if(sum <= 0.0)
+						throw new FutureyeException("solveSPD: matrix is not positive definite");
+					L[i][i] = Math.sqrt(sum);
+				} else
+					L[i][j] = sum/L[j][j];
+			}
+		}
+		double[][] Y = new double[p][q];
+		for(int t=0;t<q;t++) {
+			for(int i=0;i<p;i++) {
+				double sum = C[i][t];
+				for(int l=0;l<i;l++)
+					sum -= L[i][l]*Y[l][t];
+				Y[i][t] = sum/L[i][i];
+			}
+			for(int i=p-1;i>=0;i--) {
+				double sum = Y[i][t];
+				for(int l=i+1;l<p;l++)
+					sum -= L[l][i]*Y[l][t];
+				Y[i][t] = sum/L[i][i];
+			}
+		}
+		return Y;
+	}
+	
+	private static double max(double[] v) {
+		double rlt = 0.0;
+		for(double d : v)
+			rlt = Math.max(rlt, d);
+		return rlt;
+	}
+	
+	private static double maxRatio(double[] v, double[] v0) {
+		double rlt = 0.0;
+		for(int j=0;j<v.length;j++)
+			if(v0[j] != 0.0)
+				rlt = Math.max(rlt, v[j]/v0[j]);
+		return rlt;
+	}
+	
 	/////////////////////////////////////////////////////////////
 	
 	public Vector solveCG(SparseMatrix A, Vector b, Vector x) {
@@ -192,7 +1005,9 @@ public class Solver {
 			throw new FutureyeException(
 					"ERROR: Solver.solver() m.dim!=v.dim ");
 		}
-		AlgebraMatrix algStiff = new CompressedRowMatrix(A,false);
+		CompressedRowMatrix algStiff = new CompressedRowMatrix(A,false);
+		if(preconditioner != null)
+			preconditioner.setup(algStiff);
 		FullVector algLoad = new FullVector(b);
 		FullVector algU = new FullVector(x);
 		solveCG(algStiff, algLoad, algU);
@@ -228,7 +1043,9 @@ public class Solver {
 					"ERROR: Solver.solver() m.dim!=v.dim ");
 		}
 		//CGS
-		AlgebraMatrix algStiff = new CompressedRowMatrix(A,false);
+		CompressedRowMatrix algStiff = new CompressedRowMatrix(A,false);
+		if(preconditioner != null)
+			preconditioner.setup(algStiff);
 		FullVector algLoad = new FullVector(b);
 		FullVector algU = new FullVector(x);
 		solveCGS(algStiff, algLoad, algU);
@@ -248,6 +1065,118 @@ public class Solver {
 		return solveCGS(A,b,x);
 	}
 	
+	public <Vec extends Vector> Vec solveBiCGStab(SparseMatrix A, Vec b, Vec x) {
+		if( !( A.getRowDim() == A.getColDim() &&
+				A.getRowDim() == b.getDim()) ) {
+			throw new FutureyeException(
+					"ERROR: Solver.solver() m.dim!=v.dim ");
+		}
+		CompressedRowMatrix algStiff = new CompressedRowMatrix(A,false);
+		if(preconditioner != null)
+			preconditioner.setup(algStiff);
+		FullVector algLoad = new FullVector(b);
+		FullVector algU = new FullVector(x);
+		solveBiCGStab(algStiff, algLoad, algU);
+		double[] data = algU.getData();
+		for(int i=0;i<data.length;i++) {
+			x.set(i+1, data[i]);
+		}
+		return x;
+	}
+	
+	public <Vec extends Vector> Vec solveBiCGStab(SparseMatrix A, Vec b) {
+		@SuppressWarnings("unchecked")
+		Vec x = (Vec)b.copy();
+		for(int i=1;i<x.getDim();i++) {
+			x.set(i, 0.1);
+		}
+		return solveBiCGStab(A,b,x);
+	}
+	
+	public <Vec extends Vector> Vec solveGMRES(SparseMatrix A, Vec b, Vec x) {
+		if( !( A.getRowDim() == A.getColDim() &&
+				A.getRowDim() == b.getDim()) ) {
+			throw new FutureyeException(
+					"ERROR: Solver.solver() m.dim!=v.dim ");
+		}
+		CompressedRowMatrix algStiff = new CompressedRowMatrix(A,false);
+		if(preconditioner != null)
+			preconditioner.setup(algStiff);
+		FullVector algLoad = new FullVector(b);
+		FullVector algU = new FullVector(x);
+		solveGMRES(algStiff, algLoad, algU);
+		double[] data = algU.getData();
+		for(int i=0;i<data.length;i++) {
+			x.set(i+1, data[i]);
+		}
+		return x;
+	}
+	
+	public <Vec extends Vector> Vec solveGMRES(SparseMatrix A, Vec b) {
+		@SuppressWarnings("unchecked")
+		Vec x = (Vec)b.copy();
+		for(int i=1;i<x.getDim();i++) {
+			x.set(i, 0.1);
+		}
+		return solveGMRES(A,b,x);
+	}
+	
+	/**
+	 * 多个右端项：B的每一列为一个右端项，初值为0
+	 * 
+	 * @param A
+	 * @param B
+	 * @return X，第j列为第j个右端项对应的解
+	 */
+	public FullMatrix solveBlockCG(SparseMatrix A, FullMatrix B) {
+		CompressedRowMatrix algStiff = prepareBlock(A, B);
+		AlgebraVector[] X = newBlock(B.getColDim(), B.getRowDim());
+		solveBlockCG(algStiff, getColumns(B), X);
+		return toFullMatrix(X);
+	}
+	
+	public FullMatrix solveBlockGMRES(SparseMatrix A, FullMatrix B) {
+		CompressedRowMatrix algStiff = prepareBlock(A, B);
+		AlgebraVector[] X = newBlock(B.getColDim(), B.getRowDim());
+		solveBlockGMRES(algStiff, getColumns(B), X);
+		return toFullMatrix(X);
+	}
+	
+	protected CompressedRowMatrix prepareBlock(SparseMatrix A, FullMatrix B) {
+		if( !( A.getRowDim() == A.getColDim() &&
+				A.getRowDim() == B.getRowDim()) ) {
+			throw new FutureyeException(
+					"ERROR: Solver.solver() m.dim!=B.rowDim ");
+		}
+		CompressedRowMatrix algStiff = new CompressedRowMatrix(A,false);
+		if(preconditioner != null)
+			preconditioner.setup(algStiff);
+		return algStiff;
+	}
+	
+	protected static AlgebraVector[] getColumns(FullMatrix B) {
+		double[][] data = B.getData();
+		AlgebraVector[] rlt = newBlock(B.getColDim(), B.getRowDim());
+		for(int j=0;j<rlt.length;j++) {
+			double[] col = rlt[j].getData();
+			for(int i=0;i<col.length;i++)
+				col[i] = data[i][j];
+		}
+		return rlt;
+	}
+	
+	protected static FullMatrix toFullMatrix(AlgebraVector[] X) {
+		int n = X.length == 0 ? 0 : X[0].getDim();
+		FullMatrix rlt = new FullMatrix(n, X.length);
+		double[][] data = rlt.getData();
+		for(int j=0;j<X.length;j++) {
+			double[] col = X[j].getData();
+			for(int i=0;i<n;i++)
+				data[i][j] = col[i];
+		}
+		return rlt;
+	}
+	
 	////////////////////////////////////////////////////////////////
 	
 	@Deprecated
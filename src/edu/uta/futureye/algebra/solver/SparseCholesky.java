@@ -0,0 +1,312 @@
+package edu.uta.futureye.algebra.solver;
+
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Sparse Cholesky factorization P*A*P' = L*L'
+ *
+ * 输入为对称正定矩阵的压缩列存储（CSC）数组，下标从0开始，只使用上三角部分（行号<=列号），
+ * 因此给出完整的对称矩阵或者只给出上三角部分都可以。
+ *
+ * 分解分为两步：
+ * 1.符号分解：重排后矩阵的消去树（elimination tree）和L每一列非零元素的数目，
+ *   只与非零元素结构有关；
+ * 2.数值分解：按行（up-looking）计算L，第k行的非零元素结构由消去树上的可达集给出。
+ * 非零元素结构不变时，可以调用factorize(Ax)只重新进行数值分解。
+ *
+ * L按压缩列存储，每列的第一个元素是对角元素。
+ * 分解结果可以重复用于多个右端项，参见Factorization。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class SparseCholesky extends Factorization {
+	protected int n;
+	//perm[k]=重排后第k个未知量的原编号，pinv为其逆
+	protected int[] perm;
+	protected int[] pinv;
+
+	//重排后矩阵C=P*A*P'的上三角部分（CSC），Amap[p]为A中第p个元素在C中的位置（-1表示不使用）
+	protected int[] Cp;
+	protected int[] Ci;
+	protected double[] Cx;
+	protected int[] Amap;
+
+	//消去树
+	protected int[] parent;
+
+	protected int[] Lp;
+	protected int[] Li;
+	protected double[] Lx;
+
+	//工作数组
+	protected int[] stack;
+	protected int[] flag;
+	protected double[] work;
+
+	/**
+	 * 使用近似最小度排序进行符号分解和数值分解
+	 *
+	 * @param n
+	 * @param Ap
+	 * @param Ai
+	 * @param Ax
+	 */
+	public SparseCholesky(int n, int[] Ap, int[] Ai, double[] Ax) {
+		this(n, Ap, Ai, Ax, Ordering.approximateMinimumDegree(n, Ap, Ai));
+	}
+
+	/**
+	 * 使用给定的排列<tt>perm</tt>进行符号分解和数值分解
+	 *
+	 * @param n
+	 * @param Ap
+	 * @param Ai
+	 * @param Ax
+	 * @param perm perm[k]=新编号k对应的原编号，null表示不重排
+	 */
+	public SparseCholesky(int n, int[] Ap, int[] Ai, double[] Ax, int[] perm) {
+		this.n = n;
+		this.perm = perm == null ? Ordering.natural(n) : perm;
+		this.pinv = Ordering.inverse(this.perm);
+		this.stack = new int[n];
+		this.flag = new int[n];
+		this.work = new double[n];
+		symbolic(Ap, Ai);
+		factorize(Ax);
+	}
+
+	/**
+	 * C = P*A*P'的上三角部分
+	 */
+	protected void symperm(int[] Ap, int[] Ai) {
+		int nz = Ap[n];
+		Cp = new int[n+1];
+		Amap = new int[nz];
+		for(int j=0;j<n;j++) {
+			int j2 = pinv[j];
+			for(int p=Ap[j];p<Ap[j+1];p++) {
+				int i = Ai[p];
+				if(i > j) continue;
+				int i2 = pinv[i];
+				Cp[Math.max(i2, j2)+1]++;
+			}
+		}
+		for(int j=0;j<n;j++)
+			Cp[j+1] += Cp[j];
+		int[] pos = new int[n];
+		System.arraycopy(Cp, 0, pos, 0, n);
+		Ci = new int[Cp[n]];
+		Cx = new double[Cp[n]];
+		for(int j=0;j<n;j++) {
+			int j2 = pinv[j];
+			for(int p=Ap[j];p<Ap[j+1];p++) {
+				int i = Ai[p];
+				if(i > j) {
+					Amap[p] = -1;
+					continue;
+				}
+				int i2 = pinv[i];
+				int q = pos[Math.max(i2, j2)]++;
+				Ci[q] = Math.min(i2, j2);
+				Amap[p] = q;
+			}
+		}
+	}
+
+	/**
+	 * 消去树：parent[i]=L中第i列对角元素以下第一个非零元素的行号（-1表示根）
+	 */
+	protected void etree() {
+		parent = new int[n];
+		int[] ancestor = new int[n];
+		for(int k=0;k<n;k++) {
+			parent[k] = -1;
+			ancestor[k] = -1;
+			for(int p=Cp[k];p<Cp[k+1];p++) {
+				int i = Ci[p];
+				//路径压缩
+				while(i != -1 && i < k) {
+					int inext = ancestor[i];
+					ancestor[i] = k;
+					if(inext == -1)
+						parent[i] = k;
+					i = inext;
+				}
+			}
+		}
+	}
+
+	/**
+	 * L中第k行非零元素（不含对角元素）的列号：stack[top...n-1]，按拓扑顺序排列
+	 *
+	 * @param k
+	 * @return top
+	 */
+	protected int ereach(int k) {
+		int top = n;
+		flag[k] = k;
+		for(int p=Cp[k];p<Cp[k+1];p++) {
+			int i = Ci[p];
+			if(i > k) continue;
+			//沿消去树向上直到已经访问过的结点
+			int len = 0;
+			for(;flag[i]!=k;i=parent[i]) {
+				stack[len++] = i;
+				flag[i] = k;
+			}
+			while(len > 0)
+				stack[--top] = stack[--len];
+		}
+		return top;
+	}
+
+	protected void symbolic(int[] Ap, int[] Ai) {
+		symperm(Ap, Ai);
+		etree();
+		int[] count = new int[n];
+		for(int k=0;k<n;k++)
+			flag[k] = -1;
+		for(int k=0;k<n;k++) {
+			count[k]++;
+			for(int top=ereach(k);top<n;top++)
+				count[stack[top]]++;
+		}
+		Lp = new int[n+1];
+		for(int k=0;k<n;k++)
+			Lp[k+1] = Lp[k] + count[k];
+		Li = new int[Lp[n]];
+		Lx = new double[Lp[n]];
+	}
+
+	/**
+	 * 数值分解，矩阵的非零元素结构必须与构造时相同
+	 *
+	 * @param Ax
+	 */
+	public void factorize(double[] Ax) {
+		for(int k=0;k<Cx.length;k++)
+			Cx[k] = 0.0;
+		for(int p=0;p<Amap.length;p++)
+			if(Amap[p] >= 0)
+				Cx[Amap[p]] += Ax[p];
+
+		int[] c = new int[n];
+		System.arraycopy(Lp, 0, c, 0, n);
+		double[] x = work;
+		for(int k=0;k<n;k++) {
+			flag[k] = -1;
+			x[k] = 0.0;
+		}
+		for(int k=0;k<n;k++) {
+			//求解L(0:k-1,0:k-1)*l = C(0:k-1,k)
+			int top = ereach(k);
+			for(int p=Cp[k];p<Cp[k+1];p++)
+				x[Ci[p]] += Cx[p];
+			double d = x[k];
+			x[k] = 0.0;
+			for(;top<n;top++) {
+				int i = stack[top];
+				double lki = x[i]/Lx[Lp[i]];
+				x[i] = 0.0;
+				for(int p=Lp[i]+1;p<c[i];p++)
+					x[Li[p]] -= Lx[p]*lki;
+				d -= lki*lki;
+				int p = c[i]++;
+				Li[p] = k;
+				Lx[p] = lki;
+			}
+			if(d <= 0.0)
+				throw new FutureyeException(
+						"SparseCholesky: matrix is not positive definite, column "+(perm[k]+1));
+			int p = c[k]++;
+			Li[p] = k;
+			Lx[p] = Math.sqrt(d);
+		}
+	}
+
+	/**
+	 * 求解A*x=b，x和b可以是同一个数组
+	 *
+	 * @param b 下标从0开始
+	 * @param x 下标从0开始
+	 */
+	@Override
+	public void solve(double[] b, double[] x) {
+		double[] y = work;
+		for(int k=0;k<n;k++)
+			y[k] = b[perm[k]];
+		//L*z=y
+		for(int j=0;j<n;j++) {
+			y[j] /= Lx[Lp[j]];
+			double yj = y[j];
+			for(int p=Lp[j]+1;p<Lp[j+1];p++)
+				y[Li[p]] -= Lx[p]*yj;
+		}
+		//L'*y=z
+		for(int j=n-1;j>=0;j--) {
+			double yj = y[j];
+			for(int p=Lp[j]+1;p<Lp[j+1];p++)
+				yj -= Lx[p]*y[Li[p]];
+			y[j] = yj/Lx[Lp[j]];
+		}
+		for(int k=0;k<n;k++)
+			x[perm[k]] = y[k];
+	}
+
+	/**
+	 * 同时求解多个右端项，每次遍历L时处理所有右端项
+	 */
+	@Override
+	public void solve(double[][] B, double[][] X) {
+		int m = n == 0 ? 0 : B[0].length;
+		double[][] Y = new double[n][];
+		for(int k=0;k<n;k++)
+			Y[k] = B[perm[k]].clone();
+		for(int j=0;j<n;j++) {
+			double[] yj = Y[j];
+			double d = 1.0/Lx[Lp[j]];
+			for(int c=0;c<m;c++)
+				yj[c] *= d;
+			for(int p=Lp[j]+1;p<Lp[j+1];p++) {
+				double[] yi = Y[Li[p]];
+				double l = Lx[p];
+				for(int c=0;c<m;c++)
+					yi[c] -= l*yj[c];
+			}
+		}
+		for(int j=n-1;j>=0;j--) {
+			double[] yj = Y[j];
+			for(int p=Lp[j]+1;p<Lp[j+1];p++) {
+				double[] yi = Y[Li[p]];
+				double l = Lx[p];
+				for(int c=0;c<m;c++)
+					yj[c] -= l*yi[c];
+			}
+			double d = 1.0/Lx[Lp[j]];
+			for(int c=0;c<m;c++)
+				yj[c] *= d;
+		}
+		for(int k=0;k<n;k++)
+			System.arraycopy(Y[k], 0, X[perm[k]], 0, m);
+	}
+
+	@Override
+	public int getDim() {
+		return n;
+	}
+
+	/**
+	 * L中非零元素的数目
+	 */
+	@Override
+	public int getNonZeroNumber() {
+		return Lp[n];
+	}
+
+	public int[] getPermutation() {
+		return perm;
+	}
+}
@@ -0,0 +1,252 @@
+package edu.uta.futureye.algebra.solver;
+
+import java.util.Arrays;
+
+import edu.uta.futureye.algebra.CompressedColMatrix;
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.FullMatrix;
+import edu.uta.futureye.algebra.intf.SparseMatrix;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Pure Java sparse direct solver
+ *
+ * 矩阵转换为压缩列存储（CSC）后进行稀疏分解：
+ *   对称矩阵：先尝试Cholesky分解（SparseCholesky），如果矩阵不正定再进行LU分解；
+ *   非对称矩阵：LU分解（SparseLU）。
+ * 两种分解都使用填充元素较少的排序（默认为近似最小度排序，参见Ordering），计算量和存储量远小于稠密矩阵的分解（SolverJBLAS.solveDGESV）。
+ *
+ * 使用方法：
+ *   SparseDirectSolver solver = new SparseDirectSolver();
+ *   Vector x = solver.solve(stiff, load);
+ * 或者分解一次，求解多个右端项：
+ *   Factorization f = solver.factorize(stiff);
+ *   Vector x1 = f.solve(b1);
+ *   Vector x2 = f.solve(b2);
+ * 同一个solver对象连续求解系数矩阵相同的方程时（例如多个光源），自动使用上次的分解结果，
+ * 参见reuseFactorization。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class SparseDirectSolver {
+	//对称性判断的相对容差
+	public static double symmetryTolerance = 1e-12;
+
+	//排序方法，参见Ordering
+	public int ordering = Ordering.AMD;
+
+	//矩阵与上次分解的矩阵相同（非零元素结构和数值都相同）时，直接使用上次的分解结果
+	public boolean reuseFactorization = true;
+
+	public boolean debug = false;
+
+	protected Factorization factor = null;
+	//上次分解的矩阵
+	protected int[] lastAp = null;
+	protected int[] lastAi = null;
+	protected double[] lastAx = null;
+
+	public SparseDirectSolver() {
+	}
+
+	/**
+	 * 分解矩阵<tt>A</tt>，不改变<tt>A</tt>
+	 *
+	 * @param A
+	 * @return 分解结果，可以用于多个右端项
+	 */
+	public Factorization factorize(SparseMatrix A) {
+		return factorize(new CompressedColMatrix(A, false));
+	}
+
+	public Factorization factorize(CompressedRowMatrix A) {
+		return factorize(A.getCompressedColMatrix());
+	}
+
+	public Factorization factorize(CompressedColMatrix A) {
+		if(A.getRowDim() != A.getColDim())
+			throw new FutureyeException("SparseDirectSolver: matrix is not square "+
+					A.getRowDim()+"x"+A.getColDim());
+		int n = A.getColDim();
+		int[][] rowIndex = A.getRowIndex();
+		double[][] data = A.getData();
+		int[] Ap = new int[n+1];
+		for(int j=0;j<n;j++)
+			Ap[j+1] = Ap[j] + rowIndex[j].length;
+		int[] Ai = new int[Ap[n]];
+		double[] Ax = new double[Ap[n]];
+		for(int j=0;j<n;j++) {
+			System.arraycopy(rowIndex[j], 0, Ai, Ap[j], rowIndex[j].length);
+			System.arraycopy(data[j], 0, Ax, Ap[j], data[j].length);
+		}
+		return factorize(n, Ap, Ai, Ax);
+	}
+
+	/**
+	 * 分解压缩列存储的矩阵，下标从0开始
+	 *
+	 * @param n
+	 * @param Ap
+	 * @param Ai
+	 * @param Ax
+	 * @return 分解结果，可以用于多个右端项
+	 */
+	public Factorization factorize(int n, int[] Ap, int[] Ai, double[] Ax) {
+		if(reuseFactorization && factor != null && factor.getDim() == n &&
+				Arrays.equals(Ap, lastAp) && Arrays.equals(Ai, lastAi) &&
+				Arrays.equals(Ax, lastAx)) {
+			if(debug)
+				System.out.println("SparseDirectSolver: reuse factorization n="+n);
+			return factor;
+		}
+		this.factor = null;
+		long begin = System.currentTimeMillis();
+		int[] perm = Ordering.compute(ordering, n, Ap, Ai);
+		if(isSymmetric(n, Ap, Ai, Ax)) {
+			try {
+				factor = new SparseCholesky(n, Ap, Ai, Ax, perm);
+			} catch(FutureyeException e) {
+				if(debug)
+					System.out.println(e.getMessage()+", use LU instead");
+			}
+		}
+		if(factor == null)
+			factor = new SparseLU(n, Ap, Ai, Ax, perm, SparseLU.pivotTolerance);
+		if(reuseFactorization) {
+			lastAp = Ap.clone();
+			lastAi = Ai.clone();
+			lastAx = Ax.clone();
+		}
+		if(debug) {
+			System.out.println("SparseDirectSolver: "+(isCholesky() ? "Cholesky" : "LU")+
+					" n="+n+" nnz(A)="+Ap[n]+" nnz(factor)="+getNonZeroNumber()+
+					" time="+(System.currentTimeMillis()-begin)+"ms");
+		}
+		return factor;
+	}
+
+	/**
+	 * 最近一次factorize()的分解结果
+	 */
+	public Factorization getFactorization() {
+		if(factor == null)
+			throw new FutureyeException("SparseDirectSolver: call factorize() first");
+		return factor;
+	}
+
+	/**
+	 * 使用factorize()的分解结果求解，x和b可以是同一个数组
+	 *
+	 * @param b 下标从0开始
+	 * @param x 下标从0开始
+	 */
+	public void solve(double[] b, double[] x) {
+		getFactorization().solve(b, x);
+	}
+
+	/**
+	 * 使用factorize()的分解结果求解
+	 *
+	 * @param b
+	 * @return 方程的解向量，与<tt>b</tt>类型相同，下标从1开始
+	 */
+	public <Vec extends Vector> Vec solve(Vec b) {
+		return getFactorization().solve(b);
+	}
+
+	/**
+	 * 使用factorize()的分解结果求解多个右端项（B的每一列）
+	 *
+	 * @param B
+	 * @return X
+	 */
+	public FullMatrix solve(FullMatrix B) {
+		return getFactorization().solve(B);
+	}
+
+	/**
+	 * 分解矩阵<tt>A</tt>并求解A*x=b
+	 *
+	 * @param A
+	 * @param b
+	 * @return 方程的解向量，下标从1开始
+	 */
+	public <Vec extends Vector> Vec solve(SparseMatrix A, Vec b) {
+		return factorize(A).solve(b);
+	}
+
+	public <Vec extends Vector> Vec solve(CompressedRowMatrix A, Vec b) {
+		return factorize(A).solve(b);
+	}
+
+	public <Vec extends Vector> Vec solve(CompressedColMatrix A, Vec b) {
+		return factorize(A).solve(b);
+	}
+
+	/**
+	 * 是否使用Cholesky分解
+	 */
+	public boolean isCholesky() {
+		return factor instanceof SparseCholesky;
+	}
+
+	/**
+	 * 分解后非零元素的数目
+	 */
+	public int getNonZeroNumber() {
+		return factor == null ? 0 : factor.getNonZeroNumber();
+	}
+
+	/**
+	 * 判断压缩列存储的矩阵是否（数值）对称
+	 */
+	public static boolean isSymmetric(int n, int[] Ap, int[] Ai, double[] Ax) {
+		//转置：按行收集元素
+		int[] Tp = new int[n+1];
+		for(int p=0;p<Ap[n];p++)
+			Tp[Ai[p]+1]++;
+		for(int i=0;i<n;i++)
+			Tp[i+1] += Tp[i];
+		int[] pos = new int[n];
+		System.arraycopy(Tp, 0, pos, 0, n);
+		int[] Tj = new int[Ap[n]];
+		double[] Tx = new double[Ap[n]];
+		for(int j=0;j<n;j++) {
+			for(int p=Ap[j];p<Ap[j+1];p++) {
+				int q = pos[Ai[p]]++;
+				Tj[q] = j;
+				Tx[q] = Ax[p];
+			}
+		}
+		//比较A的第j列和A'的第j列
+		double[] w = new double[n];
+		boolean[] flag = new boolean[n];
+		for(int j=0;j<n;j++) {
+			if(Ap[j+1]-Ap[j] != Tp[j+1]-Tp[j])
+				return false;
+			for(int p=Ap[j];p<Ap[j+1];p++) {
+				w[Ai[p]] += Ax[p];
+				flag[Ai[p]] = true;
+			}
+			boolean sym = true;
+			for(int q=Tp[j];q<Tp[j+1];q++) {
+				int i = Tj[q];
+				double a = w[i];
+				double t = Tx[q];
+				if(!flag[i] || Math.abs(a-t) > symmetryTolerance*Math.max(Math.abs(a), Math.abs(t)))
+					sym = false;
+			}
+			for(int p=Ap[j];p<Ap[j+1];p++) {
+				w[Ai[p]] = 0.0;
+				flag[Ai[p]] = false;
+			}
+			if(!sym)
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,307 @@
+package edu.uta.futureye.algebra.solver;
+
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Sparse LU factorization P*A*Q = L*U
+ *
+ * 输入为一般方阵的压缩列存储（CSC）数组，下标从0开始。
+ * 列按近似最小度排序（A+A'的结构）重排，逐列进行左视（left-looking, Gilbert-Peierls）分解：
+ * 第k列先求解下三角方程L*x=A(:,q[k])，x的非零元素结构通过L的图上的深度优先搜索得到，
+ * 计算量与浮点运算次数成正比。
+ *
+ * 选主元采用阈值策略：如果对角元素的绝对值不小于该列最大元素绝对值的pivotTolerance倍，
+ * 优先选择对角元素（保持列排序的稀疏性），否则选择绝对值最大的元素。
+ *
+ * L的对角元素为1，存储在每列的第一个位置；U的对角元素存储在每列的最后一个位置。
+ * 分解结果可以重复用于多个右端项，参见Factorization。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class SparseLU extends Factorization {
+	//选主元阈值，1.0为部分选主元，0.0为总是选对角元素（如果非零）
+	public static double pivotTolerance = 0.1;
+
+	protected int n;
+	//q[k]=第k列对应的原列号
+	protected int[] q;
+	//pinv[i]=原第i行对应的主元行号
+	protected int[] pinv;
+
+	protected int[] Lp;
+	protected int[] Li;
+	protected double[] Lx;
+	protected int[] Up;
+	protected int[] Ui;
+	protected double[] Ux;
+
+	//工作数组
+	protected int[] xi;
+	protected int[] pstack;
+	protected int[] mark;
+	protected double[] work;
+
+	/**
+	 * 使用近似最小度排序进行分解
+	 *
+	 * @param n
+	 * @param Ap
+	 * @param Ai
+	 * @param Ax
+	 */
+	public SparseLU(int n, int[] Ap, int[] Ai, double[] Ax) {
+		this(n, Ap, Ai, Ax, Ordering.approximateMinimumDegree(n, Ap, Ai), pivotTolerance);
+	}
+
+	/**
+	 * 使用给定的列排序进行分解
+	 *
+	 * @param n
+	 * @param Ap
+	 * @param Ai
+	 * @param Ax
+	 * @param q 列排序，null表示不重排
+	 * @param tol 选主元阈值
+	 */
+	public SparseLU(int n, int[] Ap, int[] Ai, double[] Ax, int[] q, double tol) {
+		this.n = n;
+		this.q = q == null ? Ordering.natural(n) : q;
+		Ordering.checkPermutation(this.q);
+		this.xi = new int[n];
+		this.pstack = new int[n];
+		this.mark = new int[n];
+		this.work = new double[n];
+		factorize(Ap, Ai, Ax, tol);
+	}
+
+	protected void factorize(int[] Ap, int[] Ai, double[] Ax, double tol) {
+		int lnz = 0, unz = 0;
+		int nzmax = 4*Ap[n] + n;
+		Lp = new int[n+1];
+		Li = new int[nzmax];
+		Lx = new double[nzmax];
+		Up = new int[n+1];
+		Ui = new int[nzmax];
+		Ux = new double[nzmax];
+		pinv = new int[n];
+		for(int i=0;i<n;i++) {
+			pinv[i] = -1;
+			mark[i] = -1;
+		}
+		double[] x = work;
+		for(int k=0;k<n;k++) {
+			Lp[k] = lnz;
+			Up[k] = unz;
+			//L和U的第k列最多各增加n个元素
+			if(lnz + n > Li.length) {
+				int len = Math.max(2*Li.length, lnz+n);
+				Li = grow(Li, len);
+				Lx = grow(Lx, len);
+			}
+			if(unz + n > Ui.length) {
+				int len = Math.max(2*Ui.length, unz+n);
+				Ui = grow(Ui, len);
+				Ux = grow(Ux, len);
+			}
+
+			int col = q[k];
+			int top = spsolve(Ap, Ai, Ax, col, k, x);
+
+			//寻找主元
+			int ipiv = -1;
+			double a = -1.0;
+			for(int p=top;p<n;p++) {
+				int i = xi[p];
+				if(pinv[i] < 0) {
+					double t = Math.abs(x[i]);
+					if(t > a) {
+						a = t;
+						ipiv = i;
+					}
+				} else {
+					Ui[unz] = pinv[i];
+					Ux[unz++] = x[i];
+				}
+			}
+			if(ipiv == -1 || a <= 0.0)
+				throw new FutureyeException(
+						"SparseLU: matrix is singular, column "+(col+1));
+			if(pinv[col] < 0 && Math.abs(x[col]) >= a*tol)
+				ipiv = col;
+
+			double pivot = x[ipiv];
+			Ui[unz] = k;
+			Ux[unz++] = pivot;
+			pinv[ipiv] = k;
+			Li[lnz] = ipiv;
+			Lx[lnz++] = 1.0;
+			for(int p=top;p<n;p++) {
+				int i = xi[p];
+				if(pinv[i] < 0) {
+					Li[lnz] = i;
+					Lx[lnz++] = x[i]/pivot;
+				}
+				x[i] = 0.0;
+			}
+		}
+		Lp[n] = lnz;
+		Up[n] = unz;
+		//L的行号改为主元行号
+		for(int p=0;p<lnz;p++)
+			Li[p] = pinv[Li[p]];
+		Li = grow(Li, lnz);
+		Lx = grow(Lx, lnz);
+		Ui = grow(Ui, unz);
+		Ux = grow(Ux, unz);
+	}
+
+	/**
+	 * 求解L(:,0:k-1)*x = A(:,col)，x的非零元素结构为xi[top...n-1]
+	 *
+	 * @return top
+	 */
+	protected int spsolve(int[] Ap, int[] Ai, double[] Ax, int col, int k, double[] x) {
+		int top = n;
+		for(int p=Ap[col];p<Ap[col+1];p++) {
+			int i = Ai[p];
+			if(mark[i] != k)
+				top = dfs(i, k, top);
+		}
+		for(int p=top;p<n;p++)
+			x[xi[p]] = 0.0;
+		for(int p=Ap[col];p<Ap[col+1];p++)
+			x[Ai[p]] += Ax[p];
+		for(int px=top;px<n;px++) {
+			int j = xi[px];
+			int J = pinv[j];
+			if(J < 0) continue;
+			double xj = x[j];
+			//L的对角元素为1
+			for(int p=Lp[J]+1;p<Lp[J+1];p++)
+				x[Li[p]] -= Lx[p]*xj;
+		}
+		return top;
+	}
+
+	/**
+	 * 从结点j开始在L的图上进行深度优先搜索（非递归），访问过的结点按后序存入xi[top-1],xi[top-2],...
+	 */
+	protected int dfs(int j, int k, int top) {
+		//xi[0...head]作为搜索栈，与xi[top...n-1]不会重叠
+		int head = 0;
+		xi[0] = j;
+		while(head >= 0) {
+			j = xi[head];
+			int jnew = pinv[j];
+			if(mark[j] != k) {
+				mark[j] = k;
+				pstack[head] = jnew < 0 ? 0 : Lp[jnew]+1;
+			}
+			boolean done = true;
+			int p2 = jnew < 0 ? 0 : Lp[jnew+1];
+			for(int p=pstack[head];p<p2;p++) {
+				int i = Li[p];
+				if(mark[i] == k) continue;
+				pstack[head] = p+1;
+				xi[++head] = i;
+				done = false;
+				break;
+			}
+			if(done) {
+				head--;
+				xi[--top] = j;
+			}
+		}
+		return top;
+	}
+
+	/**
+	 * 求解A*x=b，x和b可以是同一个数组
+	 *
+	 * @param b 下标从0开始
+	 * @param x 下标从0开始
+	 */
+	@Override
+	public void solve(double[] b, double[] x) {
+		double[] y = work;
+		for(int i=0;i<n;i++)
+			y[pinv[i]] = b[i];
+		//L*z=P*b
+		for(int j=0;j<n;j++) {
+			double yj = y[j];
+			for(int p=Lp[j]+1;p<Lp[j+1];p++)
+				y[Li[p]] -= Lx[p]*yj;
+		}
+		//U*y=z
+		for(int j=n-1;j>=0;j--) {
+			y[j] /= Ux[Up[j+1]-1];
+			double yj = y[j];
+			for(int p=Up[j];p<Up[j+1]-1;p++)
+				y[Ui[p]] -= Ux[p]*yj;
+		}
+		for(int k=0;k<n;k++)
+			x[q[k]] = y[k];
+	}
+
+	/**
+	 * 同时求解多个右端项，每次遍历L和U时处理所有右端项
+	 */
+	@Override
+	public void solve(double[][] B, double[][] X) {
+		int m = n == 0 ? 0 : B[0].length;
+		double[][] Y = new double[n][];
+		for(int i=0;i<n;i++)
+			Y[pinv[i]] = B[i].clone();
+		for(int j=0;j<n;j++) {
+			double[] yj = Y[j];
+			for(int p=Lp[j]+1;p<Lp[j+1];p++) {
+				double[] yi = Y[Li[p]];
+				double l = Lx[p];
+				for(int c=0;c<m;c++)
+					yi[c] -= l*yj[c];
+			}
+		}
+		for(int j=n-1;j>=0;j--) {
+			double[] yj = Y[j];
+			double d = 1.0/Ux[Up[j+1]-1];
+			for(int c=0;c<m;c++)
+				yj[c] *= d;
+			for(int p=Up[j];p<Up[j+1]-1;p++) {
+				double[] yi = Y[Ui[p]];
+				double u = Ux[p];
+				for(int c=0;c<m;c++)
+					yi[c] -= u*yj[c];
+			}
+		}
+		for(int k=0;k<n;k++)
+			System.arraycopy(Y[k], 0, X[q[k]], 0, m);
+	}
+
+	@Override
+	public int getDim() {
+		return n;
+	}
+
+	/**
+	 * L和U中非零元素的数目（对角元素各计算一次）
+	 */
+	@Override
+	public int getNonZeroNumber() {
+		return Lp[n] + Up[n];
+	}
+
+	protected static int[] grow(int[] a, int len) {
+		int[] t = new int[len];
+		System.arraycopy(a, 0, t, 0, Math.min(a.length, len));
+		return t;
+	}
+
+	protected static double[] grow(double[] a, int len) {
+		double[] t = new double[len];
+		System.arraycopy(a, 0, t, 0, Math.min(a.length, len));
+		return t;
+	}
+}
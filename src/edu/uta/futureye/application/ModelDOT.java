@@ -10,7 +10,6 @@ import edu.uta.futureye.core.Node;
 import edu.uta.futureye.core.NodeType;
 import edu.uta.futureye.core.Refiner;
 import edu.uta.futureye.core.geometry.Point;
-import edu.uta.futureye.core.intf.Assembler;
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
 import edu.uta.futureye.function.basic.FC;
@@ -20,6 +19,7 @@ import edu.uta.futureye.function.intf.Function;
 import edu.uta.futureye.function.operator.FMath;
 import edu.uta.futureye.io.MeshReader;
 import edu.uta.futureye.lib.assembler.AssemblerScalar;
+import edu.uta.futureye.lib.assembler.HangingNodeConstraint;
 import edu.uta.futureye.lib.weakform.WeakFormLaplace2D;
 import edu.uta.futureye.util.Constant;
 import edu.uta.futureye.util.container.ElementList;
@@ -137,7 +137,8 @@ public class ModelDOT {
 		
 		//bugfix 2011-5-7两种方式结果不一样？
 		//Assembler assembler = new AssemblerScalarFast(mesh, weakForm);
-		Assembler assembler = new AssemblerScalar(mesh, weakForm);
+		AssemblerScalar assembler = new AssemblerScalar(mesh, weakForm);
+		HangingNodeConstraint hnc = setHangingNodeConstraint(mesh, assembler);
 		System.out.println("Begin Assemble...solveMixedBorder");
 		assembler.assemble();
 		Matrix stiff = assembler.getStiffnessMatrix();
@@ -150,9 +151,27 @@ public class ModelDOT {
 
 		Solver solver = new Solver();
 		Vector u = solver.solveAuto(stiff, load);
+		if(hnc != null)
+			hnc.distribute(u);
 		return u;
 	}
 	
+	/**
+	 * 加密后的网格（有hanging node）合成时消去hanging node，得到对称的方程组，
+	 * 求解后需要调用<tt>hnc.distribute(u)</tt>计算hanging node的值
+	 * 
+	 * @param mesh
+	 * @param assembler
+	 * @return null: 没有hanging node
+	 */
+	protected HangingNodeConstraint setHangingNodeConstraint(Mesh mesh, AssemblerScalar assembler) {
+		HangingNodeConstraint hnc = HangingNodeConstraint.build(mesh);
+		if(hnc.size() == 0)
+			return null;
+		assembler.setHangingNodeConstraint(hnc);
+		return hnc;
+	}
+	
 	public Vector solveNitsches(Mesh mesh, Function diri, double eps) {
 		//Mark border type
 		HashMap<NodeType, Function> mapNTF = new HashMap<NodeType, Function>();
@@ -174,7 +193,8 @@ public class ModelDOT {
 				this.k, this.mu_a, this.k.D(eps).M(diri), this.k.D(eps)
 			);
 		
-		Assembler assembler = new AssemblerScalar(mesh, weakForm);
+		AssemblerScalar assembler = new AssemblerScalar(mesh, weakForm);
+		HangingNodeConstraint hnc = setHangingNodeConstraint(mesh, assembler);
 		System.out.println("Begin Assemble...solveMixedBorder");
 		assembler.assemble();
 		Matrix stiff = assembler.getStiffnessMatrix();
@@ -183,6 +203,8 @@ public class ModelDOT {
 
 		Solver solver = new Solver();
 		Vector u = solver.solveAuto(stiff, load);
+		if(hnc != null)
+			hnc.distribute(u);
 		return u;
 	}
 	
@@ -2,9 +2,12 @@ package edu.uta.futureye.application;
 
 import java.util.HashMap;
 
-import edu.uta.futureye.algebra.intf.Matrix;
+import edu.uta.futureye.algebra.FullMatrix;
+import edu.uta.futureye.algebra.SparseVectorHashMap;
+import edu.uta.futureye.algebra.intf.SparseMatrix;
 import edu.uta.futureye.algebra.intf.Vector;
-import edu.uta.futureye.algebra.solver.external.SolverJBLAS;
+import edu.uta.futureye.algebra.solver.Factorization;
+import edu.uta.futureye.algebra.solver.SparseDirectSolver;
 import edu.uta.futureye.core.Mesh;
 import edu.uta.futureye.core.NodeType;
 import edu.uta.futureye.core.intf.Assembler;
@@ -49,13 +52,18 @@ public class ModelDOTMult {
 	//Reduced scattering coefficient mu_s'
 	public Function mu_s = new FC(50.0/3.0);
 	
+	//不同光源的方程只有右端项不同，系数矩阵不变时重复使用分解结果
+	protected SparseDirectSolver solver = new SparseDirectSolver();
+	
 	
 	public void setMu_a(Function fMu_a) {
 		this.mu_a = fMu_a;
 		
 		//update delta which depends on mu_a
-		delta = getRawDelta();
-		delta = delta.D(this.mu_a);
+		if(lightPosition != null) {
+			delta = getRawDelta();
+			delta = delta.D(this.mu_a);
+		}
 	}
 	public Function getMu_a() {
 		return this.mu_a;
@@ -77,6 +85,16 @@ public class ModelDOTMult {
 		return new FDelta(this.lightPosition,0.01,2e5);
 	}
 	
+	/**
+	 * 光源位置(x,y)对应的右端项\delta/mu_a，不改变lightPosition
+	 */
+	protected Function getDelta(double x, double y) {
+		Variable light = new Variable();
+		light.set("x", x);
+		light.set("y", y);
+		return new FDelta(light,0.01,2e5).D(mu_a);
+	}
+	
 	/**
 	 * 求解混合问题，需要提供函数diriBoundaryMark来标记Dirichlet边界类型，
 	 * 其余边界为Neumann类型。
@@ -98,6 +116,39 @@ public class ModelDOTMult {
 	public Vector solveMixedBorder(Mesh mesh, 
 			Function diriBoundaryMark, Function diri,
 			Function robinQ, Function robinD) {
+		Assembler assembler = assembleMixedBorder(mesh, diriBoundaryMark, diri, robinQ, robinD);
+		SparseMatrix stiff = assembler.getStiffnessMatrix();
+		Vector load = assembler.getLoadVector();
+
+		//Solver solver = new Solver();
+		//Vector u = solver.solveCGS(stiff, load);
+		Vector u = solver.solve(stiff, load);
+		
+		return u;
+	}
+	
+	/**
+	 * 组装混合问题的刚度矩阵和右端项，参数同solveMixedBorder()
+	 */
+	protected Assembler assembleMixedBorder(Mesh mesh, 
+			Function diriBoundaryMark, Function diri,
+			Function robinQ, Function robinD) {
+		markBorder(mesh, diriBoundaryMark, diri);
+		WeakFormLaplace2D weakForm = getWeakForm(this.delta, robinQ, robinD);
+		
+		//bugfix 2011-5-7两种方式结果不一样？
+		//Assembler assembler = new AssemblerScalarFast(mesh, weakForm);
+		Assembler assembler = new AssemblerScalar(mesh, weakForm);
+		System.out.println("Begin Assemble...solveMixedBorder");
+		assembler.assemble();
+		//Dirichlet condition
+		if(diri != null)
+			assembler.imposeDirichletCondition(diri);
+		System.out.println("Assemble done!");
+		return assembler;
+	}
+	
+	protected void markBorder(Mesh mesh, Function diriBoundaryMark, Function diri) {
 		//Mark border type
 		HashMap<NodeType, Function> mapNTF = new HashMap<NodeType, Function>();
 		if(diriBoundaryMark == null && diri == null) {
@@ -110,11 +161,13 @@ public class ModelDOTMult {
 		}
 		mesh.clearBorderNodeMark();
 		mesh.markBorderNode(mapNTF);
-		
+	}
+	
+	protected WeakFormLaplace2D getWeakForm(Function f, Function robinQ, Function robinD) {
 		WeakFormLaplace2D weakForm = new WeakFormLaplace2D();
 		
 		//Right hand side
-		weakForm.setF(this.delta);
+		weakForm.setF(f);
 		
 		//Model: \nabla{1/(3*mu_s'*mu_a)*\nabla{u}} + u = \delta/mu_a
 		weakForm.setParam(
@@ -123,24 +176,52 @@ public class ModelDOTMult {
 				robinQ, 
 				robinD //FC.c1.D(mu_s.M(mu_a).M(3.0) : d==k,q=0 (即：u_n + u =0)
 			);
-		
-		//bugfix 2011-5-7两种方式结果不一样？
-		//Assembler assembler = new AssemblerScalarFast(mesh, weakForm);
-		Assembler assembler = new AssemblerScalar(mesh, weakForm);
-		System.out.println("Begin Assemble...solveMixedBorder");
+		return weakForm;
+	}
+	
+	/**
+	 * 求解多个光源位置(LSx[i],LSy[i])对应的Neumann(Robin)问题。
+	 * 系数矩阵与光源无关，只合成和分解一次，之后每个光源只合成右端项，
+	 * 所有右端项作为FullMatrix的列一起求解。不改变lightPosition
+	 * 
+	 * @param mesh
+	 * @param LSx
+	 * @param LSy
+	 * @return 每个光源对应的解
+	 */
+	public Vector[] solveNeumann(Mesh mesh, double[] LSx, double[] LSy) {
+		int nLight = LSx.length;
+		if(nLight == 0)
+			return new Vector[0];
+		markBorder(mesh, null, null);
+		WeakFormLaplace2D weakForm = getWeakForm(getDelta(LSx[0], LSy[0]),
+				null, FC.C1.D(mu_s.M(mu_a).M(3.0)));
+		AssemblerScalar assembler = new AssemblerScalar(mesh, weakForm);
+		System.out.println("Begin Assemble...solveNeumann, "+nLight+" light sources");
 		assembler.assemble();
-		Matrix stiff = assembler.getStiffnessMatrix();
-		Vector load = assembler.getLoadVector();
-		//Dirichlet condition
-		if(diri != null)
-			assembler.imposeDirichletCondition(diri);
+		Factorization factor = solver.factorize(assembler.getStiffnessMatrix());
+		
+		int n = assembler.getLoadVector().getDim();
+		FullMatrix F = new FullMatrix(n, nLight);
+		double[][] f = F.getData();
+		for(int i=0;i<nLight;i++) {
+			Vector load = assembler.getLoadVector();
+			if(i > 0) {
+				weakForm.setF(getDelta(LSx[i], LSy[i]));
+				load = assembler.assembleLoadVector();
+			}
+			for(int j=1;j<=n;j++)
+				f[j-1][i] = load.get(j);
+		}
 		System.out.println("Assemble done!");
-
-		//Solver solver = new Solver();
-		//Vector u = solver.solveCGS(stiff, load);
-        SolverJBLAS sol = new SolverJBLAS();
-		Vector u = sol.solveDGESV(stiff, load);
 		
+		double[][] x = factor.solve(F).getData();
+		Vector[] u = new Vector[nLight];
+		for(int i=0;i<nLight;i++) {
+			u[i] = new SparseVectorHashMap(n);
+			for(int j=1;j<=n;j++)
+				u[i].set(j, x[j-1][i]);
+		}
 		return u;
 	}
 	
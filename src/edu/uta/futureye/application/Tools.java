@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +19,7 @@ import edu.uta.futureye.algebra.solver.external.SolverJBLAS;
 import edu.uta.futureye.core.DOF;
 import edu.uta.futureye.core.Element;
 import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.MeshTransfer;
 import edu.uta.futureye.core.Node;
 import edu.uta.futureye.core.NodeRefined;
 import edu.uta.futureye.core.NodeType;
@@ -524,18 +527,61 @@ public class Tools {
 		}
 	}
 
+	/**
+	 * 将网格oldMesh上的结点函数vecFun插值到网格newMesh的结点上
+	 * 
+	 * 插值算子（MeshTransfer）只在第一次调用时构造，之后对同一对网格的插值只需要
+	 * 一次稀疏矩阵向量乘法。网格加密或结点移动后算子自动重新构造。
+	 * 
+	 * @param oldMesh
+	 * @param newMesh
+	 * @param vecFun 向量vecFun.getVector()定义在oldMesh的结点上，
+	 *        newMesh的结点在oldMesh之外时使用vecFun.getDefaultFunction()求值
+	 * @return
+	 */
 	public static Vector interplateFrom(Mesh oldMesh, Mesh newMesh, Vector2Function vecFun) {
-		int nNode = newMesh.getNodeList().size();
-		NodeList nodes = newMesh.getNodeList();
-		Vector rlt = new SparseVectorHashMap(nNode);
-		for(int i=1;i<=nNode;i++) {
-			Variable v = new Variable();
-			v.set("x",nodes.at(i).coord(1));
-			v.set("y",nodes.at(i).coord(2));
-			double val = vecFun.value(v);
-			rlt.set(i,val);
+		MeshTransfer transfer = getMeshTransfer(oldMesh, newMesh);
+		return transfer.apply(vecFun.getVector(), vecFun.getDefaultFunction());
+	}
+	
+	//Recently used transfer operators, see getMeshTransfer()
+	//MeshTransfer只保存网格的弱引用，缓存不会阻止网格被回收
+	protected static List<MeshTransfer> transferCache = new LinkedList<MeshTransfer>();
+	public static int transferCacheSize = 8;
+	
+	/**
+	 * 获取网格oldMesh到newMesh的结点插值算子，最近使用的算子保存在缓存中，
+	 * 网格已经被回收或者修改过的算子从缓存中删除（参见MeshTransfer.isValid()）。
+	 * 需要长期使用同一个算子时，调用者可以直接构造并保存MeshTransfer对象。
+	 * 
+	 * @param oldMesh
+	 * @param newMesh
+	 * @return
+	 */
+	public static synchronized MeshTransfer getMeshTransfer(Mesh oldMesh, Mesh newMesh) {
+		MeshTransfer found = null;
+		Iterator<MeshTransfer> it = transferCache.iterator();
+		while(it.hasNext()) {
+			MeshTransfer t = it.next();
+			Mesh from = t.getFrom();
+			Mesh to = t.getTo();
+			if(from == null || to == null) {
+				it.remove();
+			} else if(from == oldMesh && to == newMesh) {
+				it.remove();
+				if(t.isValid())
+					found = t;
+			}
 		}
-		return rlt;
+		if(found != null) {
+			transferCache.add(0, found);
+			return found;
+		}
+		MeshTransfer t = new MeshTransfer(oldMesh, newMesh);
+		transferCache.add(0, t);
+		while(transferCache.size() > transferCacheSize)
+			transferCache.remove(transferCache.size()-1);
+		return t;
 	}
 	
 	public static void constrainHangingNodes(Mesh mesh, Vector v) {
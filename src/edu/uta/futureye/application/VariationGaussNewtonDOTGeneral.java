@@ -8,6 +8,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,6 +21,7 @@ import edu.uta.futureye.algebra.intf.Matrix;
 import edu.uta.futureye.algebra.intf.SparseMatrix;
 import edu.uta.futureye.algebra.intf.SparseVector;
 import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.algebra.solver.SparseDirectSolver;
 import edu.uta.futureye.algebra.solver.external.SolverJBLAS;
 import edu.uta.futureye.core.DOF;
 import edu.uta.futureye.core.DOFOrder;
@@ -41,6 +43,8 @@ import edu.uta.futureye.function.operator.FMath;
 import edu.uta.futureye.io.MeshReader;
 import edu.uta.futureye.io.MeshWriter;
 import edu.uta.futureye.lib.assembler.AssemblerScalar;
+import edu.uta.futureye.lib.assembler.AssemblerScalarParallel;
+import edu.uta.futureye.lib.assembler.SparsityPattern;
 import edu.uta.futureye.lib.element.FEBilinearRectangleRegular;
 import edu.uta.futureye.lib.element.FELinearTriangle;
 import edu.uta.futureye.lib.weakform.WeakFormLaplace2D;
@@ -82,6 +86,11 @@ public class VariationGaussNewtonDOTGeneral {
 	public Mesh meshBig;
 	public String gridFileBig;
 	public String gridFileSmall;
+	//网格上刚度矩阵的稀疏结构，在Gauss-Newton迭代中重复使用，网格改变后重新计算
+	protected SparsityPattern pattern;
+	protected SparsityPattern patternBig;
+	//求解u时合成刚度矩阵的线程数，1为串行合成
+	public int nAssembleThreads = 1;
 	
 	//是否使用向量 mu_a，由于向量与网格有关，因此在不同网格上求解问题需要对mu_a插值 
 	boolean useVectorMu_a = false;
@@ -105,6 +114,11 @@ public class VariationGaussNewtonDOTGeneral {
 	ModelDOTMult modelGuess = new ModelDOTMult();//Guess model from GCM of inclusion 
 	ModelDOTMult modelInit = new ModelDOTMult(); //Initial model of inclusion
 
+	//稀疏直接解法，系数矩阵不变时（例如不同光源的方程只有右端项不同）重复使用分解结果
+	SparseDirectSolver solverU = new SparseDirectSolver();
+	SparseDirectSolver solverLambda = new SparseDirectSolver();
+	SparseDirectSolver solverDeltaU = new SparseDirectSolver();
+
 	//测量类型开关，以下为u_g在整个区域上都已知
 	public boolean bTestWholdDomain = true; //=true测量数据在整个区域，=false测量数据在边界上 （=true 有强烈震荡，为什么？需要调整beta较大些可以解决！）
 	public boolean bTestWholeDomainDirichletBoundary = true; //测量数据在整个区域并且=ture时使用Dirichlet边界条件，=false时使用Neumann边界条件
@@ -373,6 +387,10 @@ public class VariationGaussNewtonDOTGeneral {
 		Double beta = pReader.getDouble("beta");
 		if(beta != null) this.beta = beta;
 
+		//合成刚度矩阵的线程数
+		Integer assembleThreads = pReader.getInteger("assembleThreads");
+		if(assembleThreads != null) this.nAssembleThreads = assembleThreads;
+
 	}
 	
 //	/**
@@ -781,6 +799,8 @@ public class VariationGaussNewtonDOTGeneral {
 	    	else if(e.nodes.size()%4 == 0)
 	    		feBRR.assignTo(eListBig.at(i));
 		}
+		pattern = null;
+		patternBig = null;
 	}	
 	
 	public void refineMesh(ElementList eToRefine) {
@@ -809,6 +829,33 @@ public class VariationGaussNewtonDOTGeneral {
 		
 		Tools.assignLinearShapFunction(meshBig);
 		Tools.assignLinearShapFunction(mesh);
+		pattern = null;
+		patternBig = null;
+	}
+	
+	/**
+	 * 返回网格_mesh上刚度矩阵的稀疏结构，mesh和meshBig的结构被缓存，
+	 * 直到readMesh()或refineMesh()改变网格
+	 * 
+	 * @param _mesh
+	 * @return
+	 */
+	public SparsityPattern getSparsityPattern(Mesh _mesh) {
+		if(_mesh == mesh) {
+			if(!isPatternOf(pattern, _mesh))
+				pattern = SparsityPattern.build(_mesh);
+			return pattern;
+		} else if(_mesh == meshBig) {
+			if(!isPatternOf(patternBig, _mesh))
+				patternBig = SparsityPattern.build(_mesh);
+			return patternBig;
+		}
+		return SparsityPattern.build(_mesh);
+	}
+	
+	private boolean isPatternOf(SparsityPattern p, Mesh _mesh) {
+		//mesh and meshBig are public and may be replaced or refined without resetting the cache
+		return p != null && p.isPatternOf(_mesh);
 	}
 	
 	public void constrainHangingNodes(Mesh mesh, Vector v) {
@@ -917,7 +964,7 @@ public class VariationGaussNewtonDOTGeneral {
 			mapNTF.put(NodeType.Robin, null);
 		mesh.markBorderNode(mapNTF);
 		
-		AssemblerScalar assembler = new AssemblerScalar(mesh, weakForm);
+		AssemblerScalar assembler = new AssemblerScalar(mesh, weakForm, getSparsityPattern(mesh));
 		System.out.println("Begin Assemble...lambda");
 		assembler.assemble();
 		SparseMatrix stiff = assembler.getStiffnessMatrix();
@@ -955,7 +1002,6 @@ public class VariationGaussNewtonDOTGeneral {
 			Equation eqn, Vector u) { //Out
 			 
 		
-		WeakFormLaplace2D weakForm = new WeakFormLaplace2D();
 		Function fa = new Vector2Function(a);
 		
 		//不能忽略光源的影响???this.bTestWholeDomainDirichletBoundary
@@ -965,24 +1011,8 @@ public class VariationGaussNewtonDOTGeneral {
 					setDefaultFunction(FC.c(this.aBackground)));
 			modelReal.setMu_a(new Vector2Function(aRealNew));
 		}
-		//if(g == null)
-			weakForm.setF(this.modelReal.getDelta());
-		//else
-		//	weakForm.setF(FC.c(0.0));
-		
-		//DuDn du0dn = new DuDn(new Vector2Function(u0_x),new Vector2Function(u0_y),null);
-		
-		weakForm.setParam(
-				FC.C1.D(fa.M(model_k)),
-				FC.C1,
-				null,
-				FC.C1.D(fa.M(model_k)));
-		
-//		weakForm.setParam(
-//				FC.c1.D(fa.M(model_k)),
-//				FC.c1,
-//				FC.c1.D(fa.M(model_k)).M(du0dn),
-//				FC.c0);
+		Function fk = FC.C1.D(fa.M(model_k));
+		WeakFormLaplace2D weakForm = getWeakFormU(fk);
 		
 		_mesh.clearBorderNodeMark();
 		HashMap<NodeType, Function> mapNTF = new HashMap<NodeType, Function>();
@@ -992,7 +1022,17 @@ public class VariationGaussNewtonDOTGeneral {
 			mapNTF.put(NodeType.Dirichlet, null);
 		_mesh.markBorderNode(mapNTF);
 
-		AssemblerScalar assembler = new AssemblerScalar(_mesh, weakForm);
+		AssemblerScalar assembler = null;
+		if(this.nAssembleThreads > 1) {
+			//每个线程一个弱形式对象，系数函数共享
+			WeakFormLaplace2D[] weakForms = new WeakFormLaplace2D[this.nAssembleThreads];
+			weakForms[0] = weakForm;
+			for(int i=1;i<weakForms.length;i++)
+				weakForms[i] = getWeakFormU(fk);
+			assembler = new AssemblerScalarParallel(_mesh, weakForms, getSparsityPattern(_mesh));
+		} else {
+			assembler = new AssemblerScalar(_mesh, weakForm, getSparsityPattern(_mesh));
+		}
 		System.out.println("Begin Assemble...u");
 		assembler.assemble();
 		SparseMatrix stiff = assembler.getStiffnessMatrix();
@@ -1006,12 +1046,38 @@ public class VariationGaussNewtonDOTGeneral {
 			eqn.f = load;
 		}
 		if(u != null) {
-	        SolverJBLAS sol = new SolverJBLAS();
-			Vector uSol = sol.solveDGESV(stiff, load);
+			Vector uSol = solverU.solve(stiff, load);
 			u.set(uSol);
 		}
 	}
 	
+	/**
+	 * 状态方程u的弱形式：
+	 *   (fk*\nabla{u},\nabla{\phi}) + (u,\phi) + (fk*u,\phi)_{\Gamma} = (\delta,\phi)
+	 * 其中fk=1/(a*k)
+	 * 
+	 * @param fk
+	 * @return
+	 */
+	protected WeakFormLaplace2D getWeakFormU(Function fk) {
+		WeakFormLaplace2D weakForm = new WeakFormLaplace2D();
+		//if(g == null)
+			weakForm.setF(this.modelReal.getDelta());
+		//else
+		//	weakForm.setF(FC.c(0.0));
+		
+		//DuDn du0dn = new DuDn(new Vector2Function(u0_x),new Vector2Function(u0_y),null);
+		
+		weakForm.setParam(fk, FC.C1, null, fk);
+		
+//		weakForm.setParam(
+//				FC.c1.D(fa.M(model_k)),
+//				FC.c1,
+//				FC.c1.D(fa.M(model_k)).M(du0dn),
+//				FC.c0);
+		return weakForm;
+	}
+	
 	public Equation getEqnU(Vector a, Vector g, Vector u0_x, Vector u0_y) {
 		if(g == null) {
 			//Robin条件，由于光源在区域外面，在小区域上直接求解会得到0解，因此
@@ -1146,7 +1212,7 @@ public class VariationGaussNewtonDOTGeneral {
 		
         //5.Assembly process
         AssemblerScalar assembler =
-                new AssemblerScalar(mesh, weakForm);
+                new AssemblerScalar(mesh, weakForm, getSparsityPattern(mesh));
         System.out.println("Begin Assemble...a(x)");
         assembler.assemble();
         SparseMatrix stiff = assembler.getStiffnessMatrix();
@@ -1337,7 +1403,7 @@ public class VariationGaussNewtonDOTGeneral {
 
         //5.Assembly process
         AssemblerScalar assembler =
-                new AssemblerScalar(mesh, weakForm);
+                new AssemblerScalar(mesh, weakForm, getSparsityPattern(mesh));
         System.out.println("Begin Assemble...M");
         assembler.assemble(false);
         SparseMatrix stiff = assembler.getStiffnessMatrix();
@@ -1399,7 +1465,7 @@ public class VariationGaussNewtonDOTGeneral {
 		
         //5.Assembly process
         AssemblerScalar assembler =
-                new AssemblerScalar(mesh, weakForm);
+                new AssemblerScalar(mesh, weakForm, getSparsityPattern(mesh));
         System.out.println("Begin Assemble...A");
         assembler.assemble(procHangingNode);
         SparseMatrix stiff = assembler.getStiffnessMatrix();
@@ -1490,7 +1556,7 @@ public class VariationGaussNewtonDOTGeneral {
 		
         //5.Assembly process
         AssemblerScalar assembler =
-                new AssemblerScalar(mesh, weakForm);
+                new AssemblerScalar(mesh, weakForm, getSparsityPattern(mesh));
         System.out.println("Begin Assemble...C");
         assembler.assemble(false);
         SparseMatrix stiff = assembler.getStiffnessMatrix();
@@ -1567,7 +1633,7 @@ public class VariationGaussNewtonDOTGeneral {
 		
         //5.Assembly process
         AssemblerScalar assembler =
-                new AssemblerScalar(mesh, weakForm);
+                new AssemblerScalar(mesh, weakForm, getSparsityPattern(mesh));
         System.out.println("Begin Assemble...CT");
         assembler.assemble(false);
         SparseMatrix stiff = assembler.getStiffnessMatrix();
@@ -1616,7 +1682,7 @@ public class VariationGaussNewtonDOTGeneral {
 		
       //5.Assembly process
       AssemblerScalar assembler =
-              new AssemblerScalar(mesh, weakForm);
+              new AssemblerScalar(mesh, weakForm, getSparsityPattern(mesh));
       System.out.println("Begin Assemble...CT");
       assembler.assemble(false);
       Matrix stiff = assembler.getStiffnessMatrix();
@@ -1660,7 +1726,7 @@ public class VariationGaussNewtonDOTGeneral {
 		
         //5.Assembly process
         AssemblerScalar assembler =
-                new AssemblerScalar(mesh, weakForm);
+                new AssemblerScalar(mesh, weakForm, getSparsityPattern(mesh));
         System.out.println("Begin Assemble...a(x)");
         assembler.assemble();
         SparseMatrix stiff = assembler.getStiffnessMatrix();
@@ -1704,7 +1770,7 @@ public class VariationGaussNewtonDOTGeneral {
 		
         //5.Assembly process
         AssemblerScalar assembler =
-                new AssemblerScalar(mesh, weakForm);
+                new AssemblerScalar(mesh, weakForm, getSparsityPattern(mesh));
         System.out.println("Begin Assemble...R");
         assembler.assemble();
         SparseMatrix stiff = assembler.getStiffnessMatrix();
@@ -1729,19 +1795,22 @@ public class VariationGaussNewtonDOTGeneral {
 	 * 
 	 * @return
 	 */
-	public Vector solveRealU(int s_i) {
+	public Vector[] solveRealU() {
 		if(this.useVectorMu_a) {//2011/10/18
 			Vector aRealBig = Tools.interplateFrom(aMesh, meshBig, 
 					new Vector2Function(aReal,aMesh,"x","y").
 					setDefaultFunction(FC.c(this.aBackground)));
 			modelReal.setMu_a(new Vector2Function(aRealBig));
 		}
-		Vector uRealBig = modelReal.solveNeumann(meshBig);
-		plotVector(meshBig, uRealBig, String.format("M%02d_uRealBig.dat",s_i));
-		
-		//截取meshBig的部分解到mesh上
-		Vector uReal = Tools.extractData(meshBig, mesh, uRealBig);
-		plotVector(mesh, uReal, String.format("M%02d_uReal.dat",s_i));
+		//所有光源的系数矩阵相同，只合成和分解一次
+		Vector[] uRealBig = modelReal.solveNeumann(meshBig, LSx, LSy);
+		Vector[] uReal = new Vector[LSx.length];
+		for(int s_i=0; s_i<LSx.length; s_i++) {
+			plotVector(meshBig, uRealBig[s_i], String.format("M%02d_uRealBig.dat",s_i));
+			
+			//截取meshBig的部分解到mesh上
+			uReal[s_i] = Tools.extractData(meshBig, mesh, uRealBig[s_i]);
+			plotVector(mesh, uReal[s_i], String.format("M%02d_uReal.dat",s_i));
 
 //以下验证都成功（2011/8/4）		
 //		//验证从大区域截取出来的解与边界施加Dirichlet条件解是否相同
@@ -1764,7 +1833,7 @@ public class VariationGaussNewtonDOTGeneral {
 //		Vector uGuess = Tools.extractData(meshBig, mesh, uGuessBig);
 //		plotVector(mesh, uGuess, String.format("M%02d_uGuess.dat",s_i));
 //		plotVector(mesh, FMath.axpy(-1.0, uGuessDiriReal,uGuess), String.format("M%02d_uGuessDiriReal_uGuess_diff.dat",s_i));
-		
+		}
         return uReal;
 	}
 	
@@ -1789,8 +1858,7 @@ public class VariationGaussNewtonDOTGeneral {
 		Equation eq = getA(ak,new Vector2Function(_resLlmd_da),FC.C0,true);
         //Solver sol = new Solver();
         //Vector x = sol.solveCGS(eq.A, eq.f);
-        SolverJBLAS sol = new SolverJBLAS();
-		Vector x = sol.solveDGESV(eq.A, eq.f);
+		Vector x = solverDeltaU.solve(eq.A, eq.f);
         return x;
 	}
 
@@ -1835,8 +1903,7 @@ public class VariationGaussNewtonDOTGeneral {
         //Solver solver = new Solver();
         //Vector lmd_solve = solver.solveCGS(eq.A, eq.f);
         
-        SolverJBLAS sol = new SolverJBLAS();
-		Vector lmd_solve = sol.solveDGESV(eq.A, eq.f);
+		Vector lmd_solve = solverLambda.solve(eq.A, eq.f);
         return lmd_solve;
     }
 	
@@ -2242,11 +2309,12 @@ public class VariationGaussNewtonDOTGeneral {
 
 	public List<ParamOfLightSource> generateSimulateData() {
 		List<ParamOfLightSource> paramList = new ArrayList<ParamOfLightSource>();
+		Vector[] uReal = solveRealU();
 		for(int i=0; i<LSx.length; i++) {
 			reinitModelLight(i);
 			ParamOfLightSource para = new ParamOfLightSource();
 			para.s_i = i;
-			para.g = solveRealU(i);
+			para.g = uReal[i];
 			if(debug) {
 				meshBig.writeNodesInfo(String.format("%s/meshBig%02d.dat",this.getOutputFolder(),iterNum));
 				Function gx = new DuDx(mesh,new Vector2Function(para.g,mesh,"x","y"),"x");
@@ -2299,20 +2367,24 @@ public class VariationGaussNewtonDOTGeneral {
 		//lambda0: 求解伴随方程得到
 		Vector[] lambda0 = new SparseVector[nDataBlock];
 		
+		//在大区域上求解状态方程，然后计算导数，最后截取到小区域上
+		//用于Neumann边界条件情形
+		if(this.useVectorMu_a) {//2011/10/18
+			Vector aGuessBig = Tools.interplateFrom(aMesh, meshBig, 
+					new Vector2Function(aGuess,aMesh,"x","y").
+					setDefaultFunction(FC.c(this.aBackground)));
+			modelGuess.setMu_a(new Vector2Function(aGuessBig));
+		}
+		//使用modelGuess计算是不是有问题？应该用mu_a=a0？
+		//所有光源的系数矩阵相同，只合成和分解一次
+		Vector[] uBigs = this.modelGuess.solveNeumann(meshBig,
+				Arrays.copyOf(LSx, nDataBlock), Arrays.copyOf(LSy, nDataBlock));
+		
 		for(int i=0;i<nDataBlock;i++) {
 			this.reinitModelLight(i);
 			ParamOfLightSource param =  paramList.get(i);
 			
-			//在大区域上求解状态方程，然后计算导数，最后截取到小区域上
-			//用于Neumann边界条件情形
-			if(this.useVectorMu_a) {//2011/10/18
-				Vector aGuessBig = Tools.interplateFrom(aMesh, meshBig, 
-						new Vector2Function(aGuess,aMesh,"x","y").
-						setDefaultFunction(FC.c(this.aBackground)));
-				modelGuess.setMu_a(new Vector2Function(aGuessBig));
-			}
-			//使用modelGuess计算是不是有问题？应该用mu_a=a0？
-			Vector uBig = this.modelGuess.solveNeumann(meshBig);
+			Vector uBig = uBigs[i];
 			plotVector(meshBig, uBig, String.format("M%02d_u0Big.dat",i));
 			Vector uBig_x = Tools.computeDerivativeFast(meshBig, uBig, "x");
 			Vector uBig_y = Tools.computeDerivativeFast(meshBig, uBig, "y");
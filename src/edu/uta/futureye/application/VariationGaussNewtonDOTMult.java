@@ -15,6 +15,7 @@ import edu.uta.futureye.algebra.intf.BlockMatrix;
 import edu.uta.futureye.algebra.intf.BlockVector;
 import edu.uta.futureye.algebra.intf.Matrix;
 import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.algebra.solver.SparseDirectSolver;
 import edu.uta.futureye.algebra.solver.external.SolverJBLAS;
 import edu.uta.futureye.core.DOF;
 import edu.uta.futureye.core.DOFOrder;
@@ -77,6 +78,11 @@ public class VariationGaussNewtonDOTMult {
 	ModelDOTMult modelGuess = new ModelDOTMult();
 	ModelDOTMult modelInit = new ModelDOTMult();
 
+	//稀疏直接解法，系数矩阵不变时（例如不同光源的方程只有右端项不同）重复使用分解结果
+	SparseDirectSolver solverU = new SparseDirectSolver();
+	SparseDirectSolver solverLambda = new SparseDirectSolver();
+	SparseDirectSolver solverDeltaU = new SparseDirectSolver();
+
 	//k = 3*mu_s'
 	Function model_k = FC.c(50.0);
 	//Background of a(x) = mu_a(x) = 0.1
@@ -1308,8 +1314,7 @@ public class VariationGaussNewtonDOTMult {
 		Equation eq = getA(ak,new Vector2Function(_resLlmd_da),FC.C0,true);
         //Solver sol = new Solver();
         //Vector x = sol.solveCGS(eq.A, eq.f);
-        SolverJBLAS sol = new SolverJBLAS();
-		Vector x = sol.solveDGESV(eq.A, eq.f);
+		Vector x = solverDeltaU.solve(eq.A, eq.f);
         return x;
 	}
 
@@ -1324,8 +1329,7 @@ public class VariationGaussNewtonDOTMult {
         //Solver solver = new Solver();
         //Vector u = solver.solveCGS(eq.A, eq.f);
         
-        SolverJBLAS sol = new SolverJBLAS();
-		Vector u = sol.solveDGESV(eq.A, eq.f);
+		Vector u = solverU.solve(eq.A, eq.f);
 
         return u;
 	}
@@ -1345,8 +1349,7 @@ public class VariationGaussNewtonDOTMult {
         //Solver solver = new Solver();
         //Vector lmd_solve = solver.solveCGS(eq.A, eq.f);
         
-        SolverJBLAS sol = new SolverJBLAS();
-		Vector lmd_solve = sol.solveDGESV(eq.A, eq.f);
+		Vector lmd_solve = solverLambda.solve(eq.A, eq.f);
         return lmd_solve;
     }
 	
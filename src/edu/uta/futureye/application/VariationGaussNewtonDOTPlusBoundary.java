@@ -11,12 +11,14 @@ import java.util.HashMap;
 import java.util.List;
 
 import no.uib.cipr.matrix.sparse.SparseVector;
+import edu.uta.futureye.algebra.CompressedRowMatrix;
 import edu.uta.futureye.algebra.SparseBlockMatrix;
 import edu.uta.futureye.algebra.SparseBlockVector;
 import edu.uta.futureye.algebra.intf.BlockMatrix;
 import edu.uta.futureye.algebra.intf.BlockVector;
 import edu.uta.futureye.algebra.intf.Matrix;
 import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.algebra.solver.PreconditionerGMG;
 import edu.uta.futureye.algebra.solver.Solver;
 import edu.uta.futureye.algebra.solver.external.SolverJBLAS;
 import edu.uta.futureye.core.DOF;
@@ -108,6 +110,10 @@ public class VariationGaussNewtonDOTPlusBoundary {
     int iterNum = 0;
     int refineNum = 0;
     
+    //mesh和meshBig每次加密的插值矩阵，用于几何多重网格预条件，参见getSolver()
+    List<CompressedRowMatrix> meshHierarchy = new ArrayList<CompressedRowMatrix>();
+    List<CompressedRowMatrix> meshBigHierarchy = new ArrayList<CompressedRowMatrix>();
+    
     //光源x坐标位置数组
 	double[] LS;
 
@@ -209,6 +215,8 @@ public class VariationGaussNewtonDOTPlusBoundary {
         MeshReader readerSmall = new MeshReader(gridFileSmall);
         meshBig = readerBig.read2DMesh();
         mesh = readerSmall.read2DMesh();
+        meshHierarchy.clear();
+        meshBigHierarchy.clear();
         meshBig.computeNodeBelongsToElements();
         mesh.computeNodeBelongsToElements();
         mesh.computeNeighborNodes();
@@ -245,6 +253,8 @@ public class VariationGaussNewtonDOTPlusBoundary {
         MeshReader readerSmall = new MeshReader(gridFileSmall);
         meshBig = readerBig.read2DMesh();
         mesh = readerSmall.read2DMesh();
+        meshHierarchy.clear();
+        meshBigHierarchy.clear();
         meshBig.computeNodeBelongsToElements();
         mesh.computeNodeBelongsToElements();
         mesh.computeNeighborNodes();
@@ -285,11 +295,15 @@ public class VariationGaussNewtonDOTPlusBoundary {
 		}
 		
 		System.out.println("Before refine meshBig: Element="+meshBig.getElementList().size()+", Node="+mesh.getNodeList().size());
+		int nCoarseNodeBig = meshBig.getNodeList().size();
 		Refiner.refineOnce(meshBig, eToRefineBig);
+		meshBigHierarchy.add(Refiner.computeProlongation(meshBig, nCoarseNodeBig));
 		System.out.println("After refine: Element="+meshBig.getElementList().size()+", Node="+mesh.getNodeList().size());
 
 		System.out.println("Before refine mesh: Element="+mesh.getElementList().size()+", Node="+mesh.getNodeList().size());
+		int nCoarseNode = mesh.getNodeList().size();
 		Refiner.refineOnce(mesh, eToRefine);
+		meshHierarchy.add(Refiner.computeProlongation(mesh, nCoarseNode));
 		System.out.println("After refine: Element="+mesh.getElementList().size()+", Node="+mesh.getNodeList().size());
 		
 		assignLinearShapFunction(meshBig);
@@ -473,7 +487,7 @@ public class VariationGaussNewtonDOTPlusBoundary {
 	        plotVector(meshBig,aBig,String.format("aBig%02d.dat",this.iterNum));
 			
 			Equation eq = getEqnU(meshBig,aBig,null);
-	        Solver sol = new Solver();
+	        Solver sol = getSolver(meshBigHierarchy);
 	        Vector uBig = sol.solveCGS(eq.A, eq.f);
 	        plotVector(meshBig,uBig,String.format("uBig%02d.dat",this.iterNum));
 	        Vector uSmall = Tools.extractData(meshBig, mesh, uBig);
@@ -1023,7 +1037,7 @@ public class VariationGaussNewtonDOTPlusBoundary {
 	 */
 	public Vector solveDeltaU(Vector ak, Vector _resLlmd_da, Vector uk) {
 		Equation eq = getA(ak,new Vector2Function(_resLlmd_da),FC.C0,true);
-        Solver sol = new Solver();
+        Solver sol = getSolver();
         Vector x = sol.solveCGS(eq.A, eq.f);
         return x;
 	}
@@ -1036,7 +1050,7 @@ public class VariationGaussNewtonDOTPlusBoundary {
 	 */
 	public Vector solveStateEquation(Vector a, Vector g) {
 		Equation eq = this.getEqnU(a, g);
-        Solver solver = new Solver();
+        Solver solver = getSolver();
         Vector u = solver.solveCGS(eq.A, eq.f);
         return u;
 	}
@@ -1053,11 +1067,33 @@ public class VariationGaussNewtonDOTPlusBoundary {
 	public Vector solveAdjointEquation(int s_i,  
 			Vector a, Vector u, Vector g) {
 		Equation eq = this.getEqnLambda(s_i,a, u, g);
-        Solver solver = new Solver();
+        Solver solver = getSolver();
         Vector lmd_solve = solver.solveCGS(eq.A, eq.f);
         return lmd_solve;
     }
 	
+	/**
+	 * mesh上方程的迭代求解器，mesh加密过后使用几何多重网格预条件
+	 * 
+	 * @return
+	 */
+	protected Solver getSolver() {
+		return getSolver(meshHierarchy);
+	}
+	
+	/**
+	 * 网格加密过后使用几何多重网格预条件
+	 * 
+	 * @param hierarchy 网格每次加密的插值矩阵
+	 * @return
+	 */
+	protected Solver getSolver(List<CompressedRowMatrix> hierarchy) {
+		Solver solver = new Solver();
+		if(hierarchy.size() > 0)
+			solver.preconditioner = new PreconditionerGMG(hierarchy);
+		return solver;
+	}
+	
 	protected void setDirichlet(BlockMatrix BM, BlockVector BV,
 			int matIndex, double value) {
 		int row = matIndex;
@@ -414,12 +414,11 @@ public class CoordinateTransform {
 		@Override
 		public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
 			double[] detJ = null;
-			int len = v.length();
 			if(cache != null) {
 				detJ = (double[])cache.get(1);
 			}
 			if(detJ == null) {
-				double[][][] J = new double[2][2][len];
+				double[][][] J = new double[2][2][];
 				J[0][0] = funs[0].valueArray(v,cache);
 				J[0][1] = funs[1].valueArray(v,cache);
 				J[1][0] = funs[2].valueArray(v,cache);
@@ -431,7 +430,8 @@ public class CoordinateTransform {
 					cache.put(2, J);
 				}
 			}
-			return detJ;
+			//A(),M()...会修改返回的数组，不能返回cache中的detJ
+			return cache == null ? detJ : detJ.clone();
 		}
 		
 		public String toString() {
@@ -480,12 +480,11 @@ public class CoordinateTransform {
 		@Override
 		public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
 			double[] detJ = null;
-			int len = v.length();
 			if(cache != null) {
 				detJ = (double[])cache.get(1);
 			}
 			if(detJ == null) {
-				double[][][] J = new double[2][3][len];
+				double[][][] J = new double[2][3][];
 				J[0][0] = funs[0].valueArray(v,cache);
 				J[0][1] = funs[1].valueArray(v,cache);
 				J[0][2] = funs[2].valueArray(v,cache);
@@ -499,7 +498,8 @@ public class CoordinateTransform {
 					cache.put(2, J);
 				}
 			}
-			return detJ;
+			//A(),M()...会修改返回的数组，不能返回cache中的detJ
+			return cache == null ? detJ : detJ.clone();
 		}
 		
 		public String toString() {
@@ -589,12 +589,11 @@ public class CoordinateTransform {
 		@Override
 		public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
 			double[] detJ = null;
-			int len = v.length();
 			if(cache != null) {
 				detJ = (double[])cache.get(1);
 			}
 			if(detJ == null) {
-				double[][][] J = new double[3][3][len];
+				double[][][] J = new double[3][3][];
 				J[0][0] = funs[0].valueArray(v,cache);
 				J[0][1] = funs[1].valueArray(v,cache);
 				J[0][2] = funs[2].valueArray(v,cache);
@@ -611,7 +610,8 @@ public class CoordinateTransform {
 					cache.put(2, J);
 				}
 			}
-			return detJ;
+			//A(),M()...会修改返回的数组，不能返回cache中的detJ
+			return cache == null ? detJ : detJ.clone();
 		}
 		
 		public String toString() {
@@ -1271,8 +1271,7 @@ public class Element {
 		//Coordinate transform and Jacbian on this element
 		if(getGeoEntity3D().getTopology() instanceof TetrahedronTp) {
 			//trans.computeJacobianMatrix();
-			trans.computeJacobian3DTetrahedron(this);
-			jac = trans.getJacobian();
+			jac = trans.computeJacobian3DTetrahedron(this);
 		}
 		else {
 			
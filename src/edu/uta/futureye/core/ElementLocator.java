@@ -0,0 +1,236 @@
+package edu.uta.futureye.core;
+
+import edu.uta.futureye.util.Constant;
+import edu.uta.futureye.util.container.ElementList;
+
+/**
+ * <blockquote><pre>
+ * Uniform grid of element bounding boxes for point location
+ *
+ * 网格单元的包围盒按均匀网格分桶，每个桶保存与其相交的单元在单元列表中的位置（升序）。
+ * 查找包含坐标点的单元时，只需要检查坐标点所在桶中的单元，每个桶中平均只有常数个单元。
+ * 包围盒按单元直径放大一定比例（再加上Constant.meshEps），保证Element.isCoordInElement()在容差范围内接受的点
+ * 都落在放大后的包围盒内，因此查找结果与顺序扫描整个单元列表相同。
+ *
+ * 桶的存储方式与压缩行存储相同：
+ *   cellItems[cellStart[c]...cellStart[c+1]-1] 桶c中单元的位置(1-based)
+ *
+ * 单元列表改变后（网格加密等）需要重新构造，参见Mesh.clearElementLocator()
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class ElementLocator {
+	//包围盒放大比例（相对单元直径）
+	public static double bboxScale = 0.01;
+
+	protected ElementList eList;
+	protected int nElement;
+	protected int dim;
+	protected double[] min;
+	protected double[] max;
+	protected int[] nCell;
+	protected double[] cellSize;
+	protected int[] cellStart;
+	protected int[] cellItems;
+	//一维单元的isCoordInElement()只判断点是否在单元所在的直线上，不能用包围盒过滤
+	protected boolean linearScan = false;
+
+	/**
+	 * Build the grid for all elements in <tt>eList</tt>
+	 *
+	 * @param eList
+	 */
+	public ElementLocator(ElementList eList) {
+		this.eList = eList;
+		this.nElement = eList.size();
+		this.dim = 0;
+		for(int i=1;i<=nElement;i++) {
+			Element e = eList.at(i);
+			for(int j=1;j<=e.nodes.size();j++)
+				dim = Math.max(dim, e.nodes.at(j).dim());
+			if(e.dim() == 1)
+				linearScan = true;
+		}
+		min = new double[dim];
+		max = new double[dim];
+		nCell = new int[dim];
+		cellSize = new double[dim];
+		if(nElement == 0 || dim == 0 || linearScan) {
+			cellStart = new int[]{0,0};
+			cellItems = new int[0];
+			return;
+		}
+
+		//包围盒：box[(i-1)*2*dim + a] = min_a, box[(i-1)*2*dim + dim + a] = max_a
+		double[] box = new double[nElement*2*dim];
+		for(int a=0;a<dim;a++) {
+			min[a] = Double.MAX_VALUE;
+			max[a] = -Double.MAX_VALUE;
+		}
+		for(int i=1;i<=nElement;i++) {
+			Element e = eList.at(i);
+			int off = (i-1)*2*dim;
+			for(int a=0;a<dim;a++) {
+				box[off+a] = Double.MAX_VALUE;
+				box[off+dim+a] = -Double.MAX_VALUE;
+			}
+			for(int j=1;j<=e.nodes.size();j++) {
+				Node node = e.nodes.at(j);
+				for(int a=0;a<node.dim();a++) {
+					double c = node.coord(a+1);
+					if(c < box[off+a]) box[off+a] = c;
+					if(c > box[off+dim+a]) box[off+dim+a] = c;
+				}
+			}
+			double diam = 0.0;
+			for(int a=0;a<dim;a++)
+				diam = Math.max(diam, box[off+dim+a]-box[off+a]);
+			//Node.coordEquals()使用绝对容差Constant.meshEps
+			double h = bboxScale*diam + Constant.meshEps;
+			for(int a=0;a<dim;a++) {
+				box[off+a] -= h;
+				box[off+dim+a] += h;
+				if(box[off+a] < min[a]) min[a] = box[off+a];
+				if(box[off+dim+a] > max[a]) max[a] = box[off+dim+a];
+			}
+		}
+
+		//每个方向上桶的数目与区域的边长成正比，桶的总数约为单元数目
+		double vol = 1.0;
+		int nPositive = 0;
+		for(int a=0;a<dim;a++) {
+			double len = max[a]-min[a];
+			if(len > 0.0) {
+				vol *= len;
+				nPositive++;
+			}
+		}
+		double h = nPositive == 0 ? 1.0 : Math.pow(vol/nElement, 1.0/nPositive);
+		int nTotal = 1;
+		for(int a=0;a<dim;a++) {
+			double len = max[a]-min[a];
+			nCell[a] = len > 0.0 ? Math.max(1, Math.min(1<<12, (int)Math.ceil(len/h))) : 1;
+			cellSize[a] = len > 0.0 ? len/nCell[a] : 1.0;
+			nTotal *= nCell[a];
+		}
+
+		//两遍扫描：先计数，再填充
+		int[] lo = new int[dim];
+		int[] hi = new int[dim];
+		cellStart = new int[nTotal+1];
+		for(int pass=0;pass<2;pass++) {
+			int[] pos = null;
+			if(pass == 1) {
+				for(int c=0;c<nTotal;c++)
+					cellStart[c+1] += cellStart[c];
+				cellItems = new int[cellStart[nTotal]];
+				pos = new int[nTotal];
+				System.arraycopy(cellStart, 0, pos, 0, nTotal);
+			}
+			for(int i=1;i<=nElement;i++) {
+				int off = (i-1)*2*dim;
+				for(int a=0;a<dim;a++) {
+					lo[a] = cellIndex(a, box[off+a]);
+					hi[a] = cellIndex(a, box[off+dim+a]);
+				}
+				int[] idx = lo.clone();
+				while(true) {
+					int c = linearIndex(idx);
+					if(pass == 0)
+						cellStart[c+1]++;
+					else
+						cellItems[pos[c]++] = i;
+					//下一个桶
+					int a = 0;
+					while(a < dim) {
+						if(idx[a] < hi[a]) {
+							idx[a]++;
+							break;
+						}
+						idx[a] = lo[a];
+						a++;
+					}
+					if(a == dim) break;
+				}
+			}
+		}
+	}
+
+	protected int cellIndex(int a, double c) {
+		int k = (int)Math.floor((c-min[a])/cellSize[a]);
+		if(k < 0) return 0;
+		if(k >= nCell[a]) return nCell[a]-1;
+		return k;
+	}
+
+	protected int linearIndex(int[] idx) {
+		int c = 0;
+		for(int a=dim-1;a>=0;a--)
+			c = c*nCell[a] + idx[a];
+		return c;
+	}
+
+	/**
+	 * Number of elements when the locator was built
+	 */
+	public int size() {
+		return nElement;
+	}
+
+	/**
+	 * 获取包含该坐标点的单元，与顺序扫描单元列表的结果相同（返回位置最小的单元）
+	 *
+	 * @param coord
+	 * @return null if not found
+	 */
+	public Element getElementByCoord(double[] coord) {
+		if(nElement == 0) return null;
+		if(linearScan) {
+			for(int i=1;i<=nElement;i++) {
+				Element e = eList.at(i);
+				if(e.isCoordInElement(coord))
+					return e;
+			}
+			return null;
+		}
+		int c = 0;
+		for(int a=dim-1;a>=0;a--) {
+			double x = a < coord.length ? coord[a] : 0.0;
+			if(x < min[a] || x > max[a])
+				return null;
+			c = c*nCell[a] + cellIndex(a, x);
+		}
+		for(int k=cellStart[c];k<cellStart[c+1];k++) {
+			Element e = eList.at(cellItems[k]);
+			if(e.isCoordInElement(coord))
+				return e;
+		}
+		return null;
+	}
+
+	/**
+	 * 从单元<tt>hint</tt>开始查找：先检查<tt>hint</tt>及其相邻单元，再查找整个网格。
+	 * 连续查找相邻的点时（例如按结点顺序在两个网格间插值），大多数点在前两步就能找到。
+	 * 相邻单元需要事先调用Mesh.computeNeighborElements()，否则只检查<tt>hint</tt>。
+	 *
+	 * 注意：点在多个单元的公共边界上时，返回的单元可能与getElementByCoord(coord)不同
+	 *
+	 * @param coord
+	 * @param hint
+	 * @return
+	 */
+	public Element getElementByCoord(double[] coord, Element hint) {
+		if(hint != null) {
+			if(hint.isCoordInElement(coord))
+				return hint;
+			ElementList nbs = hint.neighbors;
+			for(int i=1;i<=nbs.size();i++) {
+				if(nbs.at(i).isCoordInElement(coord))
+					return nbs.at(i);
+			}
+		}
+		return getElementByCoord(coord);
+	}
+}
@@ -1,26 +1,32 @@
 package edu.uta.futureye.core;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import edu.uta.futureye.algebra.SparseVectorHashMap;
 import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.algebra.solver.Ordering;
+import edu.uta.futureye.core.geometry.GeoEntity0D;
 import edu.uta.futureye.function.Variable;
 import edu.uta.futureye.function.intf.Function;
 import edu.uta.futureye.tutorial.Tools;
 import edu.uta.futureye.util.Constant;
 import edu.uta.futureye.util.FutureyeException;
-import edu.uta.futureye.util.MultiKey;
 import edu.uta.futureye.util.Utils;
+import edu.uta.futureye.util.container.DOFList;
 import edu.uta.futureye.util.container.EdgeList;
 import edu.uta.futureye.util.container.ElementList;
 import edu.uta.futureye.util.container.FaceList;
 import edu.uta.futureye.util.container.NodeList;
 import edu.uta.futureye.util.container.ObjIndex;
 import edu.uta.futureye.util.container.ObjList;
+import edu.uta.futureye.util.container.VertexList;
 
 public class Mesh {
 	//Mesh name
@@ -38,6 +44,9 @@ public class Mesh {
 	//Global face list
 	protected FaceList faceList = null;
 	
+	//Global faces on the boundary, see getBoundaryFaces()
+	protected FaceList boundaryFaceList = null;
+	
 	//Total number of vertices on a mesh
 	public int nVertex = 0;
 	
@@ -46,6 +55,15 @@ public class Mesh {
 	//by its coordinates
 	protected Map<NodeType, Function> mapNTF;
 	
+	//Point locator of elements, see getElementByCoord()
+	protected ElementLocator locator = null;
+	
+	//Hashed node coordinates, see containNode() and getNodeByCoord()
+	protected NodeLocator nodeLocator = null;
+	
+	//Compact connectivity arrays, built by computeNodeBelongsToElements()
+	protected MeshArrays meshArrays = null;
+	
 	public boolean debug = false;
 	
 	public EdgeList getEdgeList() {
@@ -60,6 +78,7 @@ public class Mesh {
 	}
 	public void setFacelist(FaceList facelist) {
 		this.faceList = facelist;
+		this.boundaryFaceList = null;
 	}
 
 	//Global volume list
@@ -83,10 +102,14 @@ public class Mesh {
 	public void addElement(Element e) {
 		eleList.add(e);
 		e.globalIndex = eleList.size();
+		clearElementLocator();
 	}
 	public void clearAll() {
 		nodeList.clear();
 		eleList.clear();
+		clearElementLocator();
+		clearNodeLocator();
+		meshArrays = null;
 	}
 	
 	/**
@@ -107,15 +130,20 @@ public class Mesh {
 //				System.out.println(String.format("%.1f", 100.0*i/nodeList.size())+"%");
 //		}
 		
-		//New algorithm
+		//单元列表可能已经改变（例如网格加密）
+		clearElementLocator();
+		
+		//结点-单元关系由MeshArrays的计数排序得到，不需要逐个查找重复的单元
+		meshArrays = new MeshArrays(this);
+		int[][] n2e = meshArrays.getNodeElements();
 		for(int i=1;i<=nodeList.size();i++) {
-			nodeList.at(i).clearBelongToElements();
-		}
-		for(int i=1;i<=eleList.size();i++) {
-			Element e = eleList.at(i);
-			for(int j=1;j<=e.nodes.size();j++) {
-				e.nodes.at(j).addBelongToElements(e);
-			}
+			Node node = nodeList.at(i);
+			if(node.belongToElements == null)
+				node.belongToElements = new ElementList();
+			else
+				node.belongToElements.clear();
+			for(int k=n2e[0][i-1];k<n2e[0][i];k++)
+				node.belongToElements.add(eleList.at(n2e[1][k]+1));
 		}
 		if(debug)
 			System.out.println("computeNodesBelongToElement done!");
@@ -232,24 +260,14 @@ public class Mesh {
 	
 	
 	/**
-	 * 判断网格是否包含结点node
+	 * 判断网格是否包含结点node（坐标之差不超过Constant.meshEps），
+	 * 结点坐标按NodeLocator分桶，只检查node附近的结点
+	 * 
 	 * @param node
 	 * @return null if not contains the node
 	 */
 	public Node containNode(Node node) {
-		for(int i=1;i<=nodeList.size();i++) {
-			int nDim = node.dim();
-			boolean same = true;
-			for(int j=1;j<=nDim;j++) {
-				if(Math.abs(node.coord(j)-nodeList.at(i).coord(j)) > Constant.meshEps) {
-					same = false;
-					break;
-				}
-			}
-			if(same) 
-				return nodeList.at(i);
-		}
-		return null;
+		return getNodeLocator().getNodeByCoord(node.coords(), node.dim(), Constant.meshEps);
 	}
 	
 	/**
@@ -259,19 +277,30 @@ public class Mesh {
 	 * @return
 	 */
 	public Node getNodeByCoord(double[] coord, double threshold) {
-		for(int i=1;i<=nodeList.size();i++) {
-			int nDim = nodeList.at(1).dim();
-			boolean same = true;
-			for(int j=1;j<=nDim;j++) {
-				if(Math.abs(coord[j-1]-nodeList.at(i).coord(j)) > threshold) {
-					same = false;
-					break;
-				}
-			}
-			if(same)
-				return nodeList.at(i);
-		}
-		return null;
+		if(nodeList.size() == 0)
+			return null;
+		return getNodeLocator().getNodeByCoord(coord, nodeList.at(1).dim(), threshold);
+	}
+	
+	/**
+	 * Hashed node coordinates, built on first use. Nodes appended to the node list
+	 * (e.g. by Refiner) are added on the next call.
+	 */
+	public synchronized NodeLocator getNodeLocator() {
+		if(nodeLocator == null || nodeLocator.getNodeList() != nodeList ||
+				nodeLocator.size() > nodeList.size() ||
+				nodeLocator.getCellSize() != Constant.meshEps)
+			nodeLocator = new NodeLocator(nodeList);
+		else
+			nodeLocator.update();
+		return nodeLocator;
+	}
+	
+	/**
+	 * 结点列表中的结点被替换、重新排列或者结点坐标改变后调用，下一次查找时重新构造NodeLocator
+	 */
+	public synchronized void clearNodeLocator() {
+		nodeLocator = null;
 	}
 	
 	public Element getElementByNodes(NodeList nodes) {
@@ -293,25 +322,64 @@ public class Mesh {
 	}
 	
 	/**
-	 * 获取包含该坐标点的单元（二维）
+	 * 获取包含该坐标点的单元（二维、三维）
+	 * 
+	 * 第一次调用时构造单元包围盒的均匀网格(ElementLocator)，之后每次查找只检查
+	 * 坐标点附近的单元，结果与顺序扫描单元列表相同
+	 * 
 	 * @param coord
-	 * @return
+	 * @return null if not found
 	 */
 	public Element getElementByCoord(double[] coord) {
-		Node node = new Node(2);
-		node.set(0, coord);
-		for(int i=1;i<=eleList.size();i++) {
-			Element e = eleList.at(i);
-			if(e.isCoordInElement(coord))
-				return e;
-		}
-		return null;
+		return getElementLocator().getElementByCoord(coord);
+	}
+	
+	/**
+	 * 获取包含该坐标点的单元，先检查单元<tt>hint</tt>及其相邻单元
+	 * 
+	 * @param coord
+	 * @param hint 例如上一个查找到的单元，可以为null
+	 * @return null if not found
+	 */
+	public Element getElementByCoord(double[] coord, Element hint) {
+		return getElementLocator().getElementByCoord(coord, hint);
+	}
+	
+	/**
+	 * Point locator of the elements, built on first use
+	 */
+	public synchronized ElementLocator getElementLocator() {
+		if(locator == null || locator.size() != eleList.size())
+			locator = new ElementLocator(eleList);
+		return locator;
+	}
+	
+	/**
+	 * 单元列表改变后（增加、删除单元，网格加密）调用，下一次查找时重新构造ElementLocator
+	 */
+	public synchronized void clearElementLocator() {
+		locator = null;
+	}
+	
+	/**
+	 * Compact connectivity arrays of the mesh, built by computeNodeBelongsToElements()
+	 * 
+	 * @return
+	 */
+	public MeshArrays getMeshArrays() {
+		if(meshArrays == null || meshArrays.getNodeNumber() != nodeList.size() ||
+				meshArrays.getElementNumber() != eleList.size())
+			meshArrays = new MeshArrays(this);
+		return meshArrays;
 	}
 	
 	/**
 	 * Compute neighbor nodes of a node
 	 * 计算相邻结点
 	 * 
+	 * 2011-11-20 增加是否包含边的判断，可以正确处理四边形单元、六面体单元：
+	 * 结点j是结点i的相邻结点，当且仅当包含结点i的单元中有从i到j的边，参见MeshArrays.getNodeNeighbors()
+	 * 
 	 * Depends:
 	 *   computeNodesBelongToElement()
 	 * 
@@ -320,6 +388,7 @@ public class Mesh {
 		for(int i=1;i<=nodeList.size();i++) {
 			nodeList.at(i).clearNeighbors();
 		}
+		int[][] nbs = getMeshArrays().getNodeNeighbors();
 		for(int i=1;i<=nodeList.size();i++) {
 			Node node = nodeList.at(i);
 			if(node.belongToElements==null || node.belongToElements.size()==0) {
@@ -328,17 +397,10 @@ public class Mesh {
 				return;
 			}
 			else {
-				ElementList eList = node.belongToElements;
-				for(int j=1;j<=eList.size();j++) {
-					Element e = eList.at(j);
-					for(int k=1;k<=e.nodes.size();k++) {
-						Node nbNode = e.nodes.at(k);
-						if(nbNode.globalIndex != node.globalIndex && 
-								//2011-11-20 增加是否包含边的判断，可以正确处理四边形单元、六面体单元
-								e.containsEdge(node, nbNode))
-							node.addNeighbors(nbNode);
-					}
-				}
+				if(node.neighbors == null)
+					node.neighbors = new NodeList();
+				for(int k=nbs[0][i-1];k<nbs[0][i];k++)
+					node.neighbors.add(nodeList.at(nbs[1][k]+1));
 			}
 		}
 	}
@@ -357,22 +419,25 @@ public class Mesh {
 		for(int i=1;i<=eleList.size();i++) {
 			eleList.at(i).neighbors.clear();
 		}
+		MeshArrays ma = getMeshArrays();
+		int[][] n2e = ma.getNodeElements();
+		int[][] nbs = computeNeighborElementArrays(ma);
+		//按结点顺序加入相邻单元，与逐个结点比较单元的顺序相同
 		for(int i=1;i<=nodeList.size();i++) {
 			Node node = nodeList.at(i);
-			if(node.belongToElements.size()==0) {
+			if(node.belongToElements==null || node.belongToElements.size()==0) {
 				Exception e = new Exception("Call computeNodesBelongToElement() first!");
 				e.printStackTrace();
 				return;
 			}
 			else {
-				ElementList eList = node.belongToElements;
-				for(int j=1;j<=eList.size();j++) {
-					for(int k=1;k<=eList.size();k++) {
-						Element e1 = eList.at(j);
-						Element e2 = eList.at(k);
-						if(e1.equals(e2))
-							continue;
-						if(isNeighbor(e1,e2)) {
+				for(int j=n2e[0][i-1];j<n2e[0][i];j++) {
+					int ej = n2e[1][j];
+					for(int k=n2e[0][i-1];k<n2e[0][i];k++) {
+						int ek = n2e[1][k];
+						if(ej != ek && Arrays.binarySearch(nbs[1], nbs[0][ej], nbs[0][ej+1], ek) >= 0) {
+							Element e1 = eleList.at(ej+1);
+							Element e2 = eleList.at(ek+1);
 							e1.addNeighborElement(e2);
 							e2.addNeighborElement(e1);
 						}
@@ -383,78 +448,231 @@ public class Mesh {
 		
 	}
 	
+	/**
+	 * 相邻单元（下标从0开始，每行升序）：
+	 * 1.有相同边（两个顶点相同）的两个单元相邻，由全局边（MeshArrays.getEdgeTopology()，
+	 *   与computeGlobalEdge()共用）得到，不需要比较对象；
+	 * 2.其他有公共结点的单元对，只有两个单元都有未匹配的边（只属于一个单元的边）时
+	 *   才可能有部分重合的边（例如hanging node两侧的单元），此时才由坐标数组判断
+	 *   （MeshArrays.isNeighbor()，与isNeighbor()相同）。
+	 * 三维网格中边界以外的边至少属于两个单元，非协调网格（三维的hanging node）的部分重合的面
+	 * 不一定有未匹配的边，因此三维只支持协调网格，此时与逐个调用isNeighbor()的结果相同。
+	 * 
+	 * @return {ptr, nbs}
+	 */
+	protected int[][] computeNeighborElementArrays(MeshArrays ma) {
+		int nEle = eleList.size();
+		int[][] n2e = ma.getNodeElements();
+		int[][] e2n = ma.getElementNodes();
+		int[][] ee = ma.getElementEdges();
+		MeshTopology edges = ma.getEdgeTopology();
+		int[][] g2e = edges.getGroupOwners(ee[0]);
+		int[] edgeGroup = edges.getGroups();
+
+		//单元是否有未匹配的边：按不同的单元计数（三维单元的每条边在Element.edges()中出现两次），
+		//没有边的单元与原来一样逐个判断
+		boolean[] open = new boolean[nEle];
+		for(int e=0;e<nEle;e++) {
+			if(ee[0][e] == ee[0][e+1])
+				open[e] = true;
+			for(int k=ee[0][e];k<ee[0][e+1] && !open[e];k++) {
+				int g = edgeGroup[k];
+				if(g2e[0][g+1]-g2e[0][g] == 1)
+					open[e] = true;
+			}
+		}
+
+		//相邻的单元对(e1,e2)，e1<e2
+		int[] pairs = new int[Math.max(16, 4*nEle)];
+		int nPair = 0;
+		for(int g=0;g<edges.size();g++) {
+			for(int a=g2e[0][g];a<g2e[0][g+1];a++) {
+				for(int b=a+1;b<g2e[0][g+1];b++) {
+					if(nPair*2+2 > pairs.length)
+						pairs = Arrays.copyOf(pairs, pairs.length*2);
+					pairs[2*nPair] = g2e[1][a];
+					pairs[2*nPair+1] = g2e[1][b];
+					nPair++;
+				}
+			}
+		}
+		int[][] shared = pairsToArrays(pairs, nPair, nEle);
+
+		int[] mark = new int[nEle];
+		Arrays.fill(mark, -1);
+		for(int e1=0;e1<nEle;e1++) {
+			if(!open[e1])
+				continue;
+			for(int k=shared[0][e1];k<shared[0][e1+1];k++)
+				mark[shared[1][k]] = e1;
+			for(int m=e2n[0][e1];m<e2n[0][e1+1];m++) {
+				int node = e2n[1][m];
+				for(int k=n2e[0][node];k<n2e[0][node+1];k++) {
+					int e2 = n2e[1][k];
+					if(e2 <= e1 || mark[e2] == e1 || !open[e2])
+						continue;
+					mark[e2] = e1;
+					if(ma.isNeighbor(e1, e2)) {
+						if(nPair*2+2 > pairs.length)
+							pairs = Arrays.copyOf(pairs, pairs.length*2);
+						pairs[2*nPair] = e1;
+						pairs[2*nPair+1] = e2;
+						nPair++;
+					}
+				}
+			}
+		}
+		return pairsToArrays(pairs, nPair, nEle);
+	}
+	
+	/**
+	 * 单元对(e1,e2)转换为相邻单元数组（每行升序，去掉重复的单元对）
+	 * 
+	 * @return {ptr, nbs}
+	 */
+	private static int[][] pairsToArrays(int[] pairs, int nPair, int nEle) {
+		int[] cnt = new int[nEle+1];
+		for(int p=0;p<nPair;p++) {
+			cnt[pairs[2*p]+1]++;
+			cnt[pairs[2*p+1]+1]++;
+		}
+		for(int e=0;e<nEle;e++)
+			cnt[e+1] += cnt[e];
+		int[] nbs = new int[cnt[nEle]];
+		int[] fill = Arrays.copyOf(cnt, nEle);
+		for(int p=0;p<nPair;p++) {
+			int e1 = pairs[2*p], e2 = pairs[2*p+1];
+			nbs[fill[e1]++] = e2;
+			nbs[fill[e2]++] = e1;
+		}
+		int[] ptr = new int[nEle+1];
+		int n = 0;
+		for(int e=0;e<nEle;e++) {
+			Arrays.sort(nbs, cnt[e], cnt[e+1]);
+			for(int k=cnt[e];k<cnt[e+1];k++)
+				if(k == cnt[e] || nbs[k] != nbs[k-1])
+					nbs[n++] = nbs[k];
+			ptr[e+1] = n;
+		}
+		return new int[][]{ptr, n == nbs.length ? nbs : Arrays.copyOf(nbs, n)};
+	}
+	
 	/**
 	 * Compute global edges in grid
 	 * 计算网格包含的全局边
 	 * 
+	 * 局部边按两个顶点的编号分组（MeshArrays.getEdgeTopology()，与computeNeighborElements()共用），
+	 * 全局边按第一次出现的顺序编号
+	 * 
 	 */
 	public void computeGlobalEdge() {
-		Map<MultiKey, Edge> map = new HashMap<MultiKey, Edge>();
+		List<EdgeLocal> allEdges = new ArrayList<EdgeLocal>();
 		for(int i=1;i<=eleList.size();i++) {
 			Element e = eleList.at(i);
 			ObjList<EdgeLocal> localEdges = e.edges();//单元e的局部边列表
-			for(int j=1;j<=localEdges.size();j++) {
-				EdgeLocal localEdge = localEdges.at(j);//局部边
-				MultiKey mkey = new MultiKey(
-								localEdge.getVertices().at(1).globalNode().globalIndex,
-								localEdge.getVertices().at(2).globalNode().globalIndex
-						);
-				Edge globalEdge = map.get(mkey);
-				if(globalEdge == null) {
-					globalEdge = localEdge.buildEdge();
-					map.put(mkey, globalEdge);
-				}
-				//update global edge
-				localEdge.globalEdge = globalEdge;
-			}
+			for(int j=1;j<=localEdges.size();j++)
+				allEdges.add(localEdges.at(j));//局部边
 		}
+		MeshArrays ma = getMeshArrays();
+		if(!isCurrent(ma, allEdges, null, ma.getElementEdges()[1]))
+			ma = meshArrays = new MeshArrays(this);
+		int[] group = ma.getEdgeTopology().getGroups();
 		//为mesh.edgeList（全局边）赋值，并加全局边索引（编号）
 		this.edgeList = new EdgeList();
-		int globalIndex = 1;
-		for(Entry<MultiKey, Edge> entry : map.entrySet()) {
-			//globalIndex：全局边索引（编号）
-			//globalIndex: Global index of Global edges
-			entry.getValue().setGlobalIndex(globalIndex++);
-			this.edgeList.add(entry.getValue());
+		Edge[] globalEdges = new Edge[ma.getEdgeTopology().size()];
+		for(int k=0;k<group.length;k++) {
+			EdgeLocal localEdge = allEdges.get(k);
+			Edge globalEdge = globalEdges[group[k]];
+			if(globalEdge == null) {
+				globalEdge = localEdge.buildEdge();
+				//globalIndex：全局边索引（编号）
+				//globalIndex: Global index of Global edges
+				globalEdge.setGlobalIndex(group[k]+1);
+				this.edgeList.add(globalEdge);
+				globalEdges[group[k]] = globalEdge;
+			}
+			//update global edge
+			localEdge.globalEdge = globalEdge;
+		}
+	}
+	
+	/**
+	 * MeshArrays中单元的边（面）是否与单元对象的局部边（面）相同，
+	 * 不同时（构造MeshArrays之后网格改变，但结点数和单元数没有变）需要重新构造MeshArrays
+	 * 
+	 * @param ptr 第k个边（面）的顶点为verts[ptr[k]...ptr[k+1]-1]，null表示每个边两个顶点
+	 */
+	private static boolean isCurrent(MeshArrays ma, List<? extends GeoEntity0D> entities, 
+			int[] ptr, int[] verts) {
+		if(entities.size() != (ptr == null ? verts.length/2 : ptr.length-1))
+			return false;
+		for(int k=0;k<entities.size();k++) {
+			VertexList vs = entities.get(k).getVertices();
+			int start = ptr == null ? 2*k : ptr[k];
+			int end = ptr == null ? 2*k+2 : ptr[k+1];
+			if(vs.size() != end-start)
+				return false;
+			for(int j=start;j<end;j++)
+				if(vs.at(j-start+1).globalNode() != ma.node(verts[j]+1))
+					return false;
 		}
+		return true;
 	}
 	
 	/**
 	 * Compute global faces in grid
 	 * 计算网格包含的全局面
 	 * 
+	 * 局部面按顶点的编号（不考虑顺序）分组（MeshArrays.getFaceTopology()），全局面按第一次出现的顺序编号，
+	 * 只属于一个单元的全局面为边界面，参见getBoundaryFaces()
+	 * 
 	 */
 	public void computeGlobalFace() {
-		Map<Set<Integer>, Face> map = new HashMap<Set<Integer>, Face>();
+		List<FaceLocal> allFaces = new ArrayList<FaceLocal>();
 		for(int i=1;i<=eleList.size();i++) {
 			Element e = eleList.at(i);
-			//遍历局部面，利用HashMap做face的剔重判断，得到全局面
 			ObjList<FaceLocal> localFaces = e.faces();
-			for(int j=1; j<=localFaces.size(); j++) {
-				FaceLocal localFace = localFaces.at(j);
-				Set<Integer> nodeSet = new HashSet<Integer>();
-				ObjList<Vertex> vertices = localFace.getVertices();
-				for(int n=1;n<=vertices.size();n++) {
-					nodeSet.add(vertices.at(n).globalNode().globalIndex);
-				}
-				Face gobalFace = map.get(nodeSet);
-				if(gobalFace == null) {
-					gobalFace = localFace.buildFace();
-					map.put(nodeSet, gobalFace);
-				}
-				//update global edge
-				localFace.globalFace = gobalFace;
-			}
+			for(int j=1; j<=localFaces.size(); j++)
+				allFaces.add(localFaces.at(j));
 		}
+		MeshArrays ma = getMeshArrays();
+		int[][] ef = ma.getElementFaces();
+		if(!isCurrent(ma, allFaces, ef[1], ef[2]))
+			ma = meshArrays = new MeshArrays(this);
+		MeshTopology topo = ma.getFaceTopology();
+		int[] group = topo.getGroups();
 		//为mesh.faceList（全局面）赋值，并加全局面索引（编号）
 		this.faceList = new FaceList();
-		int globalIndex = 1;
-		for(Entry<Set<Integer>, Face> entry : map.entrySet()) {
-			//globalIndex：全局面索引（编号）
-			//globalIndex: Global index of Global faces
-			entry.getValue().setGlobalIndex(globalIndex++);
-			this.faceList.add(entry.getValue());
+		Face[] globalFaces = new Face[topo.size()];
+		for(int k=0;k<group.length;k++) {
+			FaceLocal localFace = allFaces.get(k);
+			Face globalFace = globalFaces[group[k]];
+			if(globalFace == null) {
+				globalFace = localFace.buildFace();
+				//globalIndex：全局面索引（编号）
+				//globalIndex: Global index of Global faces
+				globalFace.setGlobalIndex(group[k]+1);
+				this.faceList.add(globalFace);
+				globalFaces[group[k]] = globalFace;
+			}
+			//update global face
+			localFace.globalFace = globalFace;
 		}
+		this.boundaryFaceList = new FaceList();
+		for(int g : topo.getUnmatched())
+			this.boundaryFaceList.add(globalFaces[g]);
+	}
+	
+	/**
+	 * 边界面：只属于一个单元的全局面（三维网格的边界，或者非协调网格中未匹配的面）
+	 * 
+	 * Depends:
+	 *   computeGlobalFace()
+	 * 
+	 * @return
+	 */
+	public FaceList getBoundaryFaces() {
+		return boundaryFaceList;
 	}
 	
 	/**
@@ -489,6 +707,102 @@ public class Mesh {
 		return false;
 	}
 	
+	/**
+	 * 结点图：同一单元中的任意两个结点相邻，与标量有限元刚度矩阵的非零元素结构相同。
+	 * 结点nodeList.at(i)对应图中的结点i-1，邻居为adj[adjPtr[i-1]...adjPtr[i]-1]（下标从0开始），
+	 * 可以直接用于Ordering中的排序方法，例如：
+	 *   int[] perm = Ordering.reverseCuthillMcKee(mesh.getNodeGraph());
+	 *   mesh.renumberNodes(perm);
+	 * 
+	 * @return {adjPtr, adj}
+	 */
+	public int[][] getNodeGraph() {
+		int n = nodeList.size();
+		checkNodeIndex();
+		int[] Ap = new int[n+1];
+		for(int i=1;i<=eleList.size();i++) {
+			NodeList nodes = eleList.at(i).nodes;
+			for(int j=1;j<=nodes.size();j++)
+				Ap[nodes.at(j).globalIndex] += nodes.size()-1;
+		}
+		for(int i=0;i<n;i++)
+			Ap[i+1] += Ap[i];
+		int[] pos = new int[n];
+		System.arraycopy(Ap, 0, pos, 0, n);
+		int[] Ai = new int[Ap[n]];
+		for(int i=1;i<=eleList.size();i++) {
+			NodeList nodes = eleList.at(i).nodes;
+			for(int j=1;j<=nodes.size();j++) {
+				int col = nodes.at(j).globalIndex-1;
+				for(int k=1;k<=nodes.size();k++)
+					if(k != j)
+						Ai[pos[col]++] = nodes.at(k).globalIndex-1;
+			}
+		}
+		//去掉重复的邻居
+		return Ordering.symmetricGraph(n, Ap, Ai);
+	}
+	
+	/**
+	 * 按排列<tt>perm</tt>重新编号结点：原编号为perm[k]+1的结点的新编号为k+1，
+	 * 结点列表按新编号重新排列（nodeList.at(k+1).globalIndex==k+1）。
+	 * 
+	 * 注意：
+	 * 1.应在读入网格后、分配有限元自由度和计算其他网格关系之前调用，
+	 *   已经分配的自由度可以用renumberDOFs()更新；
+	 * 2.Node.hashCode()使用globalIndex，以结点为键的HashMap/HashSet需要重新建立；
+	 * 3.重新编号后顶点不一定排在其他结点之前（nVertex）。
+	 * 
+	 * @param perm 下标从0开始，例如Ordering.reverseCuthillMcKee(getNodeGraph())
+	 */
+	public void renumberNodes(int[] perm) {
+		int n = nodeList.size();
+		if(perm.length != n)
+			throw new FutureyeException("perm.length("+perm.length+") != nodeList.size("+n+")");
+		checkNodeIndex();
+		Ordering.checkPermutation(perm);
+		Node[] nodes = new Node[n];
+		for(int i=1;i<=n;i++)
+			nodes[i-1] = nodeList.at(i);
+		for(int k=0;k<n;k++) {
+			Node node = nodes[perm[k]];
+			node.globalIndex = k+1;
+			nodeList.set(k+1, node);
+		}
+		clearNodeLocator();
+		meshArrays = null;
+	}
+	
+	/**
+	 * 按排列<tt>perm</tt>更新所有单元自由度的全局编号：原编号为perm[k]+1的自由度的新编号为k+1，
+	 * 编号大于perm.length的自由度不改变。
+	 * 标量结点型有限元（自由度编号等于结点编号）使用与renumberNodes()相同的排列。
+	 * 
+	 * @param perm 下标从0开始
+	 */
+	public void renumberDOFs(int[] perm) {
+		int[] pinv = Ordering.inverse(perm);
+		//不同单元可能共用同一个DOF对象，每个对象只更新一次
+		Set<DOF> done = Collections.newSetFromMap(new IdentityHashMap<DOF, Boolean>());
+		for(int i=1;i<=eleList.size();i++) {
+			DOFList dofs = eleList.at(i).getAllDOFList(DOFOrder.NEFV);
+			for(int j=1;j<=dofs.size();j++) {
+				DOF dof = dofs.at(j);
+				int g = dof.getGlobalIndex();
+				if(g >= 1 && g <= perm.length && done.add(dof))
+					dof.setGlobalIndex(pinv[g-1]+1);
+			}
+		}
+	}
+	
+	protected void checkNodeIndex() {
+		for(int i=1;i<=nodeList.size();i++) {
+			if(nodeList.at(i).globalIndex != i)
+				throw new FutureyeException("Node list is not ordered by globalIndex: "+
+						"nodeList.at("+i+").globalIndex="+nodeList.at(i).globalIndex);
+		}
+	}
+	
 	/**
 	 * Copy a mesh
 	 */
@@ -503,6 +817,10 @@ public class Mesh {
 			newMesh.faceList = new FaceList();
 			newMesh.faceList.addAll(faceList);
 		}
+		if(boundaryFaceList != null) {
+			newMesh.boundaryFaceList = new FaceList();
+			newMesh.boundaryFaceList.addAll(boundaryFaceList);
+		}
 		newMesh.eleList.addAll(eleList);
 		return newMesh;
 	}
@@ -517,6 +835,7 @@ public class Mesh {
 		this.nodeList = mesh.nodeList;
 		this.edgeList = mesh.edgeList;
 		this.faceList = mesh.faceList;
+		this.boundaryFaceList = mesh.boundaryFaceList;
 		this.eleList = mesh.eleList;
 		this.nVertex = mesh.nVertex;
 		this.mapNTF = mesh.mapNTF;
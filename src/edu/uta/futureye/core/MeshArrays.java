@@ -0,0 +1,583 @@
+package edu.uta.futureye.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.uta.futureye.core.geometry.GeoEntity0D;
+import edu.uta.futureye.core.geometry.topology.HexahedronTp;
+import edu.uta.futureye.core.geometry.topology.RectangleTp;
+import edu.uta.futureye.core.geometry.topology.TetrahedronTp;
+import edu.uta.futureye.core.geometry.topology.Topology3D;
+import edu.uta.futureye.core.geometry.topology.TriangleTp;
+import edu.uta.futureye.util.Constant;
+import edu.uta.futureye.util.FutureyeException;
+import edu.uta.futureye.util.container.ElementList;
+import edu.uta.futureye.util.container.NodeList;
+import edu.uta.futureye.util.container.ObjList;
+import edu.uta.futureye.util.container.VertexList;
+
+/**
+ * <blockquote><pre>
+ * Compact (struct-of-arrays) storage of mesh nodes, elements and connectivity
+ *
+ * 结点坐标、单元结点、单元的边以及结点-单元、结点-结点的邻接关系都保存在一维数组中（CSR格式，下标从0开始）：
+ *   coords[i*dim+a]                        结点i的第a+1个坐标
+ *   eleNodes[eleNodePtr[e]...eleNodePtr[e+1]-1]  单元e的结点（与Element.nodes的顺序相同）
+ *   eleEdges[2*k],eleEdges[2*k+1], k=eleEdgePtr[e]...eleEdgePtr[e+1]-1
+ *                                          单元e的有向边（Element.edges()中边的两个顶点）
+ *   faceVerts[faceVertPtr[k]...faceVertPtr[k+1]-1], k=eleFacePtr[e]...eleFacePtr[e+1]-1
+ *                                          三维单元e的面的顶点（Element.faces()）
+ *   nodeEles[nodeElePtr[i]...nodeElePtr[i+1]-1]  包含结点i的单元（升序）
+ *   nodeNbs[nodeNbPtr[i]...nodeNbPtr[i+1]-1]     结点i的相邻结点（与Mesh.computeNeighborNodes()相同）
+ * 单元的边和面由单元结点和每种单元的局部边（面）表（localEdges()、localFaces()）得到，
+ * 邻接关系第一次使用时由计数排序计算，不需要对象比较和查找。
+ *
+ * 结点、单元对象（Node、Element）是数组的视图：由Mesh构造时直接使用网格的结点和单元列表，
+ * 由数组构造时（例如百万单元的三维网格）只在调用node()、element()时才创建，
+ * 只需要拓扑关系的计算不需要创建任何对象。
+ *
+ * Mesh.computeNodeBelongsToElements()构造当前网格的MeshArrays，
+ * Mesh.computeNeighborNodes()和Mesh.computeNeighborElements()使用其中的邻接关系，
+ * 网格改变（例如加密）后需要重新调用Mesh.computeNodeBelongsToElements()。
+ *
+ * Usage:
+ *   MeshArrays ma = new MeshArrays(3, coords, eleNodePtr, eleNodes);
+ *   int[][] n2e = ma.getNodeElements(); //{nodeElePtr, nodeEles}
+ *   Mesh mesh = ma.toMesh();
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class MeshArrays {
+	protected int dim;
+	protected int nNode;
+	protected int nEle;
+	protected double[] coords;
+	protected int[] eleNodePtr;
+	protected int[] eleNodes;
+	//单元的有向边，null表示还没有计算
+	protected int[] eleEdgePtr;
+	protected int[] eleEdges;
+	//三维单元的面，null表示还没有计算
+	protected int[] eleFacePtr;
+	protected int[] faceVertPtr;
+	protected int[] faceVerts;
+	//全局边、面（单元的边、面按顶点分组），null表示还没有计算
+	protected MeshTopology edgeTopology;
+	protected MeshTopology faceTopology;
+	//结点-单元
+	protected int[] nodeElePtr;
+	protected int[] nodeEles;
+	//结点-结点
+	protected int[] nodeNbPtr;
+	protected int[] nodeNbs;
+
+	//由Mesh构造时为网格的结点和单元列表，由数组构造时为null
+	protected NodeList nodeList;
+	protected ElementList eleList;
+	//由数组构造时的对象视图，null表示还没有创建
+	protected Node[] nodes;
+	protected Element[] elements;
+
+	//单元的局部边、面：单元结点的位置（下标从0开始），与Element.buildElement()的拓扑结构相同
+	private static final int[][] NONE = new int[0][];
+	private static final int[][] TRIANGLE_EDGES = toLocal(TriangleTp.edges);
+	private static final int[][] RECTANGLE_EDGES = toLocal(RectangleTp.edges);
+	private static final int[][] TETRAHEDRON_EDGES = faceEdges(new TetrahedronTp());
+	private static final int[][] TETRAHEDRON_FACES = toLocal(TetrahedronTp.faces);
+	private static final int[][] HEXAHEDRON_EDGES = faceEdges(new HexahedronTp());
+	private static final int[][] HEXAHEDRON_FACES = toLocal(HexahedronTp.faces);
+
+	/**
+	 * 由坐标和单元结点构造，结点和单元对象在使用时才创建
+	 *
+	 * @param dim 坐标维数
+	 * @param coords 长度为结点数*dim
+	 * @param eleNodePtr 长度为单元数+1
+	 * @param eleNodes 结点编号，下标从0开始
+	 */
+	public MeshArrays(int dim, double[] coords, int[] eleNodePtr, int[] eleNodes) {
+		if(coords.length % dim != 0)
+			throw new FutureyeException("MeshArrays: coords.length="+coords.length+", dim="+dim);
+		this.dim = dim;
+		this.nNode = coords.length/dim;
+		this.nEle = eleNodePtr.length-1;
+		this.coords = coords;
+		this.eleNodePtr = eleNodePtr;
+		this.eleNodes = eleNodes;
+		for(int k=0;k<eleNodePtr[nEle];k++) {
+			if(eleNodes[k] < 0 || eleNodes[k] >= nNode)
+				throw new FutureyeException("MeshArrays: node index "+eleNodes[k]+" out of [0,"+nNode+")");
+		}
+	}
+
+	/**
+	 * 由网格中的结点和单元对象构造。结点编号：nodeList中的位置
+	 * （Node.equals()相同的结点为同一结点）
+	 *
+	 * @param mesh
+	 */
+	public MeshArrays(Mesh mesh) {
+		this.nodeList = mesh.getNodeList();
+		this.eleList = mesh.getElementList();
+		this.nNode = nodeList.size();
+		this.nEle = eleList.size();
+		this.dim = nNode > 0 ? nodeList.at(1).dim() : 0;
+
+		//结点对象 -> 编号：globalIndex与位置一致时直接使用globalIndex
+		Map<Node,Integer> nodeIndex = null;
+		for(int i=1;i<=nNode && nodeIndex==null;i++) {
+			if(nodeList.at(i).globalIndex != i) {
+				nodeIndex = new HashMap<Node,Integer>();
+				for(int k=nNode;k>=1;k--)
+					nodeIndex.put(nodeList.at(k), k-1);
+			}
+		}
+
+		this.coords = new double[nNode*dim];
+		for(int i=0;i<nNode;i++) {
+			Node node = nodeList.at(i+1);
+			for(int a=0;a<dim && a<node.dim();a++)
+				coords[i*dim+a] = node.coord(a+1);
+		}
+
+		this.eleNodePtr = new int[nEle+1];
+		for(int e=0;e<nEle;e++)
+			eleNodePtr[e+1] = eleNodePtr[e]+eleList.at(e+1).nodes.size();
+		this.eleNodes = new int[eleNodePtr[nEle]];
+		for(int e=0;e<nEle;e++) {
+			NodeList eNodes = eleList.at(e+1).nodes;
+			for(int j=1;j<=eNodes.size();j++)
+				eleNodes[eleNodePtr[e]+j-1] = indexOf(nodeIndex, eNodes.at(j));
+		}
+	}
+
+	private int indexOf(Map<Node,Integer> nodeIndex, Node node) {
+		if(nodeIndex == null) {
+			int i = node.globalIndex-1;
+			if(i >= 0 && i < nNode)
+				return i;
+		} else {
+			Integer i = nodeIndex.get(node);
+			if(i != null)
+				return i;
+		}
+		throw new FutureyeException("MeshArrays: "+node+" is not in the node list");
+	}
+
+	/**
+	 * 拓扑结构中的顶点编号（下标从1开始）转换为单元结点的位置（下标从0开始）
+	 */
+	private static int[][] toLocal(int[][] tp) {
+		int[][] local = new int[tp.length][];
+		for(int k=0;k<tp.length;k++) {
+			local[k] = new int[tp[k].length];
+			for(int j=0;j<tp[k].length;j++)
+				local[k][j] = tp[k][j]-1;
+		}
+		return local;
+	}
+
+	/**
+	 * 三维单元的边：按面的顺序列出每个面上的边（Topology3D.edgeOnface()），与Element.edges()相同
+	 */
+	private static int[][] faceEdges(Topology3D topo) {
+		int[][] faces = topo.getFaces();
+		int[][] edges = topo.getEdges();
+		int n = 0;
+		int[][] tp = new int[faces.length*edges.length][];
+		for(int k=0;k<faces.length;k++)
+			for(int i=0;i<edges.length;i++)
+				if(topo.edgeOnface(faces[k], edges[i]))
+					tp[n++] = edges[i];
+		return toLocal(Arrays.copyOf(tp, n));
+	}
+
+	/**
+	 * 单元的局部有向边，与Element.edges()的顺序相同
+	 *
+	 * @param eleDim 单元维数
+	 * @param n 单元结点数
+	 * @return 每条边两个顶点在单元结点中的位置（下标从0开始），null表示没有对应的表
+	 */
+	public static int[][] localEdges(int eleDim, int n) {
+		if(eleDim < 2)
+			return NONE;
+		if(eleDim == 2) {
+			if(n == 3 || n == 6) return TRIANGLE_EDGES;
+			if(n == 4) return RECTANGLE_EDGES;
+		} else if(eleDim == 3) {
+			if(n == 4) return TETRAHEDRON_EDGES;
+			if(n == 8) return HEXAHEDRON_EDGES;
+		}
+		return null;
+	}
+
+	/**
+	 * 三维单元的局部面，与Element.faces()的顺序相同，其他单元没有面
+	 *
+	 * @param eleDim 单元维数
+	 * @param n 单元结点数
+	 * @return 每个面的顶点在单元结点中的位置（下标从0开始），null表示没有对应的表
+	 */
+	public static int[][] localFaces(int eleDim, int n) {
+		if(eleDim != 3)
+			return NONE;
+		if(n == 4) return TETRAHEDRON_FACES;
+		if(n == 8) return HEXAHEDRON_FACES;
+		return null;
+	}
+
+	/**
+	 * 单元维数：由数组构造的单元与结点的维数相同（Element.buildElement()）
+	 */
+	private int elementDim(int e) {
+		return eleList == null ? dim : eleList.at(e+1).dim();
+	}
+
+	/**
+	 * 没有局部边（面）表的单元（例如由GeoEntity构造的单元），由单元对象得到每个边（面）的顶点位置
+	 */
+	private int[][] objectLocal(int e, boolean faces) {
+		Element ele = element(e+1);
+		ObjList<? extends GeoEntity0D> entities = faces ? ele.faces() : ele.edges();
+		int[][] local = new int[entities.size()][];
+		for(int k=0;k<local.length;k++) {
+			VertexList vs = entities.at(k+1).getVertices();
+			local[k] = new int[vs.size()];
+			for(int j=0;j<vs.size();j++) {
+				Node node = vs.at(j+1).globalNode();
+				int pos = ele.nodes.size()-1;
+				while(pos >= 0 && ele.nodes.at(pos+1) != node)
+					pos--;
+				if(pos < 0)
+					throw new FutureyeException("MeshArrays: "+node+" is not a node of element "+(e+1));
+				local[k][j] = pos;
+			}
+		}
+		return local;
+	}
+
+	public int getDim() {
+		return dim;
+	}
+
+	public int getNodeNumber() {
+		return nNode;
+	}
+
+	public int getElementNumber() {
+		return nEle;
+	}
+
+	public double[] getCoords() {
+		return coords;
+	}
+
+	/**
+	 * @return {eleNodePtr, eleNodes}
+	 */
+	public int[][] getElementNodes() {
+		return new int[][]{eleNodePtr, eleNodes};
+	}
+
+	/**
+	 * Node-to-element adjacency, elements of each node are in ascending order
+	 *
+	 * @return {nodeElePtr, nodeEles}
+	 */
+	public synchronized int[][] getNodeElements() {
+		if(nodeElePtr == null) {
+			int[] ptr = new int[nNode+1];
+			//mark[i]==e: 结点i已经计入单元e（单元中重复的结点只计一次）
+			int[] mark = new int[nNode];
+			Arrays.fill(mark, -1);
+			for(int e=0;e<nEle;e++) {
+				for(int k=eleNodePtr[e];k<eleNodePtr[e+1];k++) {
+					int i = eleNodes[k];
+					if(mark[i] != e) {
+						mark[i] = e;
+						ptr[i+1]++;
+					}
+				}
+			}
+			for(int i=0;i<nNode;i++)
+				ptr[i+1] += ptr[i];
+			int[] idx = new int[ptr[nNode]];
+			int[] fill = Arrays.copyOf(ptr, nNode);
+			Arrays.fill(mark, -1);
+			for(int e=0;e<nEle;e++) {
+				for(int k=eleNodePtr[e];k<eleNodePtr[e+1];k++) {
+					int i = eleNodes[k];
+					if(mark[i] != e) {
+						mark[i] = e;
+						idx[fill[i]++] = e;
+					}
+				}
+			}
+			nodeElePtr = ptr;
+			nodeEles = idx;
+		}
+		return new int[][]{nodeElePtr, nodeEles};
+	}
+
+	/**
+	 * Node-to-node adjacency: 结点j是结点i的相邻结点，当且仅当包含结点i的某个单元中
+	 * 有从i到j的有向边。顺序与Mesh.computeNeighborNodes()相同：
+	 * 按包含结点i的单元的顺序，每个单元内按单元结点的顺序
+	 *
+	 * @return {nodeNbPtr, nodeNbs}
+	 */
+	public synchronized int[][] getNodeNeighbors() {
+		if(nodeNbPtr == null) {
+			if(eleEdgePtr == null)
+				computeElementEdges();
+			int[][] n2e = getNodeElements();
+			int[] ptr = new int[nNode+1];
+			int[] idx = new int[Math.max(16, eleEdges.length)];
+			int[] mark = new int[nNode];
+			Arrays.fill(mark, -1);
+			int nnz = 0;
+			for(int i=0;i<nNode;i++) {
+				ptr[i] = nnz;
+				for(int k=n2e[0][i];k<n2e[0][i+1];k++) {
+					int e = n2e[1][k];
+					for(int m=eleNodePtr[e];m<eleNodePtr[e+1];m++) {
+						int j = eleNodes[m];
+						if(j == i || mark[j] == i || !hasEdge(e, i, j))
+							continue;
+						mark[j] = i;
+						if(nnz == idx.length)
+							idx = Arrays.copyOf(idx, 2*nnz);
+						idx[nnz++] = j;
+					}
+				}
+			}
+			ptr[nNode] = nnz;
+			nodeNbPtr = ptr;
+			nodeNbs = Arrays.copyOf(idx, nnz);
+		}
+		return new int[][]{nodeNbPtr, nodeNbs};
+	}
+
+	/**
+	 * 单元e是否有从结点i到结点j的有向边
+	 */
+	public boolean hasEdge(int e, int i, int j) {
+		if(eleEdgePtr == null)
+			computeElementEdges();
+		for(int k=eleEdgePtr[e];k<eleEdgePtr[e+1];k++) {
+			if(eleEdges[2*k] == i && eleEdges[2*k+1] == j)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 单元的有向边，与Element.edges()的顺序相同（三维单元每个面的边都列出，公共边出现两次）
+	 *
+	 * @return {eleEdgePtr, eleEdges}
+	 */
+	public int[][] getElementEdges() {
+		if(eleEdgePtr == null)
+			computeElementEdges();
+		return new int[][]{eleEdgePtr, eleEdges};
+	}
+
+	/**
+	 * 三维单元的面的顶点，与Element.faces()的顺序相同，其他单元没有面
+	 *
+	 * @return {eleFacePtr, faceVertPtr, faceVerts}
+	 */
+	public synchronized int[][] getElementFaces() {
+		if(eleFacePtr == null) {
+			int[] ptr = new int[nEle+1];
+			int[] vPtr = new int[Math.max(16, eleNodePtr[nEle]+1)];
+			int[] verts = new int[Math.max(16, 4*eleNodePtr[nEle])];
+			int nFace = 0;
+			for(int e=0;e<nEle;e++) {
+				int p = eleNodePtr[e];
+				int[][] local = localFaces(elementDim(e), eleNodePtr[e+1]-p);
+				if(local == null)
+					local = objectLocal(e, true);
+				for(int j=0;j<local.length;j++) {
+					if(nFace+2 > vPtr.length)
+						vPtr = Arrays.copyOf(vPtr, 2*vPtr.length);
+					if(vPtr[nFace]+local[j].length > verts.length)
+						verts = Arrays.copyOf(verts, 2*(vPtr[nFace]+local[j].length));
+					for(int n=0;n<local[j].length;n++)
+						verts[vPtr[nFace]+n] = eleNodes[p+local[j][n]];
+					vPtr[nFace+1] = vPtr[nFace]+local[j].length;
+					nFace++;
+				}
+				ptr[e+1] = nFace;
+			}
+			faceVertPtr = Arrays.copyOf(vPtr, nFace+1);
+			faceVerts = Arrays.copyOf(verts, vPtr[nFace]);
+			eleFacePtr = ptr;
+		}
+		return new int[][]{eleFacePtr, faceVertPtr, faceVerts};
+	}
+
+	/**
+	 * 单元的边（getElementEdges()）按顶点分组得到的全局边，
+	 * Mesh.computeGlobalEdge()和Mesh.computeNeighborElements()共用
+	 *
+	 * @return
+	 */
+	public synchronized MeshTopology getEdgeTopology() {
+		if(edgeTopology == null)
+			edgeTopology = MeshTopology.edges(getElementEdges()[1], nNode);
+		return edgeTopology;
+	}
+
+	/**
+	 * 三维单元的面（getElementFaces()）按顶点分组得到的全局面，Mesh.computeGlobalFace()使用
+	 *
+	 * @return
+	 */
+	public synchronized MeshTopology getFaceTopology() {
+		if(faceTopology == null) {
+			int[][] ef = getElementFaces();
+			faceTopology = MeshTopology.faces(ef[1], ef[2], nNode);
+		}
+		return faceTopology;
+	}
+
+	/**
+	 * 单元的边由单元结点和局部边表得到，不需要创建单元对象
+	 */
+	protected synchronized void computeElementEdges() {
+		if(eleEdgePtr != null) return;
+		int[] ptr = new int[nEle+1];
+		int[] edges = new int[Math.max(16, 4*eleNodePtr[nEle])];
+		int nEdge = 0;
+		for(int e=0;e<nEle;e++) {
+			int p = eleNodePtr[e];
+			int[][] local = localEdges(elementDim(e), eleNodePtr[e+1]-p);
+			if(local == null)
+				local = objectLocal(e, false);
+			if(2*(nEdge+local.length) > edges.length)
+				edges = Arrays.copyOf(edges, Math.max(2*edges.length, 2*(nEdge+local.length)));
+			for(int j=0;j<local.length;j++) {
+				edges[2*nEdge] = eleNodes[p+local[j][0]];
+				edges[2*nEdge+1] = eleNodes[p+local[j][1]];
+				nEdge++;
+			}
+			ptr[e+1] = nEdge;
+		}
+		eleEdges = Arrays.copyOf(edges, 2*nEdge);
+		eleEdgePtr = ptr;
+	}
+
+	/**
+	 * 单元e1和e2（下标从0开始）是否相邻：有一对边部分或全部重合（例如hanging node两侧的单元），
+	 * 与Mesh.isNeighbor()的判断相同（Utils.isLineOverlap()），只使用坐标数组
+	 *
+	 * @param e1
+	 * @param e2
+	 * @return
+	 */
+	public boolean isNeighbor(int e1, int e2) {
+		if(eleEdgePtr == null)
+			computeElementEdges();
+		for(int a=eleEdgePtr[e1];a<eleEdgePtr[e1+1];a++) {
+			int a1 = eleEdges[2*a], a2 = eleEdges[2*a+1];
+			for(int b=eleEdgePtr[e2];b<eleEdgePtr[e2+1];b++) {
+				int b1 = eleEdges[2*b], b2 = eleEdges[2*b+1];
+				if((coordEquals(a1, b1) && coordEquals(a2, b2)) ||
+						(coordEquals(a2, b1) && coordEquals(a1, b2)) ||
+						isOnSegment(a1, a2, b1) || isOnSegment(a1, a2, b2) ||
+						isOnSegment(b1, b2, a1) || isOnSegment(b1, b2, a2))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 与Node.coordEquals()相同
+	 */
+	private boolean coordEquals(int i, int j) {
+		for(int a=0;a<dim;a++)
+			if(Math.abs(coords[i*dim+a]-coords[j*dim+a]) > Constant.meshEps)
+				return false;
+		return true;
+	}
+
+	/**
+	 * 结点p是否在线段(p1,p2)上（不包括端点），与Utils.isPointOnLineSegmentNoEndingPoint()相同：
+	 * p->p1和p->p2的夹角（前两个坐标）为pi
+	 */
+	private boolean isOnSegment(int p1, int p2, int p) {
+		if(coordEquals(p1, p) || coordEquals(p2, p))
+			return false;
+		double x1 = coords[p1*dim]-coords[p*dim], y1 = coords[p1*dim+1]-coords[p*dim+1];
+		double x2 = coords[p2*dim]-coords[p*dim], y2 = coords[p2*dim+1]-coords[p*dim+1];
+		double v = (x1*x2+y1*y2)/(Math.sqrt(x1*x1+y1*y1)*Math.sqrt(x2*x2+y2*y2));
+		if(v > 1.0) v = 1.0;
+		else if(v < -1.0) v = -1.0;
+		return Math.abs(Math.acos(v)-Math.PI) < Constant.meshEps;
+	}
+
+	/**
+	 * 结点对象视图：由Mesh构造时为网格中的结点，由数组构造时第一次调用时创建（globalIndex==i）
+	 *
+	 * @param i 下标从1开始
+	 * @return
+	 */
+	public synchronized Node node(int i) {
+		if(nodeList != null)
+			return nodeList.at(i);
+		if(nodes == null)
+			nodes = new Node[nNode];
+		Node node = nodes[i-1];
+		if(node == null) {
+			double[] c = new double[dim-1];
+			System.arraycopy(coords, (i-1)*dim+1, c, 0, dim-1);
+			node = new Node(i, coords[(i-1)*dim], c);
+			nodes[i-1] = node;
+		}
+		return node;
+	}
+
+	/**
+	 * 单元对象视图：由Mesh构造时为网格中的单元，由数组构造时第一次调用时由结点视图创建（globalIndex==e）
+	 *
+	 * @param e 下标从1开始
+	 * @return
+	 */
+	public synchronized Element element(int e) {
+		if(eleList != null)
+			return eleList.at(e);
+		if(elements == null)
+			elements = new Element[nEle];
+		Element ele = elements[e-1];
+		if(ele == null) {
+			NodeList eNodes = new NodeList();
+			for(int k=eleNodePtr[e-1];k<eleNodePtr[e];k++)
+				eNodes.add(node(eleNodes[k]+1));
+			ele = new Element(eNodes);
+			ele.globalIndex = e;
+			elements[e-1] = ele;
+		}
+		return ele;
+	}
+
+	/**
+	 * 创建所有结点和单元的视图，构造网格对象
+	 *
+	 * @return
+	 */
+	public Mesh toMesh() {
+		Mesh mesh = new Mesh();
+		for(int i=1;i<=nNode;i++)
+			mesh.addNode(node(i));
+		for(int e=1;e<=nEle;e++)
+			mesh.addElement(element(e));
+		mesh.nVertex = nNode;
+		return mesh;
+	}
+}
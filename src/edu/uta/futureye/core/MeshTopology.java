@@ -0,0 +1,230 @@
+package edu.uta.futureye.core;
+
+import java.util.Arrays;
+
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Global edges and faces by sorting vertex tuples
+ *
+ * 每条局部边（面）用顶点编号的元组表示，元组内按升序排列（不足width个顶点的面用range补齐），
+ * 所有元组按列做计数排序（基数排序，每列O(n+range)），相同的元组排在一起，
+ * 即为同一条全局边（面）。不需要为每个局部边（面）创建MultiKey或HashSet作为HashMap的键。
+ *
+ * 全局边（面）按第一次出现的顺序编号（下标从0开始）：
+ *   getGroups()[k]  第k个元组所属的全局边（面）
+ *   getCounts()[g]  全局边（面）g出现的次数，
+ *                   对于二维单元的边、三维单元的面，1表示边界（或者非协调的）边（面），参见getUnmatched()
+ * 三维单元的每条边在Element.edges()中出现两次（每个面列出一次），
+ * 属于几个单元需要由getGroupOwners()按不同的单元计数。
+ *
+ * Usage:
+ *   int[][] ee = meshArrays.getElementEdges(); //{eleEdgePtr, eleEdges}
+ *   MeshTopology edges = meshArrays.getEdgeTopology();
+ *   int[][] g2e = edges.getGroupOwners(ee[0]); //包含每条全局边的单元
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class MeshTopology {
+	protected int width;
+	protected int nTuple;
+	protected int nGroup;
+	//每个元组所属的组，按第一次出现的顺序编号
+	protected int[] group;
+	//每组的元组个数
+	protected int[] count;
+
+	/**
+	 * @param tuples 长度为元组个数*width，每个元组内已经按升序排列
+	 * @param width
+	 * @param range 元组中的值属于[0,range]
+	 */
+	public MeshTopology(int[] tuples, int width, int range) {
+		if(tuples.length % width != 0)
+			throw new FutureyeException("MeshTopology: tuples.length="+tuples.length+", width="+width);
+		this.width = width;
+		this.nTuple = tuples.length/width;
+		int[] perm = sortTuples(tuples, width, range);
+
+		//排序后相邻的相同元组为一组，组的临时编号为排序后的顺序
+		int[] tmp = new int[nTuple];
+		int nTmp = 0;
+		for(int p=0;p<nTuple;p++) {
+			if(p > 0 && !equals(tuples, perm[p-1], perm[p]))
+				nTmp++;
+			tmp[perm[p]] = nTmp;
+		}
+		if(nTuple > 0) nTmp++;
+
+		//按第一次出现的顺序重新编号
+		int[] map = new int[nTmp];
+		Arrays.fill(map, -1);
+		this.group = new int[nTuple];
+		this.count = new int[nTmp];
+		this.nGroup = 0;
+		for(int k=0;k<nTuple;k++) {
+			int t = tmp[k];
+			if(map[t] < 0)
+				map[t] = nGroup++;
+			group[k] = map[t];
+			count[map[t]]++;
+		}
+	}
+
+	/**
+	 * 边的两个顶点（有向边，下标从0开始）
+	 *
+	 * @param edges edges[2*k],edges[2*k+1]为第k条边的两个顶点
+	 * @param nNode 顶点编号属于[0,nNode)
+	 * @return
+	 */
+	public static MeshTopology edges(int[] edges, int nNode) {
+		int[] tuples = new int[edges.length];
+		for(int k=0;k<edges.length;k+=2) {
+			tuples[k] = Math.min(edges[k], edges[k+1]);
+			tuples[k+1] = Math.max(edges[k], edges[k+1]);
+		}
+		return new MeshTopology(tuples, 2, nNode);
+	}
+
+	/**
+	 * 面的顶点（下标从0开始），顶点相同（不考虑顺序）的面为同一个面
+	 *
+	 * @param facePtr 第k个面的顶点为faceVerts[facePtr[k]...facePtr[k+1]-1]
+	 * @param faceVerts
+	 * @param nNode 顶点编号属于[0,nNode)
+	 * @return
+	 */
+	public static MeshTopology faces(int[] facePtr, int[] faceVerts, int nNode) {
+		int nFace = facePtr.length-1;
+		int width = 1;
+		for(int k=0;k<nFace;k++)
+			width = Math.max(width, facePtr[k+1]-facePtr[k]);
+		int[] tuples = new int[nFace*width];
+		Arrays.fill(tuples, nNode);
+		for(int k=0;k<nFace;k++) {
+			System.arraycopy(faceVerts, facePtr[k], tuples, k*width, facePtr[k+1]-facePtr[k]);
+			Arrays.sort(tuples, k*width, k*width+facePtr[k+1]-facePtr[k]);
+		}
+		return new MeshTopology(tuples, width, nNode);
+	}
+
+	/**
+	 * 元组按字典序排列（稳定），从最后一列到第一列逐列计数排序
+	 *
+	 * @param tuples
+	 * @param width
+	 * @param range 元组中的值属于[0,range]
+	 * @return perm 排序后第p个元组为tuples中的第perm[p]个元组
+	 */
+	public static int[] sortTuples(int[] tuples, int width, int range) {
+		int n = tuples.length/width;
+		int[] perm = new int[n];
+		for(int k=0;k<n;k++)
+			perm[k] = k;
+		int[] next = new int[n];
+		int[] cnt = new int[range+2];
+		for(int c=width-1;c>=0;c--) {
+			Arrays.fill(cnt, 0);
+			for(int k=0;k<n;k++) {
+				int v = tuples[k*width+c];
+				if(v < 0 || v > range)
+					throw new FutureyeException("MeshTopology: value "+v+" out of [0,"+range+"]");
+				cnt[v+1]++;
+			}
+			for(int v=0;v<=range;v++)
+				cnt[v+1] += cnt[v];
+			for(int p=0;p<n;p++) {
+				int k = perm[p];
+				next[cnt[tuples[k*width+c]]++] = k;
+			}
+			int[] t = perm; perm = next; next = t;
+		}
+		return perm;
+	}
+
+	private boolean equals(int[] tuples, int k1, int k2) {
+		for(int c=0;c<width;c++)
+			if(tuples[k1*width+c] != tuples[k2*width+c])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Number of global edges (faces)
+	 */
+	public int size() {
+		return nGroup;
+	}
+
+	/**
+	 * @return 每个元组所属的全局边（面），下标从0开始
+	 */
+	public int[] getGroups() {
+		return group;
+	}
+
+	/**
+	 * @return 每个全局边（面）出现的次数
+	 */
+	public int[] getCounts() {
+		return count;
+	}
+
+	/**
+	 * 只出现一次的全局边（面），对于三维单元的面即为边界面（或者非协调的面）
+	 *
+	 * @return 升序，下标从0开始
+	 */
+	public int[] getUnmatched() {
+		int n = 0;
+		for(int g=0;g<nGroup;g++)
+			if(count[g] == 1) n++;
+		int[] rlt = new int[n];
+		n = 0;
+		for(int g=0;g<nGroup;g++)
+			if(count[g] == 1) rlt[n++] = g;
+		return rlt;
+	}
+
+	/**
+	 * 包含每个全局边（面）的单元（升序，不重复）
+	 *
+	 * @param ownerPtr 第e个单元的元组为ownerPtr[e]...ownerPtr[e+1]-1
+	 * @return {groupPtr, owners}
+	 */
+	public int[][] getGroupOwners(int[] ownerPtr) {
+		int nOwner = ownerPtr.length-1;
+		int[] ptr = new int[nGroup+1];
+		//mark[g]==e: 全局边（面）g已经计入单元e
+		int[] mark = new int[nGroup];
+		Arrays.fill(mark, -1);
+		for(int e=0;e<nOwner;e++) {
+			for(int k=ownerPtr[e];k<ownerPtr[e+1];k++) {
+				int g = group[k];
+				if(mark[g] != e) {
+					mark[g] = e;
+					ptr[g+1]++;
+				}
+			}
+		}
+		for(int g=0;g<nGroup;g++)
+			ptr[g+1] += ptr[g];
+		int[] owners = new int[ptr[nGroup]];
+		int[] fill = Arrays.copyOf(ptr, nGroup);
+		Arrays.fill(mark, -1);
+		for(int e=0;e<nOwner;e++) {
+			for(int k=ownerPtr[e];k<ownerPtr[e+1];k++) {
+				int g = group[k];
+				if(mark[g] != e) {
+					mark[g] = e;
+					owners[fill[g]++] = e;
+				}
+			}
+		}
+		return new int[][]{ptr, owners};
+	}
+}
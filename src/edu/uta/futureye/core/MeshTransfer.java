@@ -0,0 +1,443 @@
+package edu.uta.futureye.core;
+
+import java.lang.ref.WeakReference;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.FullVector;
+import edu.uta.futureye.algebra.SparseMatrixCSR;
+import edu.uta.futureye.algebra.SparseVectorHashMap;
+import edu.uta.futureye.algebra.intf.AlgebraMatrix;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.algebra.solver.Solver;
+import edu.uta.futureye.core.geometry.Point;
+import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.intf.Function;
+import edu.uta.futureye.function.operator.QuadratureRule;
+import edu.uta.futureye.util.FutureyeException;
+import edu.uta.futureye.util.Utils;
+import edu.uta.futureye.util.container.ElementList;
+import edu.uta.futureye.util.container.NodeList;
+
+/**
+ * <blockquote><pre>
+ * Transfer operator of nodal vectors between two meshes
+ *
+ * 结点向量从网格from到网格to的转移算子，构造时完成所有点定位和形函数求值，
+ * 结果保存为稀疏矩阵，之后每次转移只需要一次稀疏矩阵向量乘法：
+ *
+ * 1. 结点插值（injection）
+ *   u_to[i] = \sum_j P_ij*u_from[j]
+ *   P的第i行是网格to的第i个结点在网格from中所在单元上的插值系数
+ *
+ * 2. L2投影
+ *   M*u_to = B*u_from
+ *   M_ik = (\phi_k, \phi_i)  网格to上的质量矩阵
+ *   B_ij = (\psi_j, \phi_i)  \psi_j网格from上的基函数，在网格to的单元上数值积分
+ *
+ * 基函数：三角形、四面体单元为线性函数，四边形单元为f(x,y)=a1+a2*x+a3*y+a4*x*y，
+ * 与Vector2Function的插值相同。
+ *
+ * 不在网格from中的点（结点或积分点）记录下来，转移时用默认函数求值，参见apply(Vector, Function)
+ *
+ * Usage:
+ *   MeshTransfer t = new MeshTransfer(oldMesh, newMesh);
+ *   Vector uNew = t.apply(uOld);
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class MeshTransfer {
+	//算子可以保存在静态缓存中（参见Tools.getMeshTransfer()），不能阻止网格被回收
+	protected WeakReference<Mesh> from;
+	protected WeakReference<Mesh> to;
+	//构造时网格的指纹，参见fingerprint()
+	protected long fromStamp;
+	protected long toStamp;
+	protected boolean l2Projection;
+	protected int nFromNode;
+	protected int nToNode;
+	protected int nToElement;
+	protected int dim;
+
+	//P (injection) or B (L2 projection)
+	protected SparseMatrixCSR transfer;
+
+	//Points outside mesh 'from': contribute outWeight[k]*default(outCoord[k]) to row outRow[k]
+	protected int nOut = 0;
+	protected int[] outRow = new int[16];
+	protected double[] outWeight = new double[16];
+	protected double[][] outCoord = new double[16][];
+
+	//L2 projection: mass matrix on mesh 'to'
+	protected SparseMatrixCSR mass;
+	protected AlgebraMatrix algMass;
+	protected Solver solver;
+
+	/**
+	 * Nodal injection from mesh <tt>from</tt> to mesh <tt>to</tt>
+	 *
+	 * @param from
+	 * @param to
+	 */
+	public MeshTransfer(Mesh from, Mesh to) {
+		this(from, to, false);
+	}
+
+	/**
+	 * @param from
+	 * @param to
+	 * @param l2Projection true: L2 projection, false: nodal injection
+	 */
+	public MeshTransfer(Mesh from, Mesh to, boolean l2Projection) {
+		this.from = new WeakReference<Mesh>(from);
+		this.to = new WeakReference<Mesh>(to);
+		this.fromStamp = fingerprint(from);
+		this.toStamp = fingerprint(to);
+		this.l2Projection = l2Projection;
+		this.nFromNode = from.getNodeList().size();
+		this.nToNode = to.getNodeList().size();
+		this.nToElement = to.getElementList().size();
+		this.dim = to.getNodeList().at(1).dim();
+		this.transfer = new SparseMatrixCSR(nToNode, nFromNode);
+		if(l2Projection)
+			buildL2Projection(from, to);
+		else
+			buildInjection(from, to);
+		this.transfer.compress();
+	}
+
+	protected void buildInjection(Mesh from, Mesh to) {
+		NodeList nodes = to.getNodeList();
+		double[] w = new double[8];
+		double[] coord = new double[dim];
+		Element hint = null;
+		for(int i=1;i<=nToNode;i++) {
+			Node node = nodes.at(i);
+			for(int a=0;a<dim;a++)
+				coord[a] = node.coord(a+1);
+			Element e = from.getElementByCoord(coord, hint);
+			if(e == null) {
+				addOutside(i, 1.0, coord);
+				continue;
+			}
+			hint = e;
+			shapeValues(e, coord, w);
+			for(int j=1;j<=e.nodes.size();j++)
+				transfer.add(i, e.nodes.at(j).globalIndex, w[j-1]);
+		}
+	}
+
+	protected void buildL2Projection(Mesh from, Mesh to) {
+		mass = new SparseMatrixCSR(nToNode, nToNode);
+		ElementList eList = to.getElementList();
+		double[] phi = new double[8];
+		double[] psi = new double[8];
+		double[] coord = new double[dim];
+		double[][] vc = new double[4][];
+		Element hint = null;
+		for(int n=1;n<=nToElement;n++) {
+			Element e = eList.at(n);
+			NodeList nl = e.nodes;
+			int nNode = nl.size();
+			//积分区域分解为单纯形：三角形、四边形分为两个三角形、四面体
+			int[][] simplices;
+			QuadratureRule rule;
+			if(dim == 2 && nNode == 3) {
+				simplices = new int[][]{{0,1,2}};
+				rule = QuadratureRule.triangle(5);
+			} else if(dim == 2 && nNode == 4) {
+				simplices = new int[][]{{0,1,2},{0,2,3}};
+				rule = QuadratureRule.triangle(5);
+			} else if(dim == 3 && nNode == 4) {
+				simplices = new int[][]{{0,1,2,3}};
+				rule = QuadratureRule.tetrahedra(2);
+			} else
+				throw new FutureyeException("MeshTransfer: unsupported element "+e);
+			String[] names = rule.getVarNames();
+			double[] weights = rule.getWeights();
+			double wSum = 0.0;
+			for(int q=0;q<weights.length;q++)
+				wSum += weights[q];
+			for(int[] simplex : simplices) {
+				for(int k=0;k<simplex.length;k++) {
+					Node node = nl.at(simplex[k]+1);
+					vc[k] = new double[dim];
+					for(int a=0;a<dim;a++)
+						vc[k][a] = node.coord(a+1);
+				}
+				double meas = simplexMeasure(vc, simplex.length);
+				for(int q=0;q<weights.length;q++) {
+					//重心坐标 -> 物理坐标
+					for(int a=0;a<dim;a++) {
+						double c = 0.0;
+						for(int k=0;k<simplex.length;k++)
+							c += rule.getCoords(names[k])[q]*vc[k][a];
+						coord[a] = c;
+					}
+					//权重按单纯形的面积（体积）归一化
+					double wq = weights[q]/wSum*meas;
+					shapeValues(e, coord, phi);
+					for(int i=0;i<nNode;i++)
+						for(int k=0;k<nNode;k++)
+							mass.add(nl.at(i+1).globalIndex, nl.at(k+1).globalIndex, wq*phi[i]*phi[k]);
+					Element eFrom = from.getElementByCoord(coord, hint);
+					if(eFrom == null) {
+						for(int i=0;i<nNode;i++)
+							addOutside(nl.at(i+1).globalIndex, wq*phi[i], coord);
+						continue;
+					}
+					hint = eFrom;
+					shapeValues(eFrom, coord, psi);
+					for(int i=0;i<nNode;i++) {
+						int row = nl.at(i+1).globalIndex;
+						for(int j=1;j<=eFrom.nodes.size();j++)
+							transfer.add(row, eFrom.nodes.at(j).globalIndex, wq*phi[i]*psi[j-1]);
+					}
+				}
+			}
+		}
+		mass.compress();
+		algMass = new CompressedRowMatrix(mass, false);
+		solver = new Solver();
+		//质量矩阵条件数与网格尺寸无关，CG收敛很快，使用较小的误差限
+		solver.epsRelIter = 1e-12;
+		solver.epsAbsIterMax = 1e-12;
+	}
+
+	protected void addOutside(int row, double weight, double[] coord) {
+		if(nOut == outRow.length) {
+			int len = 2*nOut;
+			int[] r = new int[len];
+			double[] w = new double[len];
+			double[][] c = new double[len][];
+			System.arraycopy(outRow, 0, r, 0, nOut);
+			System.arraycopy(outWeight, 0, w, 0, nOut);
+			System.arraycopy(outCoord, 0, c, 0, nOut);
+			outRow = r;
+			outWeight = w;
+			outCoord = c;
+		}
+		outRow[nOut] = row;
+		outWeight[nOut] = weight;
+		outCoord[nOut] = coord.clone();
+		nOut++;
+	}
+
+	protected static double simplexMeasure(double[][] vc, int n) {
+		if(n == 3) {
+			//三角形面积
+			double ax = vc[1][0]-vc[0][0], ay = vc[1][1]-vc[0][1];
+			double bx = vc[2][0]-vc[0][0], by = vc[2][1]-vc[0][1];
+			return 0.5*Math.abs(ax*by-ay*bx);
+		} else {
+			//四面体体积
+			double[][] d = new double[3][3];
+			for(int k=0;k<3;k++)
+				for(int a=0;a<3;a++)
+					d[k][a] = vc[k+1][a]-vc[0][a];
+			return Math.abs(Utils.determinant(d))/6.0;
+		}
+	}
+
+	/**
+	 * 单元e上各结点基函数在coord处的值：
+	 * 三角形、四面体为重心坐标，四边形为f(x,y)=a1+a2*x+a3*y+a4*x*y型的插值系数
+	 *
+	 * @param e
+	 * @param coord
+	 * @param rlt (O) rlt[j-1] value of the basis function of e.nodes.at(j)
+	 */
+	public static void shapeValues(Element e, double[] coord, double[] rlt) {
+		NodeList nl = e.nodes;
+		int n = nl.size();
+		if(coord.length == 2 && n == 3) {
+			double x1 = nl.at(1).coord(1), y1 = nl.at(1).coord(2);
+			double x2 = nl.at(2).coord(1), y2 = nl.at(2).coord(2);
+			double x3 = nl.at(3).coord(1), y3 = nl.at(3).coord(2);
+			double det = (x2-x1)*(y3-y1)-(x3-x1)*(y2-y1);
+			double l2 = ((coord[0]-x1)*(y3-y1)-(x3-x1)*(coord[1]-y1))/det;
+			double l3 = ((x2-x1)*(coord[1]-y1)-(coord[0]-x1)*(y2-y1))/det;
+			rlt[0] = 1.0-l2-l3;
+			rlt[1] = l2;
+			rlt[2] = l3;
+		} else if(coord.length == 2 && n == 4) {
+			Point[] ps = nl.toArray(new Point[0]);
+			double[] f = new double[4];
+			double xy = coord[0]*coord[1];
+			for(int j=0;j<4;j++) {
+				f[j] = 1.0;
+				double[] a = Utils.computeBilinearFunctionCoef(ps, f);
+				rlt[j] = a[0] + a[1]*coord[0] + a[2]*coord[1] + a[3]*xy;
+				f[j] = 0.0;
+			}
+		} else if(coord.length == 3 && n == 4) {
+			double[][] J = new double[3][3];
+			double[] b = new double[3];
+			for(int a=0;a<3;a++) {
+				double c1 = nl.at(1).coord(a+1);
+				for(int k=0;k<3;k++)
+					J[a][k] = nl.at(k+2).coord(a+1)-c1;
+				b[a] = coord[a]-c1;
+			}
+			//Cramer's rule
+			double det = Utils.determinant(J);
+			double sum = 0.0;
+			for(int k=0;k<3;k++) {
+				double[][] Jk = new double[3][];
+				for(int a=0;a<3;a++) {
+					Jk[a] = J[a].clone();
+					Jk[a][k] = b[a];
+				}
+				rlt[k+1] = Utils.determinant(Jk)/det;
+				sum += rlt[k+1];
+			}
+			rlt[0] = 1.0-sum;
+		} else
+			throw new FutureyeException("MeshTransfer: unsupported element type:"+e);
+	}
+
+	/**
+	 * Check whether meshes <tt>from</tt> and <tt>to</tt> have not been changed
+	 * (e.g. refined or moved) since this operator was built
+	 * 
+	 * 结点和单元个数不变时比较网格的指纹，需要遍历一次结点和单元
+	 */
+	public boolean isValid() {
+		Mesh mFrom = from.get();
+		Mesh mTo = to.get();
+		if(mFrom == null || mTo == null)
+			return false;
+		return mFrom.getNodeList().size() == nFromNode &&
+				mTo.getNodeList().size() == nToNode &&
+				mTo.getElementList().size() == nToElement &&
+				fingerprint(mFrom) == fromStamp &&
+				fingerprint(mTo) == toStamp;
+	}
+
+	/**
+	 * Hash of node coordinates and element connectivity of <tt>mesh</tt>
+	 * 
+	 * 结点坐标或单元的结点编号改变后指纹一般会改变
+	 * 
+	 * @param mesh
+	 * @return
+	 */
+	public static long fingerprint(Mesh mesh) {
+		long h = 17;
+		NodeList nodes = mesh.getNodeList();
+		for(int i=1;i<=nodes.size();i++) {
+			Node node = nodes.at(i);
+			for(int a=1;a<=node.dim();a++)
+				h = 31*h + Double.doubleToLongBits(node.coord(a));
+		}
+		ElementList elements = mesh.getElementList();
+		for(int i=1;i<=elements.size();i++) {
+			NodeList eNodes = elements.at(i).nodes;
+			for(int j=1;j<=eNodes.size();j++)
+				h = 31*h + eNodes.at(j).globalIndex;
+			h = 31*h - 1;
+		}
+		return h;
+	}
+
+	/**
+	 * @return null if mesh <tt>from</tt> has been garbage collected
+	 */
+	public Mesh getFrom() {
+		return from.get();
+	}
+
+	/**
+	 * @return null if mesh <tt>to</tt> has been garbage collected
+	 */
+	public Mesh getTo() {
+		return to.get();
+	}
+
+	public boolean isL2Projection() {
+		return l2Projection;
+	}
+
+	/**
+	 * Injection: interpolation matrix P; L2 projection: B
+	 */
+	public SparseMatrixCSR getMatrix() {
+		return transfer;
+	}
+
+	/**
+	 * Mass matrix on mesh <tt>to</tt>, null for injection
+	 */
+	public SparseMatrixCSR getMassMatrix() {
+		return mass;
+	}
+
+	/**
+	 * Number of points (nodes or quadrature points) outside of mesh <tt>from</tt>
+	 */
+	public int getOutsideNumber() {
+		return nOut;
+	}
+
+	/**
+	 * Transfer <tt>uFrom</tt> defined on nodes of mesh <tt>from</tt>
+	 * to nodes of mesh <tt>to</tt>
+	 *
+	 * @param uFrom
+	 * @return
+	 */
+	public Vector apply(Vector uFrom) {
+		return apply(uFrom, null);
+	}
+
+	/**
+	 * Transfer <tt>uFrom</tt> defined on nodes of mesh <tt>from</tt>
+	 * to nodes of mesh <tt>to</tt>
+	 *
+	 * @param uFrom
+	 * @param defaultFunction values on points outside of mesh <tt>from</tt>
+	 * @return
+	 */
+	public Vector apply(Vector uFrom, Function defaultFunction) {
+		double[] u = new double[nFromNode];
+		for(int j=1;j<=nFromNode;j++)
+			u[j-1] = uFrom.get(j);
+		double[] rlt = new double[nToNode];
+		apply(u, rlt, defaultFunction);
+		Vector v = new SparseVectorHashMap(nToNode);
+		for(int i=1;i<=nToNode;i++)
+			v.set(i, rlt[i-1]);
+		return v;
+	}
+
+	/**
+	 * Transfer with primitive arrays (0-based)
+	 *
+	 * @param uFrom
+	 * @param uTo (O)
+	 * @param defaultFunction
+	 */
+	public void apply(double[] uFrom, double[] uTo, Function defaultFunction) {
+		transfer.mult(uFrom, uTo);
+		if(nOut > 0) {
+			if(defaultFunction == null)
+				throw new FutureyeException(
+						"MeshTransfer: "+nOut+" points are outside of the mesh 'from', "+
+						"please specify a default function");
+			Variable v = new Variable();
+			String[] names = {"x","y","z"};
+			for(int k=0;k<nOut;k++) {
+				for(int a=0;a<dim;a++)
+					v.set(names[a], outCoord[k][a]);
+				uTo[outRow[k]-1] += outWeight[k]*defaultFunction.value(v);
+			}
+		}
+		if(l2Projection) {
+			FullVector b = new FullVector(uTo, true);
+			FullVector x = new FullVector(nToNode);
+			solver.solveCG(algMass, b, x);
+			System.arraycopy(x.getData(), 0, uTo, 0, nToNode);
+		}
+	}
+}
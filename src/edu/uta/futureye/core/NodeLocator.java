@@ -0,0 +1,157 @@
+package edu.uta.futureye.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.uta.futureye.util.Constant;
+import edu.uta.futureye.util.container.NodeList;
+
+/**
+ * <blockquote><pre>
+ * Hashed node coordinates for Mesh.containNode() and Mesh.getNodeByCoord()
+ *
+ * 坐标空间按边长为Constant.meshEps的立方体分桶，只保存包含结点的桶（HashMap），
+ * 每个桶保存结点在结点列表中的位置（升序）。容差为threshold的查找只需要检查坐标点周围
+ * (2*ceil(threshold/cellSize)+1)^dim个桶，返回位置最小的结点，与顺序扫描结点列表的结果相同。
+ * 需要检查的桶比结点还多时（threshold很大）仍然顺序扫描。
+ *
+ * 结点列表只在末尾增加结点时（例如网格加密）不需要重新构造，update()只把新增的结点放入桶中；
+ * 结点重新编号、删除结点或者修改结点坐标后需要重新构造，参见Mesh.clearNodeLocator()
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class NodeLocator {
+	protected NodeList nodeList;
+	protected int dim = 0;
+	protected double cellSize;
+	//已放入桶中的结点数
+	protected int nNode = 0;
+	//桶：cells.get(key)[0]为结点个数，之后为结点的位置(1-based)
+	protected Map<Long, int[]> cells = new HashMap<Long, int[]>();
+
+	public NodeLocator(NodeList nodeList) {
+		this.nodeList = nodeList;
+		this.cellSize = Constant.meshEps;
+		update();
+	}
+
+	/**
+	 * 把结点列表末尾新增的结点放入桶中
+	 */
+	public void update() {
+		int n = nodeList.size();
+		if(n > 0 && dim == 0)
+			dim = nodeList.at(1).dim();
+		long[] idx = new long[dim];
+		for(int i=nNode+1;i<=n;i++) {
+			Node node = nodeList.at(i);
+			for(int a=0;a<dim;a++)
+				idx[a] = cellIndex(a < node.dim() ? node.coord(a+1) : 0.0);
+			Long key = key(idx);
+			int[] items = cells.get(key);
+			if(items == null) {
+				items = new int[3];
+			} else if(items[0]+1 == items.length) {
+				int[] tmp = new int[2*items.length];
+				System.arraycopy(items, 0, tmp, 0, items.length);
+				items = tmp;
+			}
+			items[++items[0]] = i;
+			cells.put(key, items);
+		}
+		nNode = n;
+	}
+
+	/**
+	 * Number of nodes in the buckets
+	 */
+	public int size() {
+		return nNode;
+	}
+
+	public NodeList getNodeList() {
+		return nodeList;
+	}
+
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * 获取前<tt>nDim</tt>个坐标与<tt>coord</tt>的差都不超过<tt>threshold</tt>的结点
+	 *
+	 * @param coord
+	 * @param nDim
+	 * @param threshold
+	 * @return 位置最小的结点，null if not found
+	 */
+	public Node getNodeByCoord(double[] coord, int nDim, double threshold) {
+		if(nNode == 0) return null;
+		long r = (long)Math.ceil(threshold/cellSize);
+		double nCell = Math.pow(2*r+1, dim);
+		if(nDim != dim || !(nCell <= nNode))
+			return linearScan(coord, nDim, threshold);
+
+		long[] lo = new long[dim];
+		long[] idx = new long[dim];
+		for(int a=0;a<dim;a++) {
+			lo[a] = cellIndex(coord[a])-r;
+			idx[a] = lo[a];
+		}
+		int found = Integer.MAX_VALUE;
+		while(true) {
+			int[] items = cells.get(key(idx));
+			if(items != null) {
+				for(int k=1;k<=items[0];k++) {
+					if(items[k] < found && isSame(nodeList.at(items[k]), coord, nDim, threshold))
+						found = items[k];
+				}
+			}
+			//下一个桶
+			int a = 0;
+			while(a < dim) {
+				if(idx[a] < lo[a]+2*r) {
+					idx[a]++;
+					break;
+				}
+				idx[a] = lo[a];
+				a++;
+			}
+			if(a == dim) break;
+		}
+		return found == Integer.MAX_VALUE ? null : nodeList.at(found);
+	}
+
+	protected Node linearScan(double[] coord, int nDim, double threshold) {
+		for(int i=1;i<=nNode;i++) {
+			Node node = nodeList.at(i);
+			if(isSame(node, coord, nDim, threshold))
+				return node;
+		}
+		return null;
+	}
+
+	protected static boolean isSame(Node node, double[] coord, int nDim, double threshold) {
+		for(int j=1;j<=nDim;j++) {
+			if(Math.abs(coord[j-1]-node.coord(j)) > threshold)
+				return false;
+		}
+		return true;
+	}
+
+	protected long cellIndex(double c) {
+		return (long)Math.floor(c/cellSize);
+	}
+
+	/**
+	 * 不同的桶可能得到相同的键，查找时比较结点坐标，不影响结果
+	 */
+	protected static Long key(long[] idx) {
+		long k = 0;
+		for(int a=0;a<idx.length;a++)
+			k = k*0x9E3779B97F4A7C15L + idx[a];
+		return k;
+	}
+}
@@ -1,9 +1,14 @@
 package edu.uta.futureye.core;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 
+import edu.uta.futureye.algebra.CompressedRowMatrix;
 import edu.uta.futureye.util.FutureyeException;
+import edu.uta.futureye.util.MultiKey;
 import edu.uta.futureye.util.container.ElementList;
 import edu.uta.futureye.util.container.NodeList;
 import edu.uta.futureye.util.container.ObjList;
@@ -53,7 +58,12 @@ public class Refiner {
 	
 	public static boolean directRefine(Mesh mesh, ElementList eToRefine) {
 		ElementList oldEleList = mesh.getElementList();
+		NodeList oldNodeList = mesh.getNodeList();
 		int refinedNum = 0;
+		//被加密单元的边（两个端点的全局编号）-> 边中点，相邻单元共用同一个边中点，不需要按坐标查找
+		Map<MultiKey, Node> midpoints = new HashMap<MultiKey, Node>();
+		//单元列表只在末尾增加单元，先统一编号一次，之后只给新增的单元编号
+		numberElements(oldEleList, oldNodeList, 1);
 		
 		for(int i=1;i<=eToRefine.size();i++) {
 			Element e = eToRefine.at(i);
@@ -80,26 +90,9 @@ public class Refiner {
 				Vertex v2 = vList.at(2);
 				Vertex v3 = vList.at(3);
 				
-				Node node4 = new NodeRefined(2);
-				node4.setCoord(1, (v1.coord(1)+v2.coord(1))/2.0);
-				node4.setCoord(2, (v1.coord(2)+v2.coord(2))/2.0);
-				node4.setRefineLevel(e.getLevel()+1);
-				Node tmpNode = mesh.containNode(node4);
-				if(tmpNode != null) node4 = tmpNode;
-				
-				Node node5 = new NodeRefined(2);
-				node5.setCoord(1, (v2.coord(1)+v3.coord(1))/2.0);
-				node5.setCoord(2, (v2.coord(2)+v3.coord(2))/2.0);
-				node5.setRefineLevel(e.getLevel()+1);
-				tmpNode = mesh.containNode(node5);
-				if(tmpNode != null) node5 = tmpNode;
-				
-				Node node6 = new NodeRefined(2);
-				node6.setCoord(1, (v3.coord(1)+v1.coord(1))/2.0);
-				node6.setCoord(2, (v3.coord(2)+v1.coord(2))/2.0);
-				node6.setRefineLevel(e.getLevel()+1);
-				tmpNode = mesh.containNode(node6);
-				if(tmpNode != null) node6 = tmpNode;
+				Node node4 = getMidpoint(mesh, midpoints, e, v1, v2);
+				Node node5 = getMidpoint(mesh, midpoints, e, v2, v3);
+				Node node6 = getMidpoint(mesh, midpoints, e, v3, v1);
 				
 				Node node1 = e.nodes.at(v1.localIndex);
 				Node node2 = e.nodes.at(v2.localIndex);
@@ -156,39 +149,16 @@ public class Refiner {
 				Vertex v3 = vList.at(3);
 				Vertex v4 = vList.at(4);
 				
-				Node node5 = new NodeRefined(2);
-				node5.setCoord(1, (v1.coord(1)+v2.coord(1))/2.0);
-				node5.setCoord(2, (v1.coord(2)+v2.coord(2))/2.0);
-				node5.setRefineLevel(e.getLevel()+1);
-				Node tmpNode = mesh.containNode(node5);
-				if(tmpNode != null) node5 = tmpNode;
-				
-				Node node6 = new NodeRefined(2);
-				node6.setCoord(1, (v2.coord(1)+v3.coord(1))/2.0);
-				node6.setCoord(2, (v2.coord(2)+v3.coord(2))/2.0);
-				node6.setRefineLevel(e.getLevel()+1);
-				tmpNode = mesh.containNode(node6);
-				if(tmpNode != null) node6 = tmpNode;
-				
-				Node node7 = new NodeRefined(2);
-				node7.setCoord(1, (v3.coord(1)+v4.coord(1))/2.0);
-				node7.setCoord(2, (v3.coord(2)+v4.coord(2))/2.0);
-				node7.setRefineLevel(e.getLevel()+1);
-				tmpNode = mesh.containNode(node7);
-				if(tmpNode != null) node7 = tmpNode;
-				
-				Node node8 = new NodeRefined(2);
-				node8.setCoord(1, (v4.coord(1)+v1.coord(1))/2.0);
-				node8.setCoord(2, (v4.coord(2)+v1.coord(2))/2.0);
-				node8.setRefineLevel(e.getLevel()+1);
-				tmpNode = mesh.containNode(node8);
-				if(tmpNode != null) node8 = tmpNode;
+				Node node5 = getMidpoint(mesh, midpoints, e, v1, v2);
+				Node node6 = getMidpoint(mesh, midpoints, e, v2, v3);
+				Node node7 = getMidpoint(mesh, midpoints, e, v3, v4);
+				Node node8 = getMidpoint(mesh, midpoints, e, v4, v1);
 				
 				Node node9 = new NodeRefined(2);
 				node9.setCoord(1, (node5.coord(1)+node7.coord(1))/2.0);
 				node9.setCoord(2, (node5.coord(2)+node7.coord(2))/2.0);
 				node9.setRefineLevel(e.getLevel()+1);
-				tmpNode = mesh.containNode(node9);
+				Node tmpNode = mesh.containNode(node9);
 				if(tmpNode != null) node9 = tmpNode;
 				
 				Node node1 = e.nodes.at(v1.localIndex);
@@ -243,8 +213,6 @@ public class Refiner {
 				ex.printStackTrace();
 			}
 			
-			NodeList oldNodeList = mesh.getNodeList();
-			
 			//单元编号有问题，如果两次加密，会产生重复的单元编号
 			//解决方案：每细化一个单元，整个单元列表都重新编号
 			//结点列表由于只有增加结点，因此保持原方案
@@ -266,29 +234,69 @@ public class Refiner {
 			//细化新增的单元与老单元放入同一个list，按照在列表中存储索引，统一重新编号
 			//注意：此时被细化的父单元还没有删除
 			//此时将新结点加入老结点列表，细化后，不需要删除多余结点
+			int first = oldEleList.size()+1;
 			oldEleList.addAll(newEleList);
-			for(int j=1;j<=oldEleList.size();j++) {
-				Element ele = oldEleList.at(j);
-				if(ele.globalIndex == 0) {
-					ele.globalIndex = j;
-					for(int k=1;k<=ele.nodes.size();k++) {
-						Node newNode = ele.nodes.at(k);
-						if(newNode.globalIndex == 0) {
-							newNode.globalIndex = oldNodeList.size()+1;
-							oldNodeList.add(newNode);
-						}
-					}
-				}  else {
-					ele.globalIndex = j;
-				}
-			}
+			numberElements(oldEleList, oldNodeList, first);
 			e.childs = newEleList;
 		}
+		mesh.clearElementLocator();
 
 		return refinedNum==eToRefine.size();
 	}
+	
+	/**
+	 * 边(va,vb)的中点：先查找本次加密中相邻单元产生的中点，
+	 * 再按坐标查找以前加密相邻单元时产生的中点（hanging node），都没有时新建结点
+	 */
+	protected static Node getMidpoint(Mesh mesh, Map<MultiKey, Node> midpoints, 
+			Element e, Vertex va, Vertex vb) {
+		MultiKey key = new MultiKey(
+				e.nodes.at(va.localIndex).globalIndex,
+				e.nodes.at(vb.localIndex).globalIndex);
+		Node node = midpoints.get(key);
+		if(node == null) {
+			node = new NodeRefined(2);
+			node.setCoord(1, (va.coord(1)+vb.coord(1))/2.0);
+			node.setCoord(2, (va.coord(2)+vb.coord(2))/2.0);
+			node.setRefineLevel(e.getLevel()+1);
+			Node tmpNode = mesh.containNode(node);
+			if(tmpNode != null) node = tmpNode;
+			midpoints.put(key, node);
+		}
+		return node;
+	}
+	
+	/**
+	 * 单元列表中从位置<tt>from</tt>开始的单元按位置编号，
+	 * 新增单元（globalIndex==0）中的新结点加到结点列表末尾并编号
+	 */
+	protected static void numberElements(ElementList eList, NodeList nList, int from) {
+		for(int j=from;j<=eList.size();j++) {
+			Element ele = eList.at(j);
+			if(ele.globalIndex == 0) {
+				for(int k=1;k<=ele.nodes.size();k++) {
+					Node newNode = ele.nodes.at(k);
+					if(newNode.globalIndex == 0) {
+						newNode.globalIndex = nList.size()+1;
+						nList.add(newNode);
+					}
+				}
+			}
+			ele.globalIndex = j;
+		}
+	}
 
 	
+	/**
+	 * 从<tt>eList</tt>中删除<tt>eToRemove</tt>中的单元（一次扫描，不逐个调用remove()）
+	 */
+	public static void removeElements(ElementList eList, ElementList eToRemove) {
+		Set<Element> set = Collections.newSetFromMap(new IdentityHashMap<Element, Boolean>());
+		for(int i=1;i<=eToRemove.size();i++)
+			set.add(eToRemove.at(i));
+		eList.toList().removeAll(set);
+	}
+	
 	public static void reNumberElements(Mesh mesh) {
 		ElementList eList = mesh.getElementList();
 		for(int j=1;j<=eList.size();j++) {
@@ -304,9 +312,7 @@ public class Refiner {
 			if(eNeighbors.size()>0) {
 				boolean stop = directRefine(mesh,eNeighbors);
 				computeHangingNode(eNeighbors);
-				for(int iToRe=1;iToRe<=eNeighbors.size();iToRe++) {
-					eList.remove(eNeighbors.at(iToRe));
-				}
+				removeElements(eList, eNeighbors);
 				reNumberElements(mesh);
 				mesh.computeNodeBelongsToElements();
 				mesh.computeNeighborNodes();
@@ -316,9 +322,7 @@ public class Refiner {
 			} else {
 				directRefine(mesh,eToRefine);
 				computeHangingNode(eToRefine);
-				for(int iToRe=1;iToRe<=eToRefine.size();iToRe++) {
-					eList.remove(eToRefine.at(iToRe));
-				}
+				removeElements(eList, eToRefine);
 				reNumberElements(mesh);
 				mesh.computeNodeBelongsToElements();
 				mesh.computeNeighborNodes();
@@ -329,6 +333,108 @@ public class Refiner {
 		}
 	}
 	
+	/**
+	 * <blockquote><pre>
+	 * 一次加密（refineOnce）前后结点向量的插值矩阵P（线性或双线性元），用于几何多重网格：
+	 *   u_fine = P*u_coarse
+	 * 加密时只在结点列表末尾增加结点，原有结点的编号不变：
+	 *   原有结点：P(i,i)=1；
+	 *   新增结点：在被加密的父单元中插值，边中点为两个端点的平均值，
+	 *             四边形中心为四个顶点的平均值。
+	 * hanging node的插值与其constrainNodes一致。
+	 * 
+	 * Usage:
+	 *   int nCoarseNode = mesh.getNodeList().size();
+	 *   Refiner.refineOnce(mesh, eToRefine);
+	 *   CompressedRowMatrix P = Refiner.computeProlongation(mesh, nCoarseNode);
+	 * </blockquote></pre>
+	 * 
+	 * @param mesh 加密后的网格
+	 * @param nCoarseNode 加密前的结点数
+	 * @return nNode*nCoarseNode的插值矩阵，参见PreconditionerGMG
+	 */
+	public static CompressedRowMatrix computeProlongation(Mesh mesh, int nCoarseNode) {
+		NodeList nodes = mesh.getNodeList();
+		int nNode = nodes.size();
+		CompressedRowMatrix P = new CompressedRowMatrix(nNode, nCoarseNode);
+		boolean[] done = new boolean[nNode];
+		for(int i=1;i<=nCoarseNode;i++) {
+			P.setRow(i, new int[]{i-1}, new double[]{1.0});
+			done[i-1] = true;
+		}
+		ElementList eList = mesh.getElementList();
+		for(int i=1;i<=eList.size();i++) {
+			Element e = eList.at(i);
+			for(int j=1;j<=e.nodes.size();j++) {
+				Node node = e.nodes.at(j);
+				if(done[node.globalIndex-1]) continue;
+				Element parent = e.parent;
+				if(parent == null)
+					throw new FutureyeException("computeProlongation: node "+node.globalIndex+
+							" is new, but element "+e.globalIndex+" has no parent");
+				VertexList vList = parent.vertices();
+				int nv = vList.size();
+				double h = 0.0;
+				for(int k=2;k<=nv;k++)
+					h = Math.max(h, distance(vList.at(1).coords(), vList.at(k).coords()));
+				double eps = 1e-8*h;
+				int[] idx = null;
+				//边中点
+				for(int a=1;a<=nv && idx==null;a++) {
+					int b = a%nv+1;
+					double[] mid = new double[node.dim()];
+					for(int d=1;d<=node.dim();d++)
+						mid[d-1] = (vList.at(a).coord(d)+vList.at(b).coord(d))/2.0;
+					if(distance(node.coords(), mid) < eps)
+						idx = new int[]{a,b};
+				}
+				//单元中心
+				if(idx == null) {
+					double[] center = new double[node.dim()];
+					for(int k=1;k<=nv;k++)
+						for(int d=1;d<=node.dim();d++)
+							center[d-1] += vList.at(k).coord(d)/nv;
+					if(distance(node.coords(), center) < eps) {
+						idx = new int[nv];
+						for(int k=0;k<nv;k++) idx[k] = k+1;
+					}
+				}
+				if(idx == null)
+					throw new FutureyeException("computeProlongation: node "+node.globalIndex+
+							" is neither an edge midpoint nor the center of element "+parent.globalIndex);
+				int[] cols = new int[idx.length];
+				double[] vals = new double[idx.length];
+				for(int k=0;k<idx.length;k++) {
+					Node vNode = parent.nodes.at(vList.at(idx[k]).localIndex);
+					if(vNode.globalIndex > nCoarseNode)
+						throw new FutureyeException("computeProlongation: element "+parent.globalIndex+
+								" was refined more than once");
+					cols[k] = vNode.globalIndex-1;
+					vals[k] = 1.0/idx.length;
+				}
+				//列号按升序排列
+				for(int a=1;a<cols.length;a++) {
+					for(int b=a;b>0 && cols[b-1]>cols[b];b--) {
+						int t = cols[b]; cols[b] = cols[b-1]; cols[b-1] = t;
+					}
+				}
+				P.setRow(node.globalIndex, cols, vals);
+				done[node.globalIndex-1] = true;
+			}
+		}
+		for(int i=0;i<nNode;i++)
+			if(!done[i])
+				throw new FutureyeException("computeProlongation: node "+(i+1)+" is not in any element");
+		return P;
+	}
+	
+	private static double distance(double[] a, double[] b) {
+		double d = 0.0;
+		for(int i=0;i<a.length;i++)
+			d += (a[i]-b[i])*(a[i]-b[i]);
+		return Math.sqrt(d);
+	}
+	
 	//计算hanging node
 	public static void computeHangingNode(ElementList eToRefine) {
 		for(int iToRe=1;iToRe<=eToRefine.size();iToRe++) {
@@ -53,9 +53,16 @@ public abstract class AbstractFunction implements Function {
 		return value(v);
 	}
 	
+	/**
+	 * Evaluate point by point, override this for faster evaluation
+	 */
 	@Override
 	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
-		throw new UnsupportedOperationException();
+		int len = v.length();
+		double[] rlt = new double[len];
+		for(int i=0;i<len;i++)
+			rlt[i] = value(v.getVariable(i));
+		return rlt;
 	}
 
 	@Override
@@ -100,7 +107,7 @@ public abstract class AbstractFunction implements Function {
 				//一般来说是不会有这种情况的，如果确实有这种情况，需要在函数类增加activeVarNames
 				//if(fOuter.varNames().containsAll(v.getValues().keySet()) ||
 				//		v.getValues().keySet().containsAll(fOuter.varNames())) {
-				if(v.getValues().keySet().containsAll(fOuter.varNames())) {
+				if(v.containsAll(fOuter.varNames())) {
 					return fOuter.value(v,cache);
 				//} else if(fOuter.varNames().size() == fInners.size()){
 				} else {
@@ -247,6 +254,10 @@ public abstract class AbstractFunction implements Function {
 					return f1._d(varName).A(f2._d(varName)).setVarNames(this.varNames());
 				}
 				@Override
+				protected int emit(CompiledFunction.Builder b) {
+					return b.op(CompiledFunction.ADD, b.emit(f1), b.emit(f2));
+				}
+				@Override
 				public int getOpOrder() {
 					return OP_ORDER3;
 				}
@@ -302,6 +313,10 @@ public abstract class AbstractFunction implements Function {
 					return f1._d(varName).S(f2._d(varName)).setVarNames(this.varNames());
 				}
 				@Override
+				protected int emit(CompiledFunction.Builder b) {
+					return b.op(CompiledFunction.SUB, b.emit(f1), b.emit(f2));
+				}
+				@Override
 				public int getOpOrder() {
 					return OP_ORDER3;
 				}
@@ -370,6 +385,10 @@ public abstract class AbstractFunction implements Function {
 							).setVarNames(this.varNames());
 				}
 				@Override
+				protected int emit(CompiledFunction.Builder b) {
+					return b.op(CompiledFunction.MUL, b.emit(f1), b.emit(f2));
+				}
+				@Override
 				public int getOpOrder() {
 					return OP_ORDER2;
 				}
@@ -436,6 +455,10 @@ public abstract class AbstractFunction implements Function {
 							.D(f2.M(f2)).setVarNames(this.varNames());
 				}
 				@Override
+				protected int emit(CompiledFunction.Builder b) {
+					return b.op(CompiledFunction.DIV, b.emit(f1), b.emit(f2));
+				}
+				@Override
 				public int getOpOrder() {
 					return OP_ORDER2;
 				}
@@ -466,6 +489,28 @@ public abstract class AbstractFunction implements Function {
 		throw new UnsupportedOperationException();
 	}
 	
+	@Override
+	public Function compile() {
+		CompiledFunction cf = CompiledFunction.compile(this);
+		//不能展开的函数直接调用value()
+		return cf.isCallOnly() ? this : cf;
+	}
+	
+	/**
+	 * Emit instructions of this function to <tt>b</tt>, return the register
+	 * of the function value. Override this in subclasses whose value can be 
+	 * expressed by the operations of CompiledFunction, otherwise value() is called
+	 * at run time.
+	 * 
+	 * @param b
+	 * @return
+	 */
+	protected int emit(CompiledFunction.Builder b) {
+		if(isConstant())
+			return b.constant(value());
+		return b.call(this);
+	}
+	
 	@Override
 	public String getFName() {
 		return this.fName;
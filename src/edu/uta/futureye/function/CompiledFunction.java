@@ -0,0 +1,481 @@
+package edu.uta.futureye.function;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.uta.futureye.function.intf.Function;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Function expression compiled into a flat register program
+ *
+ * A(),S(),M(),D()以及FMath构造的函数是一棵由匿名类组成的表达式树，每次求值都要
+ * 递归调用每个节点的value()。Function.compile()把表达式树展开为一个指令序列，
+ * 第i条指令的结果保存在寄存器reg[i]中，求值时只需要按顺序执行一个循环：
+ *   CONST  reg[i] = c
+ *   VAR    reg[i] = v.getByID(slot)
+ *   ADD    reg[i] = reg[a] + reg[b]  (SUB, MUL, DIV, POW同理)
+ *   SQRT   reg[i] = sqrt(reg[a])     (ABS同理)
+ *   POWC   reg[i] = reg[a]^c
+ *   AXPB   reg[i] = c*reg[a] + d
+ *   POLY   reg[i] = \sum_k p_k*pow(reg[a],k)
+ *   CALL   reg[i] = f.value(v)  不能展开的函数（例如形函数、复合函数）
+ * 同一个函数对象在表达式中多次出现时（例如Jacobian）只计算一次。
+ * 编译时计算常数子表达式，与常数的加、减、乘合并为AXPB，删除不影响结果的指令；
+ * 常数寄存器只在寄存器数组创建时赋值一次，每个线程使用自己的寄存器数组（ThreadLocal），
+ * 求值时不分配内存。
+ * 每条指令与表达式树中对应节点的浮点运算完全相同（不改变运算顺序，除法不改为乘以倒数，
+ * 不合并连续的AXPB），编译前后的函数值逐位相同。
+ *
+ * Usage:
+ *   Function f = X.M(X).A(Y.M(Y)).M(-2.0).A(36.0);
+ *   Function fc = f.compile();
+ *   fc.value(new Variable("x",1.0).set("y",2.0));
+ * </pre></blockquote>
+ *
+ * @author liuyueming
+ *
+ */
+public class CompiledFunction extends AbstractFunction {
+	public static final int CONST = 0;
+	public static final int VAR   = 1;
+	public static final int ADD   = 2;
+	public static final int SUB   = 3;
+	public static final int MUL   = 4;
+	public static final int DIV   = 5;
+	public static final int POW   = 6;
+	public static final int SQRT  = 7;
+	public static final int ABS   = 8;
+	public static final int POWC  = 9;
+	public static final int AXPB  = 10;
+	public static final int POLY  = 11;
+	public static final int CALL  = 12;
+
+	protected static final String[] opNames = {
+		"CONST","VAR","ADD","SUB","MUL","DIV","POW","SQRT","ABS","POWC","AXPB","POLY","CALL"
+	};
+
+	//The expression tree of this program
+	protected Function source;
+	//Instructions, the result of instruction i is stored in register i
+	protected int[] op;
+	protected int[] a;
+	protected int[] b;
+	protected double[] c;
+	protected double[] d;
+	protected double[][] poly;
+	protected String[] names;
+	protected Function[] calls;
+	protected int n;
+	//Register of the function value
+	protected int out;
+	//Instructions executed by value(), CONST instructions are excluded
+	protected int[] exec;
+	//Initial registers: values of CONST instructions
+	protected double[] init;
+	//Registers of each thread
+	protected final ThreadLocal<double[]> regs = new ThreadLocal<double[]>() {
+		@Override
+		protected double[] initialValue() {
+			return init.clone();
+		}
+	};
+
+	/**
+	 * 只保留计算寄存器<tt>root</tt>需要的指令，寄存器重新编号
+	 */
+	protected CompiledFunction(Function source, Builder builder, int root) {
+		super(source.varNames());
+		this.source = source;
+		this.fName = source.getFName();
+		boolean[] live = new boolean[root+1];
+		live[root] = true;
+		for(int i=root;i>=0;i--) {
+			if(!live[i]) continue;
+			int o = builder.op.get(i);
+			if(o >= ADD && o <= POW) {
+				live[builder.a.get(i)] = true;
+				live[builder.b.get(i)] = true;
+			} else if(o >= SQRT && o <= POLY) {
+				live[builder.a.get(i)] = true;
+			}
+		}
+		int[] map = new int[root+1];
+		n = 0;
+		for(int i=0;i<=root;i++)
+			map[i] = live[i] ? n++ : -1;
+		op = new int[n];
+		a = new int[n];
+		b = new int[n];
+		c = new double[n];
+		d = new double[n];
+		poly = new double[n][];
+		names = new String[n];
+		calls = new Function[n];
+		init = new double[n];
+		int nExec = 0;
+		for(int i=0;i<=root;i++) {
+			if(!live[i]) continue;
+			int k = map[i];
+			op[k] = builder.op.get(i);
+			a[k] = builder.a.get(i);
+			b[k] = builder.b.get(i);
+			if(op[k] >= ADD && op[k] <= POLY)
+				a[k] = map[a[k]];
+			if(op[k] >= ADD && op[k] <= POW)
+				b[k] = map[b[k]];
+			c[k] = builder.c.get(i);
+			d[k] = builder.d.get(i);
+			poly[k] = builder.poly.get(i);
+			names[k] = builder.names.get(i);
+			calls[k] = builder.calls.get(i);
+			if(op[k] == CONST)
+				init[k] = c[k];
+			else
+				nExec++;
+		}
+		out = map[root];
+		exec = new int[nExec];
+		nExec = 0;
+		for(int k=0;k<n;k++)
+			if(op[k] != CONST)
+				exec[nExec++] = k;
+	}
+
+	/**
+	 * Compile function <tt>f</tt>
+	 *
+	 * @param f
+	 * @return
+	 */
+	public static CompiledFunction compile(Function f) {
+		if(f instanceof CompiledFunction)
+			return (CompiledFunction)f;
+		Builder builder = new Builder();
+		int root = builder.emit(f);
+		return new CompiledFunction(f, builder, root);
+	}
+
+	/**
+	 * Return the expression tree of this program
+	 *
+	 * @return
+	 */
+	public Function getSource() {
+		return source;
+	}
+
+	/**
+	 * Number of instructions
+	 *
+	 * @return
+	 */
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * 程序只有一条CALL指令：表达式树不能展开，编译后不会更快
+	 *
+	 * @return
+	 */
+	public boolean isCallOnly() {
+		return n == 1 && op[0] == CALL;
+	}
+
+	@Override
+	public double value(Variable v) {
+		return value(v, null);
+	}
+
+	@Override
+	public double value(Variable v, Map<Object,Object> cache) {
+		double[] reg = regs.get();
+		for(int k=0;k<exec.length;k++) {
+			int i = exec[k];
+			switch(op[i]) {
+			case VAR:   reg[i] = v.getByID(a[i]); break;
+			case ADD:   reg[i] = reg[a[i]] + reg[b[i]]; break;
+			case SUB:   reg[i] = reg[a[i]] - reg[b[i]]; break;
+			case MUL:   reg[i] = reg[a[i]] * reg[b[i]]; break;
+			case DIV:   reg[i] = reg[a[i]] / reg[b[i]]; break;
+			case POW:   reg[i] = Math.pow(reg[a[i]], reg[b[i]]); break;
+			case SQRT:  reg[i] = Math.sqrt(reg[a[i]]); break;
+			case ABS:   reg[i] = Math.abs(reg[a[i]]); break;
+			case POWC:  reg[i] = Math.pow(reg[a[i]], c[i]); break;
+			case AXPB:  reg[i] = c[i]*reg[a[i]] + d[i]; break;
+			case POLY:  reg[i] = polynomial(poly[i], reg[a[i]]); break;
+			case CALL:  reg[i] = calls[i].value(v, cache); break;
+			}
+		}
+		return reg[out];
+	}
+
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		int len = v.length();
+		double[][] reg = new double[n][];
+		for(int i=0;i<n;i++) {
+			int o = op[i];
+			if(o == CALL) {
+				reg[i] = calls[i].valueArray(v, cache);
+				continue;
+			} else if(o == VAR) {
+				reg[i] = v.get(names[i]);
+				continue;
+			}
+			double[] r = new double[len];
+			double[] x = o == CONST ? null : reg[a[i]];
+			double[] y = (o >= ADD && o <= POW) ? reg[b[i]] : null;
+			switch(o) {
+			case CONST: for(int j=0;j<len;j++) r[j] = c[i]; break;
+			case ADD:   for(int j=0;j<len;j++) r[j] = x[j] + y[j]; break;
+			case SUB:   for(int j=0;j<len;j++) r[j] = x[j] - y[j]; break;
+			case MUL:   for(int j=0;j<len;j++) r[j] = x[j] * y[j]; break;
+			case DIV:   for(int j=0;j<len;j++) r[j] = x[j] / y[j]; break;
+			case POW:   for(int j=0;j<len;j++) r[j] = Math.pow(x[j], y[j]); break;
+			case SQRT:  for(int j=0;j<len;j++) r[j] = Math.sqrt(x[j]); break;
+			case ABS:   for(int j=0;j<len;j++) r[j] = Math.abs(x[j]); break;
+			case POWC:  for(int j=0;j<len;j++) r[j] = Math.pow(x[j], c[i]); break;
+			case AXPB:  for(int j=0;j<len;j++) r[j] = c[i]*x[j] + d[i]; break;
+			case POLY:  for(int j=0;j<len;j++) r[j] = polynomial(poly[i], x[j]); break;
+			}
+			reg[i] = r;
+		}
+		//the result may be an input array of v
+		double[] rlt = reg[out];
+		if(op[out] == VAR)
+			rlt = rlt.clone();
+		return rlt;
+	}
+
+	/**
+	 * \sum_k p[k]*pow(x,k)，与FPolynomial1D.value()的运算顺序相同
+	 */
+	protected static double polynomial(double[] p, double x) {
+		double r = 0.0;
+		for(int k=0;k<p.length;k++)
+			r += p[k]*Math.pow(x, k);
+		return r;
+	}
+
+	/**
+	 * Derivative of the expression tree, compiled
+	 */
+	@Override
+	public Function _d(String varName) {
+		return compile(source._d(varName));
+	}
+
+	@Override
+	public boolean isConstant() {
+		return source.isConstant();
+	}
+
+	@Override
+	public double value() {
+		return source.value();
+	}
+
+	@Override
+	public Function compile() {
+		return this;
+	}
+
+	@Override
+	public Function copy() {
+		return compile(source.copy());
+	}
+
+	@Override
+	public int getOpOrder() {
+		return source.getOpOrder();
+	}
+
+	@Override
+	public String toString() {
+		return source.toString();
+	}
+
+	/**
+	 * List of instructions, for debug
+	 *
+	 * @return
+	 */
+	public String getProgram() {
+		StringBuilder sb = new StringBuilder();
+		for(int i=0;i<n;i++) {
+			sb.append("r").append(i).append(" = ").append(opNames[op[i]]);
+			switch(op[i]) {
+			case CONST: sb.append(" ").append(c[i]); break;
+			case VAR:   sb.append(" ").append(names[i]); break;
+			case CALL:  sb.append(" ").append(calls[i]); break;
+			case POWC:  sb.append(" r").append(a[i]).append(" ").append(c[i]); break;
+			case AXPB:  sb.append(" ").append(c[i]).append(" r").append(a[i]).append(" ").append(d[i]); break;
+			case SQRT:
+			case ABS:
+			case POLY:  sb.append(" r").append(a[i]); break;
+			default:    sb.append(" r").append(a[i]).append(" r").append(b[i]);
+			}
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Emit instructions of an expression tree, see AbstractFunction.emit()
+	 *
+	 */
+	public static class Builder {
+		protected List<Integer> op = new ArrayList<Integer>();
+		protected List<Integer> a = new ArrayList<Integer>();
+		protected List<Integer> b = new ArrayList<Integer>();
+		protected List<Double> c = new ArrayList<Double>();
+		protected List<Double> d = new ArrayList<Double>();
+		protected List<double[]> poly = new ArrayList<double[]>();
+		protected List<String> names = new ArrayList<String>();
+		protected List<Function> calls = new ArrayList<Function>();
+		//Registers of emitted function objects
+		protected Map<Function,Integer> emitted = new IdentityHashMap<Function,Integer>();
+
+		protected int add(int o, int ia, int ib, double dc, double dd,
+				double[] p, String name, Function f) {
+			op.add(o);
+			a.add(ia);
+			b.add(ib);
+			c.add(dc);
+			d.add(dd);
+			poly.add(p);
+			names.add(name);
+			calls.add(f);
+			return op.size()-1;
+		}
+
+		protected boolean isConst(int reg) {
+			return op.get(reg) == CONST;
+		}
+
+		/**
+		 * Emit function <tt>f</tt>, return the register of its value
+		 *
+		 * @param f
+		 * @return
+		 */
+		public int emit(Function f) {
+			Integer reg = emitted.get(f);
+			if(reg != null)
+				return reg;
+			int r;
+			if(f instanceof AbstractFunction)
+				r = ((AbstractFunction)f).emit(this);
+			else
+				r = call(f);
+			emitted.put(f, r);
+			return r;
+		}
+
+		public int constant(double val) {
+			return add(CONST, -1, -1, val, 0.0, null, null, null);
+		}
+
+		public int variable(String name) {
+			return add(VAR, VN.intern(name), -1, 0.0, 0.0, null, name, null);
+		}
+
+		/**
+		 * Function <tt>f</tt> can not be expanded, call f.value() at run time
+		 */
+		public int call(Function f) {
+			return add(CALL, -1, -1, 0.0, 0.0, null, null, f);
+		}
+
+		/**
+		 * Binary operation: ADD, SUB, MUL, DIV, POW
+		 * 与常数的加、减、乘改为AXPB（POW改为POWC），结果与原来的运算逐位相同：
+		 *   x+c = 1*x+c, c-x = (-1)*x+c, x-c = 1*x+(-c), c*x = c*x+(-0.0)
+		 * 除以常数仍然是除法（x/c与x*(1/c)的舍入不同）
+		 */
+		public int op(int code, int ra, int rb) {
+			if(code < ADD || code > POW)
+				throw new FutureyeException("CompiledFunction: not a binary operation "+code);
+			boolean ca = isConst(ra), cb = isConst(rb);
+			if(ca && cb) {
+				double x = c.get(ra), y = c.get(rb);
+				switch(code) {
+				case ADD: return constant(x + y);
+				case SUB: return constant(x - y);
+				case MUL: return constant(x * y);
+				case DIV: return constant(x / y);
+				case POW: return constant(Math.pow(x, y));
+				}
+			}
+			switch(code) {
+			case ADD:
+				if(ca) return axpb(1.0, rb, c.get(ra));
+				if(cb) return axpb(1.0, ra, c.get(rb));
+				break;
+			case SUB:
+				if(ca) return axpb(-1.0, rb, c.get(ra));
+				if(cb) return axpb(1.0, ra, -c.get(rb));
+				break;
+			case MUL:
+				//c*x+(-0.0)与c*x相同（包括c*x=-0.0）
+				if(ca) return axpb(c.get(ra), rb, -0.0);
+				if(cb) return axpb(c.get(rb), ra, -0.0);
+				break;
+			case POW:
+				if(cb) return pow(ra, c.get(rb));
+				break;
+			}
+			return add(code, ra, rb, 0.0, 0.0, null, null, null);
+		}
+
+		/**
+		 * Unary operation: SQRT, ABS
+		 */
+		public int op(int code, int ra) {
+			if(code != SQRT && code != ABS)
+				throw new FutureyeException("CompiledFunction: not an unary operation "+code);
+			if(isConst(ra))
+				return constant(code == SQRT ? Math.sqrt(c.get(ra)) : Math.abs(c.get(ra)));
+			return add(code, ra, -1, 0.0, 0.0, null, null, null);
+		}
+
+		/**
+		 * reg[ra]^p
+		 */
+		public int pow(int ra, double p) {
+			if(isConst(ra))
+				return constant(Math.pow(c.get(ra), p));
+			if(p == 1.0)
+				return ra;
+			return add(POWC, ra, -1, p, 0.0, null, null, null);
+		}
+
+		/**
+		 * a*reg[ra]+b
+		 * <p>
+		 * reg[ra]也是AXPB时不合并（a*(c*x+d)+b与(a*c)*x+(a*d+b)的舍入不同）；
+		 * 只有a=1，b=-0.0时结果与reg[ra]逐位相同，不生成指令
+		 */
+		public int axpb(double a, int ra, double b) {
+			if(isConst(ra))
+				return constant(a*c.get(ra) + b);
+			if(a == 1.0 && Double.doubleToRawLongBits(b) == Double.doubleToRawLongBits(-0.0))
+				return ra;
+			return add(AXPB, ra, -1, a, b, null, null, null);
+		}
+
+		/**
+		 * \sum_k coefs[k]*reg[ra]^k
+		 */
+		public int polynomial(double[] coefs, int ra) {
+			if(isConst(ra))
+				return constant(CompiledFunction.polynomial(coefs, c.get(ra)));
+			return add(POLY, ra, -1, 0.0, 0.0, coefs.clone(), null, null);
+		}
+	}
+}
@@ -1,5 +1,14 @@
 package edu.uta.futureye.function;
 
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Variable names
+ * 
+ * 变量名对应Variable中数组的下标(slot)：x,y,z,r,s,t,u,v,w固定为0~8，
+ * 其他的变量名在第一次使用时由intern()分配9以后的下标
+ *
+ */
 public enum VN {
 	x{ public int getID() {return 0;} },
 	y{ public int getID() {return 1;} },
@@ -13,6 +22,11 @@ public enum VN {
 	
 	public static String[] names = {"x","y","z","r","s","t","u","v","w"};
 	
+	//User defined names (slot >= names.length)
+	private static ConcurrentHashMap<String,Integer> userIDs = 
+		new ConcurrentHashMap<String,Integer>();
+	private static volatile String[] allNames = names.clone();
+	
 	public abstract int getID();
 	
 	public static int getID(String ss) {
@@ -28,4 +42,49 @@ public enum VN {
 		return -1;
 	}
 	
+	/**
+	 * Slot of variable name <tt>ss</tt>, -1 if <tt>ss</tt> has never been interned
+	 * 
+	 * @param ss
+	 * @return
+	 */
+	public static int lookup(String ss) {
+		int id = getID(ss);
+		if(id != -1) return id;
+		Integer uid = userIDs.get(ss);
+		return uid == null ? -1 : uid;
+	}
+	
+	/**
+	 * Slot of variable name <tt>ss</tt>, a new slot is allocated if 
+	 * <tt>ss</tt> is not a name of VN and has never been interned
+	 * 
+	 * @param ss
+	 * @return
+	 */
+	public static int intern(String ss) {
+		int id = lookup(ss);
+		if(id != -1) return id;
+		synchronized(userIDs) {
+			Integer uid = userIDs.get(ss);
+			if(uid != null) return uid;
+			String[] newNames = new String[allNames.length+1];
+			System.arraycopy(allNames, 0, newNames, 0, allNames.length);
+			id = allNames.length;
+			newNames[id] = ss;
+			allNames = newNames;
+			userIDs.put(ss, id);
+			return id;
+		}
+	}
+	
+	/**
+	 * Variable name of slot <tt>id</tt>
+	 * 
+	 * @param id
+	 * @return
+	 */
+	public static String getName(int id) {
+		return allNames[id];
+	}
 }
@@ -1,12 +1,13 @@
 package edu.uta.futureye.function;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 import edu.uta.futureye.core.Element;
 import edu.uta.futureye.core.geometry.Point;
 import edu.uta.futureye.function.intf.Function;
-import edu.uta.futureye.util.Constant;
+import edu.uta.futureye.util.FutureyeException;
 
 /**
  * Function arguments (Independent variables of a function)
@@ -25,11 +26,13 @@ import edu.uta.futureye.util.Constant;
  *
  */
 public class Variable {
-	//LinkedHashMap 遍历时保证变量顺序
-	protected Map<String,Double> valMap = new LinkedHashMap<String,Double>();
-
-	//protected double[] valArray = new double[9];
-	//protected boolean[] useArray = {false,false,false,false,false,false,false,false,false};
+	//变量值按VN.intern()分配的下标保存在数组中，get(VN)只需读数组，
+	//不需要计算字符串的hash和装箱
+	protected double[] valArray = new double[VN.names.length];
+	protected boolean[] useArray = new boolean[VN.names.length];
+	//变量的下标，按设置的先后顺序，遍历时保证变量顺序
+	protected int[] order = new int[4];
+	protected int nVar = 0;
 	//protected boolean bApplyRestirct = false;
 	
 	//Node Index
@@ -46,9 +49,7 @@ public class Variable {
 	 * 构造一维自变量并赋值
 	 */
 	public Variable(double val) {
-		//valArray[0] = val;
-		//useArray[0] = true;
-		valMap.put(Constant.x, val);
+		setByID(VN.x.getID(), val);
 	}
 	
 	/**
@@ -56,36 +57,21 @@ public class Variable {
 	 * @return
 	 */
 	public double get() {
-		//return valArray[0];
-		return valMap.values().iterator().next();
+		if(nVar == 0)
+			throw new FutureyeException("Variable: no value");
+		return valArray[order[0]];
 	}
 	
 	////////////////////////////////////////////////
 
 	public Variable(String name, double val) {
-//		int id = VN.getID(name);
-//		if(id != -1) {
-//			valArray[id] = val;
-//			useArray[id] = true;
-//		}
-//		else
-			valMap.put(name, val);
+		set(name, val);
 	}
 	
 	public Variable(VarPair first, VarPair ...pairs) {
-//		int id = first.getVarID();
-//		if(id != -1) {
-//			valArray[id] = first.value;
-//			useArray[id] = true;
-//		} else
-			valMap.put(first.name, first.value);
+		set(first);
 		for(int i=0;i<pairs.length;i++) {
-//			id = pairs[i].getVarID();
-//			if(id != -1) {
-//				valArray[id] = pairs[i].value;
-//				useArray[id] = true;
-//			} else
-				valMap.put(pairs[i].name, pairs[i].value);
+			set(pairs[i]);
 		}
 	}
 	
@@ -95,15 +81,24 @@ public class Variable {
 	 * @return
 	 */
 	public double get(String name) {
-//		int id = VN.getID(name);
-//		if(id != -1)
-//			return valArray[id];
-//		else
-			return valMap.get(name);
+		int id = VN.lookup(name);
+		if(id == -1)
+			throw new FutureyeException("Variable: no value of "+name+" in "+this);
+		return getByID(id);
 	}
 	public double get(VN name) {
-		//return valArray[name.getID()];
-		return valMap.get(VN.names[name.getID()]);
+		return getByID(name.getID());
+	}
+	
+	/**
+	 * 返回下标id(见VN.intern())对应的值
+	 * @param id
+	 * @return
+	 */
+	public double getByID(int id) {
+		if(id >= useArray.length || !useArray[id])
+			throw new FutureyeException("Variable: no value of "+VN.getName(id)+" in "+this);
+		return valArray[id];
 	}
 	
 	/**
@@ -114,11 +109,11 @@ public class Variable {
 	 * @return <tt>v(name)</tt>
 	 */
 	public double apply(String name) {
-		return valMap.get(name);
+		return get(name);
 	}
 	
 	public double apply(VN name) {
-		return valMap.get(name);
+		return get(name);
 	}
 	
 	/**
@@ -127,11 +122,10 @@ public class Variable {
 	 * @return
 	 */
 	public double get(VarPair pair) {
-//		int id = pair.getVarID();
-//		if(id != -1)
-//			valArray[id] = pair.value;
-//		else
-			pair.value = valMap.get(pair.name);
+		if(pair.vn != null)
+			pair.value = get(pair.vn);
+		else
+			pair.value = get(pair.name);
 		return pair.value;
 	}
 	
@@ -145,35 +139,85 @@ public class Variable {
 	 * @return
 	 */
 	public Variable set(String name, double val) {
-//		int id = VN.getID(name);
-//		if(id != -1) {
-//			valArray[id] = val;
-//			useArray[id] = true;
-//		} else
-			valMap.put(name, val);
-		return this;
+		return setByID(VN.intern(name), val);
 	}
 	public Variable set(VN name, double val) {
-//		int id = name.getID();
-//		valArray[id] = val;
-//		useArray[id] = true;
-		valMap.put(VN.names[name.getID()],val);
-		return this;
+		return setByID(name.getID(), val);
 	}
 	
 	public Variable set(VarPair pair) {
-//		int id = pair.getVarID();
-//		if(id != -1) {
-//			valArray[id] = pair.value;
-//			useArray[id] = true;
-//		} else
-			valMap.put(pair.name, pair.value);
+		if(pair.vn != null)
+			return setByID(pair.vn.getID(), pair.value);
+		else
+			return setByID(VN.intern(pair.name), pair.value);
+	}
+	
+	/**
+	 * 设置下标id(见VN.intern())对应的值
+	 * @param id
+	 * @param val
+	 * @return
+	 */
+	public Variable setByID(int id, double val) {
+		if(id >= useArray.length) {
+			int len = Math.max(id+1, 2*useArray.length);
+			double[] newVal = new double[len];
+			boolean[] newUse = new boolean[len];
+			System.arraycopy(valArray, 0, newVal, 0, valArray.length);
+			System.arraycopy(useArray, 0, newUse, 0, useArray.length);
+			valArray = newVal;
+			useArray = newUse;
+		}
+		if(!useArray[id]) {
+			useArray[id] = true;
+			if(nVar == order.length) {
+				int[] newOrder = new int[2*nVar];
+				System.arraycopy(order, 0, newOrder, 0, nVar);
+				order = newOrder;
+			}
+			order[nVar++] = id;
+		}
+		valArray[id] = val;
 		return this;
 	}
+	
+	/**
+	 * 自变量个数
+	 * @return
+	 */
+	public int size() {
+		return nVar;
+	}
+	
+	/**
+	 * 是否包含自变量name
+	 * @param name
+	 * @return
+	 */
+	public boolean contains(String name) {
+		int id = VN.lookup(name);
+		return id != -1 && id < useArray.length && useArray[id];
+	}
+	
+	/**
+	 * 是否包含names中的全部自变量
+	 * @param names
+	 * @return
+	 */
+	public boolean containsAll(Collection<String> names) {
+		for(String name : names)
+			if(!contains(name)) return false;
+		return true;
+	}
 
+	/**
+	 * 返回变量名和值的副本，按设置的先后顺序
+	 * @return
+	 */
 	public Map<String,Double> getValues() {
-//		for(int i=0;i<9;i++)
-//			if(useArray[i]) valMap.put(VN.names[i], valArray[i]);
+		Map<String,Double> valMap = new LinkedHashMap<String,Double>();
+		for(int i=0;i<nVar;i++)
+			valMap.put(VN.getName(order[i]), valArray[order[i]]);
 		return valMap;
 	}
 
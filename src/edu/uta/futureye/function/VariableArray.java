@@ -143,6 +143,25 @@ public class VariableArray {
 		return this.length;
 	}
 	
+	/**
+	 * Get the i-th (0-based) variable of this array, including the index 
+	 * and element if they are set
+	 * <p>
+	 * 返回第i个（从0开始）自变量
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public Variable getVariable(int i) {
+		Variable v = new Variable();
+		for(Map.Entry<String,double[]> e : valMap.entrySet())
+			v.set(e.getKey(), e.getValue()[i]);
+		if(indices != null)
+			v.setIndex(indices[i]);
+		v.setElement(element);
+		return v;
+	}
+	
 	public String toString() {
 		return this.getValues().toString();
 	}
@@ -1,9 +1,12 @@
 package edu.uta.futureye.function.basic;
 
+import java.util.Map;
+
 import edu.uta.futureye.core.Element;
 import edu.uta.futureye.core.Mesh;
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.intf.ElementDependentFunction;
 import edu.uta.futureye.function.intf.Function;
 import edu.uta.futureye.util.FutureyeException;
@@ -123,6 +126,11 @@ public class D2uDx2 extends AbstractFunction implements ElementDependentFunction
 		*/
 	}
 	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		throw new FutureyeException("unsupported error!");
+	}
+	
 	public String toString() {
 		return "D2uDx2";
 	}
@@ -5,6 +5,7 @@ import java.util.Map;
 
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.util.FutureyeException;
 import edu.uta.futureye.util.PairDoubleInteger;
 import edu.uta.futureye.util.container.ObjList;
@@ -32,5 +33,19 @@ public class DiscreteIndexFunction extends AbstractFunction {
 			throw new FutureyeException("v.getIndex()="+v.getIndex());
 		return data.get(v.getIndex());
 	}
+	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		int[] indices = v.getIndices();
+		if(indices == null)
+			throw new FutureyeException("v.getIndices()=null");
+		double[] rlt = new double[indices.length];
+		for(int i=0;i<indices.length;i++) {
+			if(indices[i]<=0) 
+				throw new FutureyeException("v.getIndices()["+i+"]="+indices[i]);
+			rlt[i] = data.get(indices[i]);
+		}
+		return rlt;
+	}
 
 }
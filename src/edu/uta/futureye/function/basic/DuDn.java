@@ -1,5 +1,7 @@
 package edu.uta.futureye.function.basic;
 
+import java.util.Map;
+
 import edu.uta.futureye.algebra.intf.Vector;
 import edu.uta.futureye.core.Edge;
 import edu.uta.futureye.core.Element;
@@ -7,6 +9,7 @@ import edu.uta.futureye.core.Face;
 import edu.uta.futureye.core.geometry.GeoEntity;
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.intf.ElementDependentFunction;
 import edu.uta.futureye.function.intf.Function;
 import edu.uta.futureye.function.operator.FMath;
@@ -51,10 +54,13 @@ public class DuDn extends AbstractFunction implements ElementDependentFunction {
 		}
 	}
 
-	@Override
-	public double value(Variable v) {
+	/**
+	 * 当前单元上的方向导数表达式
+	 * 
+	 * @return
+	 */
+	protected Function normalDerivative() {
 		Function rlt = null;
-		this.setElement(v.getElement());
 		if(u != null) {
 			//u is passed into constructor
 			rlt = FMath.grad(u).dot(norm);
@@ -75,7 +81,20 @@ public class DuDn extends AbstractFunction implements ElementDependentFunction {
 			throw new FutureyeException(
 					"Error: u="+u+", this.norm.getDim()="+this.norm.getDim());
 		}
-		return rlt.value(v);
+		return rlt;
+	}
+
+	@Override
+	public double value(Variable v) {
+		this.setElement(v.getElement());
+		return normalDerivative().value(v);
+	}
+	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		//同一单元上的点只构造一次表达式
+		this.setElement(v.getElement());
+		return normalDerivative().valueArray(v, cache);
 	}
 	
 	public String toString() {
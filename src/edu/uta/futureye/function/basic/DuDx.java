@@ -1,5 +1,7 @@
 package edu.uta.futureye.function.basic;
 
+import java.util.Map;
+
 import edu.uta.futureye.algebra.intf.Vector;
 import edu.uta.futureye.application.Tools;
 import edu.uta.futureye.core.Edge;
@@ -9,6 +11,7 @@ import edu.uta.futureye.core.Node;
 import edu.uta.futureye.core.geometry.Point;
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.intf.ElementDependentFunction;
 import edu.uta.futureye.function.intf.Function;
 import edu.uta.futureye.util.FutureyeException;
@@ -85,50 +88,58 @@ public class DuDx extends AbstractFunction implements ElementDependentFunction {
 		this.e = e;
 	}
 
-	@Override
-	public double value(Variable v) {
-		Element newEle = v.getElement();
-		if(newEle != null) {
-			Element ve = v.getElement();
-			//3D?
-			if(ve.nodes.size()==2 && ve.getGeoEntity() instanceof Edge) {
-				//find the cell that includes this edge
-				Node n1 = ve.nodes.at(1);
-				Node n2 = ve.nodes.at(2);
-				int findIndex = -1;
-				for(int i=1;i<=n1.belongToElements.size();i++) {
-					for(int j=1;j<=n2.belongToElements.size();j++) {
-						int idx1 = n1.belongToElements.at(i).globalIndex;
-						int idx2 = n2.belongToElements.at(j).globalIndex;
-						if(idx1 == idx2) {
-							findIndex = idx1;
-							break;
-						}
-						if(findIndex > 0) break;
+	/**
+	 * 当前单元上u的双线性插值函数的导数
+	 * 
+	 * @param ve 自变量携带的单元，如果是边界边，使用包含该边的单元
+	 * @return
+	 */
+	protected Function elementDerivative(Element ve) {
+		//3D?
+		if(ve.nodes.size()==2 && ve.getGeoEntity() instanceof Edge) {
+			//find the cell that includes this edge
+			Node n1 = ve.nodes.at(1);
+			Node n2 = ve.nodes.at(2);
+			int findIndex = -1;
+			for(int i=1;i<=n1.belongToElements.size();i++) {
+				for(int j=1;j<=n2.belongToElements.size();j++) {
+					int idx1 = n1.belongToElements.at(i).globalIndex;
+					int idx2 = n2.belongToElements.at(j).globalIndex;
+					if(idx1 == idx2) {
+						findIndex = idx1;
+						break;
 					}
+					if(findIndex > 0) break;
 				}
-				this.setElement(mesh.getElementList().at(findIndex));
 			}
-			
+			this.setElement(mesh.getElementList().at(findIndex));
+		}
 		
-			int N = e.nodes.size();
-			double[] f = new double[N];
-			for(int i=1;i<=N;i++) {
-				Node node = e.nodes.at(i);
-				Variable var = Variable.createFrom(u, node, node.globalIndex);
-				f[i-1] = u.value(var);
-			}
-			double[] a = Utils.computeBilinearFunctionCoef(e.nodes.toArray(new Point[0]), f);
-			//d(a1 + a2*x + a3*y + a4*x*y)/dx
-			//d(a1 + a2*x + a3*y + a4*x*y)/dy
-			Function du = null;
-			if(x.equals("x")) {
-				du = new FXY(0.0,a[3],a[1]);
-			} else if(x.equals("y")) {
-				du = new FXY(a[3],0.0,a[2]);
-			} else {
-				throw new FutureyeException("x(="+x+") should be 'x' or 'y'!");
-			}
+		
+		int N = e.nodes.size();
+		double[] f = new double[N];
+		for(int i=1;i<=N;i++) {
+			Node node = e.nodes.at(i);
+			Variable var = Variable.createFrom(u, node, node.globalIndex);
+			f[i-1] = u.value(var);
+		}
+		double[] a = Utils.computeBilinearFunctionCoef(e.nodes.toArray(new Point[0]), f);
+		//d(a1 + a2*x + a3*y + a4*x*y)/dx
+		//d(a1 + a2*x + a3*y + a4*x*y)/dy
+		if(x.equals("x")) {
+			return new FXY(0.0,a[3],a[1]);
+		} else if(x.equals("y")) {
+			return new FXY(a[3],0.0,a[2]);
+		} else {
+			throw new FutureyeException("x(="+x+") should be 'x' or 'y'!");
+		}
+	}
+
+	@Override
+	public double value(Variable v) {
+		Element newEle = v.getElement();
+		if(newEle != null) {
+			Function du = elementDerivative(newEle);
 			Variable vv = new Variable();
 			if(varNames==null || varNames.size()==0) {
 				throw new FutureyeException("varNames should be specified in parameter 'u'.");
@@ -152,6 +163,37 @@ public class DuDx extends AbstractFunction implements ElementDependentFunction {
 		}
 	}
 	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		Element newEle = v.getElement();
+		if(newEle != null) {
+			//单元上的导数只计算一次
+			Function du = elementDerivative(newEle);
+			if(varNames==null || varNames.size()==0) {
+				throw new FutureyeException("varNames should be specified in parameter 'u'.");
+			}
+			//index不为0时使用结点坐标
+			int[] indices = v.getIndices();
+			VariableArray vv = new VariableArray();
+			for(int i=0;i<varNames.size();i++) {
+				double[] c = v.get(varNames.get(i));
+				c = c == null ? new double[v.length()] : c.clone();
+				for(int j=0;indices!=null && j<indices.length;j++) {
+					if(indices[j] != 0)
+						c[j] = mesh.getNodeList().at(indices[j]).coord(i+1);
+				}
+				vv.set(varNames.get(i), c);
+			}
+			return du.valueArray(vv, cache);
+		} else {
+			if(this.fdu2 == null) {
+				Vector du2 = Tools.computeDerivativeFast(mesh, u.u, x);
+				fdu2 = new Vector2Function(du2);
+			}
+			return fdu2.valueArray(v, cache);
+		}
+	}
+	
 	public String toString() {
 		return "DuDx";
 	}
@@ -1,7 +1,10 @@
 package edu.uta.futureye.function.basic;
 
 import edu.uta.futureye.function.AbstractFunction;
+import java.util.Map;
+
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.intf.Function;
 import edu.uta.futureye.util.Constant;
 
@@ -31,6 +34,15 @@ public class FAx extends AbstractFunction {
 		return a*v.get(varNames().get(0));
 	}
 	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		double[] x = v.get(varNames().get(0));
+		double[] rlt = new double[x.length];
+		for(int i=0;i<x.length;i++)
+			rlt[i] = a*x[i];
+		return rlt;
+	}
+	
 	@Override
 	public Function copy() {
 		return new FAx(this.varNames.get(0),a);
@@ -4,6 +4,8 @@ import java.util.List;
 import java.util.Map;
 
 import edu.uta.futureye.function.AbstractFunction;
+import edu.uta.futureye.function.CompiledFunction;
+import edu.uta.futureye.function.VN;
 import edu.uta.futureye.function.Variable;
 import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.intf.Function;
@@ -14,10 +16,13 @@ public class FAxpb extends AbstractFunction {
 	protected double b;
 	//varName在构造的时候已经确定，以后不可以修改，但是varNames可以修改
 	protected String varName;
+	//Slot of varName in Variable, see VN.intern()
+	protected int varID;
 
 	public FAxpb(double a, double b) {
 		varNames.add(Constant.x);
 		varName = Constant.x;
+		varID = VN.x.getID();
 		this.a = a;
 		this.b = b;
 	}
@@ -25,6 +30,7 @@ public class FAxpb extends AbstractFunction {
 	public FAxpb(String varName, double a, double b) {
 		super(varName);
 		this.varName = varName;
+		this.varID = VN.intern(varName);
 		this.a = a;
 		this.b = b;
 	}
@@ -36,15 +42,20 @@ public class FAxpb extends AbstractFunction {
 		else
 			return FC.C0;
 	}
+	
+	@Override
+	protected int emit(CompiledFunction.Builder b) {
+		return b.axpb(a, b.variable(varName), this.b);
+	}
 
 	@Override
 	public double value(Variable v) {
-		return a*v.get(varName)+b;
+		return a*v.getByID(varID)+b;
 	}
 	
 	@Override
 	public double value(Variable v, Map<Object,Object> cache) {
-		return a*v.get(varName)+b;
+		return a*v.getByID(varID)+b;
 	}
 	
 	@Override
@@ -1,7 +1,10 @@
 package edu.uta.futureye.function.basic;
 
+import java.util.Map;
+
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.intf.Function;
 
 public class FDelta extends AbstractFunction {
@@ -17,12 +20,12 @@ public class FDelta extends AbstractFunction {
 	 * @param amp
 	 */
 	public FDelta(Variable x0,double eps,double amp) {
-		if(x0.getValues().size() == 1) {
+		if(x0.size() == 1) {
 			varNames.add("x");
-		} else if(x0.getValues().size() == 2) {
+		} else if(x0.size() == 2) {
 			varNames.add("x");
 			varNames.add("y");
-		} else if(x0.getValues().size() == 3) {
+		} else if(x0.size() == 3) {
 			varNames.add("x");
 			varNames.add("y");		
 			varNames.add("z");		
@@ -35,14 +38,14 @@ public class FDelta extends AbstractFunction {
 	@Override
 	public double value(Variable x) {
 		double d2 = 0.0;
-		if(x0.getValues().size() == 1) {
+		if(x0.size() == 1) {
 			double dx = x.get("x")-x0.get("x");
 			d2 = dx*dx;
-		} else if(x0.getValues().size() == 2) {
+		} else if(x0.size() == 2) {
 			double dx = x.get("x")-x0.get("x");
 			double dy = x.get("y")-x0.get("y");
 			d2 = dx*dx+dy*dy;
-		} else if(x0.getValues().size() == 3) {
+		} else if(x0.size() == 3) {
 			double dx = x.get("x")-x0.get("x");
 			double dy = x.get("y")-x0.get("y");
 			double dz = x.get("z")-x0.get("z");
@@ -50,6 +53,26 @@ public class FDelta extends AbstractFunction {
 		}
 		return amp*Math.exp(-d2/eps/4.0) / (2*Math.sqrt(Math.PI*eps));
 	}
+	
+	@Override
+	public double[] valueArray(VariableArray x, Map<Object,Object> cache) {
+		int len = x.length();
+		int dim = x0.size();
+		String[] names = {"x","y","z"};
+		double[] d2 = new double[len];
+		for(int k=0;k<dim;k++) {
+			double[] xk = x.get(names[k]);
+			double x0k = x0.get(names[k]);
+			for(int i=0;i<len;i++) {
+				double d = xk[i]-x0k;
+				d2[i] += d*d;
+			}
+		}
+		double c = amp / (2*Math.sqrt(Math.PI*eps));
+		for(int i=0;i<len;i++)
+			d2[i] = c*Math.exp(-d2[i]/eps/4.0);
+		return d2;
+	}
 
 	public double value() {
 		return 0.0;
@@ -1,7 +1,10 @@
 package edu.uta.futureye.function.basic;
 
+import java.util.Map;
+
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.intf.Function;
 import edu.uta.futureye.util.Constant;
 
@@ -29,6 +32,16 @@ public class FLinear1D  extends AbstractFunction{
 		double x = v.get(varNames().get(0));
 		return (x-x1)*(y2-y1)/(x2-x1) + y1;
 	}
+	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		double[] x = v.get(varNames().get(0));
+		double k = (y2-y1)/(x2-x1);
+		double[] rlt = new double[x.length];
+		for(int i=0;i<x.length;i++)
+			rlt[i] = (x[i]-x1)*k + y1;
+		return rlt;
+	}
 
 	@Override
 	public Function _d(String varName) {
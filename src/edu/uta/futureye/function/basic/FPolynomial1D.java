@@ -1,9 +1,12 @@
 package edu.uta.futureye.function.basic;
 
 import java.util.List;
+import java.util.Map;
 
 import edu.uta.futureye.function.AbstractFunction;
+import edu.uta.futureye.function.CompiledFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.intf.Function;
 import edu.uta.futureye.util.Constant;
 
@@ -60,4 +63,25 @@ public class FPolynomial1D extends AbstractFunction {
 		}
 		return f;
 	}
+	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		double[] x = v.get(varNames().get(0));
+		double[] rlt = new double[x.length];
+		//Horner
+		for(int k=coefList.size()-1;k>=0;k--) {
+			double c = coefList.get(k);
+			for(int i=0;i<x.length;i++)
+				rlt[i] = rlt[i]*x[i] + c;
+		}
+		return rlt;
+	}
+	
+	@Override
+	protected int emit(CompiledFunction.Builder b) {
+		double[] coefs = new double[coefList.size()];
+		for(int i=0;i<coefs.length;i++)
+			coefs[i] = coefList.get(i);
+		return b.polynomial(coefs, b.variable(varNames().get(0)));
+	}
 }
@@ -3,6 +3,8 @@ package edu.uta.futureye.function.basic;
 import java.util.Map;
 
 import edu.uta.futureye.function.AbstractFunction;
+import edu.uta.futureye.function.CompiledFunction;
+import edu.uta.futureye.function.VN;
 import edu.uta.futureye.function.Variable;
 import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.intf.Function;
@@ -32,6 +34,8 @@ public class FX extends AbstractFunction{
 	public final static FX ft = new FX(Constant.t); 
 	
 	protected String varName = null;
+	//Slot of varName in Variable, see VN.intern()
+	protected int varID;
 	
 	/**
 	 * Use this to construct f(varName)
@@ -39,6 +43,7 @@ public class FX extends AbstractFunction{
 	public FX(String varName) {
 		super(varName);
 		this.varName = varName;
+		this.varID = VN.intern(varName);
 	}
 
 	@Override
@@ -51,17 +56,23 @@ public class FX extends AbstractFunction{
 
 	@Override
 	public double value(Variable v) {
-		return v.get(varName);
+		return v.getByID(varID);
 	}
 	
 	@Override
 	public double value(Variable v, Map<Object,Object> cache) {
-		return v.get(varName);
+		return v.getByID(varID);
 	}
 	
 	@Override
 	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
-		return v.get(varName);
+		//A(),M()... modify the returned array
+		return v.get(varName).clone();
+	}
+	
+	@Override
+	protected int emit(CompiledFunction.Builder b) {
+		return b.variable(varName);
 	}
 	
 	@Override
@@ -1,9 +1,11 @@
 package edu.uta.futureye.function.basic;
 
 import java.util.List;
+import java.util.Map;
 
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.intf.Function;
 import edu.uta.futureye.util.Constant;
 
@@ -59,6 +61,16 @@ public class FXY extends AbstractFunction{
 		return c1 * v.get(varNames.get(0)) + c2 * v.get(varNames.get(1)) + c3;
 	}
 	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		double[] x = v.get(varNames.get(0));
+		double[] y = v.get(varNames.get(1));
+		double[] rlt = new double[x.length];
+		for(int i=0;i<x.length;i++)
+			rlt[i] = c1*x[i] + c2*y[i] + c3;
+		return rlt;
+	}
+	
 	public String toString() {
 		String s1 = "";
 		if(Math.abs(c1) > Constant.eps)
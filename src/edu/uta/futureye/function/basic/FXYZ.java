@@ -1,7 +1,10 @@
 package edu.uta.futureye.function.basic;
 
+import java.util.Map;
+
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.intf.Function;
 import edu.uta.futureye.util.Constant;
 
@@ -28,6 +31,11 @@ public class FXYZ extends AbstractFunction{
 		return v.get(varNames().get(0));
 	}
 	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		return v.get(varNames().get(0)).clone();
+	}
+	
 	public String toString() {
 		return varNames().get(0);
 	}
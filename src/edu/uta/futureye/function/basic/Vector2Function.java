@@ -12,9 +12,12 @@ import edu.uta.futureye.core.Node;
 import edu.uta.futureye.core.geometry.Point;
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.intf.Function;
+import edu.uta.futureye.util.Constant;
 import edu.uta.futureye.util.FutureyeException;
 import edu.uta.futureye.util.Utils;
+import edu.uta.futureye.util.container.NodeList;
 
 /**
  * <blockquote><pre>
@@ -202,6 +205,52 @@ public class Vector2Function extends AbstractFunction {
 		}
 	}
 	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		int len = v.length();
+		double[] rlt = new double[len];
+		int[] indices = v.getIndices();
+		if(mesh == null) { //完全依靠index来求值
+			if(indices == null)
+				throw new FutureyeException("Error: indices=null, please specify indices of VariableArray!");
+			for(int i=0;i<len;i++) {
+				int index = indices[i];
+				if(index > 0 && index <= nDim)
+					rlt[i] = u.get(index);
+				else
+					rlt[i] = value(new Variable().setIndex(index));
+			}
+		} else {
+			//坐标与index对应的结点一致时直接取值，否则用value()插值
+			double[][] coords = new double[varNames.size()][];
+			for(int j=0;j<coords.length;j++)
+				coords[j] = v.get(varNames.get(j));
+			NodeList nodes = mesh.getNodeList();
+			Variable var = new Variable();
+			var.setElement(v.getElement());
+			for(int i=0;i<len;i++) {
+				int index = indices == null ? 0 : indices[i];
+				if(index > 0 && index <= nDim) {
+					Node node = nodes.at(index);
+					//same as Node.coordEquals()
+					boolean equal = node.dim() == coords.length;
+					for(int j=0;equal && j<coords.length;j++)
+						if(Math.abs(node.coord(j+1)-coords[j][i]) > Constant.meshEps)
+							equal = false;
+					if(equal) {
+						rlt[i] = u.get(index);
+						continue;
+					}
+				}
+				for(int j=0;j<coords.length;j++)
+					var.set(varNames.get(j), coords[j][i]);
+				var.setIndex(index);
+				rlt[i] = value(var);
+			}
+		}
+		return rlt;
+	}
+	
 	@Override
 	public Function _d(String varName) {
 		if(mesh == null) 
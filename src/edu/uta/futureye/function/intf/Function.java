@@ -44,7 +44,8 @@ public interface Function {
 	 * 
 	 * @param valAry VariableArray object which represents an array of variable values
 	 * @param cache Cache for efficient evaluation of functions. <tt>null</tt> parameter will disable the cache mechanism
-	 * @return Function values evaluated at array of variables <tt>valAry</tt> 
+	 * @return Function values evaluated at array of variables <tt>valAry</tt>,
+	 *   a new array which can be modified by the caller
 	 */
 	double[] valueArray(VariableArray valAry, Map<Object, Object> cache);
 	
@@ -193,6 +194,17 @@ public interface Function {
 	 */
 	Function copy();
 	
+	/**
+	 * Compile the expression tree of this function into a flat program, 
+	 * which is faster when the function is evaluated many times
+	 * <p>
+	 * 将函数表达式树编译为指令序列，用于需要反复求值的函数，见CompiledFunction；
+	 * 不能展开的函数返回自身
+	 * 
+	 * @return
+	 */
+	Function compile();
+	
 	/**
 	 * Return the expression of function
 	 * 
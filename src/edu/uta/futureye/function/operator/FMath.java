@@ -5,6 +5,7 @@ import java.util.Map;
 
 import edu.uta.futureye.algebra.intf.Vector;
 import edu.uta.futureye.function.AbstractFunction;
+import edu.uta.futureye.function.CompiledFunction;
 import edu.uta.futureye.function.Variable;
 import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.basic.FC;
@@ -51,10 +52,21 @@ public class FMath {
 				return Math.sqrt(f.value(v));
 			}
 			@Override
+			public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+				double[] rlt = f.valueArray(v, cache);
+				for(int i=0;i<rlt.length;i++)
+					rlt[i] = Math.sqrt(rlt[i]);
+				return rlt;
+			}
+			@Override
 			public Function _d(String varName) {
 				return FC.c(0.5).M(pow(f,-0.5)).M(f._d(varName));
 			}
 			@Override
+			protected int emit(CompiledFunction.Builder b) {
+				return b.op(CompiledFunction.SQRT, b.emit(f));
+			}
+			@Override
 			public int getOpOrder() {
 				return OP_ORDER1;
 			}
@@ -79,10 +91,21 @@ public class FMath {
 				return Math.pow(f.value(v),p);
 			}
 			@Override
+			public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+				double[] rlt = f.valueArray(v, cache);
+				for(int i=0;i<rlt.length;i++)
+					rlt[i] = Math.pow(rlt[i],p);
+				return rlt;
+			}
+			@Override
 			public Function _d(String varName) {
 				return FC.c(p).M(pow(f,p-1)).M(f._d(varName));
 			}
 			@Override
+			protected int emit(CompiledFunction.Builder b) {
+				return b.pow(b.emit(f), p);
+			}
+			@Override
 			public int getOpOrder() {
 				return OP_ORDER1;
 			}
@@ -108,6 +131,18 @@ public class FMath {
 				return Math.pow(f1.value(v),f2.value(v));
 			}
 			@Override
+			public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+				double[] rlt = f1.valueArray(v, cache);
+				double[] p = f2.valueArray(v, cache);
+				for(int i=0;i<rlt.length;i++)
+					rlt[i] = Math.pow(rlt[i],p[i]);
+				return rlt;
+			}
+			@Override
+			protected int emit(CompiledFunction.Builder b) {
+				return b.op(CompiledFunction.POW, b.emit(f1), b.emit(f2));
+			}
+			@Override
 			public int getOpOrder() {
 				return OP_ORDER1;
 			}
@@ -127,6 +162,17 @@ public class FMath {
 				return Math.abs(f.value(v));
 			}
 			@Override
+			public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+				double[] rlt = f.valueArray(v, cache);
+				for(int i=0;i<rlt.length;i++)
+					rlt[i] = Math.abs(rlt[i]);
+				return rlt;
+			}
+			@Override
+			protected int emit(CompiledFunction.Builder b) {
+				return b.op(CompiledFunction.ABS, b.emit(f));
+			}
+			@Override
 			public int getOpOrder() {
 				return OP_ORDER1;
 			}
@@ -224,6 +270,14 @@ public class FMath {
 			return new FLinearCombination(ci,fdi);
 		}
 		
+		@Override
+		protected int emit(CompiledFunction.Builder b) {
+			int rlt = b.axpb(ci[0], b.emit(fi[0]), 0.0);
+			for(int i=1;i<fi.length;i++)
+				rlt = b.op(CompiledFunction.ADD, rlt, b.axpb(ci[i], b.emit(fi[i]), 0.0));
+			return rlt;
+		}
+		
 		@Override
 		public int getOpOrder() {
 			return OP_ORDER3;
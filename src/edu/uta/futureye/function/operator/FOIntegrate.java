@@ -471,4 +471,19 @@ public class FOIntegrate{
 		}
 		return rlt;
 	}
+	
+	/**
+	 * Integrate on reference element with a precomputed quadrature rule
+	 * 
+	 * @param integrand
+	 * @param rule
+	 * @return
+	 */
+	public static double intOnRefElement(Function integrand, QuadratureRule rule) {
+		double[] w = rule.getWeights();
+		double rlt = 0.0;
+		for(int q=0;q<w.length;q++)
+			rlt += w[q]*integrand.value(rule.getVariable(q));
+		return rlt;
+	}
 }
@@ -0,0 +1,230 @@
+package edu.uta.futureye.function.operator;
+
+import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * Quadrature rule on reference element: points and weights in flat arrays
+ * 参考单元上的数值积分公式，积分点和权重与FOIntegrate中的公式相同。
+ * 权重中已经包含了FOIntegrate的比例因子（例如三角形单元的0.5），即
+ *   FOIntegrate.intOnTriangleRefElement(f, order) == \sum_q w_q*f(p_q)
+ *
+ * @author liuyueming
+ *
+ */
+public class QuadratureRule {
+	protected String[] varNames;
+	//coords[k][q]: coordinate varNames[k] of point q
+	protected double[][] coords;
+	protected double[] weights;
+
+	public QuadratureRule(String[] varNames, double[][] coords, double[] weights) {
+		this.varNames = varNames;
+		this.coords = coords;
+		this.weights = weights;
+	}
+
+	/**
+	 * Number of quadrature points
+	 */
+	public int size() {
+		return weights.length;
+	}
+
+	public String[] getVarNames() {
+		return varNames;
+	}
+
+	/**
+	 * Coordinate <tt>varName</tt> of all quadrature points
+	 */
+	public double[] getCoords(String varName) {
+		for(int k=0;k<varNames.length;k++)
+			if(varNames[k].equals(varName))
+				return coords[k];
+		throw new FutureyeException("QuadratureRule: no coordinate "+varName);
+	}
+
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Quadrature point <tt>q</tt> (0-based) as a Variable
+	 */
+	public Variable getVariable(int q) {
+		Variable v = new Variable();
+		for(int k=0;k<varNames.length;k++)
+			v.set(varNames[k], coords[k][q]);
+		return v;
+	}
+
+	/**
+	 * All quadrature points as a VariableArray
+	 */
+	public VariableArray getVariableArray() {
+		VariableArray v = new VariableArray();
+		for(int k=0;k<varNames.length;k++)
+			v.set(varNames[k], coords[k]);
+		return v;
+	}
+
+	/**
+	 * \sum_q w_q*values[q]
+	 */
+	public double integrate(double[] values) {
+		double rlt = 0.0;
+		for(int q=0;q<weights.length;q++)
+			rlt += weights[q]*values[q];
+		return rlt;
+	}
+
+	/**
+	 * Same as FOIntegrate.intOnLinearRefElement(), reference element [-1,1]
+	 */
+	public static QuadratureRule linear(int order) {
+		double[] a, h;
+		if(order == 1) {
+			a = new double[]{0.0};
+			h = new double[]{2.0};
+		} else if(order == 2) {
+			a = FOIntegrate.a2; h = FOIntegrate.h2;
+		} else if(order == 3) {
+			a = FOIntegrate.a3; h = FOIntegrate.h3;
+		} else if(order == 4) {
+			a = FOIntegrate.a4; h = FOIntegrate.h4;
+		} else if(order == 5) {
+			a = FOIntegrate.a5; h = FOIntegrate.h5;
+		} else
+			throw new FutureyeException("QuadratureRule.linear(): Not supported order = "+order);
+		return new QuadratureRule(new String[]{"r"},
+				new double[][]{a.clone()}, h.clone());
+	}
+
+	/**
+	 * Same as FOIntegrate.intOnTriangleRefElement(), area coordinates r,s,t
+	 */
+	public static QuadratureRule triangle(int order) {
+		double[] r, s, t, w;
+		double c = 0.333333333333333;
+		if(order == 2) {
+			r = new double[]{c};
+			s = new double[]{c};
+			t = new double[]{c};
+			w = new double[]{1.0};
+		} else if(order == 3) {
+			r = new double[]{0.5, 0.0, 0.5};
+			s = new double[]{0.5, 0.5, 0.0};
+			t = new double[]{0.0, 0.5, 0.5};
+			w = new double[]{c, c, c};
+		} else if(order == 4) {
+			double w123 = 25.0/48.0;
+			double w4 = -27.0/48.0;
+			r = new double[]{0.6, 0.2, 0.2, c};
+			s = new double[]{0.2, 0.6, 0.2, c};
+			t = new double[]{0.2, 0.2, 0.6, c};
+			w = new double[]{w123, w123, w123, w4};
+		} else if(order == 5) {
+			r = FOIntegrate.triR.clone();
+			s = FOIntegrate.triS.clone();
+			t = new double[r.length];
+			for(int q=0;q<r.length;q++)
+				t[q] = 1.0-r[q]-s[q];
+			w = FOIntegrate.triW.clone();
+		} else
+			throw new FutureyeException("QuadratureRule.triangle(): Not supported order = "+order);
+		//FOIntegrate.intOnTriangleRefElement() returns 0.5*rlt
+		for(int q=0;q<w.length;q++)
+			w[q] *= 0.5;
+		return new QuadratureRule(new String[]{"r","s","t"},
+				new double[][]{r,s,t}, w);
+	}
+
+	/**
+	 * Same as FOIntegrate.intOnRectangleRefElement(), reference element [-1,1]*[-1,1]
+	 */
+	public static QuadratureRule rectangle(int order) {
+		if(order == 1) {
+			return new QuadratureRule(new String[]{"r","s"},
+					new double[][]{{0.0},{0.0}}, new double[]{4.0});
+		} else if(order == 2) {
+			double a2 = 0.577350269189626;
+			return new QuadratureRule(new String[]{"r","s"},
+					new double[][]{{a2,-a2,a2,-a2},{a2,a2,-a2,-a2}},
+					new double[]{1.0,1.0,1.0,1.0});
+		} else if(order == 5) {
+			double[] ra = new double[25];
+			double[] sa = new double[25];
+			double[] wa = new double[25];
+			int c = 0;
+			for(int i=0;i<order;i++) {
+				for(int j=0;j<order;j++) {
+					ra[c] = FOIntegrate.a5[i];
+					sa[c] = FOIntegrate.a5[j];
+					wa[c] = FOIntegrate.h5[i]*FOIntegrate.h5[j];
+					c++;
+				}
+			}
+			return new QuadratureRule(new String[]{"r","s"},
+					new double[][]{ra,sa}, wa);
+		}
+		throw new FutureyeException("QuadratureRule.rectangle(): Not supported order = "+order);
+	}
+
+	/**
+	 * Same as FOIntegrate.intOnTetrahedraRefElement(), volume coordinates r,s,t,u
+	 */
+	public static QuadratureRule tetrahedra(int order) {
+		String[] names = {"r","s","t","u"};
+		if(order == 1) {
+			return new QuadratureRule(names,
+					new double[][]{{0.25},{0.25},{0.25},{0.25}}, new double[]{1.0});
+		} else if(order == 2) {
+			double []a2 = {0.585410196624969,0.138196601125011,0.138196601125011,0.138196601125011};
+			int [][]M24 = {{0,1,2,3},{1,0,2,3},{1,2,0,3},{1,2,3,0}};
+			double[][] c = new double[4][4];
+			for(int q=0;q<4;q++)
+				for(int k=0;k<4;k++)
+					c[k][q] = a2[M24[q][k]];
+			return new QuadratureRule(names, c, new double[]{0.25,0.25,0.25,0.25});
+		}
+		throw new FutureyeException("QuadratureRule.tetrahedra(): Not supported order = "+order);
+	}
+
+	/**
+	 * Same as FOIntegrate.intOnHexahedraRefElement(), reference element [-1,1]^3
+	 */
+	public static QuadratureRule hexahedra(int order) {
+		double[] a, h;
+		if(order == 2) {
+			a = FOIntegrate.a2; h = FOIntegrate.h2;
+		} else if(order == 3) {
+			a = FOIntegrate.a3; h = FOIntegrate.h3;
+		} else if(order == 4) {
+			a = FOIntegrate.a4; h = FOIntegrate.h4;
+		} else if(order == 5) {
+			a = FOIntegrate.a5; h = FOIntegrate.h5;
+		} else
+			throw new FutureyeException("QuadratureRule.hexahedra(): Not supported order = "+order);
+		int n = order*order*order;
+		double[] ra = new double[n];
+		double[] sa = new double[n];
+		double[] ta = new double[n];
+		double[] wa = new double[n];
+		int c = 0;
+		for(int i=0;i<order;i++) {
+			for(int j=0;j<order;j++) {
+				for(int k=0;k<order;k++) {
+					ra[c] = a[i];
+					sa[c] = a[j];
+					ta[c] = a[k];
+					wa[c] = h[i]*h[j]*h[k];
+					c++;
+				}
+			}
+		}
+		return new QuadratureRule(new String[]{"r","s","t"},
+				new double[][]{ra,sa,ta}, wa);
+	}
+}
@@ -3,7 +3,7 @@ package edu.uta.futureye.lib.assembler;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import edu.uta.futureye.algebra.SparseMatrixRowMajor;
+import edu.uta.futureye.algebra.SparseMatrixCSR;
 import edu.uta.futureye.algebra.SparseVectorHashMap;
 import edu.uta.futureye.algebra.intf.Matrix;
 import edu.uta.futureye.algebra.intf.SparseMatrix;
@@ -36,22 +36,64 @@ import edu.uta.futureye.util.container.VertexList;
 import edu.uta.futureye.core.intf.WeakForm.ItemType;
 
 public class AssemblerScalar implements Assembler {
-	private int status = 0;
+	protected int status = 0;
 	protected Mesh mesh;
 	protected WeakForm weakForm;
 	protected SparseMatrix globalStiff;
 	protected SparseVector globalLoad;
+	//合成时消去hanging node，null时使用procHangingNode()
+	protected HangingNodeConstraint constraint = null;
 
 	public AssemblerScalar(Mesh mesh, WeakForm weakForm) {
 		this.mesh = mesh;
 		this.weakForm = weakForm;
 		
 		int dim = mesh.getNodeList().size();
-		globalStiff = new SparseMatrixRowMajor(dim,dim);
+		globalStiff = new SparseMatrixCSR(dim,dim);
 		globalLoad = new SparseVectorHashMap(dim);
 
 	}
-	
+
+	/**
+	 * 使用预先计算的稀疏结构合成，单元刚度矩阵直接累加到CSR数组中。
+	 * 同一网格上多次合成（例如Gauss-Newton迭代）可以共用同一个<tt>pattern</tt>，
+	 * 网格加密后需要重新调用SparsityPattern.build(mesh)。
+	 *
+	 * @param mesh
+	 * @param weakForm
+	 * @param pattern
+	 */
+	public AssemblerScalar(Mesh mesh, WeakForm weakForm, SparsityPattern pattern) {
+		this.mesh = mesh;
+		this.weakForm = weakForm;
+
+		int dim = mesh.getNodeList().size();
+		if(pattern.getRowDim() != dim || pattern.getColDim() != dim)
+			throw new FutureyeException("SparsityPattern dim ("+pattern.getRowDim()+","+
+					pattern.getColDim()+") != number of nodes "+dim);
+		globalStiff = pattern.createMatrix();
+		globalLoad = new SparseVectorHashMap(dim);
+	}
+
+	/**
+	 * 合成时直接把hanging node的单元刚度矩阵和右端项累加到约束结点上，
+	 * 得到对称正定的方程组，不再调用procHangingNode()。
+	 * 求解后调用<tt>constraint.distribute(u)</tt>计算hanging node的值。
+	 * 参见HangingNodeConstraint
+	 *
+	 * @param constraint null: 使用procHangingNode()
+	 */
+	public void setHangingNodeConstraint(HangingNodeConstraint constraint) {
+		if(constraint != null && constraint.getDim() != globalStiff.getRowDim())
+			throw new FutureyeException("HangingNodeConstraint dim "+constraint.getDim()+
+					" != "+globalStiff.getRowDim());
+		this.constraint = constraint;
+	}
+
+	public HangingNodeConstraint getHangingNodeConstraint() {
+		return this.constraint;
+	}
+
 	@Override
 	public SparseMatrix getStiffnessMatrix() {
 		if(status == 0)
@@ -98,9 +140,52 @@ public class AssemblerScalar implements Assembler {
 			System.out.print("*");
 		System.out.println("]Done!");
 		
-		if(procHangingNode)
+		if(constraint != null)
+			constraint.setConstrainedRows(globalStiff, globalLoad);
+		
+		//merge the triplet buffer into CSR structure
+		if(globalStiff instanceof SparseMatrixCSR)
+			((SparseMatrixCSR)globalStiff).compress();
+		
+		if(procHangingNode && constraint == null)
 			procHangingNode(mesh);
 	}
+	
+	/**
+	 * 只合成右端项，不合成刚度矩阵。用于系数矩阵相同、只有右端项不同的多个问题
+	 * （例如多个光源位置）：先调用assemble()得到刚度矩阵，之后每次改变weakForm的
+	 * 右端项函数再调用本函数。结果保存在新的向量中，不改变getLoadVector()。
+	 * Dirichlet条件需要另外处理。
+	 *
+	 * @return
+	 */
+	public SparseVector assembleLoadVector() {
+		int dim = globalLoad.getDim();
+		SparseVector load = new SparseVectorHashMap(dim);
+		ElementList eList = mesh.getElementList();
+		for(int i=1; i<=eList.size(); i++)
+			assembleGlobal(eList.at(i), null, load);
+		if(constraint != null) {
+			for(int i=1; i<=dim; i++)
+				if(constraint.isConstrained(i))
+					load.set(i, 0.0);
+		}
+		return load;
+	}
+	
+	protected void addStiff(Matrix stiff, int row, int col, double val) {
+		if(constraint == null)
+			stiff.add(row, col, val);
+		else
+			constraint.addStiff(stiff, row, col, val);
+	}
+	
+	protected void addLoad(Vector load, int row, double val) {
+		if(constraint == null)
+			load.add(row, val);
+		else
+			constraint.addLoad(load, row, val);
+	}
 
 	
 	protected void setDirichlet(int matIndex, double value) {
@@ -145,9 +230,11 @@ public class AssemblerScalar implements Assembler {
 //	}
 	
 	//2011/11/28 modified according to vector valued case
+	//先收集所有Dirichlet自由度，再一次消去，参见DirichletElimination
 	@Override
 	public void imposeDirichletCondition(Function diri) {
 		ElementList eList = mesh.getElementList();
+		DirichletElimination de = new DirichletElimination(globalStiff.getRowDim());
 		for(int i=1;i<=eList.size();i++) {
 			Element e = eList.at(i);
 			DOFList DOFs = e.getAllDOFList(DOFOrder.NEFV);
@@ -158,7 +245,7 @@ public class AssemblerScalar implements Assembler {
 					Node n = (Node)ge;
 					if(n.getNodeType() == NodeType.Dirichlet) {
 						Variable v = Variable.createFrom(diri, n, 0);
-						setDirichlet(dof.getGlobalIndex(),diri.value(v));
+						de.add(dof.getGlobalIndex(),diri.value(v));
 					}
 				} else if(ge instanceof EdgeLocal) {
 					//2D单元（面）其中的局部边上的自由度
@@ -181,7 +268,7 @@ public class AssemblerScalar implements Assembler {
 						Node n = vs.at(k).globalNode();
 						if(NodeType.Dirichlet == n.getNodeType()) {
 							Variable v = Variable.createFrom(diri, n, 0);
-							setDirichlet(dof.getGlobalIndex(),diri.value(v));
+							de.add(dof.getGlobalIndex(),diri.value(v));
 						}
 					}
 				} else if(ge instanceof Face) {
@@ -192,7 +279,7 @@ public class AssemblerScalar implements Assembler {
 						Node n = vs.at(k).globalNode();
 						if(NodeType.Dirichlet == n.getNodeType()) {
 							Variable v = Variable.createFrom(diri, n, 0);
-							setDirichlet(dof.getGlobalIndex(),diri.value(v));
+							de.add(dof.getGlobalIndex(),diri.value(v));
 						}
 					}
 				} else if(ge instanceof Volume) {
@@ -202,18 +289,19 @@ public class AssemblerScalar implements Assembler {
 						Node n = vs.at(k).globalNode();
 						if(NodeType.Dirichlet == n.getNodeType()) {
 							Variable v = Variable.createFrom(diri, n, 0);
-							setDirichlet(dof.getGlobalIndex(),diri.value(v));
+							de.add(dof.getGlobalIndex(),diri.value(v));
 						}
 					}
 				}
 			}
 		}
+		de.apply(globalStiff, globalLoad);
 	}
 	
 	/**
 	 * 从单元e合成全局矩阵和向量
 	 * @param e
-	 * @param stiff
+	 * @param stiff null: 只合成右端项
 	 * @param load
 	 */
 	public void assembleGlobal(Element e, Matrix stiff, Vector load) {
@@ -236,7 +324,7 @@ public class AssemblerScalar implements Assembler {
 		for(int i=1;i<=nDOFs;i++) {
 			DOF dofI = DOFs.at(i);
 			int nGlobalRow = dofI.getGlobalIndex();
-			for(int j=1;j<=nDOFs;j++) {
+			for(int j=1;stiff!=null && j<=nDOFs;j++) {
 				DOF dofJ = DOFs.at(j);
 				int nGlobalCol = dofJ.getGlobalIndex();
 				//Local stiff matrix
@@ -244,13 +332,13 @@ public class AssemblerScalar implements Assembler {
 				weakForm.setDOF(dofJ, dofI); 
 				Function lhs = weakForm.leftHandSide(e, ItemType.Domain);
 				double lhsVal = weakForm.integrate(e, lhs);
-				stiff.add(nGlobalRow, nGlobalCol, lhsVal);
+				addStiff(stiff, nGlobalRow, nGlobalCol, lhsVal);
 			}
 			//Local load vector
 			weakForm.setDOF(null,dofI);
 			Function rhs = weakForm.rightHandSide(e, ItemType.Domain);
 			double rhsVal = weakForm.integrate(e, rhs);
-			load.add(nGlobalRow, rhsVal);
+			addLoad(load, nGlobalRow, rhsVal);
 		}
 		
 		if(e.isBorderElement()) {
@@ -275,7 +363,7 @@ public class AssemblerScalar implements Assembler {
 					for(int i=1;i<=nBeDOF;i++) {
 						DOF dofI = beDOFs.at(i);
 						int nGlobalRow = dofI.getGlobalIndex();
-						for(int j=1;j<=nBeDOF;j++) {
+						for(int j=1;stiff!=null && j<=nBeDOF;j++) {
 							DOF dofJ = beDOFs.at(j);
 							int nGlobalCol = dofJ.getGlobalIndex();
 							//Local stiff matrix for border
@@ -283,13 +371,13 @@ public class AssemblerScalar implements Assembler {
 							weakForm.setDOF(dofJ, dofI);
 							Function lhsBr = weakForm.leftHandSide(be, ItemType.Border);
 							double lhsBrVal = weakForm.integrate(be, lhsBr);
-							stiff.add(nGlobalRow, nGlobalCol, lhsBrVal);
+							addStiff(stiff, nGlobalRow, nGlobalCol, lhsBrVal);
 						}
 						//Local load vector for border
 						weakForm.setDOF(null, dofI);
 						Function rhsBr = weakForm.rightHandSide(be, ItemType.Border);
 						double rhsBrVal = weakForm.integrate(be, rhsBr);
-						load.add(nGlobalRow, rhsBrVal);
+						addLoad(load, nGlobalRow, rhsBrVal);
 					}
 				}
 			}
@@ -400,6 +488,7 @@ public class AssemblerScalar implements Assembler {
 	//二维：刚度矩阵增加hanging node约束系数
 	// nh - 0.5*n1 - 0.5*n2 = 0
 	//不能去掉， hanging node 自己在刚度矩阵合成的时候没有系数，因此需要为自己设置系数
+	//得到的方程组不对称，对称正定的合成方式参见setHangingNodeConstraint()
 	public void procHangingNode(Mesh mesh) {
 		status = 5;
 		for(int i=1;i<=mesh.getNodeList().size();i++) {
@@ -420,7 +509,7 @@ public class AssemblerScalar implements Assembler {
 	public void plusToGlobalLoad(Element e, Vector local) {
 		for(int i=1; i<=local.getDim(); i++) {
 			int ngRow = e.local2GlobalDOFIndex(i);
-			this.globalLoad.add(ngRow, local.get(i));
+			addLoad(this.globalLoad, ngRow, local.get(i));
 		}
 	}
 	
@@ -437,7 +526,7 @@ public class AssemblerScalar implements Assembler {
 //				System.out.println(
 //						"Local("+nRow+","+nCol+") -> Global("+ngRow+","+ngCol+")"
 //						);
-				this.globalStiff.add(ngRow, ngCol, val);
+				addStiff(this.globalStiff, ngRow, ngCol, val);
 			}
 		}
 	}
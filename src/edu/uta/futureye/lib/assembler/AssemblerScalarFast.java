@@ -1,6 +1,6 @@
 package edu.uta.futureye.lib.assembler;
 
-import edu.uta.futureye.algebra.SparseMatrixRowMajor;
+import edu.uta.futureye.algebra.SparseMatrixCSR;
 import edu.uta.futureye.algebra.SparseVectorHashMap;
 import edu.uta.futureye.algebra.intf.SparseMatrix;
 import edu.uta.futureye.algebra.intf.SparseVector;
@@ -27,7 +27,7 @@ public class AssemblerScalarFast implements Assembler{
 		this.weakForm = weakForm;
 		
 		int dim = mesh.getNodeList().size();
-		globalStiff = new SparseMatrixRowMajor(dim,dim);
+		globalStiff = new SparseMatrixCSR(dim,dim);
 		globalLoad = new SparseVectorHashMap(dim);
 
 	}
@@ -44,6 +44,9 @@ public class AssemblerScalarFast implements Assembler{
 				System.out.println("Assemble..."+
 						String.format("%.0f%%", 100.0*i/nEle));
 		}
+		//merge the triplet buffer into CSR structure
+		if(globalStiff instanceof SparseMatrixCSR)
+			((SparseMatrixCSR)globalStiff).compress();
 		procHangingNode(mesh);
 		return;
 	}
@@ -61,23 +64,15 @@ public class AssemblerScalarFast implements Assembler{
 	@Override
 	public void imposeDirichletCondition(Function diri) {
 		NodeList nList = mesh.getNodeList();
+		DirichletElimination de = new DirichletElimination(globalStiff.getRowDim());
 		for(int i=1;i<=nList.size();i++) {
 			Node n = nList.at(i);
 			if(n.getNodeType() == NodeType.Dirichlet) {
 				Variable v = Variable.createFrom(diri, n, n.globalIndex);
-				this.globalStiff.set(n.globalIndex, n.globalIndex, 1.0);
-				double val = diri.value(v);
-				this.globalLoad.set(n.globalIndex, val);
-				for(int j=1;j<=this.globalStiff.getRowDim();j++) {
-					if(j!=n.globalIndex) {
-						//TODO 行列都需要置零
-						this.globalLoad.add(j, -this.globalStiff.get(j, n.globalIndex)*val);
-						this.globalStiff.set(j, n.globalIndex, 0.0);
-						this.globalStiff.set(n.globalIndex, j, 0.0);
-					}
-				}
+				de.add(n.globalIndex, diri.value(v));
 			}
 		}
+		de.apply(globalStiff, globalLoad);
 	}
 	
 	//二维：刚度矩阵增加hanging node约束系数
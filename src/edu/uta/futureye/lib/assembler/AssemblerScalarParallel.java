@@ -0,0 +1,505 @@
+package edu.uta.futureye.lib.assembler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import edu.uta.futureye.algebra.SparseMatrixCSR;
+import edu.uta.futureye.core.DOF;
+import edu.uta.futureye.core.DOFOrder;
+import edu.uta.futureye.core.Element;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.NodeType;
+import edu.uta.futureye.core.intf.WeakForm;
+import edu.uta.futureye.core.intf.WeakForm.ItemType;
+import edu.uta.futureye.function.AbstractFunction;
+import edu.uta.futureye.function.intf.Function;
+import edu.uta.futureye.function.intf.ShapeFunction;
+import edu.uta.futureye.util.FutureyeException;
+import edu.uta.futureye.util.container.DOFList;
+import edu.uta.futureye.util.container.ElementList;
+
+/**
+ * <blockquote><pre>
+ * Multithreaded assembler for scalar valued problems
+ *
+ * 单元按图着色分组：同一颜色中任意两个单元没有公共自由度，
+ * 因此同一颜色的单元可以在ForkJoinPool上并行合成，直接累加到CSR数组中而不需要加锁。
+ * 不同颜色之间顺序执行。
+ *
+ * 注意：
+ * 1. 弱形式对象保存了当前的试探/检验函数等状态，每个线程需要一个独立的弱形式对象，
+ *    线程数等于weakForms.length。弱形式中的系数函数（Function）可以共享。
+ * 2. 形函数被所有单元共享并保存当前单元的信息(assignElement)，每个线程使用形函数的
+ *    拷贝(Function.copy())。如果形函数没有实现copy()，退化为串行合成。
+ *    每个单元总是由同一个线程合成，单元的私有自由度列表只在着色时计算一次。
+ * 3. 着色基于单元的自由度列表，而不是Mesh.computeNeighborElements()，
+ *    因为只有公共顶点的单元也有公共自由度。
+ *
+ * Usage:
+ *   WeakFormLaplace2D[] wfs = new WeakFormLaplace2D[nThreads];
+ *   for(int i=0;i<nThreads;i++) {
+ *       wfs[i] = new WeakFormLaplace2D();
+ *       wfs[i].setF(f);
+ *   }
+ *   AssemblerScalarParallel assembler = new AssemblerScalarParallel(mesh, wfs);
+ *   assembler.assemble();
+ *
+ * 使用hanging node约束（setHangingNodeConstraint）时，单元累加到约束结点上，
+ * 着色基于替换为约束结点后的自由度列表，稀疏结构可以用SparsityPattern.build(mesh, hnc)预先计算。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class AssemblerScalarParallel extends AssemblerScalar {
+	protected WeakForm[] weakForms;
+	protected SparsityPattern pattern;
+	protected ForkJoinPool pool;
+
+	/**
+	 * Elements (0-based) grouped by color:
+	 * colorEle[colorPtr[c]...colorPtr[c+1]-1]
+	 */
+	protected int[] colorPtr;
+	protected int[] colorEle;
+
+	/**
+	 * eleDOFs[e]: DOFs of element e (0-based) with shape functions of the thread assembling e
+	 * borderDOFs[e][n-1]: DOFs of the n-th Neumann/Robin border element of e, null otherwise
+	 */
+	protected DOFList[] eleDOFs;
+	protected DOFList[][] borderDOFs;
+
+	public boolean debug = false;
+
+	public AssemblerScalarParallel(Mesh mesh, WeakForm[] weakForms) {
+		this(mesh, weakForms, SparsityPattern.build(mesh));
+	}
+
+	public AssemblerScalarParallel(Mesh mesh, WeakForm[] weakForms,
+			SparsityPattern pattern) {
+		super(mesh, weakForms[0], pattern);
+		this.weakForms = weakForms;
+		this.pattern = pattern;
+	}
+
+	/**
+	 * Use <tt>pool</tt> to run the assembly, the number of tasks
+	 * is still the number of weak forms
+	 *
+	 * @param pool
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	public int getThreadNumber() {
+		return this.weakForms.length;
+	}
+
+	/**
+	 * Greedy coloring of elements, no two elements in a color share a DOF
+	 *
+	 * @param nDOF number of DOFs
+	 * @param eDOFs eDOFs[e]: 0-based DOF indices of element e
+	 * @return color (0-based) of each element
+	 */
+	public static int[] colorElements(int nDOF, int[][] eDOFs) {
+		int nEle = eDOFs.length;
+		//DOF -> elements
+		int[] ptr = new int[nDOF+1];
+		for(int e=0; e<nEle; e++)
+			for(int d : eDOFs[e])
+				ptr[d+1]++;
+		for(int i=0; i<nDOF; i++)
+			ptr[i+1] += ptr[i];
+		int[] eles = new int[ptr[nDOF]];
+		int[] fill = new int[nDOF];
+		for(int e=0; e<nEle; e++)
+			for(int d : eDOFs[e])
+				eles[ptr[d] + fill[d]++] = e;
+		fill = null;
+
+		int[] color = new int[nEle];
+		Arrays.fill(color, -1);
+		//used[c]==e: color c is used by a neighbor of e
+		int[] used = new int[16];
+		Arrays.fill(used, -1);
+		for(int e=0; e<nEle; e++) {
+			for(int d : eDOFs[e]) {
+				for(int k=ptr[d]; k<ptr[d+1]; k++) {
+					int c = color[eles[k]];
+					if(c >= 0) used[c] = e;
+				}
+			}
+			int c = 0;
+			while(c < used.length && used[c] == e) c++;
+			if(c == used.length) {
+				used = Arrays.copyOf(used, c*2);
+				Arrays.fill(used, c, c*2, -1);
+			}
+			color[e] = c;
+		}
+		return color;
+	}
+
+	protected void computeColors() {
+		int nEle = mesh.getElementList().size();
+		if(colorPtr != null && colorPtr[colorPtr.length-1] == nEle)
+			return;
+		int[] color = colorElements(pattern.getRowDim(), constraint == null ?
+				SparsityPattern.getElementDOFs(mesh, 0) :
+				SparsityPattern.getElementDOFs(mesh, constraint));
+		int nColor = 0;
+		for(int c : color)
+			if(c+1 > nColor) nColor = c+1;
+		colorPtr = new int[nColor+1];
+		for(int c : color)
+			colorPtr[c+1]++;
+		for(int c=0; c<nColor; c++)
+			colorPtr[c+1] += colorPtr[c];
+		colorEle = new int[nEle];
+		int[] fill = Arrays.copyOf(colorPtr, nColor);
+		for(int e=0; e<nEle; e++)
+			colorEle[fill[color[e]]++] = e;
+		resetDOFLists();
+	}
+
+	@Override
+	public void setHangingNodeConstraint(HangingNodeConstraint constraint) {
+		super.setHangingNodeConstraint(constraint);
+		//着色与约束有关
+		this.colorPtr = null;
+	}
+
+	public int getColorNumber() {
+		computeColors();
+		return colorPtr.length-1;
+	}
+
+	/**
+	 * 每个线程是否可以拷贝所有单元（包括边界单元）的形函数
+	 */
+	protected boolean canCopyShapeFunctions() {
+		ElementList eList = mesh.getElementList();
+		for(int i=1; i<=eList.size(); i++) {
+			Element e = eList.at(i);
+			if(!canCopy(e.getAllDOFList(DOFOrder.NEFV)))
+				return false;
+			if(e.isBorderElement()) {
+				ElementList beList = e.getBorderElements();
+				for(int n=1;n<=beList.size();n++)
+					if(!canCopy(beList.at(n).getAllDOFList(DOFOrder.NEFV)))
+						return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean canCopy(DOFList DOFs) {
+		for(int j=1; j<=DOFs.size(); j++)
+			if(!canCopy(DOFs.at(j).getSF()))
+				return false;
+		return true;
+	}
+
+	/**
+	 * 形函数是否实现了Function.copy()（AbstractFunction.copy()不支持拷贝）
+	 */
+	public static boolean canCopy(ShapeFunction sf) {
+		if(!(sf instanceof Function))
+			return false;
+		try {
+			return sf.getClass().getMethod("copy").getDeclaringClass() != AbstractFunction.class;
+		} catch(NoSuchMethodException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * 按着色结果计算每个单元的私有自由度列表：单元k=colorPtr[c]...colorPtr[c+1]-1总是
+	 * 由同一个线程合成，自由度中的形函数替换为该线程的拷贝，每个线程的每个形函数只拷贝一次。
+	 * 结果保存到下次重新着色，单元的自由度改变后需要调用resetDOFLists()。
+	 */
+	protected void computePrivateDOFLists() {
+		ElementList eList = mesh.getElementList();
+		int nEle = eList.size();
+		int nThreads = weakForms.length;
+		List<Map<ShapeFunction,ShapeFunction>> sfMaps =
+			new ArrayList<Map<ShapeFunction,ShapeFunction>>(nThreads);
+		for(int t=0; t<nThreads; t++)
+			sfMaps.add(new IdentityHashMap<ShapeFunction,ShapeFunction>());
+		eleDOFs = new DOFList[nEle];
+		borderDOFs = new DOFList[nEle][];
+		for(int c=0; c<colorPtr.length-1; c++) {
+			int start = colorPtr[c];
+			int len = colorPtr[c+1] - start;
+			for(int t=0; t<nThreads; t++) {
+				Map<ShapeFunction,ShapeFunction> sfMap = sfMaps.get(t);
+				for(int k=from(start, len, t); k<from(start, len, t+1); k++) {
+					int ie = colorEle[k];
+					Element e = eList.at(ie+1);
+					eleDOFs[ie] = privateDOFList(e.getAllDOFList(DOFOrder.NEFV), sfMap);
+					if(!e.isBorderElement())
+						continue;
+					ElementList beList = e.getBorderElements();
+					borderDOFs[ie] = new DOFList[beList.size()];
+					for(int n=1;n<=beList.size();n++) {
+						NodeType nodeType = beList.at(n).getBorderNodeType();
+						if(nodeType == NodeType.Neumann || nodeType == NodeType.Robin)
+							borderDOFs[ie][n-1] = privateDOFList(
+									beList.at(n).getAllDOFList(DOFOrder.NEFV), sfMap);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 单元的自由度或边界类型改变后，丢弃保存的私有自由度列表
+	 */
+	public void resetDOFLists() {
+		eleDOFs = null;
+		borderDOFs = null;
+	}
+
+	/**
+	 * 同一颜色中线程t合成的第一个单元colorEle[from(start,len,t)]
+	 */
+	private int from(int start, int len, int t) {
+		return start + (int)((long)len*t/weakForms.length);
+	}
+
+	@Override
+	public void assemble(boolean procHangingNode) {
+		if(weakForms.length == 1) {
+			super.assemble(procHangingNode);
+			return;
+		}
+		computeColors();
+		if(eleDOFs == null) {
+			if(!canCopyShapeFunctions()) {
+				if(debug)
+					System.out.println("Shape function does not support copy(), assemble serially");
+				super.assemble(procHangingNode);
+				return;
+			}
+			computePrivateDOFLists();
+		}
+		status = 1;
+		final ElementList eList = mesh.getElementList();
+		int nEle = eList.size();
+		for(int i=1; i<=nEle; i++) {
+			if(eList.at(i).adjustVerticeToCounterClockwise()) {
+				throw new FutureyeException("adjustVerticeToCounterClockwise");
+			}
+		}
+		//各线程只读约束矩阵
+		if(constraint != null)
+			constraint.resolve();
+		if(debug)
+			System.out.println("Assemble: threads="+weakForms.length+" colors="+(colorPtr.length-1));
+
+		SparseMatrixCSR stiff = (SparseMatrixCSR)globalStiff;
+		final double[] vals = stiff.getData();
+		final double[] load = new double[pattern.getRowDim()];
+		final int nThreads = weakForms.length;
+		//entries outside the pattern of each thread, added after the parallel loop
+		final List<List<double[]>> deferred = new ArrayList<List<double[]>>(nThreads);
+		for(int t=0; t<nThreads; t++)
+			deferred.add(new ArrayList<double[]>());
+
+		ForkJoinPool p = this.pool;
+		if(p == null) p = new ForkJoinPool(nThreads);
+		try {
+			for(int c=0; c<colorPtr.length-1; c++) {
+				final int start = colorPtr[c];
+				final int len = colorPtr[c+1] - start;
+				List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(nThreads);
+				for(int t=0; t<nThreads; t++) {
+					final int tid = t;
+					final int from = from(start, len, t);
+					final int to = from(start, len, t+1);
+					if(from == to) continue;
+					tasks.add(new Callable<Void>() {
+						@Override
+						public Void call() {
+							for(int k=from; k<to; k++) {
+								int ie = colorEle[k];
+								assembleGlobal(eList.at(ie+1), eleDOFs[ie], borderDOFs[ie],
+										weakForms[tid], vals, load, deferred.get(tid));
+							}
+							return null;
+						}
+					});
+				}
+				for(Future<Void> f : p.invokeAll(tasks))
+					f.get();
+			}
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new FutureyeException("Parallel assembly interrupted");
+		} catch(ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			throw new FutureyeException(cause.toString());
+		} finally {
+			if(this.pool == null)
+				p.shutdown();
+		}
+
+		for(List<double[]> items : deferred)
+			for(double[] item : items)
+				globalStiff.add((int)item[0], (int)item[1], item[2]);
+		for(int i=0; i<load.length; i++)
+			if(load[i] != 0.0)
+				globalLoad.add(i+1, load[i]);
+
+		if(constraint != null)
+			constraint.setConstrainedRows(globalStiff, globalLoad);
+
+		//merge the triplet buffer into CSR structure
+		stiff.compress();
+
+		if(procHangingNode && constraint == null)
+			procHangingNode(mesh);
+	}
+
+	/**
+	 * DOFs of an element with shape functions replaced by private copies of the thread
+	 */
+	protected static DOFList privateDOFList(DOFList DOFs, Map<ShapeFunction,ShapeFunction> sfMap) {
+		DOFList rlt = new DOFList();
+		for(int j=1; j<=DOFs.size(); j++) {
+			DOF dof = DOFs.at(j);
+			ShapeFunction sf = sfMap.get(dof.getSF());
+			if(sf == null) {
+				sf = (ShapeFunction)((Function)dof.getSF()).copy();
+				sfMap.put(dof.getSF(), sf);
+			}
+			DOF pDOF = new DOF(dof.getLocalIndex(), dof.getGlobalIndex(), sf);
+			pDOF.setVVFComponent(dof.getVVFComponent());
+			pDOF.setOwner(dof.getOwner());
+			rlt.add(pDOF);
+		}
+		return rlt;
+	}
+
+	private void addStiff(double[] vals, List<double[]> deferred,
+			int nGlobalRow, int nGlobalCol, double val) {
+		if(constraint != null) {
+			//C(row,:)'*C(col,:)，C为约束矩阵
+			int[] ptr = constraint.ptr;
+			int[] masters = constraint.masters;
+			double[] weights = constraint.weights;
+			int r = nGlobalRow-1, c = nGlobalCol-1;
+			for(int a=ptr[r]; a<ptr[r+1]; a++)
+				for(int b=ptr[c]; b<ptr[c+1]; b++)
+					addStiffToPattern(vals, deferred, masters[a]+1, masters[b]+1,
+							weights[a]*weights[b]*val);
+			return;
+		}
+		addStiffToPattern(vals, deferred, nGlobalRow, nGlobalCol, val);
+	}
+
+	private void addStiffToPattern(double[] vals, List<double[]> deferred,
+			int nGlobalRow, int nGlobalCol, double val) {
+		int k = pattern.indexOf(nGlobalRow-1, nGlobalCol-1);
+		if(k >= 0)
+			vals[k] += val;
+		else
+			deferred.add(new double[]{nGlobalRow, nGlobalCol, val});
+	}
+
+	private void addLoad(double[] load, int nGlobalRow, double val) {
+		if(constraint != null) {
+			int[] ptr = constraint.ptr;
+			int r = nGlobalRow-1;
+			for(int a=ptr[r]; a<ptr[r+1]; a++)
+				load[constraint.masters[a]] += constraint.weights[a]*val;
+			return;
+		}
+		load[nGlobalRow-1] += val;
+	}
+
+	/**
+	 * 从单元e合成全局矩阵和向量（线程安全版本，与AssemblerScalar.assembleGlobal()相同）
+	 */
+	protected void assembleGlobal(Element e, DOFList DOFs, DOFList[] beDOFLists,
+			WeakForm weakForm, double[] vals, double[] load, List<double[]> deferred) {
+		int nDOFs = DOFs.size();
+
+		//Update Jacobin on e
+		e.updateJacobin();
+
+		//形函数计算需要和单元关联
+		for(int i=1;i<=nDOFs;i++) {
+			DOFs.at(i).getSSF().assignElement(e);
+		}
+
+		weakForm.preProcess(e);
+
+		//所有自由度双循环
+		for(int i=1;i<=nDOFs;i++) {
+			DOF dofI = DOFs.at(i);
+			int nGlobalRow = dofI.getGlobalIndex();
+			for(int j=1;j<=nDOFs;j++) {
+				DOF dofJ = DOFs.at(j);
+				int nGlobalCol = dofJ.getGlobalIndex();
+				//注意顺序，内循环test基函数不变，trial基函数循环
+				weakForm.setDOF(dofJ, dofI);
+				Function lhs = weakForm.leftHandSide(e, ItemType.Domain);
+				double lhsVal = weakForm.integrate(e, lhs);
+				addStiff(vals, deferred, nGlobalRow, nGlobalCol, lhsVal);
+			}
+			weakForm.setDOF(null,dofI);
+			Function rhs = weakForm.rightHandSide(e, ItemType.Domain);
+			double rhsVal = weakForm.integrate(e, rhs);
+			addLoad(load, nGlobalRow, rhsVal);
+		}
+
+		if(e.isBorderElement()) {
+			ElementList beList = e.getBorderElements();
+			for(int n=1;n<=beList.size();n++) {
+				Element be = beList.at(n);
+
+				NodeType nodeType = be.getBorderNodeType();
+				if(nodeType == NodeType.Neumann || nodeType == NodeType.Robin) {
+					be.updateJacobin();
+					weakForm.preProcess(be);
+					DOFList beDOFs = beDOFLists[n-1];
+					int nBeDOF = beDOFs.size();
+
+					for(int i=1;i<=nBeDOF;i++) {
+						beDOFs.at(i).getSSF().assignElement(be);
+					}
+
+					for(int i=1;i<=nBeDOF;i++) {
+						DOF dofI = beDOFs.at(i);
+						int nGlobalRow = dofI.getGlobalIndex();
+						for(int j=1;j<=nBeDOF;j++) {
+							DOF dofJ = beDOFs.at(j);
+							int nGlobalCol = dofJ.getGlobalIndex();
+							weakForm.setDOF(dofJ, dofI);
+							Function lhsBr = weakForm.leftHandSide(be, ItemType.Border);
+							double lhsBrVal = weakForm.integrate(be, lhsBr);
+							addStiff(vals, deferred, nGlobalRow, nGlobalCol, lhsBrVal);
+						}
+						weakForm.setDOF(null, dofI);
+						Function rhsBr = weakForm.rightHandSide(be, ItemType.Border);
+						double rhsBrVal = weakForm.integrate(be, rhsBr);
+						addLoad(load, nGlobalRow, rhsBrVal);
+					}
+				}
+			}
+		}
+	}
+}
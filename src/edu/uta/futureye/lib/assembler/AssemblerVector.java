@@ -1,16 +1,12 @@
 package edu.uta.futureye.lib.assembler;
 
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-
 import edu.uta.futureye.algebra.FullMatrix;
 import edu.uta.futureye.algebra.SparseBlockMatrix;
 import edu.uta.futureye.algebra.SparseBlockVector;
-import edu.uta.futureye.algebra.SparseMatrixRowMajor;
+import edu.uta.futureye.algebra.SparseMatrixCSR;
 import edu.uta.futureye.algebra.SparseVectorHashMap;
 import edu.uta.futureye.algebra.intf.Matrix;
+import edu.uta.futureye.algebra.intf.SparseMatrix;
 import edu.uta.futureye.algebra.intf.Vector;
 import edu.uta.futureye.core.DOF;
 import edu.uta.futureye.core.DOFOrder;
@@ -66,7 +62,7 @@ public class AssemblerVector implements Assembler {
 		for(int i=1;i<=blockDim;i++) {
 			for(int j=1;j<=blockDim;j++) {
 				globalStiff.setBlock(i, j, 
-						new SparseMatrixRowMajor(dims[i-1],dims[j-1]));
+						new SparseMatrixCSR(dims[i-1],dims[j-1]));
 			}
 			globalLoad.setBlock(i, 
 					new SparseVectorHashMap(dims[i-1]));
@@ -286,31 +282,13 @@ public class AssemblerVector implements Assembler {
 	/**
 	 * 向量值问题的Dirichlet条件在整个矩阵上施加，而不是分块矩阵上
 	 * 
+	 * 先收集所有Dirichlet自由度（下标为整个矩阵的下标），再在各个CSR块上一次消去，
+	 * 不需要转换为FullMatrix，参见DirichletElimination
 	 */
 	@Override
 	public void imposeDirichletCondition(VectorFunction diri) {
 		ElementList eList = mesh.getElementList();
-		
-		int nRow = this.globalStiff.getRowDim();
-		int nCol = this.globalStiff.getColDim();
-		FullMatrix fStiff = new FullMatrix(nRow,nCol);
-		double [][]fsData = fStiff.getData();
-		//System.out.println(this.globalStiff.getNonZeroNumber());
-		Map<Integer,Map<Integer,Double>> sData = this.globalStiff.getAll();
-		//int size = 0;
-		for(Entry<Integer,Map<Integer,Double>> e1 : sData.entrySet()) {
-			int r = e1.getKey();
-			Map<Integer,Double> row = e1.getValue();
-			for(Entry<Integer,Double> e2 : row.entrySet()) {
-				int c = e2.getKey();
-				Double v = e2.getValue();
-				fsData[r-1][c-1] = v;
-				//size++;
-			}
-		}
-		//System.out.println(this.globalStiff.getNonZeroNumber()+"=="+size);
-		
-		Set<Integer> nodeDOFSet = new HashSet<Integer>();
+		DirichletElimination de = new DirichletElimination(this.globalStiff.getRowDim());
 		for(int ie=1;ie<=eList.size();ie++) {
 			Element e = eList.at(ie);
 			DOFList DOFs = e.getAllDOFList(DOFOrder.NEFV);
@@ -324,7 +302,7 @@ public class AssemblerVector implements Assembler {
 						Node n = (Node)ge;
 						if(n.getNodeType(nVVFCmpt) == NodeType.Dirichlet) {
 							Variable v = Variable.createFrom(fdiri, n, 0);
-							setDirichlet(fStiff,dof.getGlobalIndex(),fdiri.value(v));
+							de.add(dof.getGlobalIndex(),fdiri.value(v));
 						}
 					//	nodeDOFSet.add(dof.getGlobalIndex());
 					//}
@@ -349,7 +327,7 @@ public class AssemblerVector implements Assembler {
 						Node n = vs.at(k).globalNode();
 						if(NodeType.Dirichlet == n.getNodeType(nVVFCmpt)) {
 							Variable v = Variable.createFrom(fdiri, n, 0);
-							setDirichlet(fStiff,dof.getGlobalIndex(),fdiri.value(v));
+							de.add(dof.getGlobalIndex(),fdiri.value(v));
 						}
 					}
 				} else if(ge instanceof Face) {
@@ -360,7 +338,7 @@ public class AssemblerVector implements Assembler {
 						Node n = vs.at(k).globalNode();
 						if(NodeType.Dirichlet == n.getNodeType(nVVFCmpt)) {
 							Variable v = Variable.createFrom(fdiri, n, 0);
-							setDirichlet(fStiff,dof.getGlobalIndex(),fdiri.value(v));
+							de.add(dof.getGlobalIndex(),fdiri.value(v));
 						}
 					}
 				} else if(ge instanceof Volume) {
@@ -370,26 +348,20 @@ public class AssemblerVector implements Assembler {
 						Node n = vs.at(k).globalNode();
 						if(NodeType.Dirichlet == n.getNodeType(nVVFCmpt)) {
 							Variable v = Variable.createFrom(fdiri, n, 0);
-							setDirichlet(fStiff,dof.getGlobalIndex(),fdiri.value(v));
+							de.add(dof.getGlobalIndex(),fdiri.value(v));
 						}
 					}
 				}
 			}
 		}
-		this.globalStiff.clearData();
-		long begin = System.currentTimeMillis();
-		for(int i=nRow; --i>=0; ) {
-		//for(int i=0; i<nRow; i++) {
-			double[] _fsDatai = fsData[i];
-			for(int j=nCol; --j>=0; ) {
-			//for(int j=0; j<nCol; j++) {
-				double v = _fsDatai[j];
-				if(Math.abs(v) > Matrix.zeroEps) {
-					this.globalStiff.set(i+1, j+1, v);
-				}
+		de.apply(this.globalStiff, this.globalLoad);
+		//删除消去后的零元素
+		for(int i=1;i<=this.globalStiff.getRowBlockDim();i++) {
+			for(int j=1;j<=this.globalStiff.getColBlockDim();j++) {
+				SparseMatrix blk = this.globalStiff.getBlock(i, j);
+				if(blk instanceof SparseMatrixCSR)
+					((SparseMatrixCSR)blk).compact();
 			}
 		}
-		long end = System.currentTimeMillis();
-		System.out.println("time="+(end-begin)+"ms");
 	}		
 }
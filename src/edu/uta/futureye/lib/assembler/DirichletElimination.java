@@ -0,0 +1,187 @@
+package edu.uta.futureye.lib.assembler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import edu.uta.futureye.algebra.SparseBlockMatrix;
+import edu.uta.futureye.algebra.SparseMatrixCSR;
+import edu.uta.futureye.algebra.intf.SparseMatrix;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Batch elimination of Dirichlet conditions from a global stiffness matrix and load vector
+ *
+ * 先收集所有Dirichlet自由度及其取值（add()），再一次扫描整个矩阵（apply()）：
+ *   Dirichlet自由度d：第d行、第d列除对角元（置为1）外都置零，load(d)=value(d)；
+ *   其他自由度r：load(r) -= sum_d A(r,d)*value(d)（对称消去，矩阵保持对称）。
+ * 结果与逐个自由度消去（每个自由度扫描整列、整行）相同，而计算量只与非零元个数成正比。
+ * SparseMatrixCSR直接在CSR数组上修改，SparseBlockMatrix按块修改（下标为整个矩阵的下标）。
+ *
+ * 同一自由度多次出现时（例如多个单元共用一个结点），右端项按最后一次的取值，
+ * 消去按第一次的取值，与逐个消去的结果一致。
+ *
+ * Usage:
+ *   DirichletElimination de = new DirichletElimination(stiff.getRowDim());
+ *   de.add(dof.getGlobalIndex(), value);
+ *   ...
+ *   de.apply(stiff, load);
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class DirichletElimination {
+	protected int dim;
+	//下标从0开始
+	protected boolean[] fixed;
+	//右端项的取值（最后一次）
+	protected double[] value;
+	//消去时使用的取值（第一次）
+	protected double[] lift;
+	protected int nFixed = 0;
+
+	public DirichletElimination(int dim) {
+		this.dim = dim;
+		this.fixed = new boolean[dim];
+		this.value = new double[dim];
+		this.lift = new double[dim];
+	}
+
+	/**
+	 * 自由度<tt>index</tt>（下标从1开始）取值为<tt>val</tt>
+	 *
+	 * @param index
+	 * @param val
+	 */
+	public void add(int index, double val) {
+		int d = index-1;
+		if(!fixed[d]) {
+			fixed[d] = true;
+			lift[d] = val;
+			nFixed++;
+		}
+		value[d] = val;
+	}
+
+	/**
+	 * Number of Dirichlet DOFs
+	 */
+	public int size() {
+		return nFixed;
+	}
+
+	public boolean isFixed(int index) {
+		return fixed[index-1];
+	}
+
+	/**
+	 * 消去所有Dirichlet自由度，修改<tt>stiff</tt>和<tt>load</tt>
+	 *
+	 * @param stiff
+	 * @param load
+	 */
+	public void apply(SparseMatrix stiff, Vector load) {
+		if(stiff.getRowDim() != dim || stiff.getColDim() != dim || load.getDim() != dim)
+			throw new FutureyeException("DirichletElimination: dim="+dim+", matrix is "+
+					stiff.getRowDim()+"x"+stiff.getColDim()+", vector.dim="+load.getDim());
+		if(nFixed == 0)
+			return;
+		double[] delta = new double[dim];
+		if(stiff instanceof SparseBlockMatrix) {
+			SparseBlockMatrix bm = (SparseBlockMatrix)stiff;
+			int rOff = 0;
+			for(int i=1;i<=bm.getRowBlockDim();i++) {
+				int cOff = 0;
+				for(int j=1;j<=bm.getColBlockDim();j++) {
+					SparseMatrix blk = bm.getBlock(i, j);
+					applyBlock(blk, rOff, cOff, delta);
+					cOff += blk.getColDim();
+				}
+				rOff += bm.getBlock(i, 1).getRowDim();
+			}
+		} else {
+			applyBlock(stiff, 0, 0, delta);
+		}
+		for(int r=0;r<dim;r++) {
+			if(fixed[r])
+				load.set(r+1, value[r]);
+			else if(delta[r] != 0.0)
+				load.add(r+1, -delta[r]);
+		}
+	}
+
+	/**
+	 * 左上角位于(rOff,cOff)的块，delta累加消去项
+	 */
+	protected void applyBlock(SparseMatrix A, int rOff, int cOff, double[] delta) {
+		int nRow = A.getRowDim();
+		if(A instanceof SparseMatrixCSR) {
+			boolean[] hasDiag = new boolean[nRow];
+			SparseMatrixCSR csr = (SparseMatrixCSR)A;
+			int[] rowPtr = csr.getRowPointer();
+			int[] colIdx = csr.getColIndex();
+			double[] vals = csr.getData();
+			for(int r=0;r<nRow;r++) {
+				int gr = rOff+r;
+				if(fixed[gr]) {
+					for(int k=rowPtr[r];k<rowPtr[r+1];k++) {
+						if(cOff+colIdx[k] == gr) {
+							vals[k] = 1.0;
+							hasDiag[r] = true;
+						} else {
+							vals[k] = 0.0;
+						}
+					}
+				} else {
+					double s = 0.0;
+					for(int k=rowPtr[r];k<rowPtr[r+1];k++) {
+						int gc = cOff+colIdx[k];
+						if(fixed[gc]) {
+							s += vals[k]*lift[gc];
+							vals[k] = 0.0;
+						}
+					}
+					delta[gr] += s;
+				}
+			}
+			//没有存储的对角元，对角元(g,g)所在的块中 0<=g-cOff<nCol
+			int nCol = A.getColDim();
+			for(int r=0;r<nRow;r++) {
+				int c = rOff+r-cOff;
+				if(fixed[rOff+r] && !hasDiag[r] && c >= 0 && c < nCol)
+					A.set(r+1, c+1, 1.0);
+			}
+		} else {
+			//其他存储方式：先记录需要修改的元素，再调用set()
+			List<int[]> zeros = new ArrayList<int[]>();
+			Map<Integer, Map<Integer, Double>> all = A.getAll();
+			for(Entry<Integer, Map<Integer, Double>> er : all.entrySet()) {
+				int r = er.getKey();
+				int gr = rOff+r-1;
+				for(Entry<Integer, Double> ec : er.getValue().entrySet()) {
+					int c = ec.getKey();
+					int gc = cOff+c-1;
+					if(fixed[gr]) {
+						if(gc != gr)
+							zeros.add(new int[]{r, c});
+					} else if(fixed[gc]) {
+						delta[gr] += ec.getValue()*lift[gc];
+						zeros.add(new int[]{r, c});
+					}
+				}
+			}
+			for(int[] rc : zeros)
+				A.set(rc[0], rc[1], 0.0);
+			int nCol = A.getColDim();
+			for(int r=0;r<nRow;r++) {
+				int c = rOff+r-cOff;
+				if(fixed[rOff+r] && c >= 0 && c < nCol)
+					A.set(r+1, c+1, 1.0);
+			}
+		}
+	}
+}
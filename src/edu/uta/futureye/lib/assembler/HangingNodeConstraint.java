@@ -0,0 +1,306 @@
+package edu.uta.futureye.lib.assembler;
+
+import java.util.Arrays;
+
+import edu.uta.futureye.algebra.SparseMatrixCSR;
+import edu.uta.futureye.algebra.intf.Matrix;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.Node;
+import edu.uta.futureye.core.NodeRefined;
+import edu.uta.futureye.util.FutureyeException;
+import edu.uta.futureye.util.container.NodeList;
+
+/**
+ * <blockquote><pre>
+ * Hanging node constraints as a sparse constraint matrix C: u = C*u
+ *
+ * 自由度i不受约束时，C的第i行只有C(i,i)=1；
+ * hanging node h受约束时，C的第h行为 u_h = sum_k w_k*u_{m_k}，例如二维中
+ *   u_h = 0.5*u_{n1} + 0.5*u_{n2}
+ * 约束结点m_k本身是hanging node时（多层加密），逐层展开，C中只出现不受约束的自由度。
+ *
+ * 合成时单元刚度矩阵的元素(i,j)直接累加到 C(i,:)'*C(j,:) 对应的位置（addStiff），
+ * 右端项累加到 C(i,:)'（addLoad），即直接合成 C'*K*C 和 C'*f：
+ * 得到的方程组仍然对称正定，hanging node的行和列都没有非零元，
+ * 只需要在对角元置1、右端项置0（setConstrainedRows），
+ * 求解之后再由约束计算hanging node的值（distribute）。
+ * 与AssemblerScalar.procHangingNode()（替换hanging node所在的行）相比，
+ * 检验函数取协调的（满足约束的）基函数，刚度矩阵保持对称。
+ *
+ * Usage:
+ *   HangingNodeConstraint hnc = HangingNodeConstraint.build(mesh);
+ *   AssemblerScalar assembler = new AssemblerScalar(mesh, weakForm,
+ *       SparsityPattern.build(mesh, hnc)); //可选
+ *   assembler.setHangingNodeConstraint(hnc);
+ *   assembler.assemble();
+ *   assembler.imposeDirichletCondition(diri);
+ *   Vector u = solver.solveCG(assembler.getStiffnessMatrix(), assembler.getLoadVector());
+ *   hnc.distribute(u);
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class HangingNodeConstraint {
+	protected int dim;
+	//直接约束（未展开），下标从0开始，null表示不受约束
+	protected int[][] directMasters;
+	protected double[][] directWeights;
+	protected int nConstrained = 0;
+
+	/**
+	 * 展开后的约束矩阵C，CSR格式，下标从0开始，每行的列按升序排列
+	 * 第i行：masters[ptr[i]...ptr[i+1]-1], weights[ptr[i]...ptr[i+1]-1]
+	 */
+	protected int[] ptr;
+	protected int[] masters;
+	protected double[] weights;
+
+	public HangingNodeConstraint(int dim) {
+		this.dim = dim;
+		this.directMasters = new int[dim][];
+		this.directWeights = new double[dim][];
+	}
+
+	/**
+	 * 由网格中的hanging node（NodeRefined.constrainNodes）构造约束，
+	 * 每个约束结点的权重为1/constrainNodes.size()
+	 *
+	 * @param mesh
+	 * @return
+	 */
+	public static HangingNodeConstraint build(Mesh mesh) {
+		NodeList nodes = mesh.getNodeList();
+		HangingNodeConstraint hnc = new HangingNodeConstraint(nodes.size());
+		for(int i=1;i<=nodes.size();i++) {
+			Node node = nodes.at(i);
+			if(node instanceof NodeRefined) {
+				NodeRefined nRefined = (NodeRefined)node;
+				if(nRefined.isHangingNode()) {
+					int n = nRefined.constrainNodes.size();
+					int[] m = new int[n];
+					double[] w = new double[n];
+					for(int k=1;k<=n;k++) {
+						m[k-1] = nRefined.constrainNodes.at(k).globalIndex;
+						w[k-1] = 1.0/n;
+					}
+					hnc.addConstraint(nRefined.globalIndex, m, w);
+				}
+			}
+		}
+		return hnc;
+	}
+
+	/**
+	 * 增加约束 u_index = sum_k weights[k]*u_{masters[k]}，下标从1开始
+	 *
+	 * @param index
+	 * @param masters
+	 * @param weights
+	 */
+	public void addConstraint(int index, int[] masters, double[] weights) {
+		if(masters.length != weights.length)
+			throw new FutureyeException("HangingNodeConstraint: "+masters.length+
+					" masters, "+weights.length+" weights");
+		int h = index-1;
+		if(this.directMasters[h] == null)
+			this.nConstrained++;
+		int[] m = new int[masters.length];
+		for(int k=0;k<m.length;k++)
+			m[k] = masters[k]-1;
+		this.directMasters[h] = m;
+		this.directWeights[h] = weights.clone();
+		this.ptr = null;
+	}
+
+	public int getDim() {
+		return this.dim;
+	}
+
+	/**
+	 * Number of constrained DOFs
+	 */
+	public int size() {
+		return this.nConstrained;
+	}
+
+	public boolean isConstrained(int index) {
+		return this.directMasters[index-1] != null;
+	}
+
+	/**
+	 * 展开约束，得到约束矩阵C
+	 */
+	protected void resolve() {
+		if(this.ptr != null) return;
+		int[] rowPtr = new int[dim+1];
+		int[] idx = new int[dim+nConstrained];
+		double[] val = new double[idx.length];
+		//mark[j]: 第j列在当前行中的位置
+		int[] mark = new int[dim];
+		Arrays.fill(mark, -1);
+		//待展开的自由度、权重以及展开的层数
+		int[] stack = new int[16];
+		double[] stackW = new double[16];
+		int[] stackD = new int[16];
+		int nnz = 0;
+		for(int i=0;i<dim;i++) {
+			rowPtr[i] = nnz;
+			int top = 0;
+			stack[top] = i;
+			stackW[top] = 1.0;
+			stackD[top++] = 0;
+			while(top > 0) {
+				int j = stack[--top];
+				double w = stackW[top];
+				int depth = stackD[top];
+				if(directMasters[j] == null) {
+					if(mark[j] >= rowPtr[i]) {
+						val[mark[j]] += w;
+					} else {
+						if(nnz == idx.length) {
+							idx = Arrays.copyOf(idx, nnz*2);
+							val = Arrays.copyOf(val, nnz*2);
+						}
+						mark[j] = nnz;
+						idx[nnz] = j;
+						val[nnz++] = w;
+					}
+					continue;
+				}
+				if(depth >= nConstrained)
+					throw new FutureyeException("Cyclic hanging node constraint at index "+(i+1));
+				int[] m = directMasters[j];
+				double[] mw = directWeights[j];
+				if(top+m.length > stack.length) {
+					stack = Arrays.copyOf(stack, 2*(top+m.length));
+					stackW = Arrays.copyOf(stackW, stack.length);
+					stackD = Arrays.copyOf(stackD, stack.length);
+				}
+				for(int k=m.length-1;k>=0;k--) {
+					stack[top] = m[k];
+					stackW[top] = w*mw[k];
+					stackD[top++] = depth+1;
+				}
+			}
+			//列按升序排列（SparseMatrixCSR按二分查找列），每行的非零元很少，插入排序
+			for(int a=rowPtr[i]+1;a<nnz;a++) {
+				int j = idx[a];
+				double w = val[a];
+				int b = a-1;
+				for(;b>=rowPtr[i] && idx[b]>j;b--) {
+					idx[b+1] = idx[b];
+					val[b+1] = val[b];
+				}
+				idx[b+1] = j;
+				val[b+1] = w;
+			}
+		}
+		rowPtr[dim] = nnz;
+		this.ptr = rowPtr;
+		this.masters = Arrays.copyOf(idx, nnz);
+		this.weights = Arrays.copyOf(val, nnz);
+	}
+
+	/**
+	 * Constraint matrix C (dim*dim): u = C*u
+	 *
+	 * @return
+	 */
+	public SparseMatrixCSR getMatrix() {
+		resolve();
+		SparseMatrixCSR C = new SparseMatrixCSR(dim, dim, ptr, masters);
+		System.arraycopy(weights, 0, C.getData(), 0, weights.length);
+		return C;
+	}
+
+	/**
+	 * stiff += val * C(row,:)'*C(col,:)，下标从1开始
+	 *
+	 * @param stiff
+	 * @param row
+	 * @param col
+	 * @param val
+	 */
+	public void addStiff(Matrix stiff, int row, int col, double val) {
+		resolve();
+		int r = row-1, c = col-1;
+		for(int a=ptr[r];a<ptr[r+1];a++) {
+			double v = weights[a]*val;
+			for(int b=ptr[c];b<ptr[c+1];b++)
+				stiff.add(masters[a]+1, masters[b]+1, v*weights[b]);
+		}
+	}
+
+	/**
+	 * load += val * C(row,:)'，下标从1开始
+	 *
+	 * @param load
+	 * @param row
+	 * @param val
+	 */
+	public void addLoad(Vector load, int row, double val) {
+		resolve();
+		int r = row-1;
+		for(int a=ptr[r];a<ptr[r+1];a++)
+			load.add(masters[a]+1, weights[a]*val);
+	}
+
+	/**
+	 * 自由度（下标从0开始）替换为C中对应行的非零列（下标从0开始，升序，不重复），
+	 * 用于计算稀疏结构和单元着色
+	 *
+	 * @param dofs
+	 * @return
+	 */
+	public int[] expand(int[] dofs) {
+		resolve();
+		int n = 0;
+		for(int d : dofs)
+			n += ptr[d+1]-ptr[d];
+		int[] rlt = new int[n];
+		n = 0;
+		for(int d : dofs)
+			for(int a=ptr[d];a<ptr[d+1];a++)
+				rlt[n++] = masters[a];
+		Arrays.sort(rlt);
+		int m = 0;
+		for(int k=0;k<n;k++)
+			if(m == 0 || rlt[k] != rlt[m-1])
+				rlt[m++] = rlt[k];
+		return m == n ? rlt : Arrays.copyOf(rlt, m);
+	}
+
+	/**
+	 * 受约束的自由度所在的行只保留对角元1，右端项置0
+	 *
+	 * @param stiff
+	 * @param load
+	 */
+	public void setConstrainedRows(Matrix stiff, Vector load) {
+		for(int h=0;h<dim;h++) {
+			if(directMasters[h] != null) {
+				stiff.set(h+1, h+1, 1.0);
+				load.set(h+1, 0.0);
+			}
+		}
+	}
+
+	/**
+	 * 由约束计算受约束自由度的值：u_h = sum_k w_k*u_{m_k}
+	 *
+	 * @param u
+	 */
+	public void distribute(Vector u) {
+		resolve();
+		for(int h=0;h<dim;h++) {
+			if(directMasters[h] != null) {
+				double s = 0.0;
+				for(int a=ptr[h];a<ptr[h+1];a++)
+					s += weights[a]*u.get(masters[a]+1);
+				u.set(h+1, s);
+			}
+		}
+	}
+}
@@ -0,0 +1,318 @@
+package edu.uta.futureye.lib.assembler;
+
+import java.util.Arrays;
+
+import edu.uta.futureye.algebra.SparseMatrixCSR;
+import edu.uta.futureye.core.DOF;
+import edu.uta.futureye.core.DOFOrder;
+import edu.uta.futureye.core.Element;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.util.container.DOFList;
+import edu.uta.futureye.util.container.ElementList;
+import edu.uta.futureye.util.container.NodeList;
+
+/**
+ * <blockquote><pre>
+ * Symbolic assembly: the fixed CSR non-zero structure of a global stiffness matrix
+ *
+ * 刚度矩阵的非零结构只由网格拓扑和自由度编号决定：
+ * 全局自由度i和j耦合，当且仅当存在一个单元同时包含i和j。
+ * 因此可以在数值合成之前一次性计算出CSR结构（符号合成），
+ * 数值合成时只需在预先分配好的数组中查找位置并累加。
+ *
+ * 对于同一网格和自由度编号，该结构可以在多次合成中重复使用
+ * （例如Gauss-Newton迭代中只有系数改变），网格加密或重新分配自由度后需要重新计算。
+ *
+ * 注：四边形、六面体单元的对角结点之间也是耦合的，因此这里使用单元的自由度列表
+ * getAllDOFList(DOFOrder.NEFV)，而不是Mesh.computeNeighborNodes()的结果。
+ *
+ * Usage:
+ *   SparsityPattern pattern = SparsityPattern.build(mesh);
+ *   AssemblerScalar assembler = new AssemblerScalar(mesh, weakForm, pattern);
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class SparsityPattern {
+	protected int rowDim;
+	protected int colDim;
+
+	/**
+	 * CSR structure, 0-based, column indices sorted within each row
+	 */
+	protected int[] rowPtr;
+	protected int[] colIdx;
+
+	/**
+	 * Connectivity fingerprint of the mesh the pattern was built for, see fingerprint(Mesh)
+	 */
+	protected long meshFingerprint;
+	protected boolean hasMesh = false;
+
+	public SparsityPattern(int rowDim, int colDim, int[] rowPtr, int[] colIdx) {
+		this.rowDim = rowDim;
+		this.colDim = colDim;
+		this.rowPtr = rowPtr;
+		this.colIdx = colIdx;
+	}
+
+	/**
+	 * Build the pattern of a scalar valued problem on <tt>mesh</tt>,
+	 * the dimension is the number of nodes on the mesh
+	 *
+	 * @param mesh
+	 * @return
+	 */
+	public static SparsityPattern build(Mesh mesh) {
+		int[][] eDOFs = getElementDOFs(mesh, 0);
+		int dim = Math.max(mesh.getNodeList().size(), maxIndex(eDOFs)+1);
+		SparsityPattern rlt = build(dim, dim, eDOFs, eDOFs);
+		rlt.setMesh(mesh);
+		return rlt;
+	}
+
+	/**
+	 * Build the pattern of a scalar valued problem on <tt>mesh</tt> assembled
+	 * with hanging node constraints <tt>hnc</tt>:
+	 * 单元的自由度替换为约束结点，受约束的自由度只有对角元
+	 *
+	 * @param mesh
+	 * @param hnc
+	 * @return
+	 */
+	public static SparsityPattern build(Mesh mesh, HangingNodeConstraint hnc) {
+		int[][] eDOFs = getElementDOFs(mesh, hnc);
+		int dim = hnc.getDim();
+		int nEle = eDOFs.length;
+		int[][] all = Arrays.copyOf(eDOFs, nEle+hnc.size());
+		for(int i=0; i<dim; i++)
+			if(hnc.isConstrained(i+1))
+				all[nEle++] = new int[]{i};
+		SparsityPattern rlt = build(dim, dim, all, all);
+		rlt.setMesh(mesh);
+		return rlt;
+	}
+
+	/**
+	 * Build the pattern of block (<tt>nVVFCmptRow</tt>, <tt>nVVFCmptCol</tt>) of
+	 * a vector valued problem on <tt>mesh</tt>
+	 *
+	 * @param mesh
+	 * @param rowDim
+	 * @param colDim
+	 * @param nVVFCmptRow
+	 * @param nVVFCmptCol
+	 * @return
+	 */
+	public static SparsityPattern build(Mesh mesh, int rowDim, int colDim,
+			int nVVFCmptRow, int nVVFCmptCol) {
+		int[][] eRows = getElementDOFs(mesh, nVVFCmptRow);
+		int[][] eCols = nVVFCmptRow == nVVFCmptCol ? eRows :
+			getElementDOFs(mesh, nVVFCmptCol);
+		return build(rowDim, colDim, eRows, eCols);
+	}
+
+	/**
+	 * Build the pattern from element DOF index lists
+	 *
+	 * @param rowDim
+	 * @param colDim
+	 * @param eRows eRows[e]: 0-based row indices of element e
+	 * @param eCols eCols[e]: 0-based column indices of element e
+	 * @return
+	 */
+	public static SparsityPattern build(int rowDim, int colDim,
+			int[][] eRows, int[][] eCols) {
+		int nEle = eRows.length;
+		//row -> elements
+		int[] rowEle = new int[rowDim+1];
+		for(int e=0; e<nEle; e++)
+			for(int r : eRows[e])
+				rowEle[r+1]++;
+		for(int r=0; r<rowDim; r++)
+			rowEle[r+1] += rowEle[r];
+		int[] eleIdx = new int[rowEle[rowDim]];
+		int[] fill = new int[rowDim];
+		for(int e=0; e<nEle; e++)
+			for(int r : eRows[e])
+				eleIdx[rowEle[r] + fill[r]++] = e;
+		fill = null;
+
+		int[] rowPtr = new int[rowDim+1];
+		int[] colIdx = new int[Math.max(16,rowEle[rowDim]*4)];
+		int[] mark = new int[colDim];
+		Arrays.fill(mark, -1);
+		int nnz = 0;
+		for(int r=0; r<rowDim; r++) {
+			rowPtr[r] = nnz;
+			for(int k=rowEle[r]; k<rowEle[r+1]; k++) {
+				for(int c : eCols[eleIdx[k]]) {
+					if(mark[c] != r) {
+						mark[c] = r;
+						if(nnz == colIdx.length)
+							colIdx = Arrays.copyOf(colIdx, nnz*2);
+						colIdx[nnz++] = c;
+					}
+				}
+			}
+			Arrays.sort(colIdx, rowPtr[r], nnz);
+		}
+		rowPtr[rowDim] = nnz;
+		return new SparsityPattern(rowDim, colDim, rowPtr,
+				Arrays.copyOf(colIdx, nnz));
+	}
+
+	/**
+	 * Get 0-based global DOF indices of each element
+	 *
+	 * @param mesh
+	 * @param nVVFComponent 0 for all DOFs, otherwise only DOFs of the component
+	 * @return
+	 */
+	public static int[][] getElementDOFs(Mesh mesh, int nVVFComponent) {
+		ElementList eList = mesh.getElementList();
+		int nEle = eList.size();
+		int[][] rlt = new int[nEle][];
+		for(int i=1; i<=nEle; i++) {
+			DOFList DOFs = eList.at(i).getAllDOFList(DOFOrder.NEFV);
+			int n = 0;
+			int[] idx = new int[DOFs.size()];
+			for(int j=1; j<=DOFs.size(); j++) {
+				DOF dof = DOFs.at(j);
+				if(nVVFComponent == 0 || dof.getVVFComponent() == nVVFComponent)
+					idx[n++] = dof.getGlobalIndex()-1;
+			}
+			rlt[i-1] = n == idx.length ? idx : Arrays.copyOf(idx, n);
+		}
+		return rlt;
+	}
+
+	/**
+	 * Get 0-based global DOF indices of each element with constrained DOFs
+	 * replaced by their masters, see HangingNodeConstraint.expand()
+	 *
+	 * @param mesh
+	 * @param hnc
+	 * @return
+	 */
+	public static int[][] getElementDOFs(Mesh mesh, HangingNodeConstraint hnc) {
+		int[][] rlt = getElementDOFs(mesh, 0);
+		for(int e=0; e<rlt.length; e++)
+			rlt[e] = hnc.expand(rlt[e]);
+		return rlt;
+	}
+
+	private static int maxIndex(int[][] eDOFs) {
+		int max = -1;
+		for(int[] idx : eDOFs)
+			for(int i : idx)
+				if(i > max) max = i;
+		return max;
+	}
+
+	/**
+	 * <blockquote><pre>
+	 * 网格连接关系的指纹：单元数、每个单元的结点数和结点编号的散列。
+	 * 结点数相同但单元不同的网格（例如加密后重新编号、或者替换为另一个网格）的指纹不同。
+	 * 只用于检测过期的稀疏结构，不同的网格可能（以极小的概率）有相同的指纹。
+	 * </blockquote></pre>
+	 *
+	 * @param mesh
+	 * @return
+	 */
+	public static long fingerprint(Mesh mesh) {
+		ElementList eList = mesh.getElementList();
+		long h = eList.size();
+		for(int i=1; i<=eList.size(); i++) {
+			NodeList nodes = eList.at(i).nodes;
+			h = 31*h + nodes.size();
+			for(int j=1; j<=nodes.size(); j++)
+				h = 31*h + nodes.at(j).globalIndex;
+		}
+		return h;
+	}
+
+	/**
+	 * Record <tt>mesh</tt> as the mesh of this pattern
+	 *
+	 * @param mesh
+	 */
+	public void setMesh(Mesh mesh) {
+		this.meshFingerprint = fingerprint(mesh);
+		this.hasMesh = true;
+	}
+
+	/**
+	 * Check whether the pattern was built for a mesh with the same nodes
+	 * and element connectivity as <tt>mesh</tt>
+	 *
+	 * @param mesh
+	 * @return
+	 */
+	public boolean isPatternOf(Mesh mesh) {
+		return hasMesh && this.rowDim >= mesh.getNodeList().size() &&
+			this.meshFingerprint == fingerprint(mesh);
+	}
+
+	/**
+	 * Create a new zero matrix with this pattern. The structure arrays are shared
+	 * between all matrices created from the same pattern, the values are not.
+	 *
+	 * @return
+	 */
+	public SparseMatrixCSR createMatrix() {
+		return new SparseMatrixCSR(this.rowDim, this.colDim, this.rowPtr, this.colIdx);
+	}
+
+	/**
+	 * Check whether the pattern was built for an element with this DOF list.
+	 * Used to detect a stale pattern after the mesh is refined.
+	 *
+	 * @param e
+	 * @return
+	 */
+	public boolean contains(Element e) {
+		DOFList DOFs = e.getAllDOFList(DOFOrder.NEFV);
+		for(int i=1; i<=DOFs.size(); i++) {
+			for(int j=1; j<=DOFs.size(); j++) {
+				if(indexOf(DOFs.at(i).getGlobalIndex()-1, DOFs.at(j).getGlobalIndex()-1) < 0)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Position of (r,c) (0-based) in the CSR arrays, -1 if not in the pattern
+	 */
+	public int indexOf(int r, int c) {
+		if(r < 0 || r >= this.rowDim) return -1;
+		int k = Arrays.binarySearch(this.colIdx, this.rowPtr[r], this.rowPtr[r+1], c);
+		return k >= 0 ? k : -1;
+	}
+
+	public int getRowDim() {
+		return this.rowDim;
+	}
+
+	public int getColDim() {
+		return this.colDim;
+	}
+
+	public int getNonZeroNumber() {
+		return this.rowPtr[this.rowDim];
+	}
+
+	public int[] getRowPointer() {
+		return this.rowPtr;
+	}
+
+	public int[] getColIndex() {
+		return this.colIdx;
+	}
+
+	public String toString() {
+		return "SparsityPattern("+this.rowDim+","+this.colDim+"):NNZ="+getNonZeroNumber();
+	}
+}
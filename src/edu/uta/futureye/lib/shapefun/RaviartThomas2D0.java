@@ -14,6 +14,7 @@ import edu.uta.futureye.core.Element;
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.AbstractVectorFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.basic.FXY;
 import edu.uta.futureye.function.basic.SpaceVectorFunction;
 import edu.uta.futureye.function.intf.Function;
@@ -124,6 +125,19 @@ public class RaviartThomas2D0 extends AbstractVectorFunction implements VectorSh
 					}
 					return 0.0;
 				}
+				@Override
+				public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+					//坐标变换函数对所有点只构造一次
+					List<Function> transFun = trans.getTransformFunction(
+							trans.getTransformLinear2DShapeFunction(e));
+					if(varName.equals("x")) {//x = x(r,s,t)
+						return transFun.get(0).valueArray(v,cache);
+					} else if(varName.equals("y")) {//y = y(r,s,t)
+						return transFun.get(1).valueArray(v,cache);
+					} else {
+						throw new FutureyeException("Error!");
+					}
+				}
 			});
 		}
 		
@@ -163,6 +177,11 @@ public class RaviartThomas2D0 extends AbstractVectorFunction implements VectorSh
 	public Vector value(Variable v) {
 		return this.funCompose.value(v);
 	}
+	
+	@Override
+	public Vector[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		return this.funCompose.valueArray(v, cache);
+	}
 
 	@Override
 	public ObjList<String> innerVarNames() {
@@ -184,6 +184,11 @@ from the above four equations, we have:
 		jac = FC.c(area);
 	}
 
+	@Override
+	public Function copy() {
+		return new SFBilinearLocal2D(funIndex+1, coef);
+	}
+	
 	public String toString() {
 		if(this.coef < 1.0)
 			return "N"+(funIndex+1)+": "+this.coef+"*"+funOuter.toString();
@@ -199,6 +199,11 @@ public class SFBilinearLocal2DRegular extends AbstractFunction implements Scalar
 		
 	}
 
+	@Override
+	public Function copy() {
+		return new SFBilinearLocal2DRegular(funIndex+1, coef);
+	}
+	
 	public String toString() {
 		if(this.coef < 1.0)
 			return "N"+(funIndex+1)+": "+this.coef+"*"+funOuter.toString();
@@ -8,6 +8,7 @@ import java.util.Map;
 import edu.uta.futureye.core.Element;
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.basic.FAxpb;
 import edu.uta.futureye.function.basic.FC;
 import edu.uta.futureye.function.intf.Function;
@@ -97,7 +98,17 @@ public class SFLinearLocal1D extends AbstractFunction  implements ScalarShapeFun
 	public double value(Variable v) {
 		return funCompose.value(v);
 	}
+	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		return funCompose.valueArray(v,cache);
+	}
 
+	@Override
+	public Function copy() {
+		return new SFLinearLocal1D(funIndex+1);
+	}
+	
 	public String toString() {
 		return "N"+(funIndex+1)+": "+funOuter.toString();
 	}
@@ -172,6 +172,11 @@ public class SFLinearLocal2D  extends AbstractFunction
 		c[2] = x2 - x1;
 	}
 
+	@Override
+	public Function copy() {
+		return new SFLinearLocal2D(funIndex+1, coef);
+	}
+	
 	public String toString() {
 		String varName = varNames.get(funIndex);
 		return "N"+(funIndex+1)+"( "+varName+"(x,y) )="+funOuter.toString();
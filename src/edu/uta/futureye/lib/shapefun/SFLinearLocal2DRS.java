@@ -6,6 +6,7 @@ import java.util.Map;
 import edu.uta.futureye.core.Element;
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.basic.FC;
 import edu.uta.futureye.function.intf.Function;
 import edu.uta.futureye.function.intf.ScalarShapeFunction;
@@ -117,6 +118,11 @@ public class SFLinearLocal2DRS  extends AbstractFunction
 	public double value(Variable v) {
 		return funCompose.value(v);
 	}
+	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		return funCompose.valueArray(v,cache);
+	}
 
 	@Override
 	public void assignElement(Element e) {
@@ -131,6 +137,11 @@ public class SFLinearLocal2DRS  extends AbstractFunction
 		jac = (x[0]-x[2])*(y[1]-y[2])-(x[1]-x[2])*(y[0]-y[2]);
 	}
 
+	@Override
+	public Function copy() {
+		return new SFLinearLocal2DRS(funIndex+1, coef);
+	}
+	
 	public String toString() {
 		return "N"+(funIndex+1)+"(r,s)="+funOuter.toString();
 	}
@@ -1,8 +1,12 @@
 package edu.uta.futureye.lib.shapefun;
 
+import java.util.Map;
+
 import edu.uta.futureye.core.Element;
 import edu.uta.futureye.function.AbstractFunction;
+import edu.uta.futureye.function.VN;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.basic.FC;
 import edu.uta.futureye.function.intf.Function;
 import edu.uta.futureye.function.intf.ScalarShapeFunction;
@@ -188,17 +192,27 @@ public class SFLinearLocal3D extends AbstractFunction
 	@Override
 	public double value(Variable v) {
 		if(funIndex == 0)
-			return v.get("r");
+			return v.get(VN.r);
 		else if(funIndex == 1)
-			return v.get("s");
+			return v.get(VN.s);
 		else if(funIndex == 2)
-			return v.get("t");
+			return v.get(VN.t);
 		else if(funIndex == 3)
-			return v.get("u");
+			return v.get(VN.u);
 		else
 			throw new FutureyeException("Error: funIndex="+funIndex);
 	}
+	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		return v.get(varNames.get(funIndex)).clone();
+	}
 
+	@Override
+	public Function copy() {
+		return new SFLinearLocal3D(funIndex+1);
+	}
+	
 	public String toString() {
 		return varNames.get(funIndex);
 	}
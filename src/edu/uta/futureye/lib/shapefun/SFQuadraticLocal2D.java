@@ -8,6 +8,7 @@ import edu.uta.futureye.core.CoordinateTransform;
 import edu.uta.futureye.core.Element;
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.basic.FAxpb;
 import edu.uta.futureye.function.basic.FC;
 import edu.uta.futureye.function.basic.FX;
@@ -202,7 +203,17 @@ public class SFQuadraticLocal2D extends AbstractFunction implements ScalarShapeF
 	public double value(Variable v) {
 		return funCompose.value(v);
 	}
+	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		return funCompose.valueArray(v,cache);
+	}
 
+	@Override
+	public Function copy() {
+		return new SFQuadraticLocal2D(funIndex+1);
+	}
+	
 	public String toString() {
 		return "N"+(funIndex+1)+"( r,s,t )="+funOuter.toString();
 	}
@@ -1,8 +1,12 @@
 package edu.uta.futureye.lib.shapefun;
 
+import java.util.Map;
+
 import edu.uta.futureye.core.Element;
 import edu.uta.futureye.function.AbstractFunction;
+import edu.uta.futureye.function.VN;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.basic.FAxpb;
 import edu.uta.futureye.function.basic.FX;
 import edu.uta.futureye.function.intf.Function;
@@ -117,9 +121,9 @@ public class SFQuadraticLocal2DFast extends AbstractFunction implements ScalarSh
 		 */
 		@Override
 		public double value(Variable v) {
-			double r = v.get("r");
-			double s = v.get("s");
-			double t = v.get("t");
+			double r = v.get(VN.r);
+			double s = v.get(VN.s);
+			double t = v.get(VN.t);
 			if(funIndex == 0)
 				return (2.0*r-1.0)*r;
 			else if(funIndex == 1)
@@ -139,6 +143,28 @@ public class SFQuadraticLocal2DFast extends AbstractFunction implements ScalarSh
 			return 0.0;
 		}
 		
+		@Override
+		public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+			int len = v.length();
+			double[] r = v.get("r");
+			double[] s = v.get("s");
+			double[] t = v.get("t");
+			double[] rlt = new double[len];
+			if(funIndex == 0)
+				for(int i=0;i<len;i++) rlt[i] = (2.0*r[i]-1.0)*r[i];
+			else if(funIndex == 1)
+				for(int i=0;i<len;i++) rlt[i] = (2.0*s[i]-1.0)*s[i];
+			else if(funIndex == 2)
+				for(int i=0;i<len;i++) rlt[i] = (2.0*t[i]-1.0)*t[i];
+			else if(funIndex == 3)
+				for(int i=0;i<len;i++) rlt[i] = 4.0*r[i]*s[i];
+			else if(funIndex == 4)
+				for(int i=0;i<len;i++) rlt[i] = 4.0*s[i]*t[i];
+			else if(funIndex == 5)
+				for(int i=0;i<len;i++) rlt[i] = 4.0*r[i]*t[i];
+			return rlt;
+		}
+		
 		public String toString() {
 			String[] s = {
 					 "(2*r-1)*r",
@@ -215,7 +241,17 @@ public class SFQuadraticLocal2DFast extends AbstractFunction implements ScalarSh
 	public double value(Variable v) {
 		return funOuter.value(v);
 	}
+	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		return funOuter.valueArray(v,cache);
+	}
 
+	@Override
+	public Function copy() {
+		return new SFQuadraticLocal2DFast(funIndex+1);
+	}
+	
 	public String toString() {
 		return "N"+(funIndex+1)+"( r,s,t )="+funOuter.toString();
 	}
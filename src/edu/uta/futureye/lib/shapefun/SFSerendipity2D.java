@@ -6,6 +6,7 @@ import java.util.Map;
 import edu.uta.futureye.core.Element;
 import edu.uta.futureye.function.AbstractFunction;
 import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
 import edu.uta.futureye.function.basic.FAxpb;
 import edu.uta.futureye.function.basic.FC;
 import edu.uta.futureye.function.basic.FX;
@@ -152,6 +153,11 @@ public class SFSerendipity2D extends AbstractFunction implements ScalarShapeFunc
 	public double value(Variable v) {
 		return funCompose.value(v);
 	}
+	
+	@Override
+	public double[] valueArray(VariableArray v, Map<Object,Object> cache) {
+		return funCompose.valueArray(v,cache);
+	}
 
 	public String toString() {
 		return "N"+(funIndex+1)+"( r,s )="+funOuter.toString();
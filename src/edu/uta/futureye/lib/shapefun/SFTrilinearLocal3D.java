@@ -430,6 +430,11 @@ from the above 9 equations, we have:
 		return OP_ORDER1;
 	}
 	
+	@Override
+	public Function copy() {
+		return new SFTrilinearLocal3D(funIndex+1, coef);
+	}
+	
 	public String toString() {
 		if(this.coef < 1.0)
 			return this.coef+"*"+funOuter.toString();
@@ -0,0 +1,213 @@
+package edu.uta.futureye.lib.shapefun;
+
+import java.util.List;
+
+import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.intf.Function;
+import edu.uta.futureye.function.intf.ScalarShapeFunction;
+import edu.uta.futureye.function.operator.QuadratureRule;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * <blockquote><pre>
+ * Values and reference derivatives of shape functions at quadrature points
+ *
+ * 形函数及其关于局部坐标的导数只和参考单元有关，对每个积分公式只需计算一次，
+ * 保存在一维数组中：
+ *   val[i*nQP+q]     = N_i(p_q)
+ *   dVal[k][i*nQP+q] = \partial_{r_k} N_i(p_q)
+ * 单元上的积分只需要单元的Jacobian数据（computeJacobian()）和这些表做点积。
+ *
+ * 局部坐标r_k必须是独立变量，例如SFLinearLocal2DRS(r,s)，SFBilinearLocal2D(r,s)，
+ * SFQuadraticLocal2D(r,s)，SFTrilinearLocal3D(r,s,t)。面积/体积坐标的形函数
+ * （SFLinearLocal2D(r,s,t)，SFLinearLocal3D(r,s,t,u)）可以用来求值，但不能用来计算梯度。
+ *
+ * Usage:
+ *   QuadratureRule rule = QuadratureRule.rectangle(2);
+ *   ShapeFunctionTable geo = new ShapeFunctionTable(geoSFs, rule);
+ *   ShapeFunctionTable tab = new ShapeFunctionTable(dofSFs, rule);
+ *   geo.computeJacobian(coords, detJ, invJ); //for each element
+ *   tab.computeGradients(invJ, grad);
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class ShapeFunctionTable {
+	protected QuadratureRule rule;
+	protected ScalarShapeFunction[] sfs;
+	protected String[] refVarNames;
+	protected int nSF;
+	protected int nQP;
+	protected double[] val;
+	protected double[][] dVal;
+
+	/**
+	 * Tabulate <tt>sfs</tt> and derivatives with respect to <tt>refVarNames</tt>
+	 * at the points of <tt>rule</tt>
+	 *
+	 * @param sfs
+	 * @param rule
+	 * @param refVarNames local coordinates, default is sfs[0].varNames()
+	 */
+	public ShapeFunctionTable(ScalarShapeFunction[] sfs, QuadratureRule rule,
+			String ...refVarNames) {
+		this.rule = rule;
+		this.sfs = sfs.clone();
+		this.nSF = sfs.length;
+		this.nQP = rule.size();
+		if(refVarNames.length == 0) {
+			List<String> names = sfs[0].varNames();
+			refVarNames = names.toArray(new String[names.size()]);
+		}
+		this.refVarNames = refVarNames;
+
+		Variable[] vs = new Variable[nQP];
+		for(int q=0;q<nQP;q++)
+			vs[q] = rule.getVariable(q);
+		val = new double[nSF*nQP];
+		dVal = new double[refVarNames.length][nSF*nQP];
+		for(int i=0;i<nSF;i++) {
+			for(int q=0;q<nQP;q++)
+				val[i*nQP+q] = sfs[i].value(vs[q]);
+			for(int k=0;k<refVarNames.length;k++) {
+				Function d = sfs[i]._d(refVarNames[k]);
+				for(int q=0;q<nQP;q++)
+					dVal[k][i*nQP+q] = d.value(vs[q]);
+			}
+		}
+	}
+
+	/**
+	 * Check whether this table is built for exactly the shape function objects <tt>sfs</tt>
+	 */
+	public boolean isTableOf(ScalarShapeFunction[] sfs) {
+		if(sfs.length != nSF) return false;
+		for(int i=0;i<nSF;i++)
+			if(sfs[i] != this.sfs[i]) return false;
+		return true;
+	}
+
+	public QuadratureRule getRule() {
+		return rule;
+	}
+
+	public int getShapeFunctionNumber() {
+		return nSF;
+	}
+
+	public int getQuadraturePointNumber() {
+		return nQP;
+	}
+
+	public String[] getRefVarNames() {
+		return refVarNames;
+	}
+
+	/**
+	 * val[i*nQP+q] = N_i(p_q), i,q 0-based
+	 */
+	public double[] getValues() {
+		return val;
+	}
+
+	/**
+	 * dVal[i*nQP+q] = \partial_{r_k} N_i(p_q), k,i,q 0-based
+	 */
+	public double[] getDerivatives(int k) {
+		return dVal[k];
+	}
+
+	/**
+	 * rlt[q] = \sum_i nodeValues[i]*N_i(p_q)
+	 */
+	public void interpolate(double[] nodeValues, double[] rlt) {
+		for(int q=0;q<nQP;q++)
+			rlt[q] = 0.0;
+		for(int i=0;i<nSF;i++) {
+			double c = nodeValues[i];
+			int off = i*nQP;
+			for(int q=0;q<nQP;q++)
+				rlt[q] += c*val[off+q];
+		}
+	}
+
+	/**
+	 * Use this table as the geometric mapping x = \sum_g x_g*N_g(r),
+	 * compute Jacobian at quadrature points
+	 *
+	 * @param coords coords[a][g]: coordinate a of geometric node g
+	 * @param detJ (O) detJ[q]
+	 * @param invJ (O) invJ[q*dim*dim + b*dim + a] = \partial r_b / \partial x_a
+	 */
+	public void computeJacobian(double[][] coords, double[] detJ, double[] invJ) {
+		int dim = coords.length;
+		if(dim != refVarNames.length)
+			throw new FutureyeException("ShapeFunctionTable: dim="+dim+
+					" but local coordinates="+refVarNames.length);
+		double[] J = new double[dim*dim];
+		for(int q=0;q<nQP;q++) {
+			//J[a*dim+b] = \partial x_a / \partial r_b
+			for(int a=0;a<dim;a++) {
+				for(int b=0;b<dim;b++) {
+					double s = 0.0;
+					double[] d = dVal[b];
+					for(int g=0;g<nSF;g++)
+						s += coords[a][g]*d[g*nQP+q];
+					J[a*dim+b] = s;
+				}
+			}
+			int off = q*dim*dim;
+			if(dim == 1) {
+				detJ[q] = J[0];
+				invJ[off] = 1.0/J[0];
+			} else if(dim == 2) {
+				double det = J[0]*J[3]-J[1]*J[2];
+				detJ[q] = det;
+				invJ[off]   =  J[3]/det;
+				invJ[off+1] = -J[1]/det;
+				invJ[off+2] = -J[2]/det;
+				invJ[off+3] =  J[0]/det;
+			} else if(dim == 3) {
+				double c00 = J[4]*J[8]-J[5]*J[7];
+				double c01 = J[5]*J[6]-J[3]*J[8];
+				double c02 = J[3]*J[7]-J[4]*J[6];
+				double det = J[0]*c00+J[1]*c01+J[2]*c02;
+				detJ[q] = det;
+				invJ[off]   = c00/det;
+				invJ[off+1] = (J[2]*J[7]-J[1]*J[8])/det;
+				invJ[off+2] = (J[1]*J[5]-J[2]*J[4])/det;
+				invJ[off+3] = c01/det;
+				invJ[off+4] = (J[0]*J[8]-J[2]*J[6])/det;
+				invJ[off+5] = (J[2]*J[3]-J[0]*J[5])/det;
+				invJ[off+6] = c02/det;
+				invJ[off+7] = (J[1]*J[6]-J[0]*J[7])/det;
+				invJ[off+8] = (J[0]*J[4]-J[1]*J[3])/det;
+			} else
+				throw new FutureyeException("ShapeFunctionTable: dim="+dim);
+		}
+	}
+
+	/**
+	 * Physical gradients of the tabulated shape functions
+	 *   \partial_{x_a} N_i = \sum_b \partial_{r_b} N_i * \partial r_b / \partial x_a
+	 *
+	 * @param invJ from computeJacobian() of the geometric table
+	 * @param grad (O) grad[a][i*nQP+q]
+	 */
+	public void computeGradients(double[] invJ, double[][] grad) {
+		int dim = grad.length;
+		for(int i=0;i<nSF;i++) {
+			int off = i*nQP;
+			for(int q=0;q<nQP;q++) {
+				int offJ = q*dim*dim;
+				for(int a=0;a<dim;a++) {
+					double s = 0.0;
+					for(int b=0;b<dim;b++)
+						s += dVal[b][off+q]*invJ[offJ+b*dim+a];
+					grad[a][off+q] = s;
+				}
+			}
+		}
+	}
+}
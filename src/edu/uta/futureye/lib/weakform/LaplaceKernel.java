@@ -0,0 +1,508 @@
+package edu.uta.futureye.lib.weakform;
+
+import java.util.Arrays;
+
+import edu.uta.futureye.algebra.intf.Matrix;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.core.DOF;
+import edu.uta.futureye.core.Element;
+import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.basic.Vector2Function;
+import edu.uta.futureye.function.intf.Function;
+import edu.uta.futureye.function.intf.ScalarShapeFunction;
+import edu.uta.futureye.lib.shapefun.SFBilinearLocal2D;
+import edu.uta.futureye.lib.shapefun.SFLinearLocal1D;
+import edu.uta.futureye.lib.shapefun.SFLinearLocal2D;
+import edu.uta.futureye.lib.shapefun.SFLinearLocal2DRS;
+import edu.uta.futureye.lib.shapefun.SFLinearLocal3D;
+import edu.uta.futureye.util.FutureyeException;
+import edu.uta.futureye.util.container.DOFList;
+import edu.uta.futureye.util.container.NodeList;
+
+/**
+ * <blockquote><pre>
+ * Element matrices of Laplace type operators on linear elements
+ *   A_ij = (k*\nabla N_j, \nabla N_i) + (c*N_j, N_i)
+ *   b_i  = (f, N_i)
+ *   Robin border: A_ij += (d*N_j, N_i)_\Gamma2, b_i += (g, N_i)_\Gamma2
+ *
+ * 线性单元上的刚度矩阵、质量矩阵和Robin边界矩阵直接由顶点坐标解析计算，
+ * 不构造函数表达式，结果写入可重复使用的数组，每个单元不再分配新对象：
+ *   P1三角形：\nabla N_i为常数，
+ *     \int N_i^3 = |T|/10, \int N_i^2 N_j = |T|/30, \int N_i N_j N_k = |T|/60
+ *   P1四面体：\nabla N_i为常数，
+ *     \int N_i^3 = |T|/20, \int N_i^2 N_j = |T|/60, \int N_i N_j N_k = |T|/120
+ *   Q1四边形：2*2 Gauss积分，每个积分点计算Jacobian（与QuadratureRule.rectangle(2)相同）
+ *   线段（二维Robin边界）：\int N_i^3 = L/4, \int N_i^2 N_j = L/12
+ * 系数k,c,d,f,g由单元顶点上的值线性（双线性）插值，与Utils.interpolateOnElement()相同，
+ * 在上述公式下积分是精确的。常数和不带网格的Vector2Function直接取值，不需要分配Variable，
+ * 其他系数函数在第二次使用时编译（Function.compile()），之后的单元使用编译后的函数求值。
+ *
+ * Usage:
+ *   LaplaceKernel kernel = new LaplaceKernel();
+ *   if(kernel.setElement(e, DOFs)) {
+ *       kernel.assemble(g_k, g_c, g_f);
+ *       kernel.addTo(globalStiff, globalLoad);
+ *   }
+ *
+ * 同一个对象不能在多个线程中同时使用，并行组装时每个线程使用各自的weak form对象。
+ * </blockquote></pre>
+ *
+ * @author liuyueming
+ *
+ */
+public class LaplaceKernel {
+	public static final int UNSUPPORTED = 0;
+	public static final int TRIANGLE = 1;
+	public static final int RECTANGLE = 2;
+	public static final int TETRAHEDRON = 3;
+	public static final int LINE = 4;
+
+	//2*2 Gauss points on [-1,1]*[-1,1], same order as QuadratureRule.rectangle(2)
+	protected static final double[] Q1_R;
+	protected static final double[] Q1_S;
+	//Q1_N[q*4+i] = N_i(p_q), Q1_DR,Q1_DS: \partial_r N_i, \partial_s N_i
+	protected static final double[] Q1_N = new double[16];
+	protected static final double[] Q1_DR = new double[16];
+	protected static final double[] Q1_DS = new double[16];
+	static {
+		double a2 = 0.577350269189626;
+		Q1_R = new double[]{a2,-a2,a2,-a2};
+		Q1_S = new double[]{a2,a2,-a2,-a2};
+		//vertices of reference element: N_i(ri,si) = 1
+		double[] ri = {-1, 1, 1,-1};
+		double[] si = {-1,-1, 1, 1};
+		for(int q=0;q<4;q++) {
+			for(int i=0;i<4;i++) {
+				Q1_N[q*4+i]  = (1+ri[i]*Q1_R[q])*(1+si[i]*Q1_S[q])/4.0;
+				Q1_DR[q*4+i] = ri[i]*(1+si[i]*Q1_S[q])/4.0;
+				Q1_DS[q*4+i] = si[i]*(1+ri[i]*Q1_R[q])/4.0;
+			}
+		}
+	}
+
+	protected int type = UNSUPPORTED;
+	protected Element element = null;
+	protected int n = 0;
+	protected int dim = 0;
+	//coords[a][i]: coordinate a of vertex i
+	protected double[][] coords = new double[3][4];
+	//globalIndex[i]: global index of the DOF on vertex i
+	protected int[] globalIndex = new int[4];
+
+	//Element matrix and vector, only the upper left n*n (n) part is used
+	protected double[][] A = new double[4][4];
+	protected double[] b = new double[4];
+
+	//Work arrays
+	protected double[] kv = new double[4];
+	protected double[] cv = new double[4];
+	protected double[] fv = new double[4];
+	protected double[][] grad = new double[3][4];
+
+	//最近使用的系数函数和编译后的函数（Function.compile()），
+	//同一个函数用于第二个单元时才编译，只用一次的函数（例如每个单元新建的函数）不编译
+	protected boolean compile = true;
+	protected Function[] srcFuns = new Function[8];
+	protected Function[] cmpFuns = new Function[8];
+	protected int nextFun = 0;
+
+	/**
+	 * Prepare the kernel for element <tt>e</tt>
+	 *
+	 * @param e
+	 * @param DOFs DOFs of <tt>e</tt>
+	 * @return false if <tt>e</tt> is not a P1 triangle, Q1 rectangle or P1 tetrahedron
+	 */
+	public boolean setElement(Element e, DOFList DOFs) {
+		int nV = e.vertices().size();
+		type = UNSUPPORTED;
+		if(DOFs.size() != nV) return false;
+		int t = UNSUPPORTED;
+		if(nV == 3 && e.dim() == 2) t = TRIANGLE;
+		else if(nV == 4 && e.dim() == 2) t = RECTANGLE;
+		else if(nV == 4 && e.dim() == 3) t = TETRAHEDRON;
+		else return false;
+		for(int i=1;i<=nV;i++) {
+			ScalarShapeFunction sf = DOFs.at(i).getSSF();
+			if(t == TRIANGLE && !(sf instanceof SFLinearLocal2DRS || sf instanceof SFLinearLocal2D))
+				return false;
+			if(t == RECTANGLE && !(sf instanceof SFBilinearLocal2D))
+				return false;
+			if(t == TETRAHEDRON && !(sf instanceof SFLinearLocal3D))
+				return false;
+		}
+		if(!setVertices(e, DOFs, e.dim())) return false;
+		type = t;
+		return true;
+	}
+
+	/**
+	 * Prepare the kernel for border element <tt>be</tt>:
+	 * linear segment of a 2D element or linear triangle face of a 3D element
+	 *
+	 * @param be
+	 * @param beDOFs DOFs of <tt>be</tt>
+	 * @param dim dimension of the space
+	 * @return false if not supported
+	 */
+	public boolean setBorderElement(Element be, DOFList beDOFs, int dim) {
+		int nV = be.vertices().size();
+		type = UNSUPPORTED;
+		if(beDOFs.size() != nV) return false;
+		int t = UNSUPPORTED;
+		if(nV == 2 && dim == 2) t = LINE;
+		else if(nV == 3 && dim == 3) t = TRIANGLE;
+		else return false;
+		for(int i=1;i<=nV;i++) {
+			ScalarShapeFunction sf = beDOFs.at(i).getSSF();
+			if(t == LINE && !(sf instanceof SFLinearLocal1D))
+				return false;
+			if(t == TRIANGLE && !(sf instanceof SFLinearLocal2D))
+				return false;
+		}
+		if(!setVertices(be, beDOFs, dim)) return false;
+		type = t;
+		return true;
+	}
+
+	/**
+	 * 线性单元上第j个自由度对应第j个结点（e.nodes的顺序，不一定和e.vertices()相同）
+	 */
+	protected boolean setVertices(Element e, DOFList DOFs, int dim) {
+		NodeList nl = e.nodes;
+		int nV = nl.size();
+		for(int i=0;i<nV;i++)
+			globalIndex[i] = 0;
+		for(int i=1;i<=nV;i++) {
+			DOF dof = DOFs.at(i);
+			int li = dof.getLocalIndex();
+			if(li < 1 || li > nV || globalIndex[li-1] != 0) return false;
+			globalIndex[li-1] = dof.getGlobalIndex();
+		}
+		for(int i=1;i<=nV;i++) {
+			for(int a=0;a<dim;a++)
+				coords[a][i-1] = nl.at(i).coord(a+1);
+		}
+		this.element = e;
+		this.n = nV;
+		this.dim = dim;
+		return true;
+	}
+
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * 是否编译系数函数（默认为true）
+	 *
+	 * @param compile
+	 */
+	public void setCompile(boolean compile) {
+		this.compile = compile;
+		Arrays.fill(srcFuns, null);
+		Arrays.fill(cmpFuns, null);
+	}
+
+	/**
+	 * The compiled version of <tt>fun</tt> if it has been used before
+	 *
+	 * @param fun
+	 * @return <tt>fun</tt> itself on first use
+	 */
+	public Function compiled(Function fun) {
+		if(!compile || fun == null)
+			return fun;
+		for(int i=0;i<srcFuns.length;i++) {
+			if(srcFuns[i] == fun) {
+				if(cmpFuns[i] == null)
+					cmpFuns[i] = fun.compile();
+				return cmpFuns[i];
+			}
+		}
+		srcFuns[nextFun] = fun;
+		cmpFuns[nextFun] = null;
+		nextFun = (nextFun+1)%srcFuns.length;
+		return fun;
+	}
+
+	/**
+	 * Values of <tt>fun</tt> on vertices of current element in the order of DOFs,
+	 * same as Utils.valuesOnVertices()
+	 *
+	 * @param fun
+	 * @param rlt (O) rlt[i] value on vertex i, 0.0 if <tt>fun</tt> is null
+	 */
+	protected void valuesOnVertices(Function fun, double[] rlt) {
+		if(fun == null) {
+			for(int i=0;i<n;i++) rlt[i] = 0.0;
+		} else if(fun.isConstant()) {
+			double v = fun.value();
+			for(int i=0;i<n;i++) rlt[i] = v;
+		} else if(fun instanceof Vector2Function &&
+				((Vector2Function)fun).getMesh() == null) {
+			Vector u = ((Vector2Function)fun).getVector();
+			for(int i=0;i<n;i++) rlt[i] = u.get(globalIndex[i]);
+		} else {
+			Function cf = compiled(fun);
+			for(int i=0;i<n;i++) {
+				Variable var = Variable.createFrom(fun, element.nodes.at(i+1), globalIndex[i]);
+				var.setElement(element);
+				rlt[i] = cf.value(var);
+			}
+		}
+	}
+
+	/**
+	 * Compute element matrix and vector on current element:
+	 *   A_ij = (k*\nabla N_j, \nabla N_i) + (c*N_j, N_i)
+	 *   b_i  = (f, N_i)
+	 *
+	 * @param k null: k=1 and c=0 (only (\nabla N_j, \nabla N_i))
+	 * @param c null: c=0
+	 * @param f null: f=0
+	 */
+	public void assemble(Function k, Function c, Function f) {
+		boolean hasK = k != null;
+		if(hasK) {
+			valuesOnVertices(k, kv);
+			valuesOnVertices(c, cv);
+		} else {
+			for(int i=0;i<n;i++) {
+				kv[i] = 1.0;
+				cv[i] = 0.0;
+			}
+		}
+		valuesOnVertices(f, fv);
+		if(type == TRIANGLE && dim == 2)
+			assembleTriangle(hasK && c != null);
+		else if(type == RECTANGLE)
+			assembleRectangle(hasK && c != null);
+		else if(type == TETRAHEDRON)
+			assembleTetrahedron(hasK && c != null);
+		else
+			throw new FutureyeException("LaplaceKernel: unsupported element type "+type);
+	}
+
+	/**
+	 * Compute border matrix and vector on current border element:
+	 *   A_ij = (d*N_j, N_i)_\Gamma2
+	 *   b_i  = (g, N_i)_\Gamma2
+	 *
+	 * @param d null: A=0
+	 * @param g null: b=0
+	 */
+	public void assembleBorder(Function d, Function g) {
+		valuesOnVertices(d, cv);
+		valuesOnVertices(g, fv);
+		double meas = 0.0;
+		if(type == LINE) {
+			double dx = coords[0][1]-coords[0][0];
+			double dy = coords[1][1]-coords[1][0];
+			meas = Math.sqrt(dx*dx+dy*dy);
+		} else if(type == TRIANGLE && dim == 3) {
+			meas = triangleArea3D();
+		} else
+			throw new FutureyeException("LaplaceKernel: unsupported border type "+type);
+		for(int i=0;i<n;i++)
+			for(int j=0;j<n;j++)
+				A[i][j] = 0.0;
+		if(d != null)
+			mass(meas, cv);
+		load(meas, fv);
+	}
+
+	/**
+	 * Add element matrix and vector to global system, null will be skipped
+	 */
+	public void addTo(Matrix globalStiff, Vector globalLoad) {
+		for(int i=0;i<n;i++) {
+			int row = globalIndex[i];
+			if(globalStiff != null) {
+				double[] Ai = A[i];
+				for(int j=0;j<n;j++)
+					globalStiff.add(row, globalIndex[j], Ai[j]);
+			}
+			if(globalLoad != null)
+				globalLoad.add(row, b[i]);
+		}
+	}
+
+	/**
+	 * Element matrix, A[i][j] i,j=0...n-1, valid until next call of assemble()
+	 */
+	public double[][] getMatrix() {
+		return A;
+	}
+
+	/**
+	 * Element vector, b[i] i=0...n-1, valid until next call of assemble()
+	 */
+	public double[] getVector() {
+		return b;
+	}
+
+	protected double kMean() {
+		double s = 0.0;
+		for(int i=0;i<n;i++) s += kv[i];
+		return s/n;
+	}
+
+	/**
+	 * A_ij += meas*\sum_l c_l*\int N_i N_j N_l / meas
+	 *
+	 * 单纯形（线段、三角形、四面体）上重心坐标积分公式：
+	 *   \int N_i^a N_j^b N_l^c = meas*a!b!c!dim!/(a+b+c+dim)!
+	 */
+	protected void mass(double meas, double[] cv) {
+		//dimension of the simplex
+		int sd = n-1;
+		double m3, m21, m111;
+		if(sd == 1) {
+			m3 = 1.0/4.0; m21 = 1.0/12.0; m111 = 0.0;
+		} else if(sd == 2) {
+			m3 = 1.0/10.0; m21 = 1.0/30.0; m111 = 1.0/60.0;
+		} else {
+			m3 = 1.0/20.0; m21 = 1.0/60.0; m111 = 1.0/120.0;
+		}
+		double cs = 0.0;
+		for(int l=0;l<n;l++) cs += cv[l];
+		for(int i=0;i<n;i++) {
+			for(int j=0;j<n;j++) {
+				double v;
+				if(i == j)
+					//c_i*m3 + \sum_{l!=i} c_l*m21
+					v = cv[i]*m3 + (cs-cv[i])*m21;
+				else
+					//(c_i+c_j)*m21 + \sum_{l!=i,j} c_l*m111
+					v = (cv[i]+cv[j])*m21 + (cs-cv[i]-cv[j])*m111;
+				A[i][j] += meas*v;
+			}
+		}
+	}
+
+	/**
+	 * b_i = meas*\sum_l f_l*\int N_i N_l / meas
+	 *   \int N_i^2 = 2*meas/((sd+1)*(sd+2)), \int N_i N_l = meas/((sd+1)*(sd+2))
+	 * =>
+	 *   b_i = meas/((sd+1)*(sd+2))*(f_i + \sum_l f_l)
+	 */
+	protected void load(double meas, double[] fv) {
+		int sd = n-1;
+		double fs = 0.0;
+		for(int l=0;l<n;l++) fs += fv[l];
+		double w = meas/((sd+1)*(sd+2));
+		for(int i=0;i<n;i++)
+			b[i] = w*(fv[i]+fs);
+	}
+
+	protected void assembleTriangle(boolean hasC) {
+		double[] x = coords[0];
+		double[] y = coords[1];
+		//2*area with sign
+		double det = (x[1]-x[0])*(y[2]-y[0])-(x[2]-x[0])*(y[1]-y[0]);
+		double area = 0.5*Math.abs(det);
+		//\nabla N_i = (y_{i+1}-y_{i+2}, x_{i+2}-x_{i+1})/det
+		for(int i=0;i<3;i++) {
+			int i1 = (i+1)%3, i2 = (i+2)%3;
+			grad[0][i] = (y[i1]-y[i2])/det;
+			grad[1][i] = (x[i2]-x[i1])/det;
+		}
+		double ka = kMean()*area;
+		for(int i=0;i<3;i++)
+			for(int j=0;j<3;j++)
+				A[i][j] = ka*(grad[0][i]*grad[0][j]+grad[1][i]*grad[1][j]);
+		if(hasC) mass(area, cv);
+		load(area, fv);
+	}
+
+	protected void assembleTetrahedron(boolean hasC) {
+		double[] x = coords[0];
+		double[] y = coords[1];
+		double[] z = coords[2];
+		//J[a][b] = \partial x_a / \partial r_b, N_1=1-r-s-t, N_2=r, N_3=s, N_4=t
+		double j00 = x[1]-x[0], j01 = x[2]-x[0], j02 = x[3]-x[0];
+		double j10 = y[1]-y[0], j11 = y[2]-y[0], j12 = y[3]-y[0];
+		double j20 = z[1]-z[0], j21 = z[2]-z[0], j22 = z[3]-z[0];
+		double c00 = j11*j22-j12*j21;
+		double c01 = j12*j20-j10*j22;
+		double c02 = j10*j21-j11*j20;
+		double det = j00*c00+j01*c01+j02*c02;
+		double vol = Math.abs(det)/6.0;
+		//rows of J^{-1}: \nabla r, \nabla s, \nabla t
+		grad[0][1] = c00/det;
+		grad[1][1] = (j02*j21-j01*j22)/det;
+		grad[2][1] = (j01*j12-j02*j11)/det;
+		grad[0][2] = c01/det;
+		grad[1][2] = (j00*j22-j02*j20)/det;
+		grad[2][2] = (j02*j10-j00*j12)/det;
+		grad[0][3] = c02/det;
+		grad[1][3] = (j01*j20-j00*j21)/det;
+		grad[2][3] = (j00*j11-j01*j10)/det;
+		for(int a=0;a<3;a++)
+			grad[a][0] = -grad[a][1]-grad[a][2]-grad[a][3];
+		double kvol = kMean()*vol;
+		for(int i=0;i<4;i++)
+			for(int j=0;j<4;j++)
+				A[i][j] = kvol*(grad[0][i]*grad[0][j]+grad[1][i]*grad[1][j]+grad[2][i]*grad[2][j]);
+		if(hasC) mass(vol, cv);
+		load(vol, fv);
+	}
+
+	protected void assembleRectangle(boolean hasC) {
+		double[] x = coords[0];
+		double[] y = coords[1];
+		for(int i=0;i<4;i++) {
+			for(int j=0;j<4;j++)
+				A[i][j] = 0.0;
+			b[i] = 0.0;
+		}
+		for(int q=0;q<4;q++) {
+			int o = q*4;
+			double xr = 0.0, xs = 0.0, yr = 0.0, ys = 0.0;
+			double kq = 0.0, cq = 0.0, fq = 0.0;
+			for(int g=0;g<4;g++) {
+				xr += x[g]*Q1_DR[o+g];
+				xs += x[g]*Q1_DS[o+g];
+				yr += y[g]*Q1_DR[o+g];
+				ys += y[g]*Q1_DS[o+g];
+				double N = Q1_N[o+g];
+				kq += kv[g]*N;
+				cq += cv[g]*N;
+				fq += fv[g]*N;
+			}
+			double det = xr*ys-xs*yr;
+			//weights of 2*2 Gauss are 1.0
+			double wJ = Math.abs(det);
+			double rx =  ys/det, ry = -xs/det;
+			double sx = -yr/det, sy =  xr/det;
+			for(int i=0;i<4;i++) {
+				grad[0][i] = Q1_DR[o+i]*rx + Q1_DS[o+i]*sx;
+				grad[1][i] = Q1_DR[o+i]*ry + Q1_DS[o+i]*sy;
+			}
+			for(int i=0;i<4;i++) {
+				double Ni = Q1_N[o+i];
+				for(int j=0;j<4;j++) {
+					double v = kq*(grad[0][i]*grad[0][j]+grad[1][i]*grad[1][j]);
+					if(hasC) v += cq*Ni*Q1_N[o+j];
+					A[i][j] += wJ*v;
+				}
+				b[i] += wJ*fq*Ni;
+			}
+		}
+	}
+
+	protected double triangleArea3D() {
+		double ax = coords[0][1]-coords[0][0];
+		double ay = coords[1][1]-coords[1][0];
+		double az = coords[2][1]-coords[2][0];
+		double bx = coords[0][2]-coords[0][0];
+		double by = coords[1][2]-coords[1][0];
+		double bz = coords[2][2]-coords[2][0];
+		double cx = ay*bz-az*by;
+		double cy = az*bx-ax*bz;
+		double cz = ax*by-ay*bx;
+		return 0.5*Math.sqrt(cx*cx+cy*cy+cz*cz);
+	}
+}
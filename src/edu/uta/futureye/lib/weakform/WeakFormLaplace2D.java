@@ -1,6 +1,8 @@
 package edu.uta.futureye.lib.weakform;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import edu.uta.futureye.algebra.intf.Matrix;
@@ -12,9 +14,14 @@ import edu.uta.futureye.core.NodeType;
 import edu.uta.futureye.function.intf.Function;
 import edu.uta.futureye.function.intf.ScalarShapeFunction;
 import edu.uta.futureye.function.operator.FOIntegrate;
+import edu.uta.futureye.function.operator.QuadratureRule;
+import edu.uta.futureye.lib.shapefun.SFBilinearLocal2D;
+import edu.uta.futureye.lib.shapefun.SFLinearLocal2DRS;
+import edu.uta.futureye.lib.shapefun.ShapeFunctionTable;
 import edu.uta.futureye.util.Utils;
 import edu.uta.futureye.util.container.DOFList;
 import edu.uta.futureye.util.container.ElementList;
+import edu.uta.futureye.util.container.VertexList;
 
 /**
  * <blockquote><pre>
@@ -124,6 +131,10 @@ public class WeakFormLaplace2D extends AbstractScalarWeakForm {
 
 	/**
 	 * Optimized for fast assemble, 10% speedup
+	 * 
+	 * 线性三角形和双线性四边形单元使用LaplaceKernel直接计算单元矩阵；
+	 * 其他形函数局部坐标为(r,s)的三角形和四边形单元使用形函数表(ShapeFunctionTable)，
+	 * 单元上只需要计算积分点处的Jacobian，不再构造函数表达式
 	 */
 	@Override
 	public void assembleElement(Element e, 
@@ -132,6 +143,145 @@ public class WeakFormLaplace2D extends AbstractScalarWeakForm {
 		DOFList DOFs = e.getAllDOFList(DOFOrder.NEFV);
 		int nDOFs = DOFs.size();
 		
+		if(kernel.setElement(e, DOFs)) {
+			kernel.assemble(g_k, g_c, g_f);
+			kernel.addTo(globalStiff, globalLoad);
+			assembleBorder(e, globalStiff, globalLoad);
+			return;
+		}
+		
+		ScalarShapeFunction[] sfs = new ScalarShapeFunction[nDOFs];
+		for(int i=1;i<=nDOFs;i++)
+			sfs[i-1] = DOFs.at(i).getSSF();
+		ShapeFunctionTable tab = getTable(sfs, e.vertices().size());
+		if(tab != null)
+			assembleElementByTable(e, DOFs, tab, globalStiff, globalLoad);
+		else
+			assembleElementByFunction(e, DOFs, globalStiff, globalLoad);
+		
+		assembleBorder(e, globalStiff, globalLoad);
+	}
+	
+	//Element matrices of linear elements
+	protected LaplaceKernel kernel = new LaplaceKernel();
+	
+	//Tables of DOF shape functions, one for each kind of element
+	protected List<ShapeFunctionTable> tables = new ArrayList<ShapeFunctionTable>();
+	//Tables of geometric mapping (linear triangle, bilinear rectangle)
+	protected ShapeFunctionTable geoTriangle = null;
+	protected ShapeFunctionTable geoRectangle = null;
+	
+	/**
+	 * Return the table of shape functions <tt>sfs</tt>, null if not supported
+	 * 
+	 * @param sfs
+	 * @param nVertex
+	 * @return
+	 */
+	protected ShapeFunctionTable getTable(ScalarShapeFunction[] sfs, int nVertex) {
+		if(nVertex != 3 && nVertex != 4)
+			return null;
+		for(ShapeFunctionTable t : tables) {
+			if(t.isTableOf(sfs))
+				return t;
+		}
+		//local coordinates must be independent variables (r,s)
+		for(ScalarShapeFunction sf : sfs) {
+			List<String> names = sf.varNames();
+			if(names.size() != 2 || !names.contains("r") || !names.contains("s"))
+				return null;
+		}
+		QuadratureRule rule = null;
+		if(nVertex == 3) {
+			rule = QuadratureRule.triangle(4);
+			if(geoTriangle == null)
+				geoTriangle = new ShapeFunctionTable(new ScalarShapeFunction[]{
+						new SFLinearLocal2DRS(1),new SFLinearLocal2DRS(2),new SFLinearLocal2DRS(3)},
+						rule, "r", "s");
+		} else {
+			rule = QuadratureRule.rectangle(2);
+			if(geoRectangle == null)
+				geoRectangle = new ShapeFunctionTable(new ScalarShapeFunction[]{
+						new SFBilinearLocal2D(1),new SFBilinearLocal2D(2),
+						new SFBilinearLocal2D(3),new SFBilinearLocal2D(4)},
+						rule, "r", "s");
+		}
+		ShapeFunctionTable t = new ShapeFunctionTable(sfs, rule, "r", "s");
+		tables.add(t);
+		return t;
+	}
+	
+	/**
+	 * 使用形函数表在单元e上积分：
+	 *   A_ij = \sum_q w_q*|J_q|*( k_q*(N_i,x*N_j,x + N_i,y*N_j,y) + c_q*N_i*N_j )
+	 *   b_i  = \sum_q w_q*|J_q|*f_q*N_i
+	 * 系数k,c,f由单元顶点上的值插值得到，与Utils.interpolateOnElement()相同
+	 */
+	protected void assembleElementByTable(Element e, DOFList DOFs, ShapeFunctionTable tab,
+			Matrix globalStiff,	Vector globalLoad) {
+		int nDOFs = DOFs.size();
+		VertexList vl = e.vertices();
+		int nV = vl.size();
+		ShapeFunctionTable geo = nV == 3 ? geoTriangle : geoRectangle;
+		int nQP = tab.getQuadraturePointNumber();
+		
+		double[][] coords = new double[2][nV];
+		for(int g=1;g<=nV;g++) {
+			coords[0][g-1] = vl.at(g).coord(1);
+			coords[1][g-1] = vl.at(g).coord(2);
+		}
+		double[] detJ = new double[nQP];
+		double[] invJ = new double[nQP*4];
+		geo.computeJacobian(coords, detJ, invJ);
+		double[][] grad = new double[2][nDOFs*nQP];
+		tab.computeGradients(invJ, grad);
+		
+		//w_q*|J_q|
+		double[] w = tab.getRule().getWeights();
+		double[] wJ = new double[nQP];
+		for(int q=0;q<nQP;q++)
+			wJ[q] = w[q]*Math.abs(detJ[q]);
+		
+		double[] kq = null;
+		double[] cq = null;
+		if(g_k != null) {
+			kq = new double[nQP];
+			geo.interpolate(Utils.valuesOnVertices(kernel.compiled(g_k), e), kq);
+			cq = new double[nQP];
+			geo.interpolate(Utils.valuesOnVertices(kernel.compiled(g_c), e), cq);
+		}
+		double[] fq = new double[nQP];
+		geo.interpolate(Utils.valuesOnVertices(kernel.compiled(g_f), e), fq);
+		
+		double[] N = tab.getValues();
+		double[] Nx = grad[0];
+		double[] Ny = grad[1];
+		for(int i=0;i<nDOFs;i++) {
+			int nGlobalRow = DOFs.at(i+1).getGlobalIndex();
+			int oi = i*nQP;
+			for(int j=0;j<nDOFs;j++) {
+				int nGlobalCol = DOFs.at(j+1).getGlobalIndex();
+				int oj = j*nQP;
+				double lhsVal = 0.0;
+				for(int q=0;q<nQP;q++) {
+					double v = Nx[oi+q]*Nx[oj+q] + Ny[oi+q]*Ny[oj+q];
+					if(kq != null)
+						v = kq[q]*v + cq[q]*N[oi+q]*N[oj+q];
+					lhsVal += wJ[q]*v;
+				}
+				globalStiff.add(nGlobalRow, nGlobalCol, lhsVal);
+			}
+			double rhsVal = 0.0;
+			for(int q=0;q<nQP;q++)
+				rhsVal += wJ[q]*fq[q]*N[oi+q];
+			globalLoad.add(nGlobalRow, rhsVal);
+		}
+	}
+	
+	protected void assembleElementByFunction(Element e, DOFList DOFs,
+			Matrix globalStiff,	Vector globalLoad) {
+		int nDOFs = DOFs.size();
+		
 		//Update Jacobin on e
 		e.updateJacobinLinear2D();
 		
@@ -206,7 +356,10 @@ public class WeakFormLaplace2D extends AbstractScalarWeakForm {
 			}
 			globalLoad.add(nGlobalRow, rhsVal);
 		}
-		
+	}
+	
+	protected void assembleBorder(Element e, 
+			Matrix globalStiff,	Vector globalLoad) {
 		//Robin:  d*u + k*u_n= q (自然边界：d==k, q=0)
 		//if(g_d != null && e.isBorderElement()) {
 		if(e.isBorderElement()) {
@@ -215,14 +368,22 @@ public class WeakFormLaplace2D extends AbstractScalarWeakForm {
 			for(int n=1;n<=beList.size();n++) {
 				Element be = beList.at(n);
 				
-				Function fd = null;
-				if(g_d != null) fd = Utils.interpolateOnElement(g_d, be);
 				//Check node type
 				NodeType nodeType = be.getBorderNodeType();
 				if(nodeType == NodeType.Neumann || nodeType == NodeType.Robin) {
 					DOFList beDOFs = be.getAllDOFList(DOFOrder.NEFV);
 					int nBeDOF = beDOFs.size();
 					
+					//Linear segment
+					if(kernel.setBorderElement(be, beDOFs, 2)) {
+						kernel.assembleBorder(g_d, g_g);
+						kernel.addTo(g_d == null ? null : globalStiff,
+								g_g == null ? null : globalLoad);
+						continue;
+					}
+					
+					Function fd = null;
+					if(g_d != null) fd = Utils.interpolateOnElement(g_d, be);
 					//Update Jacobin on be
 					be.updateJacobinLinear1D();
 					
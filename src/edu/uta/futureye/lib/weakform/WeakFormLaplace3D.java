@@ -112,8 +112,13 @@ public class WeakFormLaplace3D extends AbstractScalarWeakForm {
 	}
 	
 	
+	//Element matrices of linear elements
+	protected LaplaceKernel kernel = new LaplaceKernel();
+	
 	/**
 	 * Optimized for fast assemble, 10% speedup
+	 * 
+	 * 线性四面体单元使用LaplaceKernel直接计算单元矩阵
 	 */
 	@Override
 	public void assembleElement(Element e, 
@@ -122,6 +127,13 @@ public class WeakFormLaplace3D extends AbstractScalarWeakForm {
 		DOFList DOFs = e.getAllDOFList(DOFOrder.NEFV);
 		int nDOFs = DOFs.size();
 		
+		if(kernel.setElement(e, DOFs)) {
+			kernel.assemble(g_k, g_c, g_f);
+			kernel.addTo(globalStiff, globalLoad);
+			assembleBorder(e, globalStiff, globalLoad);
+			return;
+		}
+		
 		//Update Jacobin on e
 		e.updateJacobinLinear3D();
 		
@@ -193,23 +205,34 @@ public class WeakFormLaplace3D extends AbstractScalarWeakForm {
 			globalLoad.add(nGlobalRow, rhsVal);
 		}
 		
+		assembleBorder(e, globalStiff, globalLoad);
+	}
+	
+	protected void assembleBorder(Element e, 
+			Matrix globalStiff, Vector globalLoad) {
 		//Robin:  d*u + k*u_n= q (自然边界：d==k, q=0)
 		if(g_d != null && e.isBorderElement()) {
 			ElementList beList = e.getBorderElements();
 			for(int n=1;n<=beList.size();n++) {
 				Element be = beList.at(n);
 				
-				Function fd = null;
-				if(g_d != null) fd = Utils.interpolateOnElement(g_d, be);
-				
 				//Check node type
 				NodeType nodeType = be.getBorderNodeType();
 				if(nodeType == NodeType.Neumann || nodeType == NodeType.Robin) {
+					DOFList beDOFs = be.getAllDOFList(DOFOrder.NEFV);
+					int nBeDOF = beDOFs.size();
+					
+					//Linear triangle face
+					if(kernel.setBorderElement(be, beDOFs, 3)) {
+						kernel.assembleBorder(g_d, g_g);
+						kernel.addTo(globalStiff, g_g == null ? null : globalLoad);
+						continue;
+					}
 					
+					Function fd = null;
+					if(g_d != null) fd = Utils.interpolateOnElement(g_d, be);
 					//Update Jacobin on be
 					be.updateJacobinLinear2D();
-					DOFList beDOFs = be.getAllDOFList(DOFOrder.NEFV);
-					int nBeDOF = beDOFs.size();
 					
 					//形函数计算需要和单元关联
 					for(int i=1;i<=nBeDOF;i++) {
@@ -0,0 +1,84 @@
+package edu.uta.futureye.test;
+
+import static edu.uta.futureye.function.operator.FMath.X;
+import static edu.uta.futureye.function.operator.FMath.Y;
+import static edu.uta.futureye.function.operator.FMath.abs;
+import static edu.uta.futureye.function.operator.FMath.pow;
+import static edu.uta.futureye.function.operator.FMath.sqrt;
+
+import edu.uta.futureye.core.DOFOrder;
+import edu.uta.futureye.core.Element;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.NodeType;
+import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.intf.Function;
+import edu.uta.futureye.lib.weakform.LaplaceKernel;
+import edu.uta.futureye.test.junit.TestMeshes;
+import edu.uta.futureye.util.container.ElementList;
+
+/**
+ * 比较表达式树与编译后的函数（Function.compile()）求值所用的时间，
+ * 以及LaplaceKernel使用两者计算单元矩阵所用的时间
+ *
+ * @author liuyueming
+ *
+ */
+public class TestCompiledFunction {
+
+	public static long timeValue(Function f, int n) {
+		Variable v = new Variable("x", 0.0).set("y", 0.0);
+		double s = 0.0;
+		long begin = System.currentTimeMillis();
+		for(int i=0;i<n;i++) {
+			v.set("x", 0.1+(i%1000)*1e-3);
+			v.set("y", 0.2+(i%777)*1e-3);
+			s += f.value(v);
+		}
+		long end = System.currentTimeMillis();
+		if(Double.isNaN(s)) System.out.println("NaN");
+		return end-begin;
+	}
+
+	public static long timeKernel(Mesh mesh, Function k, Function c, Function f, boolean compile) {
+		ElementList eList = mesh.getElementList();
+		LaplaceKernel kernel = new LaplaceKernel();
+		kernel.setCompile(compile);
+		long begin = System.currentTimeMillis();
+		for(int i=1;i<=eList.size();i++) {
+			Element e = eList.at(i);
+			if(kernel.setElement(e, e.getAllDOFList(DOFOrder.NEFV)))
+				kernel.assemble(k, c, f);
+		}
+		return System.currentTimeMillis()-begin;
+	}
+
+	public static void main(String[] args) {
+		Function r2 = X.M(X).A(Y.M(Y));
+		Function k = sqrt(r2.A(1.0)).A(pow(X.S(0.5),2.0).M(3.0)).D(r2.A(2.0));
+		Function c = abs(X.S(Y)).A(0.1).M(pow(X.A(Y).A(1.0),1.5));
+		Function f = r2.M(-2.0).A(36.0).M(sqrt(X.A(2.0))).D(Y.A(1.0));
+		Function[] funs = {r2.M(-2.0).A(36.0), k, c, f};
+
+		int n = 5000000;
+		for(Function fun : funs) {
+			Function cf = fun.compile();
+			//warm up
+			timeValue(fun, n);
+			timeValue(cf, n);
+			System.out.println(fun);
+			System.out.println("  tree="+timeValue(fun, n)+"ms compiled="+timeValue(cf, n)+"ms");
+		}
+
+		int m = 300;
+		Mesh[] meshes = {TestMeshes.triangles(m), TestMeshes.rectangles(m)};
+		for(Mesh mesh : meshes) {
+			TestMeshes.prepare(mesh, NodeType.Dirichlet);
+			for(int rep=0;rep<5;rep++) {
+				long t1 = timeKernel(mesh, k, c, f, false);
+				long t2 = timeKernel(mesh, k, c, f, true);
+				System.out.println("LaplaceKernel "+mesh.getElementList().size()+
+						" elements: tree="+t1+"ms compiled="+t2+"ms");
+			}
+		}
+	}
+}
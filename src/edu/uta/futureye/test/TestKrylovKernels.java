@@ -0,0 +1,230 @@
+package edu.uta.futureye.test;
+
+import java.util.Random;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.FullVector;
+import edu.uta.futureye.algebra.intf.AlgebraVector;
+import edu.uta.futureye.algebra.solver.Solver;
+
+/**
+ * 比较CG中分开计算的向量运算与合并计算的向量运算（multDot、addNorm2）每步所用的时间，
+ * 以及多个右端项逐个求解与block CG同时求解所用的时间（残量检查参见junit.BlockSolverTest）
+ *
+ * @author liuyueming
+ *
+ */
+public class TestKrylovKernels {
+
+	/**
+	 * 单位立方体上m*m*m个内部结点的7点差分Laplace矩阵
+	 */
+	public static CompressedRowMatrix laplace3D(int m) {
+		int n = m*m*m;
+		CompressedRowMatrix A = new CompressedRowMatrix(n, n);
+		int[] idx = new int[7];
+		double[] val = new double[7];
+		for(int i=0;i<m;i++) {
+			for(int j=0;j<m;j++) {
+				for(int k=0;k<m;k++) {
+					int row = (i*m+j)*m+k;
+					int nz = 0;
+					if(i>0)   { idx[nz] = row-m*m; val[nz++] = -1.0; }
+					if(j>0)   { idx[nz] = row-m;   val[nz++] = -1.0; }
+					if(k>0)   { idx[nz] = row-1;   val[nz++] = -1.0; }
+					idx[nz] = row; val[nz++] = 6.0;
+					if(k<m-1) { idx[nz] = row+1;   val[nz++] = -1.0; }
+					if(j<m-1) { idx[nz] = row+m;   val[nz++] = -1.0; }
+					if(i<m-1) { idx[nz] = row+m*m; val[nz++] = -1.0; }
+					int[] idx2 = new int[nz];
+					double[] val2 = new double[nz];
+					System.arraycopy(idx, 0, idx2, 0, nz);
+					System.arraycopy(val, 0, val2, 0, nz);
+					A.setRow(row+1, idx2, val2);
+				}
+			}
+		}
+		return A;
+	}
+
+	/**
+	 * n阶带状对称正定矩阵，每行2*w+1个非零元素，a(i,j)=-1/(1+|i-j|)
+	 */
+	public static CompressedRowMatrix band(int n, int w) {
+		CompressedRowMatrix A = new CompressedRowMatrix(n, n);
+		double diag = 1e-3;
+		for(int d=1;d<=w;d++)
+			diag += 2.0/(1+d);
+		for(int i=0;i<n;i++) {
+			int lo = Math.max(0, i-w), hi = Math.min(n-1, i+w);
+			int[] idx = new int[hi-lo+1];
+			double[] val = new double[idx.length];
+			for(int j=lo;j<=hi;j++) {
+				idx[j-lo] = j;
+				val[j-lo] = j == i ? diag : -1.0/(1+Math.abs(i-j));
+			}
+			A.setRow(i+1, idx, val);
+		}
+		return A;
+	}
+
+	/**
+	 * 不使用合并运算的CG（每步分别调用mult、dot、add、norm2），返回迭代次数
+	 */
+	public static int solveCGUnfused(CompressedRowMatrix A, AlgebraVector b,
+			AlgebraVector x, double eps, int maxIter) {
+		int dim = b.getDim();
+		AlgebraVector r = new FullVector(dim);
+		AlgebraVector p = new FullVector(dim);
+		AlgebraVector q = new FullVector(dim);
+		A.mult(x, r);
+		r.axpy(-1.0, b);
+		double firstNorm2 = r.norm2();
+		double rho = 0, rho_1 = 0;
+		for(int i=0;i<maxIter;i++) {
+			double norm2 = r.norm2();
+			if(norm2 <= eps*firstNorm2)
+				return i;
+			rho = r.dot(r);
+			if(i==0)
+				p.set(r);
+			else
+				p.axpy(rho/rho_1, r);
+			A.mult(p, q);
+			double alpha = rho / p.dot(q);
+			x.add(alpha, p);
+			r.add(-alpha, q);
+			rho_1 = rho;
+		}
+		return maxIter;
+	}
+
+	public static void testCG(int m, int nRepeat) {
+		CompressedRowMatrix A = laplace3D(m);
+		int n = A.getRowDim();
+		FullVector b = new FullVector(n, 1.0);
+		double eps = 1e-8;
+
+		Solver solver = new Solver();
+		solver.epsRelIter = eps;
+		solver.epsAbsIterMax = Double.MAX_VALUE;
+		solver.epsAbsIterMin = 0.0;
+
+		long tUnfused = Long.MAX_VALUE, tFused = Long.MAX_VALUE;
+		int iter = 0;
+		FullVector x1 = null, x2 = null;
+		for(int rep=0;rep<nRepeat;rep++) {
+			x1 = new FullVector(n);
+			long begin = System.nanoTime();
+			iter = solveCGUnfused(A, b, x1, eps, 20000);
+			tUnfused = Math.min(tUnfused, System.nanoTime()-begin);
+
+			x2 = new FullVector(n);
+			begin = System.nanoTime();
+			solver.solveCG(A, b, x2);
+			tFused = Math.min(tFused, System.nanoTime()-begin);
+		}
+		double diff = x1.copy().add(-1.0, x2).normInf();
+		System.out.println(String.format(
+				"CG n=%d iter=%d unfused=%.3fms/iter fused=%.3fms/iter speedup=%.2f diff=%8.3e",
+				n, iter, tUnfused*1e-6/iter, tFused*1e-6/iter, (double)tUnfused/tFused, diff));
+	}
+
+	public static void testKernels(int m, int nRepeat) {
+		CompressedRowMatrix A = laplace3D(m);
+		int n = A.getRowDim();
+		FullVector p = new FullVector(n, 1.0);
+		FullVector q = new FullVector(n);
+		FullVector r = new FullVector(n, 1.0);
+		double s = 0.0;
+
+		long begin = System.nanoTime();
+		for(int i=0;i<nRepeat;i++) {
+			A.mult(p, q);
+			s += p.dot(q);
+		}
+		long tMultDot = System.nanoTime()-begin;
+		begin = System.nanoTime();
+		for(int i=0;i<nRepeat;i++)
+			s += A.multDot(p, q);
+		long tMultDotFused = System.nanoTime()-begin;
+
+		begin = System.nanoTime();
+		for(int i=0;i<nRepeat;i++) {
+			r.add(1e-8, q);
+			s += r.norm2();
+		}
+		long tAddNorm = System.nanoTime()-begin;
+		begin = System.nanoTime();
+		for(int i=0;i<nRepeat;i++)
+			s += r.addNorm2(-1e-8, q);
+		long tAddNormFused = System.nanoTime()-begin;
+
+		System.out.println(String.format(
+				"n=%d mult+dot=%.3fms multDot=%.3fms add+norm2=%.3fms addNorm2=%.3fms (%e)",
+				n, tMultDot*1e-6/nRepeat, tMultDotFused*1e-6/nRepeat,
+				tAddNorm*1e-6/nRepeat, tAddNormFused*1e-6/nRepeat, s));
+	}
+
+	/**
+	 * k个右端项：逐个用CG求解与用block CG同时求解，
+	 * auto为默认的blockNnzPerRhs（A每行的非零元素较少时逐个求解）
+	 */
+	public static void testBlockCG(String name, CompressedRowMatrix A, int k) {
+		int n = A.getRowDim();
+		Random rnd = new Random(1);
+		AlgebraVector[] B = new AlgebraVector[k];
+		for(int j=0;j<k;j++) {
+			B[j] = new FullVector(n);
+			for(int i=0;i<n;i++)
+				B[j].getData()[i] = rnd.nextDouble();
+		}
+		Solver solver = new Solver();
+		solver.epsRelIter = 1e-8;
+		solver.epsAbsIterMax = Double.MAX_VALUE;
+		solver.epsAbsIterMin = 0.0;
+		solver.maxIter = 100000;
+
+		long begin = System.nanoTime();
+		int iterSingle = 0;
+		for(int j=0;j<k;j++) {
+			solver.solveCG(A, B[j], new FullVector(n));
+			iterSingle += solver.iterations;
+		}
+		long tSingle = System.nanoTime()-begin;
+
+		long[] tBlock = new long[2];
+		int[] iterBlock = new int[2];
+		double[] nnzPerRhs = {0.0, solver.blockNnzPerRhs};
+		for(int c=0;c<2;c++) {
+			solver.blockNnzPerRhs = nnzPerRhs[c];
+			AlgebraVector[] X = new AlgebraVector[k];
+			for(int j=0;j<k;j++)
+				X[j] = new FullVector(n);
+			begin = System.nanoTime();
+			solver.solveBlockCG(A, B, X);
+			tBlock[c] = System.nanoTime()-begin;
+			iterBlock[c] = solver.iterations;
+		}
+		System.out.println(String.format(
+				"Block CG %s n=%d k=%d single=%dms(%d iter) block=%dms(%d iter) auto=%dms(%d iter)",
+				name, n, k, tSingle/1000000, iterSingle, tBlock[0]/1000000, iterBlock[0],
+				tBlock[1]/1000000, iterBlock[1]));
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		testKernels(60, 50);
+		testKernels(100, 20);
+		testCG(40, 3);
+		testCG(80, 2);
+		CompressedRowMatrix lap = laplace3D(40);
+		testBlockCG("laplace3D", lap, 4);
+		testBlockCG("laplace3D", lap, 8);
+		CompressedRowMatrix band = band(20000, 50);
+		testBlockCG("band", band, 4);
+		testBlockCG("band", band, 8);
+	}
+}
@@ -0,0 +1,79 @@
+package edu.uta.futureye.test.junit;
+
+import static edu.uta.futureye.function.operator.FMath.C1;
+import static edu.uta.futureye.function.operator.FMath.X;
+import static edu.uta.futureye.function.operator.FMath.Y;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.intf.SparseMatrix;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.NodeType;
+import edu.uta.futureye.core.intf.WeakForm;
+import edu.uta.futureye.function.basic.FC;
+import edu.uta.futureye.lib.assembler.AssemblerScalar;
+import edu.uta.futureye.lib.assembler.AssemblerScalarParallel;
+import edu.uta.futureye.lib.shapefun.SFBilinearLocal2D;
+import edu.uta.futureye.lib.shapefun.SFLinearLocal2D;
+import edu.uta.futureye.lib.shapefun.SFSerendipity2D;
+import edu.uta.futureye.lib.weakform.WeakFormLaplace2D;
+
+public class AssemblerScalarParallelTest {
+
+	private static WeakFormLaplace2D weakForm(boolean robin) {
+		WeakFormLaplace2D wf = new WeakFormLaplace2D();
+		wf.setF(X.M(X).A(Y.M(Y)).M(-2.0).A(36.0));
+		if(robin)
+			wf.setParam(FC.c(2.0), C1, FC.c(0.5), C1);
+		return wf;
+	}
+
+	private static void compare(Mesh m1, Mesh m2, boolean robin) {
+		NodeType nt = robin ? NodeType.Robin : NodeType.Dirichlet;
+		TestMeshes.prepare(m1, nt);
+		TestMeshes.prepare(m2, nt);
+		AssemblerScalar serial = new AssemblerScalar(m1, weakForm(robin));
+		serial.assemble();
+		WeakForm[] wfs = new WeakForm[4];
+		for(int i=0;i<wfs.length;i++)
+			wfs[i] = weakForm(robin);
+		AssemblerScalarParallel parallel = new AssemblerScalarParallel(m2, wfs);
+		parallel.assemble();
+		assertTrue(parallel.getColorNumber() > 1);
+
+		SparseMatrix A = serial.getStiffnessMatrix();
+		SparseMatrix B = parallel.getStiffnessMatrix();
+		Vector f = serial.getLoadVector();
+		Vector g = parallel.getLoadVector();
+		assertEquals(A.getRowDim(), B.getRowDim());
+		for(int i=1;i<=A.getRowDim();i++) {
+			for(int j=1;j<=A.getColDim();j++)
+				assertEquals(A.get(i, j), B.get(i, j), 1e-12);
+			assertEquals(f.get(i), g.get(i), 1e-12);
+		}
+	}
+
+	@Test
+	public void testTriangles() {
+		compare(TestMeshes.triangles(12), TestMeshes.triangles(12), false);
+		compare(TestMeshes.triangles(12), TestMeshes.triangles(12), true);
+	}
+
+	@Test
+	public void testRectangles() {
+		compare(TestMeshes.rectangles(12), TestMeshes.rectangles(12), false);
+		compare(TestMeshes.rectangles(12), TestMeshes.rectangles(12), true);
+	}
+
+	@Test
+	public void testCanCopy() {
+		assertTrue(AssemblerScalarParallel.canCopy(new SFLinearLocal2D(1)));
+		assertTrue(AssemblerScalarParallel.canCopy(new SFBilinearLocal2D(1)));
+		//没有实现copy()
+		assertFalse(AssemblerScalarParallel.canCopy(new SFSerendipity2D(1)));
+	}
+}
@@ -0,0 +1,79 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.FullVector;
+import edu.uta.futureye.algebra.intf.AlgebraVector;
+import edu.uta.futureye.algebra.solver.Solver;
+import edu.uta.futureye.test.junit.TestMatrices.CSC;
+
+public class BlockSolverTest {
+
+	/**
+	 * 右端项：两个随机向量，第1个的重复，0向量，前两个的线性组合
+	 */
+	private static double[][] rightHandSides(int n) {
+		double[] b0 = TestMatrices.randomVector(n, 1);
+		double[] b1 = TestMatrices.randomVector(n, 2);
+		double[] b4 = new double[n];
+		for(int i=0;i<n;i++)
+			b4[i] = 2.0*b0[i]-b1[i];
+		return new double[][] {b0, b1, b0.clone(), new double[n], b4};
+	}
+
+	/**
+	 * @param nnzPerRhs Solver.blockNnzPerRhs，0表示总是使用块方法
+	 */
+	private static void check(CSC A, boolean gmres, double nnzPerRhs) {
+		CompressedRowMatrix csr = A.toCompressedRowMatrix();
+		double[][] b = rightHandSides(A.n);
+		int k = b.length;
+		AlgebraVector[] B = new AlgebraVector[k];
+		AlgebraVector[] X = new AlgebraVector[k];
+		for(int j=0;j<k;j++) {
+			B[j] = TestMatrices.toFullVector(b[j]);
+			X[j] = new FullVector(A.n);
+		}
+		Solver solver = new Solver();
+		solver.epsRelIter = 1e-10;
+		solver.blockNnzPerRhs = nnzPerRhs;
+		if(gmres)
+			solver.solveBlockGMRES(csr, B, X);
+		else
+			solver.solveBlockCG(csr, B, X);
+		assertTrue(solver.iterations > 0 && solver.iterations < solver.maxIter);
+
+		double[][] x = new double[k][];
+		for(int j=0;j<k;j++)
+			x[j] = X[j].getData();
+		for(int j=0;j<k;j++) {
+			if(j == 3) continue;
+			assertTrue(A.residual(x[j], b[j]) < 1e-9);
+		}
+		for(int i=0;i<A.n;i++) {
+			assertEquals(0.0, x[3][i], 0.0);
+			assertEquals(x[0][i], x[2][i], 1e-8);
+		}
+	}
+
+	@Test
+	public void testBlockCG() {
+		CSC A = TestMatrices.laplace2D(20);
+		check(A, false, 0.0);
+		//每行非零元素较少，逐个求解
+		check(A, false, 8.0);
+		check(TestMatrices.random(300, 30, 40.0, true, 3), false, 0.0);
+	}
+
+	@Test
+	public void testBlockGMRES() {
+		CSC A = TestMatrices.convectionDiffusion(20, 1.0);
+		check(A, true, 0.0);
+		check(A, true, 8.0);
+		check(TestMatrices.random(300, 30, 40.0, false, 4), true, 0.0);
+	}
+}
@@ -0,0 +1,146 @@
+package edu.uta.futureye.test.junit;
+
+import static edu.uta.futureye.function.operator.FMath.X;
+import static edu.uta.futureye.function.operator.FMath.Y;
+import static edu.uta.futureye.function.operator.FMath.abs;
+import static edu.uta.futureye.function.operator.FMath.pow;
+import static edu.uta.futureye.function.operator.FMath.sqrt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.uta.futureye.core.DOFOrder;
+import edu.uta.futureye.core.Element;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.NodeType;
+import edu.uta.futureye.function.AbstractFunction;
+import edu.uta.futureye.function.CompiledFunction;
+import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
+import edu.uta.futureye.function.basic.FC;
+import edu.uta.futureye.function.intf.Function;
+import edu.uta.futureye.lib.weakform.LaplaceKernel;
+import edu.uta.futureye.util.container.DOFList;
+import edu.uta.futureye.util.container.ElementList;
+
+public class CompiledFunctionTest {
+
+	//不能展开的函数，编译后为CALL指令
+	private static Function sinX() {
+		return new AbstractFunction("x","y") {
+			@Override
+			public double value(Variable v) {
+				return Math.sin(v.get("x"));
+			}
+		};
+	}
+
+	private static Function[] expressions() {
+		Function r2 = X.M(X).A(Y.M(Y));
+		return new Function[] {
+			r2.M(-2.0).A(36.0),
+			sqrt(r2.A(1.0)).A(pow(X.S(0.5),2.0).M(3.0)).D(r2.A(2.0)),
+			abs(X.S(Y)).A(0.1).M(pow(X.A(Y).A(1.0),1.5)),
+			pow(X.A(2.0),Y).S(FC.c(2.0).M(FC.c(3.0))).D(X.M(4.0)),
+			sinX().M(X).A(Y).M(sinX()).S(1.0),
+			X.A(1.0).M(2.0).A(3.0).D(2.0).S(Y)
+		};
+	}
+
+	//编译前后的函数值逐位相同
+	private static void assertExact(double expected, double actual) {
+		assertEquals(expected, actual, 0.0);
+	}
+
+	@Test
+	public void testValue() {
+		for(Function f : expressions()) {
+			Function cf = f.compile();
+			assertTrue(cf instanceof CompiledFunction);
+			for(int i=0;i<20;i++) {
+				for(int j=0;j<20;j++) {
+					Variable v = new Variable("x", 0.1+0.09*i).set("y", 0.1+0.09*j);
+					assertExact(f.value(v), cf.value(v));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testValueArray() {
+		int n = 50;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		for(int i=0;i<n;i++) {
+			x[i] = 0.1+0.03*i;
+			y[i] = 1.7-0.02*i;
+		}
+		for(Function f : expressions()) {
+			Function cf = f.compile();
+			VariableArray va = new VariableArray().set("x", x).set("y", y);
+			double[] rlt = cf.valueArray(va, null);
+			for(int i=0;i<n;i++)
+				assertExact(f.value(new Variable("x", x[i]).set("y", y[i])), rlt[i]);
+			//结果不能是输入数组
+			assertTrue(rlt != x && rlt != y);
+		}
+		double[] rlt = X.compile().valueArray(new VariableArray().set("x", x), null);
+		rlt[0] = -1.0;
+		assertEquals(0.1, x[0], 0.0);
+	}
+
+	@Test
+	public void testFolding() {
+		//常数子表达式合并，与常数的加、减、乘改为AXPB
+		CompiledFunction cf = CompiledFunction.compile(FC.c(2.0).M(FC.c(3.0)).A(X));
+		assertEquals(2, cf.size());
+		//连续的AXPB不合并，除以常数仍然是除法：x, 1*x+1, 2*r1-0, 1*r2+3, 3, r3/3
+		Function f = X.A(1.0).M(2.0).A(3.0).D(3.0);
+		cf = CompiledFunction.compile(f);
+		assertEquals(6, cf.size());
+		for(int i=0;i<1000;i++) {
+			Variable v = new Variable("x", 0.001*i-0.5);
+			assertExact(f.value(v), cf.value(v));
+		}
+		//c*x的符号与原来相同：-0.0*1 = -0.0，1/(-0.0) = -Infinity
+		f = FC.c(1.0).D(X.M(1.0));
+		assertExact(Double.NEGATIVE_INFINITY, f.compile().value(new Variable("x", -0.0)));
+		cf = CompiledFunction.compile(FC.c(2.0).M(FC.c(3.0)).A(FC.c(1.0)));
+		assertEquals(1, cf.size());
+		assertEquals(7.0, cf.value(new Variable("x", 0.7)), 0.0);
+
+		//不能展开的函数不编译
+		Function s = sinX();
+		assertSame(s, s.compile());
+	}
+
+	@Test
+	public void testLaplaceKernel() {
+		Function r2 = X.M(X).A(Y.M(Y));
+		Function k = sqrt(r2.A(1.0)).D(r2.A(2.0));
+		Function c = abs(X.S(Y)).A(0.1);
+		Function f = r2.M(-2.0).A(36.0).M(sinX());
+		Mesh mesh = TestMeshes.triangles(6);
+		TestMeshes.prepare(mesh, NodeType.Dirichlet);
+		ElementList eList = mesh.getElementList();
+		LaplaceKernel tree = new LaplaceKernel();
+		tree.setCompile(false);
+		LaplaceKernel compiled = new LaplaceKernel();
+		for(int i=1;i<=eList.size();i++) {
+			Element e = eList.at(i);
+			DOFList DOFs = e.getAllDOFList(DOFOrder.NEFV);
+			assertTrue(tree.setElement(e, DOFs));
+			assertTrue(compiled.setElement(e, DOFs));
+			tree.assemble(k, c, f);
+			compiled.assemble(k, c, f);
+			for(int r=0;r<3;r++) {
+				for(int j=0;j<3;j++)
+					assertExact(tree.getMatrix()[r][j], compiled.getMatrix()[r][j]);
+				assertExact(tree.getVector()[r], compiled.getVector()[r]);
+			}
+		}
+		assertTrue(compiled.compiled(k) instanceof CompiledFunction);
+	}
+}
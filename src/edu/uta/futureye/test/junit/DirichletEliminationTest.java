@@ -0,0 +1,123 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.SpaceVector;
+import edu.uta.futureye.algebra.SparseBlockMatrix;
+import edu.uta.futureye.algebra.SparseMatrixCSR;
+import edu.uta.futureye.algebra.SparseMatrixRowMajor;
+import edu.uta.futureye.algebra.intf.SparseMatrix;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.lib.assembler.DirichletElimination;
+
+public class DirichletEliminationTest {
+
+	private static final int N = 40;
+	//第一块的行数（列数），SparseBlockMatrix分为2*2块
+	private static final int N1 = 25;
+	//Dirichlet自由度和取值，自由度7出现两次
+	private static final int[] DOF = {3, 7, 1, 40, 7, 26, 15, 25};
+	private static final double[] VAL = {1.5, -2.0, 0.5, 3.0, 4.0, -1.0, 2.5, 0.25};
+
+	/**
+	 * 随机稀疏（非对称）矩阵，自由度15和26的对角元为0（不存储）
+	 */
+	private static double[][] randomMatrix() {
+		Random rnd = new Random(7);
+		double[][] a = new double[N][N];
+		for(int i=0;i<N;i++) {
+			a[i][i] = 4.0+rnd.nextDouble();
+			for(int k=0;k<4;k++)
+				a[i][rnd.nextInt(N)] = rnd.nextDouble()-0.5;
+		}
+		a[14][14] = 0.0;
+		a[25][25] = 0.0;
+		return a;
+	}
+
+	private static void fill(SparseMatrix A, double[][] a, int rOff, int cOff) {
+		for(int i=1;i<=A.getRowDim();i++)
+			for(int j=1;j<=A.getColDim();j++)
+				if(a[rOff+i-1][cOff+j-1] != 0.0)
+					A.set(i, j, a[rOff+i-1][cOff+j-1]);
+	}
+
+	private static Vector load() {
+		Vector f = new SpaceVector(N);
+		for(int i=1;i<=N;i++)
+			f.set(i, Math.sin(i));
+		return f;
+	}
+
+	/**
+	 * 原来逐个自由度消去的方法（AssemblerScalar.setDirichlet()）
+	 */
+	private static void setDirichlet(SparseMatrix A, Vector f, int index, double value) {
+		A.set(index, index, 1.0);
+		f.set(index, value);
+		for(int r=1;r<=A.getRowDim();r++) {
+			if(r != index) {
+				f.add(r, -A.get(r, index)*value);
+				A.set(r, index, 0.0);
+			}
+		}
+		for(int c=1;c<=A.getColDim();c++)
+			if(c != index)
+				A.set(index, c, 0.0);
+	}
+
+	private static void compare(SparseMatrix A, Vector f) {
+		double[][] a = randomMatrix();
+		SparseMatrix R = new SparseMatrixRowMajor(N, N);
+		fill(R, a, 0, 0);
+		Vector g = load();
+		for(int k=0;k<DOF.length;k++)
+			setDirichlet(R, g, DOF[k], VAL[k]);
+
+		DirichletElimination de = new DirichletElimination(N);
+		for(int k=0;k<DOF.length;k++)
+			de.add(DOF[k], VAL[k]);
+		assertEquals(DOF.length-1, de.size());
+		de.apply(A, f);
+		for(int i=1;i<=N;i++) {
+			for(int j=1;j<=N;j++)
+				assertEquals(R.get(i, j), A.get(i, j), 1e-14);
+			assertEquals(g.get(i), f.get(i), 1e-14);
+		}
+	}
+
+	@Test
+	public void testSparseMatrixCSR() {
+		SparseMatrixCSR A = new SparseMatrixCSR(N, N);
+		fill(A, randomMatrix(), 0, 0);
+		A.compress();
+		compare(A, load());
+	}
+
+	@Test
+	public void testSparseMatrixRowMajor() {
+		SparseMatrix A = new SparseMatrixRowMajor(N, N);
+		fill(A, randomMatrix(), 0, 0);
+		compare(A, load());
+	}
+
+	@Test
+	public void testSparseBlockMatrix() {
+		double[][] a = randomMatrix();
+		int[] off = {0, N1};
+		int[] dim = {N1, N-N1};
+		SparseBlockMatrix A = new SparseBlockMatrix(2, 2);
+		for(int i=0;i<2;i++) {
+			for(int j=0;j<2;j++) {
+				SparseMatrixCSR blk = new SparseMatrixCSR(dim[i], dim[j]);
+				fill(blk, a, off[i], off[j]);
+				A.setBlock(i+1, j+1, blk.compress());
+			}
+		}
+		compare(A, load());
+	}
+}
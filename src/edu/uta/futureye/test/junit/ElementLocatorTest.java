@@ -0,0 +1,136 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.uta.futureye.core.Element;
+import edu.uta.futureye.core.ElementLocator;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.Node;
+import edu.uta.futureye.util.container.ElementList;
+import edu.uta.futureye.util.container.NodeList;
+
+public class ElementLocatorTest {
+
+	/**
+	 * 顺序扫描单元列表
+	 */
+	private static Element scan(ElementList eList, double[] coord) {
+		for(int i=1;i<=eList.size();i++)
+			if(eList.at(i).isCoordInElement(coord))
+				return eList.at(i);
+		return null;
+	}
+
+	/**
+	 * 随机扰动内部结点，扰动小于网格尺寸的1/4，单元保持凸的
+	 */
+	private static Mesh distort(Mesh mesh, int n, long seed) {
+		Random rnd = new Random(seed);
+		NodeList nodes = mesh.getNodeList();
+		for(int i=1;i<=nodes.size();i++) {
+			Node node = nodes.at(i);
+			boolean inner = true;
+			for(int a=1;a<=node.dim();a++)
+				if(node.coord(a) == 0.0 || node.coord(a) == 1.0)
+					inner = false;
+			if(inner)
+				for(int a=1;a<=node.dim();a++)
+					node.setCoord(a, node.coord(a)+(rnd.nextDouble()-0.5)*0.5/n);
+		}
+		return mesh;
+	}
+
+	/**
+	 * <blockquote><pre>
+	 * 测试点：
+	 *   单元顶点
+	 *   两个顶点连线上的点（单元的边，四边形的对角线等）
+	 *   单元内部的点（顶点的随机凸组合）
+	 *   [-0.25,1.25]^dim中的随机点（包括网格外部的点）
+	 *   边界外侧很近的点
+	 * </pre></blockquote>
+	 */
+	private static void compareWithScan(Mesh mesh, int nPoints, long seed) {
+		ElementList eList = mesh.getElementList();
+		ElementLocator locator = new ElementLocator(eList);
+		int dim = eList.at(1).nodes.at(1).dim();
+		Random rnd = new Random(seed);
+		int nFound = 0, nOutside = 0;
+		for(int k=0;k<nPoints;k++) {
+			Element e = eList.at(1+rnd.nextInt(eList.size()));
+			NodeList nodes = e.nodes;
+			double[] coord = new double[dim];
+			int type = k%5;
+			if(type == 0) {
+				coord = nodes.at(1+rnd.nextInt(nodes.size())).coords();
+			} else if(type == 1) {
+				double[] p = nodes.at(1+rnd.nextInt(nodes.size())).coords();
+				double[] q = nodes.at(1+rnd.nextInt(nodes.size())).coords();
+				double t = rnd.nextDouble();
+				for(int a=0;a<dim;a++)
+					coord[a] = (1.0-t)*p[a] + t*q[a];
+			} else if(type == 2) {
+				double sum = 0.0;
+				for(int j=1;j<=nodes.size();j++) {
+					double w = rnd.nextDouble();
+					sum += w;
+					for(int a=0;a<dim;a++)
+						coord[a] += w*nodes.at(j).coord(a+1);
+				}
+				for(int a=0;a<dim;a++)
+					coord[a] /= sum;
+			} else if(type == 3) {
+				for(int a=0;a<dim;a++)
+					coord[a] = rnd.nextDouble()*1.5-0.25;
+			} else {
+				for(int a=0;a<dim;a++)
+					coord[a] = rnd.nextDouble();
+				coord[rnd.nextInt(dim)] = rnd.nextBoolean() ? -1e-3 : 1.0+1e-3;
+			}
+
+			Element expected = scan(eList, coord);
+			assertSame(expected, locator.getElementByCoord(coord));
+			Element hinted = locator.getElementByCoord(coord, e);
+			if(expected == null) {
+				assertNull(hinted);
+				nOutside++;
+			} else {
+				assertNotNull(hinted);
+				assertTrue(hinted.isCoordInElement(coord));
+				nFound++;
+			}
+		}
+		assertTrue(nFound > 0);
+		assertTrue(nOutside > 0);
+	}
+
+	@Test
+	public void testTriangles() {
+		compareWithScan(TestMeshes.triangles(6), 1000, 1);
+		compareWithScan(distort(TestMeshes.triangles(6), 6, 2), 1000, 3);
+	}
+
+	@Test
+	public void testRectangles() {
+		compareWithScan(TestMeshes.rectangles(6), 1000, 4);
+		compareWithScan(distort(TestMeshes.rectangles(6), 6, 5), 1000, 6);
+	}
+
+	@Test
+	public void testTetrahedra() {
+		compareWithScan(TestMeshes.tetrahedra(2).toMesh(), 300, 7);
+		compareWithScan(distort(TestMeshes.tetrahedra(2).toMesh(), 2, 8), 300, 9);
+	}
+
+	@Test
+	public void testHexahedra() {
+		compareWithScan(TestMeshes.hexahedra(2).toMesh(), 300, 10);
+	}
+}
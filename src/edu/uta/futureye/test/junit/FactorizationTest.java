@@ -0,0 +1,59 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.FullMatrix;
+import edu.uta.futureye.algebra.solver.Factorization;
+import edu.uta.futureye.algebra.solver.SparseDirectSolver;
+import edu.uta.futureye.test.junit.TestMatrices.CSC;
+
+public class FactorizationTest {
+
+	/**
+	 * 多个右端项一起求解（solve(FullMatrix)）与逐列求解的结果相同
+	 */
+	private static void compareWithColumns(CSC A, boolean cholesky) {
+		SparseDirectSolver solver = new SparseDirectSolver();
+		Factorization factor = solver.factorize(A.n, A.Ap, A.Ai, A.Ax);
+		assertEquals(cholesky, solver.isCholesky());
+		int m = 5;
+		FullMatrix B = new FullMatrix(A.n, m);
+		double[][] b = B.getData();
+		for(int c=0;c<m;c++) {
+			double[] bc = TestMatrices.randomVector(A.n, 10+c);
+			for(int i=0;i<A.n;i++)
+				b[i][c] = bc[i];
+		}
+		double[][] X = factor.solve(B).getData();
+		for(int c=0;c<m;c++) {
+			double[] bc = new double[A.n];
+			for(int i=0;i<A.n;i++)
+				bc[i] = b[i][c];
+			double[] x = new double[A.n];
+			factor.solve(bc, x);
+			for(int i=0;i<A.n;i++)
+				assertEquals(x[i], X[i][c], 1e-14*Math.max(1.0, Math.abs(x[i])));
+		}
+
+		//X和B是同一个数组
+		double[][] BX = new double[A.n][];
+		for(int i=0;i<A.n;i++)
+			BX[i] = b[i].clone();
+		factor.solve(BX, BX);
+		for(int i=0;i<A.n;i++)
+			for(int c=0;c<m;c++)
+				assertEquals(X[i][c], BX[i][c], 0.0);
+	}
+
+	@Test
+	public void testCholesky() {
+		compareWithColumns(TestMatrices.laplace2D(12), true);
+	}
+
+	@Test
+	public void testLU() {
+		compareWithColumns(TestMatrices.convectionDiffusion(12, 5.0), false);
+	}
+}
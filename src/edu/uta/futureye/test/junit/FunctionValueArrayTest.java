@@ -0,0 +1,156 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.SpaceVector;
+import edu.uta.futureye.core.CoordinateTransform;
+import edu.uta.futureye.core.Element;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.Node;
+import edu.uta.futureye.core.NodeType;
+import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.VariableArray;
+import edu.uta.futureye.function.basic.DiscreteIndexFunction;
+import edu.uta.futureye.function.basic.DuDx;
+import edu.uta.futureye.function.basic.FC;
+import edu.uta.futureye.function.basic.FX;
+import edu.uta.futureye.function.basic.Vector2Function;
+import edu.uta.futureye.function.intf.Function;
+import edu.uta.futureye.util.container.NodeList;
+
+public class FunctionValueArrayTest {
+
+	private static final FX R = new FX("r");
+	private static final FX S = new FX("s");
+	private static final FX T = new FX("t");
+
+	private static void checkDetJ(CoordinateTransform trans, VariableArray va, double det) {
+		Function jac = trans.getJacobian();
+		Map<Object,Object> cache = new HashMap<Object,Object>();
+		double[] d = jac.valueArray(va, cache);
+		for(int i=0;i<va.length();i++)
+			assertEquals(det, d[i], 1e-12);
+		//修改返回的数组（M()等）不能改变cache中的detJ
+		d[0] = 0.0;
+		double[] d2 = jac.M(FC.c(2.0)).valueArray(va, cache);
+		double[] d3 = jac.valueArray(va, cache);
+		for(int i=0;i<va.length();i++) {
+			assertEquals(2*det, d2[i], 1e-12);
+			assertEquals(det, d3[i], 1e-12);
+		}
+	}
+
+	@Test
+	public void testJacobianCache() {
+		double[] r = {0.1, 0.2, 0.3, 0.7};
+		double[] s = {0.5, 0.1, 0.4, 0.2};
+		VariableArray va = new VariableArray().set("r", r).set("s", s);
+
+		CoordinateTransform trans = new CoordinateTransform(2);
+		List<Function> funs = new ArrayList<Function>();
+		funs.add(R.M(2.0).A(S));          //x = 2r+s
+		funs.add(R.M(0.5).A(S.M(3.0)));   //y = r/2+3s
+		trans.setTransformFunction(funs);
+		trans.computeJacobianMatrix();
+		trans.computeJacobian2D();
+		checkDetJ(trans, va, 2.0*3.0-1.0*0.5);
+
+		va.set("t", new double[]{0.3, 0.3, 0.1, 0.0});
+		trans = new CoordinateTransform(3);
+		funs = new ArrayList<Function>();
+		funs.add(R.M(2.0).A(T));          //x = 2r+t
+		funs.add(S.M(3.0));               //y = 3s
+		funs.add(R.A(T.M(4.0)));          //z = r+4t
+		trans.setTransformFunction(funs);
+		trans.computeJacobianMatrix();
+		trans.computeJacobian3D();
+		checkDetJ(trans, va, 2.0*3.0*4.0-1.0*3.0*1.0);
+	}
+
+	private static Vector2Function bilinear(Mesh mesh) {
+		NodeList nodes = mesh.getNodeList();
+		SpaceVector u = new SpaceVector(nodes.size());
+		for(int i=1;i<=nodes.size();i++) {
+			double x = nodes.at(i).coord(1);
+			double y = nodes.at(i).coord(2);
+			u.set(i, 1.0+2.0*x-y+3.0*x*y);
+		}
+		return new Vector2Function(u, mesh, "x", "y");
+	}
+
+	@Test
+	public void testVector2Function() {
+		Mesh mesh = TestMeshes.rectangles(4);
+		TestMeshes.prepare(mesh, NodeType.Dirichlet);
+		Vector2Function fu = bilinear(mesh);
+
+		//结点（index>0）和单元内部的点（index=0）
+		Element e = mesh.getElementList().at(6);
+		int n = e.nodes.size();
+		double[] x = new double[n+2];
+		double[] y = new double[n+2];
+		int[] idx = new int[n+2];
+		for(int i=0;i<n;i++) {
+			Node node = e.nodes.at(i+1);
+			x[i] = node.coord(1);
+			y[i] = node.coord(2);
+			idx[i] = node.globalIndex;
+		}
+		x[n] = 0.3; y[n] = 0.4;
+		x[n+1] = 0.45; y[n+1] = 0.3;
+		VariableArray va = new VariableArray().set("x", x).set("y", y).setIndices(idx);
+		double[] rlt = fu.valueArray(va, null);
+		for(int i=0;i<x.length;i++) {
+			assertEquals(fu.value(va.getVariable(i)), rlt[i], 1e-12);
+			assertEquals(1.0+2.0*x[i]-y[i]+3.0*x[i]*y[i], rlt[i], 1e-12);
+		}
+
+		//只用index求值
+		Vector2Function fv = new Vector2Function(fu.getVector());
+		rlt = fv.valueArray(new VariableArray().set("x", x).setIndices(new int[]{3,1,2,5,4,7}), null);
+		assertEquals(fu.getVector().get(5), rlt[3], 0.0);
+		assertEquals(fu.getVector().get(7), rlt[5], 0.0);
+	}
+
+	@Test
+	public void testDuDx() {
+		Mesh mesh = TestMeshes.rectangles(4);
+		TestMeshes.prepare(mesh, NodeType.Dirichlet);
+		Vector2Function fu = bilinear(mesh);
+		Element e = mesh.getElementList().at(7);
+		double[] x = {0.55, 0.6, 0.7, 0.6};
+		double[] y = {0.3, 0.26, 0.45, 0.49};
+		String[] names = {"x","y"};
+		for(String name : names) {
+			DuDx du = new DuDx(mesh, fu, name);
+			du.setElement(e);
+			VariableArray va = new VariableArray().set("x", x).set("y", y)
+					.setIndices(new int[4]).setElement(e);
+			double[] rlt = du.valueArray(va, null);
+			for(int i=0;i<x.length;i++) {
+				Variable v = va.getVariable(i);
+				assertEquals(du.value(v), rlt[i], 1e-12);
+				assertEquals(name.equals("x") ? 2.0+3.0*y[i] : -1.0+3.0*x[i], rlt[i], 1e-10);
+			}
+		}
+	}
+
+	@Test
+	public void testDiscreteIndexFunction() {
+		DiscreteIndexFunction f = new DiscreteIndexFunction();
+		f.set(2, 1.5);
+		f.set(7, -3.0);
+		VariableArray va = new VariableArray().set("x", new double[3]).setIndices(new int[]{7,2,7});
+		double[] rlt = f.valueArray(va, null);
+		assertEquals(-3.0, rlt[0], 0.0);
+		assertEquals(1.5, rlt[1], 0.0);
+		assertEquals(-3.0, rlt[2], 0.0);
+	}
+}
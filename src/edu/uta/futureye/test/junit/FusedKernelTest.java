@@ -0,0 +1,120 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.FullVector;
+import edu.uta.futureye.algebra.ParallelKernel;
+import edu.uta.futureye.algebra.intf.AlgebraVector;
+import edu.uta.futureye.test.junit.TestMatrices.CSC;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * 合并的向量运算与分开计算的结果相同（求和顺序相同，结果bitwise相同）：
+ *   A.multDot(x,y) = A.mult(x,y); x.dot(y)
+ *   x.addNorm2(a,y) = x.add(a,y); x.norm2()
+ */
+public class FusedKernelTest {
+
+	private static void assertSameVector(AlgebraVector u, AlgebraVector v) {
+		assertEquals(u.getDim(), v.getDim());
+		double[] ud = u.getData(), vd = v.getData();
+		for(int i=0;i<ud.length;i++)
+			assertEquals(ud[i], vd[i], 0.0);
+	}
+
+	private static void compareMultDot(CSC csc, long seed) {
+		CompressedRowMatrix A = csc.toCompressedRowMatrix();
+		FullVector x = TestMatrices.toFullVector(TestMatrices.randomVector(csc.n, seed));
+		FullVector y1 = new FullVector(csc.n);
+		FullVector y2 = new FullVector(csc.n, 1.0);
+
+		A.mult(x, y1);
+		double xy = x.dot(y1);
+		double fused = A.multDot(x, y2);
+		assertSameVector(y1, y2);
+		assertEquals(xy, fused, 0.0);
+	}
+
+	private static void compareAddNorm2(int n, double a, long seed) {
+		double[] x = TestMatrices.randomVector(n, seed);
+		double[] y = TestMatrices.randomVector(n, seed+1);
+		FullVector u1 = TestMatrices.toFullVector(x);
+		FullVector u2 = TestMatrices.toFullVector(x);
+		FullVector v = TestMatrices.toFullVector(y);
+
+		u1.add(a, v);
+		double norm = u1.norm2();
+		double fused = u2.addNorm2(a, v);
+		assertSameVector(u1, u2);
+		assertEquals(norm, fused, 0.0);
+		//y不变
+		assertSameVector(TestMatrices.toFullVector(y), v);
+	}
+
+	private static void compareAll() {
+		compareMultDot(TestMatrices.laplace2D(20), 1);
+		compareMultDot(TestMatrices.convectionDiffusion(20, 5.0), 2);
+		compareMultDot(TestMatrices.random(500, 7, 10.0, false, 3), 4);
+		compareMultDot(TestMatrices.laplace2D(120), 5);
+		compareAddNorm2(1, -0.5, 6);
+		compareAddNorm2(1000, -1e-3, 7);
+		compareAddNorm2(20000, 2.5, 8);
+	}
+
+	@Test
+	public void testSerial() {
+		boolean enabled = ParallelKernel.enabled;
+		ParallelKernel.enabled = false;
+		try {
+			compareAll();
+		} finally {
+			ParallelKernel.enabled = enabled;
+		}
+	}
+
+	/**
+	 * 并行计算时分开计算和合并计算的区间划分也相同
+	 */
+	@Test
+	public void testParallel() {
+		boolean enabled = ParallelKernel.enabled;
+		int threshold = ParallelKernel.threshold;
+		boolean deterministic = ParallelKernel.deterministic;
+		int blockSize = ParallelKernel.blockSize;
+		ForkJoinPool pool = ParallelKernel.getPool();
+		ForkJoinPool p = new ForkJoinPool(4);
+		try {
+			ParallelKernel.enabled = true;
+			ParallelKernel.threshold = 100;
+			ParallelKernel.setPool(p);
+			ParallelKernel.deterministic = false;
+			compareAll();
+			ParallelKernel.deterministic = true;
+			ParallelKernel.blockSize = 97;
+			compareAll();
+		} finally {
+			p.shutdown();
+			ParallelKernel.enabled = enabled;
+			ParallelKernel.threshold = threshold;
+			ParallelKernel.deterministic = deterministic;
+			ParallelKernel.blockSize = blockSize;
+			ParallelKernel.setPool(pool);
+		}
+	}
+
+	@Test
+	public void testNotSquare() {
+		CompressedRowMatrix A = new CompressedRowMatrix(3, 4);
+		try {
+			A.multDot(new FullVector(4), new FullVector(3));
+			fail("multDot of a non-square matrix");
+		} catch(FutureyeException e) {
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.SparseMatrixCSR;
+import edu.uta.futureye.algebra.intf.SparseMatrix;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.algebra.solver.Solver;
+import edu.uta.futureye.application.Tools;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.NodeType;
+import edu.uta.futureye.core.Refiner;
+import edu.uta.futureye.function.basic.FAxpb;
+import edu.uta.futureye.function.basic.FC;
+import edu.uta.futureye.lib.assembler.AssemblerScalar;
+import edu.uta.futureye.lib.assembler.HangingNodeConstraint;
+import edu.uta.futureye.lib.weakform.WeakFormLaplace2D;
+import edu.uta.futureye.util.FutureyeException;
+import edu.uta.futureye.util.container.ElementList;
+
+public class HangingNodeConstraintTest {
+
+	/**
+	 * 加密单元eList.at(index[k])
+	 */
+	private static void refine(Mesh mesh, int[] index) {
+		mesh.computeNodeBelongsToElements();
+		mesh.computeNeighborNodes();
+		mesh.computeGlobalEdge();
+		mesh.computeNeighborElements();
+		ElementList eList = mesh.getElementList();
+		ElementList eToRefine = new ElementList();
+		for(int i : index)
+			eToRefine.add(eList.at(i));
+		Refiner.refineOnce(mesh, eToRefine);
+	}
+
+	/**
+	 * 局部加密后的网格，refines[k]为第k次加密的单元
+	 */
+	private static Mesh mesh(boolean rect, int[][] refines, NodeType borderType) {
+		Mesh mesh = rect ? TestMeshes.rectangles(4) : TestMeshes.triangles(4);
+		for(int[] index : refines)
+			refine(mesh, index);
+		return TestMeshes.prepare(mesh, borderType);
+	}
+
+	/**
+	 * -\Delta{u} + c*u = f，Robin边界：u_n + u = 0
+	 */
+	private static WeakFormLaplace2D weakForm(NodeType borderType) {
+		WeakFormLaplace2D wf = new WeakFormLaplace2D();
+		wf.setF(new FAxpb("x", 2.0, 1.0));
+		if(borderType == NodeType.Robin)
+			wf.setParam(FC.c(1.0), FC.c(0.5), null, FC.c(1.0));
+		return wf;
+	}
+
+	private static void assemble(AssemblerScalar assembler, NodeType borderType) {
+		assembler.assemble();
+		if(borderType == NodeType.Dirichlet)
+			assembler.imposeDirichletCondition(FC.C0);
+	}
+
+	/**
+	 * 原来的方法（一层hanging node）：Tools.assignLinearShapFunction()把hanging node的基函数
+	 * 分到约束结点上，合成后procHangingNode()把hanging node所在的行替换为约束方程。
+	 * 不受约束的行与C'KC相同，求解结果相同
+	 */
+	private static void compareWithProcHangingNode(boolean rect, int[] index, NodeType borderType) {
+		Mesh meshOld = mesh(rect, new int[][]{index}, borderType);
+		Tools.assignLinearShapFunction(meshOld);
+		AssemblerScalar asmOld = new AssemblerScalar(meshOld, weakForm(borderType));
+		assemble(asmOld, borderType);
+
+		Mesh mesh = mesh(rect, new int[][]{index}, borderType);
+		HangingNodeConstraint hnc = HangingNodeConstraint.build(mesh);
+		assertTrue(hnc.size() > 0);
+		AssemblerScalar asm = new AssemblerScalar(mesh, weakForm(borderType));
+		asm.setHangingNodeConstraint(hnc);
+		assemble(asm, borderType);
+
+		SparseMatrix Aold = asmOld.getStiffnessMatrix();
+		SparseMatrix A = asm.getStiffnessMatrix();
+		Vector fOld = asmOld.getLoadVector();
+		Vector f = asm.getLoadVector();
+		int n = A.getRowDim();
+		for(int i=1;i<=n;i++) {
+			if(hnc.isConstrained(i)) continue;
+			for(int j=1;j<=n;j++)
+				assertEquals(Aold.get(i, j), A.get(i, j), 1e-12);
+			assertEquals(fOld.get(i), f.get(i), 1e-12);
+		}
+
+		Solver solver = new Solver();
+		solver.epsRelIter = 1e-12;
+		Vector uOld = solver.solveGMRES(Aold, fOld);
+		Vector u = solver.solveCG(A, f);
+		hnc.distribute(u);
+		for(int i=1;i<=n;i++)
+			assertEquals(uOld.get(i), u.get(i), 1e-9);
+	}
+
+	@Test
+	public void testProcHangingNode() {
+		compareWithProcHangingNode(true, new int[]{6, 7, 10, 11}, NodeType.Dirichlet);
+		compareWithProcHangingNode(true, new int[]{6, 7, 10, 11}, NodeType.Robin);
+		compareWithProcHangingNode(false, new int[]{10, 11, 12}, NodeType.Dirichlet);
+		compareWithProcHangingNode(false, new int[]{10, 11, 12}, NodeType.Robin);
+	}
+
+	/**
+	 * 两层hanging node：合成的方程组等于不处理hanging node合成的K和f直接计算的C'KC和C'f
+	 */
+	private static void compareWithGalerkin(boolean rect, int[][] refines) {
+		Mesh mesh = mesh(rect, refines, NodeType.Robin);
+		HangingNodeConstraint hnc = HangingNodeConstraint.build(mesh);
+		AssemblerScalar asmK = new AssemblerScalar(mesh, weakForm(NodeType.Robin));
+		asmK.assemble(false);
+		AssemblerScalar asm = new AssemblerScalar(mesh, weakForm(NodeType.Robin));
+		asm.setHangingNodeConstraint(hnc);
+		asm.assemble();
+
+		int n = hnc.getDim();
+		SparseMatrixCSR C = hnc.getMatrix();
+		double[][] c = new double[n][n];
+		for(int i=1;i<=n;i++) {
+			for(int j=1;j<=n;j++) {
+				c[i-1][j-1] = C.get(i, j);
+				//约束展开后只剩不受约束的自由度
+				if(c[i-1][j-1] != 0.0)
+					assertFalse(hnc.isConstrained(j));
+			}
+		}
+		SparseMatrix K = asmK.getStiffnessMatrix();
+		Vector fK = asmK.getLoadVector();
+		double[][] kc = new double[n][n];
+		for(int i=0;i<n;i++)
+			for(int k=0;k<n;k++)
+				for(int j=0;j<n;j++)
+					if(c[k][j] != 0.0)
+						kc[i][j] += K.get(i+1, k+1)*c[k][j];
+
+		SparseMatrix A = asm.getStiffnessMatrix();
+		Vector f = asm.getLoadVector();
+		for(int i=0;i<n;i++) {
+			double fi = 0.0;
+			for(int k=0;k<n;k++)
+				fi += c[k][i]*fK.get(k+1);
+			for(int j=0;j<n;j++) {
+				double aij = 0.0;
+				for(int k=0;k<n;k++)
+					aij += c[k][i]*kc[k][j];
+				if(hnc.isConstrained(i+1))
+					aij = i==j ? 1.0 : 0.0;
+				assertEquals(aij, A.get(i+1, j+1), 1e-12);
+				assertEquals(A.get(i+1, j+1), A.get(j+1, i+1), 0.0);
+			}
+			assertEquals(hnc.isConstrained(i+1) ? 0.0 : fi, f.get(i+1), 1e-12);
+		}
+	}
+
+	@Test
+	public void testResolve() {
+		//u3 = (u1+u2)/2, u5 = (u3+u4)/2 => u5 = u1/4 + u2/4 + u4/2
+		HangingNodeConstraint hnc = new HangingNodeConstraint(5);
+		hnc.addConstraint(5, new int[]{4, 3}, new double[]{0.5, 0.5});
+		hnc.addConstraint(3, new int[]{2, 1}, new double[]{0.5, 0.5});
+		assertEquals(2, hnc.size());
+		SparseMatrixCSR C = hnc.getMatrix();
+		double[][] expected = {
+				{1, 0, 0, 0, 0},
+				{0, 1, 0, 0, 0},
+				{0.5, 0.5, 0, 0, 0},
+				{0, 0, 0, 1, 0},
+				{0.25, 0.25, 0, 0.5, 0}};
+		for(int i=1;i<=5;i++)
+			for(int j=1;j<=5;j++)
+				assertEquals(expected[i-1][j-1], C.get(i, j), 0.0);
+		assertArrayEquals(new int[]{0, 1, 3}, hnc.expand(new int[]{4, 2}));
+
+		hnc.addConstraint(1, new int[]{5}, new double[]{1.0});
+		try {
+			hnc.getMatrix();
+			fail("cyclic constraint");
+		} catch(FutureyeException e) {
+		}
+	}
+
+	@Test
+	public void testGalerkin() {
+		compareWithGalerkin(true, new int[][]{{6, 7, 10, 11}, {17, 18}});
+		compareWithGalerkin(false, new int[][]{{10, 11, 12}, {30, 31, 32, 33}});
+	}
+}
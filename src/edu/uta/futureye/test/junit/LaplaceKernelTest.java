@@ -0,0 +1,199 @@
+package edu.uta.futureye.test.junit;
+
+import static edu.uta.futureye.function.operator.FMath.X;
+import static edu.uta.futureye.function.operator.FMath.Y;
+import static edu.uta.futureye.function.operator.FMath.Z;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.uta.futureye.core.DOF;
+import edu.uta.futureye.core.DOFOrder;
+import edu.uta.futureye.core.Element;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.MeshArrays;
+import edu.uta.futureye.core.NodeType;
+import edu.uta.futureye.core.intf.WeakForm.ItemType;
+import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.basic.FC;
+import edu.uta.futureye.function.intf.Function;
+import edu.uta.futureye.function.operator.FOIntegrate;
+import edu.uta.futureye.lib.element.FELinearTetrahedron;
+import edu.uta.futureye.lib.weakform.AbstractScalarWeakForm;
+import edu.uta.futureye.lib.weakform.LaplaceKernel;
+import edu.uta.futureye.lib.weakform.WeakFormLaplace2D;
+import edu.uta.futureye.lib.weakform.WeakFormLaplace3D;
+import edu.uta.futureye.util.container.DOFList;
+import edu.uta.futureye.util.container.ElementList;
+
+/**
+ * <blockquote><pre>
+ * LaplaceKernel的单元矩阵和向量与弱形式的函数表达式（leftHandSide()，rightHandSide()）积分的结果相同。
+ * 函数表达式用精确的积分公式积分（AbstractScalarWeakForm.integrate()的三角形积分阶数不够）：
+ *   三角形：4阶（三次多项式精确），四边形：5*5 Gauss，四面体：2阶（二次多项式精确，系数c为常数，
+ *   FOIntegrate的四面体积分公式的权重之和为1，乘以|J|/6），
+ *   线段：5点Gauss
+ * 四边形单元为平行四边形（SFBilinearLocal2D的导数用单元面积计算Jacobian）
+ * </pre></blockquote>
+ */
+public class LaplaceKernelTest {
+
+	/**
+	 * 在构造网格对象之前对所有结点坐标做变换（单元的顶点保存了坐标的副本）：
+	 * 非线性变换（三角形、四面体）或仿射变换（四边形变为平行四边形）
+	 */
+	private static Mesh distort(MeshArrays ma, boolean affine) {
+		double[] coords = ma.getCoords();
+		int dim = ma.getDim();
+		for(int i=0;i<ma.getNodeNumber();i++) {
+			int p = i*dim;
+			double x = coords[p], y = coords[p+1];
+			if(affine) {
+				coords[p]   = 1.3*x + 0.4*y;
+				coords[p+1] = 0.2*x + 0.9*y;
+			} else if(dim == 2) {
+				coords[p]   = x + 0.08*Math.sin(5.0*y) + 0.3*y;
+				coords[p+1] = y + 0.06*Math.cos(4.0*x);
+			} else {
+				double z = coords[p+2];
+				coords[p]   = x + 0.05*Math.sin(4.0*y+z);
+				coords[p+1] = y + 0.05*Math.cos(3.0*z) + 0.2*x;
+				coords[p+2] = z + 0.05*Math.sin(5.0*x);
+			}
+		}
+		int[][] eNodes = ma.getElementNodes();
+		return new MeshArrays(dim, coords, eNodes[0], eNodes[1]).toMesh();
+	}
+
+	private static double integrate(Element e, Function fun) {
+		if(e.dim() == 3) {
+			//线性四面体的Jacobian为常数6V（有符号），积分公式的权重之和为1
+			double jac = e.getJacobin().value(new Variable());
+			return FOIntegrate.intOnTetrahedraRefElement(fun, 2)*Math.abs(jac)/6.0;
+		}
+		Function integrand = fun.M(e.getJacobin());
+		if(e.dim() == 1)
+			return FOIntegrate.intOnLinearRefElement(integrand, 5);
+		if(e.vertices().size() == 3)
+			return FOIntegrate.intOnTriangleRefElement(integrand, 4);
+		return FOIntegrate.intOnRectangleRefElement(integrand, 5);
+	}
+
+	/**
+	 * 弱形式在单元(或边界单元)e上的矩阵和向量，下标为自由度的局部编号-1
+	 */
+	private static void compare(AbstractScalarWeakForm wf, Element e, DOFList DOFs,
+			ItemType itemType, LaplaceKernel kernel, boolean hasRHS, double eps) {
+		int n = DOFs.size();
+		e.updateJacobin();
+		for(int i=1;i<=n;i++)
+			DOFs.at(i).getSSF().assignElement(e);
+		wf.preProcess(e);
+		double[][] A = kernel.getMatrix();
+		double[] b = kernel.getVector();
+		double scale = 0.0;
+		for(int i=0;i<n;i++)
+			for(int j=0;j<n;j++)
+				scale = Math.max(scale, Math.abs(A[i][j]));
+		for(int i=1;i<=n;i++) {
+			DOF dofI = DOFs.at(i);
+			int li = dofI.getLocalIndex()-1;
+			for(int j=1;j<=n;j++) {
+				DOF dofJ = DOFs.at(j);
+				wf.setDOF(dofJ, dofI);
+				double aij = integrate(e, wf.leftHandSide(e, itemType));
+				assertEquals(aij, A[li][dofJ.getLocalIndex()-1], eps*scale);
+			}
+			if(hasRHS) {
+				wf.setDOF(null, dofI);
+				double bi = integrate(e, wf.rightHandSide(e, itemType));
+				assertEquals(bi, b[li], eps*Math.max(1.0, Math.abs(bi)));
+			}
+		}
+	}
+
+	private static void compareOnMesh(Mesh mesh, AbstractScalarWeakForm wf,
+			Function k, Function c, Function f, Function d, Function g, double eps) {
+		ElementList eList = mesh.getElementList();
+		LaplaceKernel kernel = new LaplaceKernel();
+		int nBorder = 0;
+		for(int i=1;i<=eList.size();i++) {
+			Element e = eList.at(i);
+			//与AssemblerScalar.assemble()相同
+			e.adjustVerticeToCounterClockwise();
+			DOFList DOFs = e.getAllDOFList(DOFOrder.NEFV);
+			assertTrue(kernel.setElement(e, DOFs));
+			kernel.assemble(k, c, f);
+			compare(wf, e, DOFs, ItemType.Domain, kernel, true, eps);
+
+			if(d == null || !e.isBorderElement() || e.dim() != 2)
+				continue;
+			ElementList beList = e.getBorderElements();
+			for(int n=1;n<=beList.size();n++) {
+				Element be = beList.at(n);
+				DOFList beDOFs = be.getAllDOFList(DOFOrder.NEFV);
+				assertTrue(kernel.setBorderElement(be, beDOFs, 2));
+				kernel.assembleBorder(d, g);
+				compare(wf, be, beDOFs, ItemType.Border, kernel, true, eps);
+				nBorder++;
+			}
+		}
+		if(d != null && eList.at(1).dim() == 2)
+			assertTrue(nBorder > 0);
+	}
+
+	private static Function k2D() {
+		return X.M(0.5).A(Y.M(0.3)).A(1.0);
+	}
+
+	@Test
+	public void testTriangle() {
+		Mesh mesh = TestMeshes.prepare(distort(new MeshArrays(TestMeshes.triangles(4)), false),
+				NodeType.Robin);
+		Function c = X.S(Y.M(0.4)).A(0.7);
+		Function f = X.M(2.0).A(Y.M(-1.5)).A(3.0);
+		Function d = X.A(Y).A(0.5);
+		Function g = Y.M(2.0).A(-1.0);
+		WeakFormLaplace2D wf = new WeakFormLaplace2D();
+		wf.setF(f);
+		wf.setParam(k2D(), c, g, d);
+		compareOnMesh(mesh, wf, k2D(), c, f, d, g, 1e-13);
+
+		//k=1, c=0
+		WeakFormLaplace2D wf0 = new WeakFormLaplace2D();
+		wf0.setF(f);
+		compareOnMesh(mesh, wf0, null, null, f, null, null, 1e-13);
+	}
+
+	@Test
+	public void testRectangle() {
+		Mesh mesh = TestMeshes.prepare(distort(new MeshArrays(TestMeshes.rectangles(4)), true),
+				NodeType.Robin);
+		Function c = X.S(Y.M(0.4)).A(0.7);
+		Function f = X.M(2.0).A(Y.M(-1.5)).A(3.0);
+		Function d = X.A(Y).A(0.5);
+		Function g = Y.M(2.0).A(-1.0);
+		WeakFormLaplace2D wf = new WeakFormLaplace2D();
+		wf.setF(f);
+		wf.setParam(k2D(), c, g, d);
+		compareOnMesh(mesh, wf, k2D(), c, f, d, g, 1e-12);
+	}
+
+	@Test
+	public void testTetrahedron() {
+		Mesh mesh = distort(TestMeshes.tetrahedra(2), false);
+		mesh.computeNodeBelongsToElements();
+		FELinearTetrahedron fe = new FELinearTetrahedron();
+		ElementList eList = mesh.getElementList();
+		for(int i=1;i<=eList.size();i++)
+			fe.assignTo(eList.at(i));
+		Function k = X.M(0.5).A(Y.M(0.3)).A(Z.M(-0.2)).A(1.0);
+		Function c = FC.c(0.7);
+		Function f = X.M(2.0).A(Y.M(-1.5)).A(Z).A(3.0);
+		WeakFormLaplace3D wf = new WeakFormLaplace3D();
+		wf.setF(f);
+		wf.setParam(k, c, null, null);
+		compareOnMesh(mesh, wf, k, c, f, null, null, 1e-13);
+	}
+}
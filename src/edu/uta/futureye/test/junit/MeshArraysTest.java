@@ -0,0 +1,140 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.uta.futureye.core.EdgeLocal;
+import edu.uta.futureye.core.Element;
+import edu.uta.futureye.core.FaceLocal;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.MeshArrays;
+import edu.uta.futureye.core.Refiner;
+import edu.uta.futureye.util.container.ElementList;
+import edu.uta.futureye.util.container.ObjList;
+import edu.uta.futureye.util.container.VertexList;
+
+public class MeshArraysTest {
+
+	/**
+	 * 是否已经创建结点或单元对象
+	 */
+	private static class Views extends MeshArrays {
+		Views(MeshArrays ma) {
+			super(ma.getDim(), ma.getCoords(), ma.getElementNodes()[0], ma.getElementNodes()[1]);
+		}
+		boolean created() {
+			return nodes != null || elements != null;
+		}
+	}
+
+	private static int[] vertices(VertexList vs) {
+		int[] rlt = new int[vs.size()];
+		for(int j=1;j<=vs.size();j++)
+			rlt[j-1] = vs.at(j).globalNode().globalIndex-1;
+		return rlt;
+	}
+
+	/**
+	 * 由局部边（面）表得到的边和面与单元对象的Element.edges()、Element.faces()相同
+	 */
+	private static void checkLocalTables(MeshArrays arrays) {
+		Views ma = new Views(arrays);
+		int[][] ee = ma.getElementEdges();
+		int[][] ef = ma.getElementFaces();
+		int[][] nbs = ma.getNodeNeighbors();
+		assertTrue(nbs[0][ma.getNodeNumber()] > 0);
+		assertFalse(ma.created());
+
+		Mesh mesh = ma.toMesh();
+		for(int e=0;e<ma.getElementNumber();e++) {
+			Element ele = mesh.getElementList().at(e+1);
+			ObjList<EdgeLocal> edges = ele.edges();
+			assertEquals(edges.size(), ee[0][e+1]-ee[0][e]);
+			for(int j=0;j<edges.size();j++) {
+				int k = ee[0][e]+j;
+				assertArrayEquals(vertices(edges.at(j+1).getVertices()),
+						new int[]{ee[1][2*k], ee[1][2*k+1]});
+			}
+			if(ma.getDim() == 3) {
+				ObjList<FaceLocal> faces = ele.faces();
+				assertEquals(faces.size(), ef[0][e+1]-ef[0][e]);
+				for(int j=0;j<faces.size();j++) {
+					int k = ef[0][e]+j;
+					int[] verts = new int[ef[1][k+1]-ef[1][k]];
+					System.arraycopy(ef[2], ef[1][k], verts, 0, verts.length);
+					assertArrayEquals(vertices(faces.at(j+1).getVertices()), verts);
+				}
+			} else {
+				assertEquals(ef[0][e], ef[0][e+1]);
+			}
+		}
+
+		//由网格构造：直接使用网格中的对象
+		MeshArrays fromMesh = new MeshArrays(mesh);
+		assertSame(mesh.getNodeList().at(2), fromMesh.node(2));
+		assertSame(mesh.getElementList().at(3), fromMesh.element(3));
+		assertArrayEquals(ee[0], fromMesh.getElementEdges()[0]);
+		assertArrayEquals(ee[1], fromMesh.getElementEdges()[1]);
+	}
+
+	@Test
+	public void testLocalTables() {
+		checkLocalTables(new MeshArrays(TestMeshes.triangles(3)));
+		checkLocalTables(new MeshArrays(TestMeshes.rectangles(3)));
+		checkLocalTables(TestMeshes.tetrahedra(2));
+		checkLocalTables(TestMeshes.hexahedra(2));
+	}
+
+	/**
+	 * 有公共结点的单元对，MeshArrays.isNeighbor()与Mesh.isNeighbor()相同
+	 */
+	private static void checkIsNeighbor(Mesh mesh) {
+		mesh.computeNodeBelongsToElements();
+		mesh.computeGlobalEdge();
+		MeshArrays ma = mesh.getMeshArrays();
+		int[][] n2e = ma.getNodeElements();
+		ElementList eList = mesh.getElementList();
+		int nTrue = 0;
+		for(int i=0;i<ma.getNodeNumber();i++) {
+			for(int a=n2e[0][i];a<n2e[0][i+1];a++) {
+				for(int b=n2e[0][i];b<n2e[0][i+1];b++) {
+					int e1 = n2e[1][a], e2 = n2e[1][b];
+					if(e1 == e2) continue;
+					boolean expected = mesh.isNeighbor(eList.at(e1+1), eList.at(e2+1));
+					assertEquals(expected, ma.isNeighbor(e1, e2));
+					if(expected) nTrue++;
+				}
+			}
+		}
+		assertTrue(nTrue > 0);
+	}
+
+	private static void refine(Mesh mesh, int[] index) {
+		mesh.computeNodeBelongsToElements();
+		mesh.computeNeighborNodes();
+		mesh.computeGlobalEdge();
+		mesh.computeNeighborElements();
+		ElementList eToRefine = new ElementList();
+		for(int i : index)
+			eToRefine.add(mesh.getElementList().at(i));
+		Refiner.refineOnce(mesh, eToRefine);
+	}
+
+	@Test
+	public void testIsNeighbor() {
+		//hanging node两侧的单元：部分重合的边
+		Mesh mesh = TestMeshes.rectangles(4);
+		refine(mesh, new int[]{6, 7, 10, 11});
+		checkIsNeighbor(mesh);
+		mesh = TestMeshes.triangles(4);
+		refine(mesh, new int[]{10, 11, 12});
+		checkIsNeighbor(mesh);
+		checkIsNeighbor(TestMeshes.hexahedra(2).toMesh());
+		checkIsNeighbor(TestMeshes.tetrahedra(2).toMesh());
+	}
+}
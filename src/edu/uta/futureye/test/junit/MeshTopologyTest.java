@@ -0,0 +1,169 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.uta.futureye.core.Element;
+import edu.uta.futureye.core.Face;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.MeshTopology;
+import edu.uta.futureye.core.Node;
+import edu.uta.futureye.core.Refiner;
+import edu.uta.futureye.util.Constant;
+import edu.uta.futureye.util.container.ElementList;
+import edu.uta.futureye.util.container.FaceList;
+
+public class MeshTopologyTest {
+
+	@Test
+	public void testGroups() {
+		//有向边：(3,1)和(1,3)为同一条边
+		int[] edges = {3,1, 0,2, 1,3, 2,0, 4,1, 1,3};
+		MeshTopology topo = MeshTopology.edges(edges, 5);
+		//按第一次出现的顺序编号
+		assertEquals(3, topo.size());
+		assertArrayEquals(new int[]{0, 1, 0, 1, 2, 0}, topo.getGroups());
+		assertArrayEquals(new int[]{3, 2, 1}, topo.getCounts());
+		assertArrayEquals(new int[]{2}, topo.getUnmatched());
+
+		//单元0：元组0,1；单元1：元组2,3,4；单元2：元组5
+		int[][] g2e = topo.getGroupOwners(new int[]{0, 2, 5, 6});
+		assertArrayEquals(new int[]{0, 3, 5, 6}, g2e[0]);
+		assertArrayEquals(new int[]{0, 1, 2, 0, 1, 1}, g2e[1]);
+	}
+
+	@Test
+	public void testPaddedFaces() {
+		//三角形面和四边形面：三角形面用nNode补齐，不会与四边形面相同；顶点顺序不影响分组
+		int[] facePtr = {0, 3, 7, 10, 14, 17};
+		int[] faceVerts = {
+				0, 1, 2,
+				0, 1, 2, 3,
+				2, 0, 1,
+				3, 2, 1, 0,
+				1, 2, 3};
+		MeshTopology topo = MeshTopology.faces(facePtr, faceVerts, 4);
+		assertEquals(3, topo.size());
+		assertArrayEquals(new int[]{0, 1, 0, 1, 2}, topo.getGroups());
+		assertArrayEquals(new int[]{2, 2, 1}, topo.getCounts());
+		assertArrayEquals(new int[]{2}, topo.getUnmatched());
+	}
+
+	@Test
+	public void testBoundaryFaces() {
+		//n*n*n个立方体：6*n*n个边界面，3*n*n*(n+1)个全局面
+		int n = 3;
+		Mesh mesh = TestMeshes.hexahedra(n).toMesh();
+		mesh.computeNodeBelongsToElements();
+		mesh.computeGlobalFace();
+		assertEquals(3*n*n*(n+1), mesh.getFacelist().size());
+		FaceList bFaces = mesh.getBoundaryFaces();
+		assertEquals(6*n*n, bFaces.size());
+		for(int i=1;i<=bFaces.size();i++) {
+			Face face = bFaces.at(i);
+			assertSame(face, mesh.getFacelist().at(face.getGlobalIndex()));
+			//边界面的顶点都在某个坐标平面x=0,1（y,z）上
+			boolean onBoundary = false;
+			for(int a=1;a<=3;a++) {
+				boolean all = true;
+				for(int j=1;j<=face.getVertices().size();j++) {
+					double c = face.getVertices().at(j).coord(a);
+					if(Math.abs(c) > Constant.meshEps && Math.abs(c-1.0) > Constant.meshEps)
+						all = false;
+				}
+				for(int j=2;j<=face.getVertices().size();j++)
+					if(Math.abs(face.getVertices().at(j).coord(a)-face.getVertices().at(1).coord(a)) > Constant.meshEps)
+						all = false;
+				onBoundary |= all;
+			}
+			assertTrue(onBoundary);
+		}
+
+		//四面体：每个立方体面分为两个三角形
+		mesh = TestMeshes.tetrahedra(n).toMesh();
+		mesh.computeNodeBelongsToElements();
+		mesh.computeGlobalFace();
+		assertEquals(12*n*n, mesh.getBoundaryFaces().size());
+	}
+
+	/**
+	 * 原来的方法：逐个结点比较包含该结点的所有单元对
+	 */
+	private static ElementList[] oldNeighbors(Mesh mesh) {
+		ElementList eList = mesh.getElementList();
+		for(int i=1;i<=eList.size();i++)
+			eList.at(i).neighbors.clear();
+		for(int i=1;i<=mesh.getNodeList().size();i++) {
+			Node node = mesh.getNodeList().at(i);
+			ElementList nbs = node.belongToElements;
+			for(int j=1;j<=nbs.size();j++) {
+				for(int k=1;k<=nbs.size();k++) {
+					Element e1 = nbs.at(j);
+					Element e2 = nbs.at(k);
+					if(e1.equals(e2))
+						continue;
+					if(mesh.isNeighbor(e1, e2)) {
+						e1.addNeighborElement(e2);
+						e2.addNeighborElement(e1);
+					}
+				}
+			}
+		}
+		return copyNeighbors(eList);
+	}
+
+	private static ElementList[] copyNeighbors(ElementList eList) {
+		ElementList[] rlt = new ElementList[eList.size()];
+		for(int i=1;i<=eList.size();i++) {
+			rlt[i-1] = new ElementList();
+			rlt[i-1].addAll(eList.at(i).neighbors);
+		}
+		return rlt;
+	}
+
+	/**
+	 * 相邻单元（包括顺序）与原来的方法相同
+	 */
+	private static void checkNeighbors(Mesh mesh) {
+		mesh.computeNodeBelongsToElements();
+		mesh.computeGlobalEdge();
+		ElementList[] expected = oldNeighbors(mesh);
+		mesh.computeNeighborElements();
+		ElementList eList = mesh.getElementList();
+		for(int i=1;i<=eList.size();i++) {
+			ElementList nbs = eList.at(i).neighbors;
+			assertEquals(expected[i-1].size(), nbs.size());
+			for(int j=1;j<=nbs.size();j++)
+				assertSame(expected[i-1].at(j), nbs.at(j));
+		}
+	}
+
+	private static Mesh refine(Mesh mesh, int[] index) {
+		mesh.computeNodeBelongsToElements();
+		mesh.computeNeighborNodes();
+		mesh.computeGlobalEdge();
+		mesh.computeNeighborElements();
+		ElementList eToRefine = new ElementList();
+		for(int i : index)
+			eToRefine.add(mesh.getElementList().at(i));
+		Refiner.refineOnce(mesh, eToRefine);
+		return mesh;
+	}
+
+	@Test
+	public void testNeighborElements() {
+		checkNeighbors(TestMeshes.triangles(6));
+		checkNeighbors(TestMeshes.rectangles(6));
+		//hanging node两侧的单元
+		checkNeighbors(refine(TestMeshes.rectangles(4), new int[]{6, 7, 10, 11}));
+		checkNeighbors(refine(refine(TestMeshes.rectangles(4), new int[]{6, 7, 10, 11}), new int[]{17, 18}));
+		checkNeighbors(refine(TestMeshes.triangles(4), new int[]{10, 11, 12}));
+		//三维协调网格
+		checkNeighbors(TestMeshes.hexahedra(5).toMesh());
+		checkNeighbors(TestMeshes.tetrahedra(4).toMesh());
+	}
+}
@@ -0,0 +1,85 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.SpaceVector;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.application.Tools;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.MeshTransfer;
+import edu.uta.futureye.core.Node;
+import edu.uta.futureye.core.NodeType;
+import edu.uta.futureye.util.container.NodeList;
+
+public class MeshTransferTest {
+
+	private static double bilinear(Node node) {
+		double x = node.coord(1);
+		double y = node.coord(2);
+		return 1.0+2.0*x-y+3.0*x*y;
+	}
+
+	private static Mesh rectangles(int n) {
+		Mesh mesh = TestMeshes.rectangles(n);
+		TestMeshes.prepare(mesh, NodeType.Dirichlet);
+		return mesh;
+	}
+
+	@Test
+	public void testInjection() {
+		Mesh coarse = rectangles(4);
+		Mesh fine = rectangles(8);
+		NodeList nodes = coarse.getNodeList();
+		Vector u = new SpaceVector(nodes.size());
+		for(int i=1;i<=nodes.size();i++)
+			u.set(i, bilinear(nodes.at(i)));
+		Vector v = new MeshTransfer(coarse, fine).apply(u);
+		nodes = fine.getNodeList();
+		for(int i=1;i<=nodes.size();i++)
+			assertEquals(bilinear(nodes.at(i)), v.get(i), 1e-12);
+	}
+
+	@Test
+	public void testModifiedMesh() {
+		Mesh coarse = rectangles(4);
+		Mesh fine = rectangles(8);
+		MeshTransfer t = Tools.getMeshTransfer(coarse, fine);
+		assertTrue(t.isValid());
+		assertSame(t, Tools.getMeshTransfer(coarse, fine));
+
+		//结点和单元个数不变，结点坐标改变
+		Node node = fine.getNodeList().at(11);
+		node.setCoord(1, node.coord(1)+0.01);
+		assertFalse(t.isValid());
+		MeshTransfer t2 = Tools.getMeshTransfer(coarse, fine);
+		assertNotSame(t, t2);
+		assertTrue(t2.isValid());
+		assertSame(t2, Tools.getMeshTransfer(coarse, fine));
+	}
+
+	private static WeakReference<Mesh> cachedTransfer() {
+		Mesh coarse = rectangles(4);
+		Mesh fine = rectangles(8);
+		Tools.getMeshTransfer(coarse, fine);
+		return new WeakReference<Mesh>(fine);
+	}
+
+	@Test
+	public void testCacheDoesNotHoldMeshes() throws InterruptedException {
+		WeakReference<Mesh> ref = cachedTransfer();
+		for(int i=0;i<100 && ref.get() != null;i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(ref.get());
+	}
+}
@@ -0,0 +1,45 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.application.ModelDOTMult;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.NodeType;
+import edu.uta.futureye.function.basic.FC;
+
+public class ModelDOTMultTest {
+
+	/**
+	 * 多个光源一起求解（只分解一次，只合成右端项）与每个光源单独求解的结果相同
+	 */
+	private static void compareWithSingleLight(Mesh mesh) {
+		double[] LSx = {0.3, 0.5, 0.8};
+		double[] LSy = {0.4, 0.5, 0.1};
+		ModelDOTMult model = new ModelDOTMult();
+		model.setLightPosition(0.9, 0.9);
+		model.setMu_a(FC.c(0.1));
+		Vector[] u = model.solveNeumann(mesh, LSx, LSy);
+		//不改变光源位置
+		assertEquals(0.9, model.lightPosition.get("x"), 0.0);
+		assertEquals(3, u.length);
+
+		for(int i=0;i<LSx.length;i++) {
+			model.setLightPosition(LSx[i], LSy[i]);
+			Vector ui = model.solveNeumann(mesh);
+			assertEquals(ui.getDim(), u[i].getDim());
+			assertTrue(ui.normInf() > 0.0);
+			for(int j=1;j<=ui.getDim();j++)
+				assertEquals(ui.get(j), u[i].get(j), 1e-12*ui.normInf());
+		}
+	}
+
+	@Test
+	public void testSolveNeumann() {
+		compareWithSingleLight(TestMeshes.prepare(TestMeshes.rectangles(8), NodeType.Robin));
+		compareWithSingleLight(TestMeshes.prepare(TestMeshes.triangles(8), NodeType.Robin));
+	}
+}
@@ -0,0 +1,152 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.FullVector;
+import edu.uta.futureye.algebra.ParallelKernel;
+
+public class ParallelKernelTest {
+
+	/**
+	 * 运行测试，结束后恢复ParallelKernel的全局设置
+	 */
+	private static void run(boolean deterministic, Runnable test) {
+		boolean enabled = ParallelKernel.enabled;
+		int threshold = ParallelKernel.threshold;
+		boolean det = ParallelKernel.deterministic;
+		int blockSize = ParallelKernel.blockSize;
+		ForkJoinPool pool = ParallelKernel.getPool();
+		try {
+			ParallelKernel.enabled = true;
+			ParallelKernel.threshold = 1000;
+			ParallelKernel.deterministic = deterministic;
+			test.run();
+		} finally {
+			ParallelKernel.enabled = enabled;
+			ParallelKernel.threshold = threshold;
+			ParallelKernel.deterministic = det;
+			ParallelKernel.blockSize = blockSize;
+			ParallelKernel.setPool(pool);
+		}
+	}
+
+	/**
+	 * 数量级相差很大的随机数，求和顺序不同时结果一般不同
+	 */
+	private static double[] data(int n, long seed) {
+		Random rnd = new Random(seed);
+		double[] rlt = new double[n];
+		for(int i=0;i<n;i++)
+			rlt[i] = (rnd.nextDouble()-0.5)*Math.pow(10.0, rnd.nextInt(12)-6);
+		return rlt;
+	}
+
+	/**
+	 * nThreads个线程计算x.dot(y)，x.norm2()，x.norm1()，x.addNorm2(a,y)
+	 */
+	private static double[] reductions(int nThreads, double[] x, double[] y) {
+		ForkJoinPool p = new ForkJoinPool(nThreads);
+		ParallelKernel.setPool(p);
+		try {
+			FullVector vx = new FullVector(x, true);
+			FullVector vy = new FullVector(y, true);
+			return new double[] {
+					vx.dot(vy),
+					vx.norm2(),
+					vx.norm1(),
+					vx.addNorm2(-0.75, vy)
+			};
+		} finally {
+			p.shutdown();
+		}
+	}
+
+	private static int[] threadNumbers() {
+		return new int[]{1, 2, 3, Math.max(4, Runtime.getRuntime().availableProcessors())};
+	}
+
+	@Test
+	public void testDeterministic() {
+		run(true, new Runnable() {
+			@Override
+			public void run() {
+				compareDeterministic();
+			}
+		});
+	}
+
+	private static void compareDeterministic() {
+		//长度不是块长度的整数倍
+		int[] dims = {999, 4096, 100003};
+		int[] blockSizes = {4096, 1000, 37};
+		for(int n : dims) {
+			double[] x = data(n, n);
+			double[] y = data(n, n+1);
+			for(int bs : blockSizes) {
+				ParallelKernel.blockSize = bs;
+				double[] serial = reductions(1, x, y);
+				for(int nThreads : threadNumbers()) {
+					double[] rlt = reductions(nThreads, x, y);
+					for(int k=0;k<serial.length;k++)
+						assertEquals(Double.doubleToLongBits(serial[k]),
+								Double.doubleToLongBits(rlt[k]));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNonDeterministic() {
+		run(false, new Runnable() {
+			@Override
+			public void run() {
+				compareNonDeterministic();
+			}
+		});
+	}
+
+	private static void compareNonDeterministic() {
+		int n = 100003;
+		double[] x = data(n, 5);
+		double[] y = data(n, 6);
+		double[] serial = reductions(1, x, y);
+		for(int nThreads : threadNumbers()) {
+			double[] rlt = reductions(nThreads, x, y);
+			for(int k=0;k<serial.length;k++)
+				assertEquals(serial[k], rlt[k], 1e-12*Math.abs(serial[k]));
+		}
+	}
+
+	@Test
+	public void testForEach() {
+		run(false, new Runnable() {
+			@Override
+			public void run() {
+				compareForEach();
+			}
+		});
+	}
+
+	private static void compareForEach() {
+		int n = 100003;
+		double[] x = data(n, 7);
+		double[] y = data(n, 8);
+		ParallelKernel.setPool(new ForkJoinPool(1));
+		FullVector serial = new FullVector(x, true);
+		serial.add(0.5, new FullVector(y, true));
+		for(int nThreads : threadNumbers()) {
+			ForkJoinPool p = new ForkJoinPool(nThreads);
+			ParallelKernel.setPool(p);
+			FullVector v = new FullVector(x, true);
+			v.add(0.5, new FullVector(y, true));
+			p.shutdown();
+			for(int i=0;i<n;i++)
+				assertEquals(serial.getData()[i], v.getData()[i], 0.0);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.FullVector;
+import edu.uta.futureye.algebra.solver.PreconditionerAMG;
+import edu.uta.futureye.algebra.solver.Solver;
+import edu.uta.futureye.test.junit.TestMatrices.CSC;
+
+public class PreconditionerAMGTest {
+
+	/**
+	 * CG求解m*m个内部结点的Laplace方程，检查真实残量，返回迭代次数
+	 */
+	private static int solveCG(int m, boolean amg) {
+		CSC A = TestMatrices.laplace2D(m);
+		CompressedRowMatrix csr = A.toCompressedRowMatrix();
+		double[] b = TestMatrices.randomVector(A.n, m);
+		Solver solver = new Solver();
+		solver.epsRelIter = 1e-10;
+		solver.epsAbsIterMax = 1e-4;
+		if(amg) {
+			PreconditionerAMG pc = new PreconditionerAMG(csr);
+			assertTrue(pc.getLevelNumber() > 1);
+			assertTrue(pc.getOperatorComplexity() < 2.0);
+			solver.preconditioner = pc;
+		}
+		FullVector x = new FullVector(A.n);
+		solver.solveCG(csr, TestMatrices.toFullVector(b), x);
+		assertTrue(solver.iterations < solver.maxIter);
+		assertTrue(A.residual(x.getData(), b) < 1e-9);
+		return solver.iterations;
+	}
+
+	@Test
+	public void testIterationGrowth() {
+		int[] m = {32, 64, 128};
+		int[] it = new int[m.length];
+		for(int k=0;k<m.length;k++)
+			it[k] = solveCG(m[k], true);
+		//网格尺寸每次减半，迭代次数基本不变（没有预条件时约加倍）
+		for(int k=1;k<m.length;k++)
+			assertTrue(it[k] <= it[k-1]+4);
+		assertTrue(it[m.length-1] <= 25);
+		assertTrue(solveCG(128, false) > 5*it[m.length-1]);
+	}
+}
@@ -0,0 +1,139 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.FullVector;
+import edu.uta.futureye.algebra.intf.SparseMatrix;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.algebra.solver.PreconditionerGMG;
+import edu.uta.futureye.algebra.solver.Solver;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.Node;
+import edu.uta.futureye.core.NodeType;
+import edu.uta.futureye.core.Refiner;
+import edu.uta.futureye.function.basic.FC;
+import edu.uta.futureye.lib.assembler.AssemblerScalar;
+import edu.uta.futureye.lib.weakform.WeakFormLaplace2D;
+import edu.uta.futureye.util.container.ElementList;
+import edu.uta.futureye.util.container.NodeList;
+
+public class PreconditionerGMGTest {
+
+	private static double linear(Node node) {
+		return 1.0+2.0*node.coord(1)-3.0*node.coord(2);
+	}
+
+	private static double bilinear(Node node) {
+		return linear(node)+4.0*node.coord(1)*node.coord(2);
+	}
+
+	/**
+	 * 加密单元eList.at(index[k])（index为null时加密所有单元），返回插值矩阵
+	 */
+	private static CompressedRowMatrix refine(Mesh mesh, int[] index) {
+		mesh.computeNodeBelongsToElements();
+		mesh.computeNeighborNodes();
+		mesh.computeGlobalEdge();
+		mesh.computeNeighborElements();
+		ElementList eList = mesh.getElementList();
+		ElementList eToRefine = new ElementList();
+		if(index == null) {
+			for(int i=1;i<=eList.size();i++)
+				eToRefine.add(eList.at(i));
+		} else {
+			for(int i : index)
+				eToRefine.add(eList.at(i));
+		}
+		int nCoarseNode = mesh.getNodeList().size();
+		Refiner.refineOnce(mesh, eToRefine);
+		CompressedRowMatrix P = Refiner.computeProlongation(mesh, nCoarseNode);
+		assertEquals(mesh.getNodeList().size(), P.getRowDim());
+		assertEquals(nCoarseNode, P.getColDim());
+		return P;
+	}
+
+	private static FullVector interpolate(NodeList nodes, boolean bilinear) {
+		double[] u = new double[nodes.size()];
+		for(int i=1;i<=nodes.size();i++)
+			u[i-1] = bilinear ? bilinear(nodes.at(i)) : linear(nodes.at(i));
+		return new FullVector(u, false);
+	}
+
+	/**
+	 * 加密前后的插值矩阵精确插值线性（双线性）函数，包括hanging node
+	 */
+	private static void checkProlongation(Mesh mesh, int[] index, boolean bilinear) {
+		FullVector uc = interpolate(mesh.getNodeList(), bilinear);
+		CompressedRowMatrix P = refine(mesh, index);
+		FullVector uf = new FullVector(P.getRowDim());
+		P.mult(uc, uf);
+		NodeList nodes = mesh.getNodeList();
+		for(int i=1;i<=nodes.size();i++) {
+			double v = bilinear ? bilinear(nodes.at(i)) : linear(nodes.at(i));
+			assertEquals(v, uf.getData()[i-1], 1e-12);
+		}
+	}
+
+	@Test
+	public void testProlongation() {
+		Mesh mesh = TestMeshes.triangles(4);
+		checkProlongation(mesh, null, false);
+		checkProlongation(mesh, new int[]{5, 6, 20}, false);
+		checkProlongation(mesh, new int[]{1, 2}, false);
+
+		mesh = TestMeshes.rectangles(4);
+		checkProlongation(mesh, new int[]{6, 7, 10, 11}, true);
+		checkProlongation(mesh, new int[]{17, 18}, true);
+		checkProlongation(mesh, null, true);
+	}
+
+	/**
+	 * 加密levels次的网格上求解Laplace方程，返回迭代次数
+	 */
+	private static int solve(Mesh mesh, int levels, boolean gmg) {
+		List<CompressedRowMatrix> hierarchy = new ArrayList<CompressedRowMatrix>();
+		for(int l=0;l<levels;l++)
+			hierarchy.add(refine(mesh, null));
+		TestMeshes.prepare(mesh, NodeType.Dirichlet);
+		WeakFormLaplace2D wf = new WeakFormLaplace2D();
+		wf.setF(FC.c(1.0));
+		AssemblerScalar assembler = new AssemblerScalar(mesh, wf);
+		assembler.assemble();
+		assembler.imposeDirichletCondition(FC.C0);
+		SparseMatrix stiff = assembler.getStiffnessMatrix();
+		Vector load = assembler.getLoadVector();
+
+		Solver solver = new Solver();
+		solver.epsRelIter = 1e-10;
+		if(gmg)
+			solver.preconditioner = new PreconditionerGMG(hierarchy);
+		Vector u = solver.solveCG(stiff, load);
+		assertTrue(solver.iterations < solver.maxIter);
+		//真实残量
+		CompressedRowMatrix A = new CompressedRowMatrix(stiff, false);
+		FullVector x = new FullVector(u), r = new FullVector(load.getDim());
+		A.mult(x, r);
+		FullVector f = new FullVector(load);
+		r.axpy(-1.0, f);
+		assertTrue(r.norm2() <= 1e-8*f.norm2());
+		return solver.iterations;
+	}
+
+	@Test
+	public void testSolve() {
+		int none = solve(TestMeshes.triangles(4), 3, false);
+		int tri = solve(TestMeshes.triangles(4), 3, true);
+		int rect = solve(TestMeshes.rectangles(4), 3, true);
+		assertTrue(tri < none/2);
+		assertTrue(rect < none/2);
+		//迭代次数基本与加密次数无关
+		assertTrue(solve(TestMeshes.triangles(4), 4, true) <= tri+3);
+	}
+}
@@ -0,0 +1,92 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.FullVector;
+import edu.uta.futureye.algebra.solver.Preconditioner;
+import edu.uta.futureye.algebra.solver.PreconditionerBlockJacobi;
+import edu.uta.futureye.algebra.solver.PreconditionerIC0;
+import edu.uta.futureye.algebra.solver.PreconditionerILU0;
+import edu.uta.futureye.algebra.solver.PreconditionerILUT;
+import edu.uta.futureye.algebra.solver.PreconditionerJacobi;
+import edu.uta.futureye.algebra.solver.PreconditionerSSOR;
+import edu.uta.futureye.algebra.solver.Solver;
+import edu.uta.futureye.test.junit.TestMatrices.CSC;
+
+public class PreconditionerTest {
+
+	private static final int CG = 0;
+	private static final int BICGSTAB = 1;
+	private static final int GMRES = 2;
+
+	/**
+	 * 求解A*x=b，检查真实残量，返回迭代次数
+	 */
+	private static int solve(CSC A, int method, Preconditioner pc) {
+		CompressedRowMatrix csr = A.toCompressedRowMatrix();
+		double[] b = TestMatrices.randomVector(A.n, 1);
+		Solver solver = new Solver();
+		solver.epsRelIter = 1e-10;
+		if(pc != null) {
+			pc.setup(csr);
+			solver.preconditioner = pc;
+		}
+		FullVector x = new FullVector(A.n);
+		if(method == CG)
+			solver.solveCG(csr, TestMatrices.toFullVector(b), x);
+		else if(method == BICGSTAB)
+			solver.solveBiCGStab(csr, TestMatrices.toFullVector(b), x);
+		else
+			solver.solveGMRES(csr, TestMatrices.toFullVector(b), x);
+		assertTrue(solver.iterations > 0 && solver.iterations < solver.maxIter);
+		assertTrue(A.residual(x.getData(), b) < 1e-8);
+		return solver.iterations;
+	}
+
+	/**
+	 * 对角元素相差较大的对称正定矩阵D*A*D
+	 */
+	private static CSC scaled(CSC A) {
+		Random rnd = new Random(3);
+		double[] d = new double[A.n];
+		for(int i=0;i<A.n;i++)
+			d[i] = 1.0+9.0*rnd.nextDouble();
+		for(int j=0;j<A.n;j++)
+			for(int p=A.Ap[j];p<A.Ap[j+1];p++)
+				A.Ax[p] *= d[A.Ai[p]]*d[j];
+		return A;
+	}
+
+	@Test
+	public void testSymmetric() {
+		CSC A = TestMatrices.laplace2D(32);
+		int none = solve(A, CG, null);
+		assertTrue(solve(A, CG, new PreconditionerIC0()) < none);
+		assertTrue(solve(A, CG, new PreconditionerSSOR(1.5)) < none);
+		assertTrue(solve(A, CG, new PreconditionerBlockJacobi(64)) < none);
+
+		CSC DAD = scaled(TestMatrices.laplace2D(32));
+		assertTrue(solve(DAD, CG, new PreconditionerJacobi()) < solve(DAD, CG, null));
+	}
+
+	@Test
+	public void testNonsymmetric() {
+		CSC A = TestMatrices.convectionDiffusion(32, 1.0);
+		int[] methods = {BICGSTAB, GMRES};
+		for(int method : methods) {
+			int none = solve(A, method, null);
+			int ilu0 = solve(A, method, new PreconditionerILU0());
+			int ilut = solve(A, method, new PreconditionerILUT(1e-4, 20));
+			assertTrue(ilu0 < none);
+			//允许填充时分解更精确
+			assertTrue(ilut <= ilu0);
+			assertTrue(solve(A, method, new PreconditionerSSOR()) < none);
+			assertTrue(solve(A, method, new PreconditionerBlockJacobi(64)) < none);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.uta.futureye.core.Element;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.Node;
+import edu.uta.futureye.core.NodeLocator;
+import edu.uta.futureye.core.Refiner;
+import edu.uta.futureye.util.MultiKey;
+import edu.uta.futureye.util.container.ElementList;
+import edu.uta.futureye.util.container.NodeList;
+
+public class RefinerTest {
+
+	/**
+	 * 加密单元eList.at(index[k])（index为null时加密所有单元）
+	 */
+	private static void refine(Mesh mesh, int[] index) {
+		mesh.computeNodeBelongsToElements();
+		mesh.computeNeighborNodes();
+		mesh.computeGlobalEdge();
+		mesh.computeNeighborElements();
+		ElementList eList = mesh.getElementList();
+		ElementList eToRefine = new ElementList();
+		if(index == null) {
+			for(int i=1;i<=eList.size();i++)
+				eToRefine.add(eList.at(i));
+		} else {
+			for(int i : index)
+				eToRefine.add(eList.at(i));
+		}
+		Refiner.refineOnce(mesh, eToRefine);
+	}
+
+	/**
+	 * 没有坐标相同的结点，结点编号与位置一致，每个结点都属于某个单元
+	 */
+	private static void checkNodes(Mesh mesh) {
+		NodeList nodes = mesh.getNodeList();
+		Set<String> coords = new HashSet<String>();
+		for(int i=1;i<=nodes.size();i++) {
+			Node node = nodes.at(i);
+			assertEquals(i, node.globalIndex);
+			assertTrue(coords.add(Math.round(node.coord(1)*1e6)+","+Math.round(node.coord(2)*1e6)));
+		}
+		Set<Node> used = new HashSet<Node>();
+		ElementList eList = mesh.getElementList();
+		for(int i=1;i<=eList.size();i++) {
+			Element e = eList.at(i);
+			assertEquals(i, e.globalIndex);
+			for(int j=1;j<=e.nodes.size();j++)
+				used.add(e.nodes.at(j));
+		}
+		assertEquals(nodes.size(), used.size());
+	}
+
+	@Test
+	public void testUniformRefinement() {
+		//两次加密后相当于16*16的网格
+		Mesh mesh = TestMeshes.triangles(4);
+		refine(mesh, null);
+		checkNodes(mesh);
+		refine(mesh, null);
+		checkNodes(mesh);
+		assertEquals(17*17, mesh.getNodeList().size());
+		assertEquals(2*16*16, mesh.getElementList().size());
+
+		mesh = TestMeshes.rectangles(4);
+		refine(mesh, null);
+		refine(mesh, null);
+		checkNodes(mesh);
+		assertEquals(17*17, mesh.getNodeList().size());
+		assertEquals(16*16, mesh.getElementList().size());
+	}
+
+	@Test
+	public void testLocalRefinement() {
+		//第二次加密的单元与第一次加密产生的hanging node相邻，边中点必须使用已有的结点
+		Mesh mesh = TestMeshes.rectangles(4);
+		refine(mesh, new int[]{6, 7, 10, 11});
+		checkNodes(mesh);
+		//中间2*2个单元加密为4*4个单元，增加5*5-3*3个结点
+		assertEquals(25+16, mesh.getNodeList().size());
+		assertEquals(12+16, mesh.getElementList().size());
+		refine(mesh, new int[]{17, 18});
+		checkNodes(mesh);
+
+		mesh = TestMeshes.triangles(4);
+		refine(mesh, new int[]{10, 11, 12});
+		checkNodes(mesh);
+		refine(mesh, new int[]{30, 31, 32, 33});
+		checkNodes(mesh);
+	}
+
+	@Test
+	public void testNodeLocator() {
+		Random rnd = new Random(5);
+		NodeList nodes = new NodeList();
+		//坐标在一个较粗的格子上，有重复的坐标
+		for(int i=1;i<=300;i++)
+			nodes.add(new Node(i, rnd.nextInt(20)*0.05, rnd.nextInt(20)*0.05));
+		NodeLocator locator = new NodeLocator(nodes);
+		for(int i=301;i<=400;i++)
+			nodes.add(new Node(i, rnd.nextInt(20)*0.05, rnd.nextInt(20)*0.05));
+		locator.update();
+		assertEquals(400, locator.size());
+
+		double[] thresholds = {1e-10, 0.02, 0.06, 10.0};
+		for(int t=0;t<1000;t++) {
+			double[] coord = {rnd.nextInt(22)*0.05-0.05, rnd.nextInt(22)*0.05-0.05};
+			if(t%3 == 0) {
+				coord[0] += 0.03*rnd.nextDouble();
+				coord[1] -= 0.03*rnd.nextDouble();
+			}
+			for(double threshold : thresholds) {
+				//顺序扫描的结果
+				Node expected = null;
+				for(int i=1;i<=nodes.size() && expected==null;i++) {
+					Node node = nodes.at(i);
+					if(Math.abs(node.coord(1)-coord[0]) <= threshold &&
+							Math.abs(node.coord(2)-coord[1]) <= threshold)
+						expected = node;
+				}
+				assertSame(expected, locator.getNodeByCoord(coord, 2, threshold));
+			}
+		}
+	}
+
+	@Test
+	public void testMultiKey() {
+		assertEquals(new MultiKey(200, 3000), new MultiKey(3000, 200));
+		assertEquals(new MultiKey(200, 3000).hashCode(), new MultiKey(3000, 200).hashCode());
+		assertEquals(new MultiKey(true, 1000, 2000), new MultiKey(true, 1000, 2000));
+		assertFalse(new MultiKey(true, 1000, 2000).equals(new MultiKey(true, 2000, 1000)));
+		assertNotEquals(new MultiKey(1, 4).hashCode(), new MultiKey(2, 3).hashCode());
+
+		//n*n个正方形：2n(n+1)条边；每个正方形分为两个三角形：再加n*n条对角线
+		int n = 12;
+		Mesh mesh = TestMeshes.rectangles(n);
+		mesh.computeNodeBelongsToElements();
+		mesh.computeGlobalEdge();
+		assertEquals(2*n*(n+1), mesh.getEdgeList().size());
+		mesh = TestMeshes.triangles(n);
+		mesh.computeNodeBelongsToElements();
+		mesh.computeGlobalEdge();
+		assertEquals(2*n*(n+1)+n*n, mesh.getEdgeList().size());
+	}
+}
@@ -0,0 +1,118 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.SparseBlockMatrix;
+import edu.uta.futureye.algebra.SparseBlockVector;
+import edu.uta.futureye.algebra.SparseMatrixRowMajor;
+import edu.uta.futureye.algebra.SparseVectorHashMap;
+import edu.uta.futureye.algebra.solver.SchurComplementStokesSolver;
+import edu.uta.futureye.algebra.solver.SparseDirectSolver;
+import edu.uta.futureye.test.junit.TestMatrices.CSC;
+
+public class SchurComplementStokesSolverTest {
+
+	/**
+	 * <blockquote><pre>
+	 * nb个速度分量的Stokes块矩阵（稠密存储，下标从0开始）：
+	 *   B_i：m*m个内部结点的5点Laplace矩阵（对称正定）
+	 *   C_i：nv*np的离散梯度（随机稀疏，列满秩）
+	 *   C_i' = -trans(C_i)，最后一个压力自由度为Dirichlet边界：C_i'的该行为零，C的该对角元为1
+	 * </pre></blockquote>
+	 */
+	private static double[][] stokes(int nb, int m, int np, long seed) {
+		int nv = m*m;
+		int n = nb*nv+np;
+		double[][] a = new double[n][n];
+		CSC B = TestMatrices.laplace2D(m);
+		Random rnd = new Random(seed);
+		for(int b=0;b<nb;b++) {
+			int off = b*nv;
+			for(int j=0;j<nv;j++)
+				for(int p=B.Ap[j];p<B.Ap[j+1];p++)
+					a[off+B.Ai[p]][off+j] = B.Ax[p];
+			for(int q=0;q<np;q++) {
+				double[] col = new double[nv];
+				col[(b+q*nv/np)%nv] = 1.0;
+				for(int k=0;k<3;k++)
+					col[rnd.nextInt(nv)] += rnd.nextDouble()*2.0-1.0;
+				for(int r=0;r<nv;r++) {
+					a[off+r][nb*nv+q] = col[r];
+					if(q < np-1)
+						a[nb*nv+q][off+r] = -col[r];
+				}
+			}
+		}
+		a[n-1][n-1] = 1.0;
+		return a;
+	}
+
+	private static SparseMatrixRowMajor block(double[][] a, int r0, int nr, int c0, int nc) {
+		SparseMatrixRowMajor rlt = new SparseMatrixRowMajor(nr, nc);
+		for(int i=0;i<nr;i++)
+			for(int j=0;j<nc;j++)
+				if(a[r0+i][c0+j] != 0.0)
+					rlt.set(i+1, j+1, a[r0+i][c0+j]);
+		return rlt;
+	}
+
+	/**
+	 * 一维线性元的质量矩阵（对称正定）
+	 */
+	private static SparseMatrixRowMajor pressureMass(int np) {
+		SparseMatrixRowMajor M = new SparseMatrixRowMajor(np, np);
+		for(int i=1;i<=np;i++) {
+			M.set(i, i, 4.0/6.0);
+			if(i > 1) M.set(i, i-1, 1.0/6.0);
+			if(i < np) M.set(i, i+1, 1.0/6.0);
+		}
+		return M;
+	}
+
+	private static void compareWithDirectSolve(int nb, boolean useMass) {
+		int m = 6, np = 9, nv = m*m;
+		double[][] a = stokes(nb, m, np, 10+nb);
+		int n = a.length;
+		double[] f = TestMatrices.randomVector(n, 20+nb);
+
+		SparseBlockMatrix A = new SparseBlockMatrix(nb+1, nb+1);
+		SparseBlockVector F = new SparseBlockVector(nb+1);
+		for(int i=0;i<=nb;i++) {
+			int ri = i*nv, nri = i<nb ? nv : np;
+			for(int j=0;j<=nb;j++)
+				A.setBlock(i+1, j+1, block(a, ri, nri, j*nv, j<nb ? nv : np));
+			double[] fi = new double[nri];
+			System.arraycopy(f, ri, fi, 0, nri);
+			F.setBlock(i+1, new SparseVectorHashMap(fi));
+		}
+
+		SchurComplementStokesSolver solver = new SchurComplementStokesSolver(A, F);
+		solver.outerSolver.epsRelIter = 1e-14;
+		if(useMass)
+			solver.setPressureMassMatrix(pressureMass(np));
+		SparseBlockVector u = nb == 2 ? solver.solve2D() : solver.solve3D();
+
+		CSC full = TestMatrices.dense(a);
+		double[] x = new double[n];
+		new SparseDirectSolver().factorize(n, full.Ap, full.Ai, full.Ax).solve(f, x);
+		assertEquals(n, u.getDim());
+		for(int i=0;i<n;i++)
+			assertEquals(x[i], u.get(i+1), 1e-9*Math.max(1.0, Math.abs(x[i])));
+	}
+
+	@Test
+	public void testSolve2D() {
+		compareWithDirectSolve(2, false);
+		compareWithDirectSolve(2, true);
+	}
+
+	@Test
+	public void testSolve3D() {
+		compareWithDirectSolve(3, false);
+		compareWithDirectSolve(3, true);
+	}
+}
@@ -0,0 +1,196 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import edu.uta.futureye.core.Element;
+import edu.uta.futureye.core.Node;
+import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.function.intf.ScalarShapeFunction;
+import edu.uta.futureye.function.operator.FOIntegrate;
+import edu.uta.futureye.function.operator.QuadratureRule;
+import edu.uta.futureye.lib.shapefun.SFBilinearLocal2D;
+import edu.uta.futureye.lib.shapefun.SFLinearLocal2DRS;
+import edu.uta.futureye.lib.shapefun.ShapeFunctionTable;
+import edu.uta.futureye.util.container.NodeList;
+
+/**
+ * 形函数表(ShapeFunctionTable)在积分点上的值和梯度与形函数表达式(Function)的求值相同
+ */
+public class ShapeFunctionTableTest {
+
+	private static Element element(double[][] xy) {
+		NodeList nodes = new NodeList();
+		for(int i=0;i<xy.length;i++)
+			nodes.add(new Node(i+1, xy[i][0], xy[i][1]));
+		Element e = new Element(nodes);
+		e.updateJacobin();
+		return e;
+	}
+
+	private static ScalarShapeFunction[] p1() {
+		return new ScalarShapeFunction[]{
+				new SFLinearLocal2DRS(1), new SFLinearLocal2DRS(2), new SFLinearLocal2DRS(3)};
+	}
+
+	private static ScalarShapeFunction[] q1() {
+		return new ScalarShapeFunction[]{
+				new SFBilinearLocal2D(1), new SFBilinearLocal2D(2),
+				new SFBilinearLocal2D(3), new SFBilinearLocal2D(4)};
+	}
+
+	/**
+	 * <blockquote><pre>
+	 * tab：形函数表，geo：几何映射的形函数表（与sfs相同的线性/双线性形函数）
+	 * fun：与单元e关联的形函数（函数表达式求值）
+	 * 比较积分点上的值、局部坐标导数和x,y方向的导数，以及\sum_q w_q*|J_q| = 单元面积
+	 * </pre></blockquote>
+	 */
+	private static void compare(ScalarShapeFunction[] sfs, ScalarShapeFunction[] geoSFs,
+			ScalarShapeFunction[] fun, QuadratureRule rule, double[][] xy, double area) {
+		ShapeFunctionTable tab = new ShapeFunctionTable(sfs, rule, "r", "s");
+		ShapeFunctionTable geo = new ShapeFunctionTable(geoSFs, rule, "r", "s");
+		int nSF = tab.getShapeFunctionNumber();
+		int nQP = tab.getQuadraturePointNumber();
+		assertEquals(sfs.length, nSF);
+		assertEquals(rule.size(), nQP);
+
+		Element e = element(xy);
+		double[][] coords = new double[2][xy.length];
+		for(int g=0;g<xy.length;g++) {
+			coords[0][g] = xy[g][0];
+			coords[1][g] = xy[g][1];
+		}
+		double[] detJ = new double[nQP];
+		double[] invJ = new double[nQP*4];
+		geo.computeJacobian(coords, detJ, invJ);
+		double[][] grad = new double[2][nSF*nQP];
+		tab.computeGradients(invJ, grad);
+
+		double[] N = tab.getValues();
+		double[] Nr = tab.getDerivatives(0);
+		double[] Ns = tab.getDerivatives(1);
+		for(int i=0;i<nSF;i++) {
+			fun[i].assignElement(e);
+			for(int q=0;q<nQP;q++) {
+				Variable v = rule.getVariable(q);
+				v.setElement(e);
+				int k = i*nQP+q;
+				assertEquals(fun[i].value(v), N[k], 0.0);
+				assertEquals(fun[i]._d("r").value(v), Nr[k], 0.0);
+				assertEquals(fun[i]._d("s").value(v), Ns[k], 0.0);
+				assertEquals(fun[i]._d("x").value(v), grad[0][k], 1e-12);
+				assertEquals(fun[i]._d("y").value(v), grad[1][k], 1e-12);
+			}
+		}
+
+		double[] w = rule.getWeights();
+		double s = 0.0;
+		for(int q=0;q<nQP;q++)
+			s += w[q]*Math.abs(detJ[q]);
+		assertEquals(area, s, 1e-12);
+	}
+
+	@Test
+	public void testP1() {
+		double[][] xy = {{0.3, -0.2}, {2.1, 0.4}, {0.8, 1.9}};
+		double area = 0.5*Math.abs((xy[1][0]-xy[0][0])*(xy[2][1]-xy[0][1])-
+				(xy[2][0]-xy[0][0])*(xy[1][1]-xy[0][1]));
+		//order=5的权重与FOIntegrate.intOnTriangleRefElement()相同，和不等于参考单元面积，只在testQuadratureRule()中比较
+		for(int order : new int[]{2, 3, 4})
+			compare(p1(), p1(), p1(), QuadratureRule.triangle(order), xy, area);
+	}
+
+	/**
+	 * SFBilinearLocal2D用面积计算Jacobian（平行四边形上是精确的）
+	 */
+	@Test
+	public void testQ1() {
+		double[][] xy = {{0.0, 0.0}, {2.0, 0.5}, {2.5, 1.7}, {0.5, 1.2}};
+		double area = 2.0*1.2 - 0.5*0.5;
+		for(int order : new int[]{1, 2, 5})
+			compare(q1(), q1(), q1(), QuadratureRule.rectangle(order), xy, area);
+	}
+
+	/**
+	 * 任意四边形上积分点的Jacobian与插值
+	 */
+	@Test
+	public void testQ1Distorted() {
+		double[][] xy = {{0.0, 0.0}, {2.0, 0.3}, {1.6, 1.4}, {-0.2, 0.9}};
+		ShapeFunctionTable geo = new ShapeFunctionTable(q1(), QuadratureRule.rectangle(5), "r", "s");
+		int nQP = geo.getQuadraturePointNumber();
+		double[][] coords = {{xy[0][0], xy[1][0], xy[2][0], xy[3][0]},
+				{xy[0][1], xy[1][1], xy[2][1], xy[3][1]}};
+		double[] detJ = new double[nQP];
+		double[] invJ = new double[nQP*4];
+		geo.computeJacobian(coords, detJ, invJ);
+		double[] r = geo.getRule().getCoords("r");
+		double[] s = geo.getRule().getCoords("s");
+		double[] xq = new double[nQP];
+		geo.interpolate(coords[0], xq);
+		double area = 0.0;
+		for(int q=0;q<nQP;q++) {
+			//x = \sum_g x_g*(1+r_g*r)*(1+s_g*s)/4
+			double[] rg = {-1, 1, 1, -1}, sg = {-1, -1, 1, 1};
+			double x = 0.0, xr = 0.0, xs = 0.0, yr = 0.0, ys = 0.0;
+			for(int g=0;g<4;g++) {
+				x  += xy[g][0]*(1+rg[g]*r[q])*(1+sg[g]*s[q])/4.0;
+				xr += xy[g][0]*rg[g]*(1+sg[g]*s[q])/4.0;
+				xs += xy[g][0]*sg[g]*(1+rg[g]*r[q])/4.0;
+				yr += xy[g][1]*rg[g]*(1+sg[g]*s[q])/4.0;
+				ys += xy[g][1]*sg[g]*(1+rg[g]*r[q])/4.0;
+			}
+			double det = xr*ys - xs*yr;
+			assertEquals(x, xq[q], 1e-14);
+			assertEquals(det, detJ[q], 1e-14);
+			assertEquals(ys/det, invJ[q*4], 1e-13);
+			assertEquals(-xs/det, invJ[q*4+1], 1e-13);
+			assertEquals(-yr/det, invJ[q*4+2], 1e-13);
+			assertEquals(xr/det, invJ[q*4+3], 1e-13);
+			area += geo.getRule().getWeights()[q]*det;
+		}
+		//鞋带公式
+		double shoelace = 0.0;
+		for(int g=0;g<4;g++)
+			shoelace += xy[g][0]*xy[(g+1)%4][1] - xy[(g+1)%4][0]*xy[g][1];
+		assertEquals(0.5*shoelace, area, 1e-13);
+	}
+
+	/**
+	 * 积分公式与FOIntegrate中的公式相同
+	 */
+	@Test
+	public void testQuadratureRule() {
+		ScalarShapeFunction[] p1 = p1();
+		ScalarShapeFunction[] q1 = q1();
+		for(int order : new int[]{2, 3, 4, 5}) {
+			QuadratureRule tri = QuadratureRule.triangle(order);
+			for(int i=0;i<3;i++)
+				for(int j=0;j<3;j++)
+					assertEquals(FOIntegrate.intOnTriangleRefElement(p1[i].M(p1[j]), order),
+							FOIntegrate.intOnRefElement(p1[i].M(p1[j]), tri), 1e-15);
+		}
+		for(int order : new int[]{1, 2, 5}) {
+			QuadratureRule rect = QuadratureRule.rectangle(order);
+			for(int i=0;i<4;i++)
+				for(int j=0;j<4;j++)
+					assertEquals(FOIntegrate.intOnRectangleRefElement(q1[i].M(q1[j]), order),
+							FOIntegrate.intOnRefElement(q1[i].M(q1[j]), rect), 1e-15);
+		}
+		//\int_T N_i*N_j = (1+\delta_ij)/24，参考三角形面积为1/2
+		QuadratureRule tri = QuadratureRule.triangle(4);
+		ShapeFunctionTable tab = new ShapeFunctionTable(p1, tri, "r", "s");
+		double[] N = tab.getValues();
+		int nQP = tab.getQuadraturePointNumber();
+		double[] v = new double[nQP];
+		for(int i=0;i<3;i++) {
+			for(int j=0;j<3;j++) {
+				for(int q=0;q<nQP;q++)
+					v[q] = N[i*nQP+q]*N[j*nQP+q];
+				assertEquals((i==j ? 2.0 : 1.0)/24.0, tri.integrate(v), 1e-15);
+			}
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.solver.Ordering;
+import edu.uta.futureye.algebra.solver.SparseCholesky;
+import edu.uta.futureye.algebra.solver.SparseDirectSolver;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.test.junit.TestMatrices.CSC;
+import edu.uta.futureye.util.FutureyeException;
+
+public class SparseCholeskyTest {
+
+	private static final int[] TYPES = {
+		Ordering.NATURAL, Ordering.MINIMUM_DEGREE, Ordering.AMD,
+		Ordering.RCM, Ordering.NESTED_DISSECTION
+	};
+
+	private static List<CSC> matrices() {
+		List<CSC> list = new ArrayList<CSC>();
+		list.add(TestMatrices.laplace2D(1));
+		list.add(TestMatrices.laplace2D(7));
+		//大于Ordering.ndLeafSize，嵌套剖分需要剖分
+		list.add(TestMatrices.laplace2D(30));
+		list.add(TestMatrices.random(300, 3, 10.0, true, 5));
+		//不连通的图：对角矩阵和两个互不相连的块
+		list.add(TestMatrices.dense(new double[][] {
+				{2,0,0,0,0},
+				{0,3,0,0,0},
+				{0,0,4,0,0},
+				{0,0,0,5,0},
+				{0,0,0,0,6}}));
+		list.add(TestMatrices.dense(new double[][] {
+				{ 4,-1, 0, 0, 0, 0},
+				{-1, 4, 0, 0, 0,-1},
+				{ 0, 0, 4,-1, 0, 0},
+				{ 0, 0,-1, 4,-1, 0},
+				{ 0, 0, 0,-1, 4, 0},
+				{ 0,-1, 0, 0, 0, 4}}));
+		//星形图：第一行、第一列稠密
+		int n = 50;
+		double[][] a = new double[n][n];
+		for(int i=0;i<n;i++) {
+			a[i][i] = n;
+			a[0][i] = a[i][0] = i == 0 ? n : -1.0;
+		}
+		list.add(TestMatrices.dense(a));
+		return list;
+	}
+
+	private static void assertPermutation(int[] perm, int n) {
+		assertEquals(n, perm.length);
+		boolean[] used = new boolean[n];
+		for(int k=0;k<n;k++) {
+			assertTrue(perm[k] >= 0 && perm[k] < n);
+			assertFalse(used[perm[k]]);
+			used[perm[k]] = true;
+		}
+	}
+
+	@Test
+	public void testOrderingIsPermutation() {
+		for(CSC A : matrices()) {
+			for(int type : TYPES) {
+				int[] perm = Ordering.compute(type, A.n, A.Ap, A.Ai);
+				assertPermutation(perm, A.n);
+				//每种排序都可以用于分解
+				double[] b = TestMatrices.randomVector(A.n, type);
+				double[] x = new double[A.n];
+				new SparseCholesky(A.n, A.Ap, A.Ai, A.Ax, perm).solve(b, x);
+				assertTrue(A.residual(x, b) < 1e-12);
+			}
+		}
+	}
+
+	@Test
+	public void testResidual() {
+		for(CSC A : matrices()) {
+			double[] b = TestMatrices.randomVector(A.n, 7);
+			double[] x = new double[A.n];
+			SparseCholesky f = new SparseCholesky(A.n, A.Ap, A.Ai, A.Ax);
+			f.solve(b, x);
+			assertTrue(A.residual(x, b) < 1e-12);
+			assertPermutation(f.getPermutation(), A.n);
+		}
+	}
+
+	@Test
+	public void testCheckPermutation() {
+		Ordering.checkPermutation(new int[]{2, 0, 1});
+		int[][] invalid = {{0, 0, 1}, {0, 3, 1}, {-1, 0, 1}};
+		for(int[] perm : invalid) {
+			try {
+				Ordering.checkPermutation(perm);
+				fail("invalid permutation");
+			} catch(FutureyeException e) {
+			}
+		}
+		//重新编号前检查排列，网格不改变
+		Mesh mesh = TestMeshes.triangles(3);
+		int n = mesh.getNodeList().size();
+		int[] perm = Ordering.natural(n);
+		perm[n-1] = 0;
+		try {
+			mesh.renumberNodes(perm);
+			fail("renumber nodes with an invalid permutation");
+		} catch(FutureyeException e) {
+		}
+		for(int i=1;i<=n;i++)
+			assertEquals(i, mesh.getNodeList().at(i).globalIndex);
+	}
+
+	@Test(expected=FutureyeException.class)
+	public void testNotPositiveDefinite() {
+		CSC A = TestMatrices.laplace2D(6);
+		//A-5I的最小特征值小于0
+		for(int j=0;j<A.n;j++)
+			for(int p=A.Ap[j];p<A.Ap[j+1];p++)
+				if(A.Ai[p] == j)
+					A.Ax[p] -= 5.0;
+		new SparseCholesky(A.n, A.Ap, A.Ai, A.Ax);
+	}
+
+	@Test
+	public void testIndefiniteFallsBackToLU() {
+		CSC A = TestMatrices.dense(new double[][] {
+				{1, 2, 0},
+				{2, 1, 1},
+				{0, 1, 3}});
+		SparseDirectSolver solver = new SparseDirectSolver();
+		solver.factorize(A.n, A.Ap, A.Ai, A.Ax);
+		assertFalse(solver.isCholesky());
+		double[] b = {1, 2, 3};
+		double[] x = new double[3];
+		solver.solve(b, x);
+		assertTrue(A.residual(x, b) < 1e-14);
+	}
+
+	@Test
+	public void testRefactorize() {
+		CSC A = TestMatrices.random(200, 3, 10.0, true, 11);
+		double[] Ax0 = A.Ax.clone();
+		SparseCholesky f = new SparseCholesky(A.n, A.Ap, A.Ai, A.Ax);
+		double[] b = TestMatrices.randomVector(A.n, 12);
+		for(int k=1;k<=3;k++) {
+			//相同的非零元素结构，不同的数值
+			for(int p=0;p<A.Ax.length;p++)
+				A.Ax[p] = Ax0[p]*(1.0+0.1*k);
+			for(int j=0;j<A.n;j++)
+				for(int p=A.Ap[j];p<A.Ap[j+1];p++)
+					if(A.Ai[p] == j)
+						A.Ax[p] += k;
+			f.factorize(A.Ax);
+			double[] x = new double[A.n];
+			f.solve(b, x);
+			assertTrue(A.residual(x, b) < 1e-12);
+		}
+		//回到原来的数值
+		A.Ax = Ax0;
+		f.factorize(A.Ax);
+		double[] x = new double[A.n];
+		f.solve(b, x);
+		assertTrue(A.residual(x, b) < 1e-12);
+	}
+}
@@ -0,0 +1,108 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.solver.Factorization;
+import edu.uta.futureye.algebra.solver.SparseDirectSolver;
+import edu.uta.futureye.algebra.solver.SparseLU;
+import edu.uta.futureye.test.junit.TestMatrices.CSC;
+import edu.uta.futureye.util.FutureyeException;
+
+public class SparseLUTest {
+
+	private static SparseLU factorize(CSC A) {
+		return new SparseLU(A.n, A.Ap, A.Ai, A.Ax);
+	}
+
+	@Test
+	public void testNonsymmetric() {
+		CSC A = TestMatrices.convectionDiffusion(15, 5.0);
+		double[] b = TestMatrices.randomVector(A.n, 1);
+		double[] x = new double[A.n];
+		factorize(A).solve(b, x);
+		assertTrue(A.residual(x, b) < 1e-12);
+
+		//对角元素较小，需要选主元
+		A = TestMatrices.random(200, 4, 1e-3, false, 2);
+		b = TestMatrices.randomVector(A.n, 3);
+		factorize(A).solve(b, x = new double[A.n]);
+		assertTrue(A.residual(x, b) < 1e-10);
+
+		SparseDirectSolver solver = new SparseDirectSolver();
+		solver.factorize(A.n, A.Ap, A.Ai, A.Ax);
+		assertFalse(solver.isCholesky());
+	}
+
+	@Test
+	public void testZeroDiagonal() {
+		//对角元素全为0
+		double[][] a = {
+				{0, 2, 0, 1},
+				{3, 0, 1, 0},
+				{0, 1, 0, 4},
+				{1, 0, 5, 0}};
+		CSC A = TestMatrices.dense(a);
+		double[] b = {1, 2, 3, 4};
+		double[] x = new double[4];
+		factorize(A).solve(b, x);
+		assertTrue(A.residual(x, b) < 1e-14);
+	}
+
+	@Test(expected=FutureyeException.class)
+	public void testZeroColumn() {
+		double[][] a = {
+				{2, 0, 1},
+				{1, 0, 3},
+				{0, 0, 1}};
+		factorize(TestMatrices.dense(a));
+	}
+
+	@Test(expected=FutureyeException.class)
+	public void testSingular() {
+		//第2列是第1列的2倍，所有运算都是精确的
+		double[][] a = {
+				{2, 4, 0, 1},
+				{1, 2, 0, 0},
+				{0, 0, 4, 1},
+				{1, 2, 1, 0}};
+		factorize(TestMatrices.dense(a));
+	}
+
+	@Test
+	public void testMultipleRightHandSides() {
+		CSC A = TestMatrices.convectionDiffusion(12, 2.0);
+		int n = A.n, m = 5;
+		double[][] B = new double[n][m];
+		for(int c=0;c<m;c++) {
+			double[] b = TestMatrices.randomVector(n, 10+c);
+			for(int i=0;i<n;i++)
+				B[i][c] = b[i];
+		}
+		Factorization f = factorize(A);
+		double[][] X = new double[n][m];
+		f.solve(B, X);
+		for(int c=0;c<m;c++) {
+			double[] b = new double[n];
+			for(int i=0;i<n;i++)
+				b[i] = B[i][c];
+			double[] x = new double[n];
+			f.solve(b, x);
+			double[] xc = new double[n];
+			for(int i=0;i<n;i++) {
+				xc[i] = X[i][c];
+				assertEquals(x[i], xc[i], 1e-12);
+			}
+			assertTrue(A.residual(xc, b) < 1e-12);
+		}
+
+		//X和B为同一个数组
+		f.solve(B, B);
+		for(int i=0;i<n;i++)
+			for(int c=0;c<m;c++)
+				assertEquals(X[i][c], B[i][c], 0.0);
+	}
+}
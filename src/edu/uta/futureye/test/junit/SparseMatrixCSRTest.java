@@ -0,0 +1,76 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.FullVector;
+import edu.uta.futureye.algebra.SparseMatrixCSR;
+import edu.uta.futureye.algebra.SparseMatrixRowMajor;
+import edu.uta.futureye.algebra.intf.MatrixEntry;
+import edu.uta.futureye.algebra.intf.SparseMatrix;
+
+public class SparseMatrixCSRTest {
+
+	@Test
+	public void testAddSetGet() {
+		SparseMatrixCSR A = new SparseMatrixCSR(3,3);
+		A.add(1, 1, 1.0);
+		A.add(3, 2, 2.0);
+		A.add(1, 1, 1.0);
+		A.set(2, 3, 5.0);
+		A.add(2, 3, 1.0);
+		assertEquals(2.0, A.get(1, 1), 0.0);
+		assertEquals(2.0, A.get(3, 2), 0.0);
+		assertEquals(6.0, A.get(2, 3), 0.0);
+		assertEquals(0.0, A.get(2, 2), 0.0);
+		assertEquals(3, A.getNonZeroNumber());
+
+		//entries in CSR structure are updated in place
+		A.add(1, 1, -2.0);
+		A.set(3, 2, 0.0);
+		assertEquals(0.0, A.get(1, 1), 0.0);
+		assertEquals(1, A.getNonZeroNumber());
+		A.compact();
+		assertEquals(1, A.getColIndex().length);
+	}
+
+	@Test
+	public void testSameAsSparseMatrixRowMajor() {
+		SparseMatrix SA = new SparseMatrixRowMajor(4,5);
+		SparseMatrixCSR SB = new SparseMatrixCSR(4,5);
+		for(int i=1;i<=4;i++) {
+			for(int j=1;j<=5;j++) {
+				if((i+j)%3 != 0) {
+					SA.add(i, j, i+3*(j-1));
+					SB.add(i, j, i+3*(j-1));
+					SB.add(i, j, 0.5);
+					SB.add(i, j, -0.5);
+				}
+			}
+		}
+		int n = 0;
+		for(MatrixEntry e : SB) {
+			assertEquals(SA.get(e.getRow(), e.getCol()), e.getValue(), 0.0);
+			n++;
+		}
+		assertEquals(SA.getNonZeroNumber(), n);
+
+		CompressedRowMatrix A1 = new CompressedRowMatrix(SA,false);
+		CompressedRowMatrix A2 = new CompressedRowMatrix(SB,false);
+		FullVector x = new FullVector(5,1.0);
+		FullVector y1 = new FullVector(4);
+		FullVector y2 = new FullVector(4);
+		A1.mult(x, y1);
+		A2.mult(x, y2);
+		for(int i=0;i<4;i++)
+			assertEquals(y1.getData()[i], y2.getData()[i], 1e-12);
+
+		SB.trans();
+		for(int i=1;i<=4;i++)
+			for(int j=1;j<=5;j++)
+				assertEquals(SA.get(i, j), SB.get(j, i), 0.0);
+	}
+
+}
@@ -0,0 +1,124 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.uta.futureye.algebra.SparseMatrixCSR;
+import edu.uta.futureye.algebra.intf.SparseMatrix;
+import edu.uta.futureye.algebra.intf.Vector;
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.NodeType;
+import edu.uta.futureye.function.basic.FAxpb;
+import edu.uta.futureye.function.basic.FC;
+import edu.uta.futureye.lib.assembler.AssemblerScalar;
+import edu.uta.futureye.lib.assembler.SparsityPattern;
+import edu.uta.futureye.lib.weakform.WeakFormLaplace2D;
+
+public class SparsityPatternTest {
+
+	/**
+	 * <blockquote><pre>
+	 * triangles(1)：结点0,1,2,3为(0,0),(1,0),(0,1),(1,1)，单元{0,1,3}和{0,3,2}，
+	 * 结点1和2不耦合
+	 * </pre></blockquote>
+	 */
+	@Test
+	public void testTriangles() {
+		Mesh mesh = TestMeshes.prepare(TestMeshes.triangles(1), NodeType.Dirichlet);
+		SparsityPattern p = SparsityPattern.build(mesh);
+		assertEquals(4, p.getRowDim());
+		assertEquals(4, p.getColDim());
+		assertArrayEquals(new int[]{0, 4, 7, 10, 14}, p.getRowPointer());
+		assertArrayEquals(new int[]{0, 1, 2, 3,  0, 1, 3,  0, 2, 3,  0, 1, 2, 3},
+				p.getColIndex());
+		assertEquals(-1, p.indexOf(1, 2));
+		assertEquals(5, p.indexOf(1, 1));
+	}
+
+	@Test
+	public void testRectangles() {
+		//四边形单元的对角结点也耦合：n=2时内部结点4与所有结点耦合
+		Mesh mesh = TestMeshes.prepare(TestMeshes.rectangles(2), NodeType.Dirichlet);
+		SparsityPattern p = SparsityPattern.build(mesh);
+		int[] rowPtr = p.getRowPointer();
+		int[] colIdx = p.getColIndex();
+		assertEquals(9, p.getRowDim());
+		assertEquals(4+6+4+6+9+6+4+6+4, p.getNonZeroNumber());
+		assertArrayEquals(new int[]{0, 1, 3, 4}, copy(colIdx, rowPtr[0], rowPtr[1]));
+		assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8}, copy(colIdx, rowPtr[4], rowPtr[5]));
+		assertArrayEquals(new int[]{3, 4, 6, 7}, copy(colIdx, rowPtr[6], rowPtr[7]));
+	}
+
+	private static int[] copy(int[] a, int from, int to) {
+		int[] rlt = new int[to-from];
+		System.arraycopy(a, from, rlt, 0, rlt.length);
+		return rlt;
+	}
+
+	/**
+	 * 结点数相同、单元不同的网格的结构不同
+	 */
+	@Test
+	public void testIsPatternOf() {
+		Mesh tri = TestMeshes.prepare(TestMeshes.triangles(3), NodeType.Dirichlet);
+		Mesh rect = TestMeshes.prepare(TestMeshes.rectangles(3), NodeType.Dirichlet);
+		SparsityPattern p = SparsityPattern.build(tri);
+		assertTrue(p.isPatternOf(tri));
+		assertTrue(p.isPatternOf(TestMeshes.prepare(TestMeshes.triangles(3), NodeType.Dirichlet)));
+		assertEquals(tri.getNodeList().size(), rect.getNodeList().size());
+		assertFalse(p.isPatternOf(rect));
+		assertFalse(p.isPatternOf(TestMeshes.prepare(TestMeshes.triangles(4), NodeType.Dirichlet)));
+		assertFalse(new SparsityPattern(p.getRowDim(), p.getColDim(),
+				p.getRowPointer(), p.getColIndex()).isPatternOf(tri));
+	}
+
+	@Test
+	public void testAddOutsidePattern() {
+		Mesh mesh = TestMeshes.prepare(TestMeshes.triangles(1), NodeType.Dirichlet);
+		SparseMatrixCSR A = SparsityPattern.build(mesh).createMatrix();
+		A.add(1, 1, 1.0);
+		A.add(2, 3, 2.0);
+		A.add(2, 3, 0.5);
+		A.add(3, 2, -1.0);
+		A.add(4, 4, 3.0);
+		A.compress();
+		assertEquals(1.0, A.get(1, 1), 0.0);
+		assertEquals(2.5, A.get(2, 3), 0.0);
+		assertEquals(-1.0, A.get(3, 2), 0.0);
+		assertEquals(3.0, A.get(4, 4), 0.0);
+		assertEquals(0.0, A.get(1, 2), 0.0);
+	}
+
+	/**
+	 * 用三角形网格的结构合成四边形网格：对角结点(1,6)不在结构中，合成结果与默认的结构相同
+	 */
+	@Test
+	public void testAssembleOutsidePattern() {
+		Mesh rect = TestMeshes.prepare(TestMeshes.rectangles(5), NodeType.Robin);
+		Mesh tri = TestMeshes.prepare(TestMeshes.triangles(5), NodeType.Robin);
+		WeakFormLaplace2D wf = new WeakFormLaplace2D();
+		wf.setF(new FAxpb("x", 2.0, 1.0));
+		wf.setParam(FC.c(1.0), FC.c(0.5), null, FC.c(1.0));
+
+		AssemblerScalar asm = new AssemblerScalar(rect, wf);
+		asm.assemble();
+		SparseMatrix A = asm.getStiffnessMatrix();
+		Vector f = asm.getLoadVector();
+		AssemblerScalar asmStale = new AssemblerScalar(rect, wf, SparsityPattern.build(tri));
+		asmStale.assemble();
+		SparseMatrix B = asmStale.getStiffnessMatrix();
+		Vector g = asmStale.getLoadVector();
+
+		int n = A.getRowDim();
+		for(int i=1;i<=n;i++) {
+			for(int j=1;j<=n;j++)
+				assertEquals(A.get(i, j), B.get(i, j), 1e-14);
+			assertEquals(f.get(i), g.get(i), 1e-14);
+		}
+		assertTrue(A.get(2, 7) != 0.0);
+	}
+}
@@ -0,0 +1,166 @@
+package edu.uta.futureye.test.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import edu.uta.futureye.algebra.CompressedRowMatrix;
+import edu.uta.futureye.algebra.FullVector;
+
+/**
+ * Small sparse matrices for the solver tests, stored as 0-based CSC arrays
+ *
+ * @author liuyueming
+ *
+ */
+public class TestMatrices {
+
+	public static class CSC {
+		public int n;
+		public int[] Ap;
+		public int[] Ai;
+		public double[] Ax;
+
+		public double[] mult(double[] x) {
+			double[] y = new double[n];
+			for(int j=0;j<n;j++)
+				for(int p=Ap[j];p<Ap[j+1];p++)
+					y[Ai[p]] += Ax[p]*x[j];
+			return y;
+		}
+
+		/**
+		 * ||b-A*x||_2/||b||_2
+		 */
+		public double residual(double[] x, double[] b) {
+			double[] y = mult(x);
+			double r = 0.0, nb = 0.0;
+			for(int i=0;i<n;i++) {
+				r += (b[i]-y[i])*(b[i]-y[i]);
+				nb += b[i]*b[i];
+			}
+			return Math.sqrt(r/nb);
+		}
+
+		public CompressedRowMatrix toCompressedRowMatrix() {
+			int[] cnt = new int[n];
+			for(int p=0;p<Ap[n];p++)
+				cnt[Ai[p]]++;
+			int[][] idx = new int[n][];
+			double[][] val = new double[n][];
+			for(int i=0;i<n;i++) {
+				idx[i] = new int[cnt[i]];
+				val[i] = new double[cnt[i]];
+				cnt[i] = 0;
+			}
+			//列按升序遍历，每行的列下标也是升序
+			for(int j=0;j<n;j++) {
+				for(int p=Ap[j];p<Ap[j+1];p++) {
+					int i = Ai[p];
+					idx[i][cnt[i]] = j;
+					val[i][cnt[i]++] = Ax[p];
+				}
+			}
+			CompressedRowMatrix A = new CompressedRowMatrix(n, n);
+			for(int i=0;i<n;i++)
+				A.setRow(i+1, idx[i], val[i]);
+			return A;
+		}
+	}
+
+	protected static CSC fromColumns(List<TreeMap<Integer,Double>> cols) {
+		CSC A = new CSC();
+		A.n = cols.size();
+		A.Ap = new int[A.n+1];
+		for(int j=0;j<A.n;j++)
+			A.Ap[j+1] = A.Ap[j]+cols.get(j).size();
+		A.Ai = new int[A.Ap[A.n]];
+		A.Ax = new double[A.Ap[A.n]];
+		int p = 0;
+		for(int j=0;j<A.n;j++) {
+			for(Map.Entry<Integer,Double> e : cols.get(j).entrySet()) {
+				A.Ai[p] = e.getKey();
+				A.Ax[p++] = e.getValue();
+			}
+		}
+		return A;
+	}
+
+	protected static List<TreeMap<Integer,Double>> emptyColumns(int n) {
+		List<TreeMap<Integer,Double>> cols = new ArrayList<TreeMap<Integer,Double>>();
+		for(int j=0;j<n;j++)
+			cols.add(new TreeMap<Integer,Double>());
+		return cols;
+	}
+
+	/**
+	 * Non-zero entries of a dense matrix <tt>a</tt>
+	 */
+	public static CSC dense(double[][] a) {
+		List<TreeMap<Integer,Double>> cols = emptyColumns(a.length);
+		for(int i=0;i<a.length;i++)
+			for(int j=0;j<a.length;j++)
+				if(a[i][j] != 0.0)
+					cols.get(j).put(i, a[i][j]);
+		return fromColumns(cols);
+	}
+
+	/**
+	 * 单位正方形上m*m个内部结点的差分矩阵
+	 *   -\Delta u + beta*u_x（迎风格式），beta=0时为对称正定的5点Laplace矩阵
+	 */
+	public static CSC convectionDiffusion(int m, double beta) {
+		List<TreeMap<Integer,Double>> cols = emptyColumns(m*m);
+		for(int j=0;j<m;j++) {
+			for(int i=0;i<m;i++) {
+				int row = j*m+i;
+				cols.get(row).put(row, 4.0+beta);
+				if(i > 0)   cols.get(row-1).put(row, -1.0-beta);
+				if(i < m-1) cols.get(row+1).put(row, -1.0);
+				if(j > 0)   cols.get(row-m).put(row, -1.0);
+				if(j < m-1) cols.get(row+m).put(row, -1.0);
+			}
+		}
+		return fromColumns(cols);
+	}
+
+	public static CSC laplace2D(int m) {
+		return convectionDiffusion(m, 0.0);
+	}
+
+	/**
+	 * 随机稀疏矩阵，每列约nzPerCol个非对角元素，对角元素为diag
+	 *
+	 * @param symmetric 对称矩阵
+	 */
+	public static CSC random(int n, int nzPerCol, double diag, boolean symmetric, long seed) {
+		Random rnd = new Random(seed);
+		List<TreeMap<Integer,Double>> cols = emptyColumns(n);
+		for(int j=0;j<n;j++) {
+			cols.get(j).put(j, diag);
+			for(int k=0;k<nzPerCol;k++) {
+				int i = rnd.nextInt(n);
+				if(i == j) continue;
+				double v = rnd.nextDouble()*2.0-1.0;
+				cols.get(j).put(i, v);
+				if(symmetric)
+					cols.get(i).put(j, v);
+			}
+		}
+		return fromColumns(cols);
+	}
+
+	public static double[] randomVector(int n, long seed) {
+		Random rnd = new Random(seed);
+		double[] b = new double[n];
+		for(int i=0;i<n;i++)
+			b[i] = rnd.nextDouble()*2.0-1.0;
+		return b;
+	}
+
+	public static FullVector toFullVector(double[] b) {
+		return new FullVector(b.clone(), false);
+	}
+}
@@ -0,0 +1,170 @@
+package edu.uta.futureye.test.junit;
+
+import java.util.HashMap;
+
+import edu.uta.futureye.core.Mesh;
+import edu.uta.futureye.core.MeshArrays;
+import edu.uta.futureye.core.NodeType;
+import edu.uta.futureye.function.intf.Function;
+import edu.uta.futureye.lib.element.FEBilinearRectangle;
+import edu.uta.futureye.lib.element.FELinearTriangle;
+import edu.uta.futureye.util.container.ElementList;
+
+/**
+ * 测试用的网格：单位正方形上n*n个正方形单元，不需要读网格文件
+ *
+ * @author liuyueming
+ *
+ */
+public class TestMeshes {
+
+	/**
+	 * 结点(i,j)的坐标为(i/n,j/n)，编号为j*(n+1)+i（下标从0开始）
+	 */
+	private static double[] coords(int n) {
+		double[] coords = new double[2*(n+1)*(n+1)];
+		for(int j=0;j<=n;j++) {
+			for(int i=0;i<=n;i++) {
+				coords[2*(j*(n+1)+i)] = (double)i/n;
+				coords[2*(j*(n+1)+i)+1] = (double)j/n;
+			}
+		}
+		return coords;
+	}
+
+	/**
+	 * 每个正方形分为两个三角形（逆时针）
+	 */
+	public static Mesh triangles(int n) {
+		int[] ptr = new int[2*n*n+1];
+		int[] eNodes = new int[6*n*n];
+		int e = 0;
+		for(int j=0;j<n;j++) {
+			for(int i=0;i<n;i++) {
+				int n1 = j*(n+1)+i, n2 = n1+1, n3 = n2+n+1, n4 = n1+n+1;
+				int[] tri = {n1, n2, n3, n1, n3, n4};
+				for(int k=0;k<6;k++)
+					eNodes[3*e+k] = tri[k];
+				ptr[e+1] = ptr[e]+3;
+				ptr[e+2] = ptr[e]+6;
+				e += 2;
+			}
+		}
+		return new MeshArrays(2, coords(n), ptr, eNodes).toMesh();
+	}
+
+	/**
+	 * 正方形单元（逆时针）
+	 */
+	public static Mesh rectangles(int n) {
+		int[] ptr = new int[n*n+1];
+		int[] eNodes = new int[4*n*n];
+		for(int j=0;j<n;j++) {
+			for(int i=0;i<n;i++) {
+				int e = j*n+i;
+				int n1 = j*(n+1)+i;
+				eNodes[4*e] = n1;
+				eNodes[4*e+1] = n1+1;
+				eNodes[4*e+2] = n1+n+2;
+				eNodes[4*e+3] = n1+n+1;
+				ptr[e+1] = ptr[e]+4;
+			}
+		}
+		return new MeshArrays(2, coords(n), ptr, eNodes).toMesh();
+	}
+
+	/**
+	 * 单位立方体上n*n*n个立方体单元，结点(i,j,k)的编号为(k*(n+1)+j)*(n+1)+i（下标从0开始）
+	 */
+	private static double[] coords3D(int n) {
+		double[] coords = new double[3*(n+1)*(n+1)*(n+1)];
+		for(int k=0;k<=n;k++) {
+			for(int j=0;j<=n;j++) {
+				for(int i=0;i<=n;i++) {
+					int p = 3*((k*(n+1)+j)*(n+1)+i);
+					coords[p] = (double)i/n;
+					coords[p+1] = (double)j/n;
+					coords[p+2] = (double)k/n;
+				}
+			}
+		}
+		return coords;
+	}
+
+	/**
+	 * 立方体单元(i,j,k)的8个顶点：底面逆时针，然后顶面（与HexahedronTp相同）
+	 */
+	private static int[] cube(int n, int i, int j, int k) {
+		int n1 = (k*(n+1)+j)*(n+1)+i, up = (n+1)*(n+1);
+		return new int[] {n1, n1+1, n1+n+2, n1+n+1, n1+up, n1+up+1, n1+up+n+2, n1+up+n+1};
+	}
+
+	/**
+	 * 立方体单元
+	 */
+	public static MeshArrays hexahedra(int n) {
+		int nEle = n*n*n;
+		int[] ptr = new int[nEle+1];
+		int[] eNodes = new int[8*nEle];
+		int e = 0;
+		for(int k=0;k<n;k++) {
+			for(int j=0;j<n;j++) {
+				for(int i=0;i<n;i++) {
+					System.arraycopy(cube(n, i, j, k), 0, eNodes, 8*e, 8);
+					ptr[e+1] = ptr[e]+8;
+					e++;
+				}
+			}
+		}
+		return new MeshArrays(3, coords3D(n), ptr, eNodes);
+	}
+
+	/**
+	 * 每个立方体沿对角线（顶点1到7）分为6个四面体，相邻立方体的面协调
+	 */
+	public static MeshArrays tetrahedra(int n) {
+		//从顶点1到顶点7（cube()中的位置0和6）依次沿三个坐标方向的路径
+		int[][] paths = {{1,2}, {1,5}, {3,2}, {3,7}, {4,5}, {4,7}};
+		int nEle = 6*n*n*n;
+		int[] ptr = new int[nEle+1];
+		int[] eNodes = new int[4*nEle];
+		int e = 0;
+		for(int k=0;k<n;k++) {
+			for(int j=0;j<n;j++) {
+				for(int i=0;i<n;i++) {
+					int[] c = cube(n, i, j, k);
+					for(int[] path : paths) {
+						eNodes[4*e] = c[0];
+						eNodes[4*e+1] = c[path[0]];
+						eNodes[4*e+2] = c[path[1]];
+						eNodes[4*e+3] = c[6];
+						ptr[e+1] = ptr[e]+4;
+						e++;
+					}
+				}
+			}
+		}
+		return new MeshArrays(3, coords3D(n), ptr, eNodes);
+	}
+
+	/**
+	 * 计算结点所属单元，标记边界结点类型，分配线性（双线性）单元
+	 */
+	public static Mesh prepare(Mesh mesh, NodeType borderType) {
+		mesh.computeNodeBelongsToElements();
+		HashMap<NodeType, Function> mapNTF = new HashMap<NodeType, Function>();
+		mapNTF.put(borderType, null);
+		mesh.markBorderNode(mapNTF);
+		ElementList eList = mesh.getElementList();
+		if(eList.at(1).nodes.size() == 4) {
+			FEBilinearRectangle fe = new FEBilinearRectangle();
+			for(int i=1;i<=eList.size();i++)
+				fe.assignTo(eList.at(i));
+		} else {
+			FELinearTriangle fe = new FELinearTriangle();
+			for(int i=1;i<=eList.size();i++)
+				fe.assignTo(eList.at(i));
+		}
+		return mesh;
+	}
+}
@@ -0,0 +1,175 @@
+package edu.uta.futureye.test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import edu.uta.futureye.function.VN;
+import edu.uta.futureye.function.Variable;
+import edu.uta.futureye.util.FutureyeException;
+
+/**
+ * 变量名与Variable中数组下标(slot)的对应关系，参见VN.intern()
+ */
+public class VariableTest {
+
+	/**
+	 * VN中的变量名之外的名称，每次调用都不同（VN中的对应关系是全局的）
+	 */
+	private static int nextName = 0;
+	private static synchronized String newName() {
+		return "VariableTest_"+(nextName++);
+	}
+
+	@Test
+	public void testBuiltinNames() {
+		for(int i=0;i<VN.names.length;i++) {
+			String name = VN.names[i];
+			assertEquals(i, VN.valueOf(name).getID());
+			assertEquals(i, VN.getID(name));
+			assertEquals(i, VN.lookup(name));
+			assertEquals(i, VN.intern(name));
+			assertEquals(name, VN.getName(i));
+		}
+	}
+
+	@Test
+	public void testIntern() {
+		String a = newName();
+		String b = newName();
+		assertEquals(-1, VN.getID(a));
+		assertEquals(-1, VN.lookup(a));
+		int ia = VN.intern(a);
+		assertTrue(ia >= VN.names.length);
+		assertEquals(ia, VN.intern(a));
+		assertEquals(ia, VN.lookup(a));
+		assertEquals(-1, VN.getID(a));
+		assertEquals(a, VN.getName(ia));
+		//equals()相同的另一个字符串对象
+		assertEquals(ia, VN.lookup(new String(a)));
+
+		assertEquals(-1, VN.lookup(b));
+		int ib = VN.intern(b);
+		assertTrue(ia != ib);
+		assertEquals(b, VN.getName(ib));
+		assertEquals(a, VN.getName(ia));
+	}
+
+	/**
+	 * 多个线程同时intern相同的变量名，每个变量名只分配一个下标
+	 */
+	@Test
+	public void testConcurrentIntern() throws Exception {
+		final String[] names = new String[50];
+		for(int i=0;i<names.length;i++)
+			names[i] = newName();
+		int nThreads = 8;
+		ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+		try {
+			List<Future<int[]>> futures = new ArrayList<Future<int[]>>();
+			for(int t=0;t<nThreads;t++) {
+				futures.add(pool.submit(new Callable<int[]>() {
+					@Override
+					public int[] call() {
+						int[] ids = new int[names.length];
+						for(int i=0;i<names.length;i++)
+							ids[i] = VN.intern(names[i]);
+						return ids;
+					}
+				}));
+			}
+			int[] ids = futures.get(0).get();
+			for(Future<int[]> f : futures)
+				assertArrayEquals(ids, f.get());
+			for(int i=0;i<names.length;i++) {
+				assertEquals(names[i], VN.getName(ids[i]));
+				for(int j=0;j<i;j++)
+					assertTrue(ids[i] != ids[j]);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSetGet() {
+		String a = newName();
+		Variable v = new Variable("x", 1.0).set(VN.s, 2.0).set(a, 3.0);
+		int ia = VN.lookup(a);
+		assertEquals(3, v.size());
+		assertEquals(1.0, v.get("x"), 0.0);
+		assertEquals(1.0, v.get(VN.x), 0.0);
+		assertEquals(1.0, v.get(), 0.0);
+		assertEquals(2.0, v.get("s"), 0.0);
+		assertEquals(2.0, v.getByID(VN.s.getID()), 0.0);
+		assertEquals(3.0, v.get(a), 0.0);
+		assertEquals(3.0, v.getByID(ia), 0.0);
+		assertTrue(v.contains(a));
+		assertFalse(v.contains("y"));
+
+		//重新赋值不改变变量个数和顺序
+		v.set(a, 4.0).setByID(VN.x.getID(), 5.0);
+		assertEquals(3, v.size());
+		assertEquals(4.0, v.get(a), 0.0);
+		assertEquals(5.0, v.get(), 0.0);
+		assertEquals(Arrays.asList("x", "s", a), new ArrayList<String>(v.getValues().keySet()));
+		assertEquals(Arrays.asList(5.0, 2.0, 4.0), new ArrayList<Double>(v.getValues().values()));
+	}
+
+	/**
+	 * 没有intern的变量名和没有赋值的变量
+	 */
+	@Test
+	public void testMissing() {
+		String never = newName();
+		String unset = newName();
+		int iu = VN.intern(unset);
+		Variable v = new Variable("x", 1.0);
+		assertFalse(v.contains(never));
+		assertFalse(v.contains(unset));
+		assertFalse(v.contains("y"));
+		try {
+			v.get(never);
+			fail("get a name never interned");
+		} catch(FutureyeException e) {
+		}
+		//查找不分配下标
+		assertEquals(-1, VN.lookup(never));
+		try {
+			v.get(unset);
+			fail("get an unset variable");
+		} catch(FutureyeException e) {
+		}
+		try {
+			v.getByID(iu);
+			fail("get an unset slot");
+		} catch(FutureyeException e) {
+		}
+		try {
+			v.get(VN.y);
+			fail("get an unset variable of VN");
+		} catch(FutureyeException e) {
+		}
+		try {
+			new Variable().get();
+			fail("get the value of an empty variable");
+		} catch(FutureyeException e) {
+		}
+		//赋值后可以取值
+		v.set(unset, 7.0);
+		assertEquals(7.0, v.getByID(iu), 0.0);
+		assertEquals(2, v.size());
+	}
+}
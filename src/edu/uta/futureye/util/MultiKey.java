@@ -6,8 +6,8 @@ package edu.uta.futureye.util;
  *
  */
 public class MultiKey {
-	Integer k1;
-	Integer k2;
+	int k1;
+	int k2;
 	boolean hasOrder = false;
 	
 	public MultiKey(int k1,int k2) {
@@ -43,11 +43,10 @@ public class MultiKey {
     
 	@Override
     public int hashCode() {
-		//TODO
 		if(this.hasOrder)
-			return 70000000*k1.hashCode() + k2.hashCode();
+			return 31*k1 + k2;
 		else
-			return 70000000*(k1.hashCode() + k2.hashCode());
+			return 31*Math.min(k1, k2) + Math.max(k1, k2);
 	}
 	/*****************************************************
 	 */
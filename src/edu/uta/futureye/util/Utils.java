@@ -29,6 +29,7 @@ import edu.uta.futureye.util.container.DOFList;
 import edu.uta.futureye.util.container.NodeList;
 import edu.uta.futureye.util.container.ObjIndex;
 import edu.uta.futureye.util.container.ObjList;
+import edu.uta.futureye.util.container.VertexList;
 
 public class Utils {
 	
@@ -381,6 +382,33 @@ public class Utils {
 		return rlt;
 	}
 	
+	/**
+	 * 函数在单元顶点上的值，顺序与e.vertices()相同。
+	 * 与interpolateOnElement()使用相同的结点值，用于形函数表插值(ShapeFunctionTable.interpolate())
+	 * 
+	 * @param fun
+	 * @param e
+	 * @return
+	 */
+	public static double[] valuesOnVertices(Function fun, Element e) {
+		if(fun == null) throw new FutureyeException("fun should not be null");
+		VertexList vl = e.vertices();
+		double[] rlt = new double[vl.size()];
+		for(int i=1;i<=vl.size();i++) {
+			Vertex p = vl.at(i);
+			int index = 0;
+			//当fun是向量值函数时，函数的值靠下标获得，应该获取结点上自由度的全局编号
+			int localNodeIndex = e.getLocalIndex(e.getNode(p));
+			DOFList DOFs = e.getNodeDOFList(localNodeIndex);
+			if(DOFs != null)
+				index = DOFs.at(1).getGlobalIndex();
+			Variable var = Variable.createFrom(fun, p, index);
+			var.setElement(e);
+			rlt[i-1] = fun.value(var);
+		}
+		return rlt;
+	}
+	
 	//只是用于三角形线性元
 	public static Map<String, Function> getFunctionComposeMap(Element e) {
 		final Element fe =e;
@@ -766,7 +794,7 @@ public class Utils {
 		} else if(A.length == 3) {
 			return    A[0][0]*(A[1][1]*A[2][2] - A[1][2]*A[2][1]) 
 					- A[0][1]*(A[1][0]*A[2][2] - A[1][2]*A[2][0]) 
-					+ A[0][2]*(A[0][0]*A[1][1] - A[0][1]*A[0][1]);
+					+ A[0][2]*(A[1][0]*A[2][1] - A[1][1]*A[2][0]);
 		}
 		throw new FutureyeException("NOT Supported!");
 	}
@@ -787,7 +815,7 @@ public class Utils {
 			for(int i=0;i<len;i++) {
 				rlt[i] = A[0][0][i]*(A[1][1][i]*A[2][2][i] - A[1][2][i]*A[2][1][i]) 
 						- A[0][1][i]*(A[1][0][i]*A[2][2][i] - A[1][2][i]*A[2][0][i]) 
-						+ A[0][2][i]*(A[0][0][i]*A[1][1][i] - A[0][1][i]*A[0][1][i]);
+						+ A[0][2][i]*(A[1][0][i]*A[2][1][i] - A[1][1][i]*A[2][0][i]);
 			}
 		} else 
 			throw new FutureyeException("NOT Supported!");